@@ -195,6 +195,44 @@ public final class BlockGuard {
             return mFileSystem.writeDirect(fileDescriptor, address, offset, length);
         }
 
+        public long pread(int fileDescriptor, byte[] bytes, int offset, int length,
+                          long position) throws IOException {
+            BlockGuard.getThreadPolicy().onReadFromDisk();
+            return mFileSystem.pread(fileDescriptor, bytes, offset, length, position);
+        }
+
+        public long pwrite(int fileDescriptor, byte[] bytes, int offset, int length,
+                           long position) throws IOException {
+            BlockGuard.getThreadPolicy().onWriteToDisk();
+            return mFileSystem.pwrite(fileDescriptor, bytes, offset, length, position);
+        }
+
+        public long preadDirect(int fileDescriptor, int address, int offset,
+                                int length, long position) throws IOException {
+            BlockGuard.getThreadPolicy().onReadFromDisk();
+            return mFileSystem.preadDirect(fileDescriptor, address, offset, length, position);
+        }
+
+        public long pwriteDirect(int fileDescriptor, int address, int offset,
+                                 int length, long position) throws IOException {
+            BlockGuard.getThreadPolicy().onWriteToDisk();
+            return mFileSystem.pwriteDirect(fileDescriptor, address, offset, length, position);
+        }
+
+        public long preadv(int fileDescriptor, int[] addresses, int[] offsets,
+                           int[] lengths, int size, long position) throws IOException {
+            BlockGuard.getThreadPolicy().onReadFromDisk();
+            return mFileSystem.preadv(fileDescriptor, addresses, offsets, lengths, size,
+                    position);
+        }
+
+        public long pwritev(int fileDescriptor, int[] addresses, int[] offsets,
+                            int[] lengths, int size, long position) throws IOException {
+            BlockGuard.getThreadPolicy().onWriteToDisk();
+            return mFileSystem.pwritev(fileDescriptor, addresses, offsets, lengths, size,
+                    position);
+        }
+
         public boolean lock(int fileDescriptor, long start, long length, int type,
                             boolean waitFlag) throws IOException {
             return mFileSystem.lock(fileDescriptor, start, length, type, waitFlag);
@@ -237,6 +275,14 @@ public final class BlockGuard {
             return mFileSystem.transfer(fileHandler, socketDescriptor, offset, count);
         }
 
+        public long copyRange(int inFileDescriptor, long inPosition,
+                int outFileDescriptor, long count) throws IOException {
+            BlockGuard.getThreadPolicy().onReadFromDisk();
+            BlockGuard.getThreadPolicy().onWriteToDisk();
+            return mFileSystem.copyRange(inFileDescriptor, inPosition,
+                    outFileDescriptor, count);
+        }
+
         public int ioctlAvailable(FileDescriptor fileDescriptor) throws IOException {
             return mFileSystem.ioctlAvailable(fileDescriptor);
         }
@@ -290,6 +336,18 @@ public final class BlockGuard {
             return mNetwork.writeDirect(fd, address, offset, count);
         }
 
+        public long readv(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths,
+                int size) throws IOException {
+            BlockGuard.getThreadPolicy().onNetwork();
+            return mNetwork.readv(fd, addresses, offsets, lengths, size);
+        }
+
+        public long writev(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths,
+                int size) throws IOException {
+            BlockGuard.getThreadPolicy().onNetwork();
+            return mNetwork.writev(fd, addresses, offsets, lengths, size);
+        }
+
         public boolean connectNonBlocking(FileDescriptor fd, InetAddress inetAddress, int port)
                 throws IOException {
             BlockGuard.getThreadPolicy().onNetwork();
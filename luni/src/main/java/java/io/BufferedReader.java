@@ -60,6 +60,14 @@ public class BufferedReader extends Reader {
      */
     private char[] buf;
 
+    // BEGIN android-added
+    /**
+     * The size buf was created with. Lines longer than this grow buf, which is
+     * put back to this size once nothing in it needs the extra room.
+     */
+    private final int bufferSize;
+    // END android-added
+
     private int pos;
 
     private int end;
@@ -93,6 +101,7 @@ public class BufferedReader extends Reader {
         }
         this.in = in;
         buf = new char[size];
+        bufferSize = size;
     }
 
     /**
@@ -125,6 +134,11 @@ public class BufferedReader extends Reader {
 
         if (mark == -1 || (pos - mark >= markLimit)) {
             /* mark isn't set or has exceeded its limit. use the whole buffer */
+            // BEGIN android-added
+            if (buf.length > bufferSize) {
+                buf = new char[bufferSize];
+            }
+            // END android-added
             int result = in.read(buf, 0, buf.length);
             if (result > 0) {
                 mark = -1;
@@ -357,77 +371,90 @@ public class BufferedReader extends Reader {
             if (pos == end && fillBuf() == -1) {
                 return null;
             }
-            for (int charPos = pos; charPos < end; charPos++) {
-                char ch = buf[charPos];
-                // BEGIN android-note
-                // a switch statement may be more efficient
-                // END android-note
-                if (ch > '\r') {
-                    continue;
-                }
-                if (ch == '\n') {
-                    String res = new String(buf, pos, charPos - pos);
-                    pos = charPos + 1;
-                    return res;
-                } else if (ch == '\r') {
-                    String res = new String(buf, pos, charPos - pos);
-                    pos = charPos + 1;
-                    if (((pos < end) || (fillBuf() != -1))
-                            && (buf[pos] == '\n')) {
-                        pos++;
-                    }
-                    return res;
-                }
-            }
-
-            char eol = '\0';
-            StringBuilder result = new StringBuilder(80);
-            /* Typical Line Length */
-
-            result.append(buf, pos, end - pos);
+            // BEGIN android-changed
+            // A line that spans refills is gathered in buf itself rather than
+            // in a StringBuilder, so that every line is copied into its String
+            // exactly once. Until the line is returned, pos marks its start.
+            int charPos = pos;
             while (true) {
-                pos = end;
-
-                /* Are there buffered characters available? */
-                if (eol == '\n') {
-                    return result.toString();
-                }
-                // attempt to fill buffer
-                if (fillBuf() == -1) {
-                    // characters or null.
-                    return result.length() > 0 || eol != '\0'
-                            ? result.toString()
-                            : null;
-                }
-                for (int charPos = pos; charPos < end; charPos++) {
-                    char c = buf[charPos];
-                    if (eol == '\0') {
-                        if ((c == '\n' || c == '\r')) {
-                            eol = c;
-                        }
-                    } else if (eol == '\r' && c == '\n') {
-                        if (charPos > pos) {
-                            result.append(buf, pos, charPos - pos - 1);
-                        }
+                for (; charPos < end; charPos++) {
+                    char ch = buf[charPos];
+                    if (ch > '\r') {
+                        continue;
+                    }
+                    if (ch == '\n' || ch == '\r') {
+                        String res = new String(buf, pos, charPos - pos);
                         pos = charPos + 1;
-                        return result.toString();
-                    } else {
-                        if (charPos > pos) {
-                            result.append(buf, pos, charPos - pos - 1);
+                        if (ch == '\r') {
+                            chompNewline();
                         }
-                        pos = charPos;
-                        return result.toString();
+                        shrinkBuf();
+                        return res;
                     }
                 }
-                if (eol == '\0') {
-                    result.append(buf, pos, end - pos);
-                } else {
-                    result.append(buf, pos, end - pos - 1);
+                int scanned = charPos - pos;
+                if (fillLine() == -1) {
+                    String res = new String(buf, pos, end - pos);
+                    pos = end;
+                    shrinkBuf();
+                    return res;
                 }
+                charPos = pos + scanned;
             }
+            // END android-changed
         }
+    }
 
+    // BEGIN android-added
+    /**
+     * Reads more characters after the unterminated line at
+     * {@code buf[pos...end)}, moving it (and the mark, if any) to the front of
+     * the buffer or growing the buffer to make room. The mark is dropped by
+     * the same rule as in {@link #fillBuf}: when reading more would take it
+     * past its limit.
+     *
+     * @return the number of characters read, or -1 if the end of the source
+     *      stream has been reached.
+     */
+    private int fillLine() throws IOException {
+        if (mark != -1 && end - mark >= markLimit) {
+            mark = -1;
+        }
+        int keep = (mark != -1) ? mark : pos;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, end - keep);
+            pos -= keep;
+            end -= keep;
+            if (mark != -1) {
+                mark -= keep;
+            }
+        } else if (end == buf.length) {
+            char[] newbuf = new char[buf.length * 2];
+            System.arraycopy(buf, 0, newbuf, 0, end);
+            buf = newbuf;
+        }
+        int count = in.read(buf, end, buf.length - end);
+        if (count > 0) {
+            end += count;
+        }
+        return count;
+    }
+
+    /**
+     * Puts buf back to its original size after a line that grew it has been
+     * returned, provided no mark and no more than that many buffered
+     * characters need the room.
+     */
+    private void shrinkBuf() {
+        if (buf.length > bufferSize && mark == -1 && end - pos <= bufferSize) {
+            char[] newbuf = new char[bufferSize];
+            System.arraycopy(buf, pos, newbuf, 0, end - pos);
+            end -= pos;
+            pos = 0;
+            buf = newbuf;
+        }
     }
+    // END android-added
 
     /**
      * Indicates whether this reader is ready to be read without blocking.
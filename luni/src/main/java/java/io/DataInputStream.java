@@ -32,6 +32,17 @@ public class DataInputStream extends FilterInputStream implements DataInput {
 
     byte[] buff;
 
+    // BEGIN android-added
+    /**
+     * Scratch space for readUTF and the bulk reads, allocated on first use.
+     * Strings longer than this are decoded through temporary arrays so that
+     * a single huge string doesn't pin memory for the life of the stream.
+     */
+    private static final int SCRATCH_SIZE = 4096;
+    private byte[] scratchBytes;
+    private char[] scratchChars;
+    // END android-added
+
     /**
      * Constructs a new DataInputStream on the InputStream {@code in}. All
      * reads are then filtered through this stream. Note that data read by this
@@ -435,8 +446,84 @@ public class DataInputStream extends FilterInputStream implements DataInput {
 
 
     String decodeUTF(int utfSize) throws IOException {
-        return decodeUTF(utfSize, this);
+        // BEGIN android-changed
+        if (utfSize > SCRATCH_SIZE) {
+            return decodeUTF(utfSize, this);
+        }
+        byte[] bytes = scratchBytes();
+        if (scratchChars == null) {
+            scratchChars = new char[SCRATCH_SIZE];
+        }
+        readFully(bytes, 0, utfSize);
+        return ModifiedUtf8.decode(bytes, scratchChars, 0, utfSize);
+        // END android-changed
+    }
+
+    // BEGIN android-added
+    private byte[] scratchBytes() {
+        if (scratchBytes == null) {
+            scratchBytes = new byte[SCRATCH_SIZE];
+        }
+        return scratchBytes;
+    }
+
+    /**
+     * Reads {@code count} big-endian 32-bit ints into {@code dst} starting
+     * at {@code offset}, as if by calling {@link #readInt} {@code count}
+     * times, but reading the underlying stream in bulk.
+     *
+     * @throws EOFException
+     *             if the end of the source stream is reached first. Some of
+     *             the ints may have been stored by then.
+     * @hide
+     */
+    public final void readInts(int[] dst, int offset, int count) throws IOException {
+        if ((offset | count) < 0 || offset > dst.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+        byte[] bytes = scratchBytes();
+        while (count > 0) {
+            int chunk = Math.min(count, SCRATCH_SIZE / 4);
+            readFully(bytes, 0, chunk * 4);
+            for (int i = 0, j = 0; i < chunk; i++, j += 4) {
+                dst[offset + i] = ((bytes[j] & 0xff) << 24) | ((bytes[j + 1] & 0xff) << 16)
+                        | ((bytes[j + 2] & 0xff) << 8) | (bytes[j + 3] & 0xff);
+            }
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    /**
+     * Reads {@code count} big-endian 64-bit longs into {@code dst} starting
+     * at {@code offset}, as if by calling {@link #readLong} {@code count}
+     * times, but reading the underlying stream in bulk.
+     *
+     * @throws EOFException
+     *             if the end of the source stream is reached first. Some of
+     *             the longs may have been stored by then.
+     * @hide
+     */
+    public final void readLongs(long[] dst, int offset, int count) throws IOException {
+        if ((offset | count) < 0 || offset > dst.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+        byte[] bytes = scratchBytes();
+        while (count > 0) {
+            int chunk = Math.min(count, SCRATCH_SIZE / 8);
+            readFully(bytes, 0, chunk * 8);
+            for (int i = 0, j = 0; i < chunk; i++, j += 8) {
+                int hi = ((bytes[j] & 0xff) << 24) | ((bytes[j + 1] & 0xff) << 16)
+                        | ((bytes[j + 2] & 0xff) << 8) | (bytes[j + 3] & 0xff);
+                int lo = ((bytes[j + 4] & 0xff) << 24) | ((bytes[j + 5] & 0xff) << 16)
+                        | ((bytes[j + 6] & 0xff) << 8) | (bytes[j + 7] & 0xff);
+                dst[offset + i] = (((long) hi) << 32) | (lo & 0xffffffffL);
+            }
+            offset += chunk;
+            count -= chunk;
+        }
     }
+    // END android-added
 
     private static String decodeUTF(int utfSize, DataInput in) throws IOException {
         byte[] buf = new byte[utfSize];
@@ -33,6 +33,26 @@ public class DataOutputStream extends FilterOutputStream implements DataOutput {
     protected int written;
     byte[] buff;
 
+    // BEGIN android-added
+    /**
+     * Scratch space for writeUTF and the bulk writes, allocated on first use.
+     * Longer strings are encoded in scratch-sized chunks, so that a single
+     * huge string needs no bigger buffer.
+     */
+    private static final int SCRATCH_SIZE = 4096;
+    private byte[] scratch;
+
+    private byte[] scratch(int size) {
+        if (size > SCRATCH_SIZE) {
+            return new byte[size];
+        }
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+    // END android-added
+
     /**
      * Constructs a new {@code DataOutputStream} on the {@code OutputStream}
      * {@code out}. Note that data written by this stream is not in a human
@@ -331,19 +351,89 @@ public class DataOutputStream extends FilterOutputStream implements DataOutput {
      * @see DataInputStream#readUTF()
      */
     public final void writeUTF(String str) throws IOException {
+        // BEGIN android-changed
+        // Every char takes at least one byte, so long strings fail fast.
+        int length = str.length();
+        if (length > 65535) {
+            throw new UTFDataFormatException("String more than 65535 UTF bytes long");
+        }
         long utfCount = countUTFBytes(str);
         if (utfCount > 65535) {
             throw new UTFDataFormatException("String more than 65535 UTF bytes long");
         }
-        byte[] buffer = new byte[(int)utfCount + 2];
-        int offset = 0;
-        offset = writeShortToBuffer((int) utfCount, buffer, offset);
-        // BEGIN android-changed
-        // removed unused parameter count
-        offset = writeUTFBytesToBuffer(str, buffer, offset);
-        // BEGIN android-changed
-        write(buffer, 0, offset);
+        byte[] buffer = scratch(SCRATCH_SIZE);
+        writeShortToBuffer((int) utfCount, buffer, 0);
+        if (utfCount + 2 <= SCRATCH_SIZE) {
+            int offset = writeUTFBytesToBuffer(str, 0, length, buffer, 2);
+            write(buffer, 0, offset);
+            return;
+        }
+        // Encode as many chars as are sure to fit, at most 3 bytes each.
+        int offset = 2;
+        for (int i = 0; i < length; ) {
+            int end = Math.min(length, i + (SCRATCH_SIZE - offset) / 3);
+            offset = writeUTFBytesToBuffer(str, i, end, buffer, offset);
+            out.write(buffer, 0, offset);
+            written += offset;
+            offset = 0;
+            i = end;
+        }
+        // END android-changed
+    }
+
+    // BEGIN android-added
+    /**
+     * Writes {@code count} ints from {@code src} starting at {@code offset}
+     * as big-endian 32-bit values, as if by calling {@link #writeInt}
+     * {@code count} times, but writing to the target stream in bulk.
+     *
+     * @hide
+     */
+    public final void writeInts(int[] src, int offset, int count) throws IOException {
+        if ((offset | count) < 0 || offset > src.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+        byte[] bytes = scratch(SCRATCH_SIZE);
+        while (count > 0) {
+            int chunk = Math.min(count, SCRATCH_SIZE / 4);
+            for (int i = 0, j = 0; i < chunk; i++) {
+                int val = src[offset + i];
+                bytes[j++] = (byte) (val >> 24);
+                bytes[j++] = (byte) (val >> 16);
+                bytes[j++] = (byte) (val >> 8);
+                bytes[j++] = (byte) val;
+            }
+            out.write(bytes, 0, chunk * 4);
+            written += chunk * 4;
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    /**
+     * Writes {@code count} longs from {@code src} starting at {@code offset}
+     * as big-endian 64-bit values, as if by calling {@link #writeLong}
+     * {@code count} times, but writing to the target stream in bulk.
+     *
+     * @hide
+     */
+    public final void writeLongs(long[] src, int offset, int count) throws IOException {
+        if ((offset | count) < 0 || offset > src.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+        byte[] bytes = scratch(SCRATCH_SIZE);
+        while (count > 0) {
+            int chunk = Math.min(count, SCRATCH_SIZE / 8);
+            for (int i = 0, j = 0; i < chunk; i++, j += 8) {
+                writeLongToBuffer(src[offset + i], bytes, j);
+            }
+            out.write(bytes, 0, chunk * 8);
+            written += chunk * 8;
+            offset += chunk;
+            count -= chunk;
+        }
     }
+    // END android-added
 
     long countUTFBytes(String str) {
         int utfCount = 0, length = str.length();
@@ -365,8 +455,17 @@ public class DataOutputStream extends FilterOutputStream implements DataOutput {
         // BEGIN android-note
         // removed unused parameter count
         // END android-note
-        int length = str.length();
-        for (int i = 0; i < length; i++) {
+        // BEGIN android-changed
+        return writeUTFBytesToBuffer(str, 0, str.length(), buffer, offset);
+    }
+
+    /**
+     * Encodes the chars of {@code str} from {@code start} to {@code end}
+     * into {@code buffer} at {@code offset}, returning the offset past them.
+     */
+    private static int writeUTFBytesToBuffer(String str, int start, int end,
+            byte[] buffer, int offset) {
+        for (int i = start; i < end; i++) {
             int charValue = str.charAt(i);
             if (charValue > 0 && charValue <= 127) {
                 buffer[offset++] = (byte) charValue;
@@ -380,5 +479,6 @@ public class DataOutputStream extends FilterOutputStream implements DataOutput {
              }
         }
         return offset;
+        // END android-changed
     }
 }
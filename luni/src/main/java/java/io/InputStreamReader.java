@@ -20,6 +20,7 @@ package java.io;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.Charsets;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
@@ -46,6 +47,21 @@ public class InputStreamReader extends Reader {
 
     private final ByteBuffer bytes = ByteBuffer.allocate(8192);
 
+    // BEGIN android-added
+    // Readers for these charsets that replace bad input, as all but the
+    // CharsetDecoder constructor's do, decode with the native Charsets
+    // helpers straight into the caller's char[].
+    private static final int DECODE_WITH_DECODER = 0;
+    private static final int DECODE_ASCII = 1;
+    private static final int DECODE_ISO_8859_1 = 2;
+    private static final int DECODE_UTF_8 = 3;
+
+    private int fastDecoding = DECODE_WITH_DECODER;
+
+    /** The second half of a surrogate pair that didn't fit, or 0. */
+    private char pendingLowSurrogate;
+    // END android-added
+
     /**
      * Constructs a new {@code InputStreamReader} on the {@link InputStream}
      * {@code in}. This constructor sets the character converter to the encoding
@@ -90,6 +106,9 @@ public class InputStreamReader extends Reader {
                     new UnsupportedEncodingException(enc).initCause(e);
         }
         bytes.limit(0);
+        // BEGIN android-added
+        fastDecoding = fastDecodingFor(decoder.charset());
+        // END android-added
     }
 
     /**
@@ -125,8 +144,25 @@ public class InputStreamReader extends Reader {
                 CodingErrorAction.REPLACE).onUnmappableCharacter(
                 CodingErrorAction.REPLACE);
         bytes.limit(0);
+        // BEGIN android-added
+        fastDecoding = fastDecodingFor(charset);
+        // END android-added
     }
 
+    // BEGIN android-added
+    private static int fastDecodingFor(Charset charset) {
+        String name = charset.name();
+        if (name.equals("UTF-8")) {
+            return DECODE_UTF_8;
+        } else if (name.equals("ISO-8859-1")) {
+            return DECODE_ISO_8859_1;
+        } else if (name.equals("US-ASCII")) {
+            return DECODE_ASCII;
+        }
+        return DECODE_WITH_DECODER;
+    }
+    // END android-added
+
     /**
      * Closes this reader. This implementation closes the source InputStream and
      * releases all local storage.
@@ -231,6 +267,12 @@ public class InputStreamReader extends Reader {
                 return 0;
             }
 
+            // BEGIN android-added
+            if (fastDecoding != DECODE_WITH_DECODER) {
+                return readFast(buffer, offset, length);
+            }
+            // END android-added
+
             CharBuffer out = CharBuffer.wrap(buffer, offset, length);
             CoderResult result = CoderResult.UNDERFLOW;
 
@@ -295,6 +337,91 @@ public class InputStreamReader extends Reader {
         }
     }
 
+    // BEGIN android-added
+    /**
+     * Implements {@link #read(char[], int, int)} for readers that decode
+     * with the native Charsets helpers. Like the decoder path, this stops
+     * rather than blocks once some characters have been read.
+     */
+    private int readFast(char[] buffer, int offset, int length) throws IOException {
+        int count = 0;
+        if (pendingLowSurrogate != 0) {
+            buffer[offset] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+            count = 1;
+        }
+        boolean needInput = !bytes.hasRemaining();
+        while (count < length) {
+            if (needInput) {
+                if (endOfInput) {
+                    break;
+                }
+                try {
+                    if (count > 0 && in.available() == 0) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // available didn't work so just try the read
+                }
+                if (bytes.position() > 0) {
+                    bytes.compact();
+                    bytes.flip();
+                }
+                int limit = bytes.limit();
+                int was_red = in.read(bytes.array(), bytes.arrayOffset() + limit,
+                        bytes.capacity() - limit);
+                if (was_red == -1) {
+                    // Whatever is left is a truncated UTF-8 sequence.
+                    endOfInput = true;
+                    if (!bytes.hasRemaining()) {
+                        break;
+                    }
+                } else if (was_red == 0) {
+                    break;
+                } else {
+                    bytes.limit(limit + was_red);
+                }
+                needInput = false;
+            }
+
+            byte[] src = bytes.array();
+            int srcOffset = bytes.arrayOffset() + bytes.position();
+            int available = bytes.remaining();
+            int room = length - count;
+            if (fastDecoding == DECODE_UTF_8) {
+                long result = Charsets.utf8BytesToChars(src, srcOffset, available,
+                        buffer, offset + count, room, endOfInput);
+                int consumed = (int) (result >>> 32);
+                int written = (int) result;
+                if (consumed == 0 && room == 1 && available >= 4) {
+                    // A supplementary character with room for only half of it.
+                    char[] pair = new char[2];
+                    result = Charsets.utf8BytesToChars(src, srcOffset, available,
+                            pair, 0, 2, endOfInput);
+                    consumed = (int) (result >>> 32);
+                    buffer[offset + count] = pair[0];
+                    pendingLowSurrogate = pair[1];
+                    written = 1;
+                }
+                bytes.position(bytes.position() + consumed);
+                count += written;
+                needInput = !bytes.hasRemaining() || written == 0;
+            } else {
+                int n = Math.min(available, room);
+                if (fastDecoding == DECODE_ASCII) {
+                    Charsets.asciiBytesToChars(src, srcOffset, n, buffer, offset + count);
+                } else {
+                    Charsets.isoLatin1BytesToChars(src, srcOffset, n, buffer, offset + count);
+                }
+                bytes.position(bytes.position() + n);
+                count += n;
+                needInput = !bytes.hasRemaining();
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+    // END android-added
+
     private boolean isOpen() {
         return in != null;
     }
@@ -319,7 +446,9 @@ public class InputStreamReader extends Reader {
                 throw new IOException("InputStreamReader is closed");
             }
             try {
-                return bytes.hasRemaining() || in.available() > 0;
+                // BEGIN android-changed
+                return pendingLowSurrogate != 0 || bytes.hasRemaining() || in.available() > 0;
+                // END android-changed
             } catch (IOException e) {
                 return false;
             }
@@ -84,8 +84,8 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
     // Resolve object is a mechanism for replacement
     private boolean enableResolve;
 
-    // Table mapping Integer (handle) -> Object
-    private HashMap<Integer, Object> objectsRead;
+    // Table mapping int (handle - baseWireHandle) -> Object
+    private ArrayList<Object> objectsRead;
 
     // Used by defaultReadObject
     private Object currentObject;
@@ -107,7 +107,15 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
     private boolean mustResolve = true;
 
     // Handle for the current class descriptor
-    private Integer descriptorHandle;
+    private int descriptorHandle = -1;
+
+    // BEGIN android-added
+    // Scratch space for reading primitive field values in bulk
+    private byte[] primitiveFieldValues;
+
+    // If a reset keeps the class descriptors read so far
+    private boolean retainClassDescriptors;
+    // END android-added
 
     private static final HashMap<String, Class<?>> PRIMITIVE_CLASSES =
         new HashMap<String, Class<?>>();
@@ -551,6 +559,20 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
         return originalValue;
     }
 
+    // BEGIN android-added
+    /**
+     * Sets whether a reset read from the stream keeps the class descriptors
+     * read so far. This must match the setting of the writing {@code
+     * ObjectOutputStream}; see {@link
+     * ObjectOutputStream#setRetainClassDescriptors}.
+     *
+     * @hide
+     */
+    public void setRetainClassDescriptors(boolean retain) {
+        retainClassDescriptors = retain;
+    }
+    // END android-added
+
     /**
      * Checks if two classes belong to the same package.
      *
@@ -604,8 +626,8 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
      *
      * @return the next handle to represent the next cyclic reference
      */
-    private Integer nextHandle() {
-        return Integer.valueOf(this.currentHandle++);
+    private int nextHandle() {
+        return this.currentHandle++;
     }
 
     /**
@@ -1222,7 +1244,21 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             throw new ClassNotFoundException(classDesc.getName());
         }
 
-        for (ObjectStreamField fieldDesc : fields) {
+        // BEGIN android-changed
+        // Read the leading primitive fields in bulk. Fields that the local
+        // class doesn't have are skipped, as in the loop below.
+        ObjectStreamClass.PrimitiveFields primitiveFields = classDesc.getPrimitiveLoadFields();
+        int primitiveFieldCount = primitiveFields.fieldIDs.length;
+        if (primitiveFieldCount > 0) {
+            byte[] values = primitiveFieldValues(primitiveFields.byteCount);
+            input.readFully(values, 0, primitiveFields.byteCount);
+            setPrimitiveFieldValues(obj, primitiveFields.fieldIDs, primitiveFields.typeCodes,
+                    values);
+        }
+
+        for (int i = primitiveFieldCount; i < fields.length; i++) {
+            ObjectStreamField fieldDesc = fields[i];
+        // END android-changed
 
             // BEGIN android-removed
             // // get associated Field
@@ -1611,7 +1647,7 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             missingClassDescriptor();
         }
 
-        Integer newHandle = nextHandle();
+        int newHandle = nextHandle();
 
         // Array size
         int size = input.readInt();
@@ -1733,7 +1769,7 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             ClassNotFoundException {
         ObjectStreamClass classDesc;
         primitiveData = input;
-        Integer oldHandle = descriptorHandle;
+        int oldHandle = descriptorHandle;
         descriptorHandle = nextHandle();
         classDesc = readClassDescriptor();
         registerObjectRead(classDesc, descriptorHandle, false);
@@ -1766,7 +1802,7 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             ClassNotFoundException, IOException {
         // read classdesc for Enum first
         ObjectStreamClass classDesc = readEnumDesc();
-        Integer newHandle = nextHandle();
+        int newHandle = nextHandle();
         // read name after class desc
         String name;
         byte tc = nextTC();
@@ -1811,7 +1847,7 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
         // So read...() methods can be used by
         // subclasses during readClassDescriptor()
         primitiveData = input;
-        Integer oldHandle = descriptorHandle;
+        int oldHandle = descriptorHandle;
         descriptorHandle = nextHandle();
         ObjectStreamClass newClassDesc = readClassDescriptor();
         registerObjectRead(newClassDesc, descriptorHandle, unshared);
@@ -1894,9 +1930,9 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
         /*
          * We must register the class descriptor before reading field
          * descriptors. If called outside of readObject, the descriptorHandle
-         * might be null.
+         * might be -1.
          */
-        descriptorHandle = (null == descriptorHandle ? nextHandle() : descriptorHandle);
+        descriptorHandle = (descriptorHandle == -1 ? nextHandle() : descriptorHandle);
         registerObjectRead(newClassDesc, descriptorHandle, false);
 
         readFieldDescriptors(newClassDesc);
@@ -2042,7 +2078,7 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             throw missingClassDescriptor();
         }
 
-        Integer newHandle = nextHandle();
+        int newHandle = nextHandle();
 
         // Note that these values come from the Stream, and in fact it could be
         // that the classes have been changed so that the info below now
@@ -2425,8 +2461,9 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
      * @throws InvalidObjectException
      *             If there is no previously read object with this handle
      */
-    private Object registeredObjectRead(Integer handle) throws InvalidObjectException {
-        Object res = objectsRead.get(handle);
+    private Object registeredObjectRead(int handle) throws InvalidObjectException {
+        int index = handle - baseWireHandle;
+        Object res = (index >= 0 && index < objectsRead.size()) ? objectsRead.get(index) : null;
         if (res == UNSHARED_OBJ) {
             throw new InvalidObjectException("Cannot read back reference to unshared object");
         }
@@ -2440,14 +2477,28 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
      * @param obj
      *            Non-null object being loaded.
      * @param handle
-     *            An Integer, the handle to this object
+     *            The handle to this object
      * @param unshared
      *            Boolean, indicates that caller is reading in unshared mode
      *
      * @see #nextHandle
      */
-    private void registerObjectRead(Object obj, Integer handle, boolean unshared) {
-        objectsRead.put(handle, unshared ? UNSHARED_OBJ : obj);
+    private void registerObjectRead(Object obj, int handle, boolean unshared) {
+        if (unshared) {
+            obj = UNSHARED_OBJ;
+        }
+        // Handles are allocated in order, but a class descriptor's handle is
+        // taken before the objects it refers to are read and registered.
+        int index = handle - baseWireHandle;
+        int size = objectsRead.size();
+        if (index < size) {
+            objectsRead.set(index, obj);
+        } else {
+            while (size++ < index) {
+                objectsRead.add(null);
+            }
+            objectsRead.add(obj);
+        }
     }
 
     /**
@@ -2516,8 +2567,20 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
      * Reset the collection of objects already loaded by the receiver.
      */
     private void resetSeenObjects() {
-        objectsRead = new HashMap<Integer, Object>();
-        currentHandle = baseWireHandle;
+        // BEGIN android-changed
+        // Keep the same descriptors, in the same order, as
+        // SerializationHandleMap.retainClassDescriptors does for the writer.
+        ArrayList<Object> retained = new ArrayList<Object>();
+        if (retainClassDescriptors && objectsRead != null) {
+            for (Object object : objectsRead) {
+                if (object instanceof ObjectStreamClass) {
+                    retained.add(object);
+                }
+            }
+        }
+        objectsRead = retained;
+        currentHandle = baseWireHandle + retained.size();
+        // END android-changed
         primitiveData = emptyStream;
     }
 
@@ -2640,6 +2703,26 @@ public class ObjectInputStream extends InputStream implements ObjectInput,
             Class<?> declaringClass, String fieldName, boolean value)
             throws NoSuchFieldError;
 
+    /*
+     * Sets the primitive fields of instance identified by fieldIDs, which are
+     * JNI field IDs as returned by ObjectStreamClass.PrimitiveFields, from
+     * values, which holds them in stream format. Fields whose ID is 0 are
+     * skipped.
+     */
+    private static native void setPrimitiveFieldValues(Object instance, long[] fieldIDs,
+            byte[] typeCodes, byte[] values);
+
+    /**
+     * Returns a scratch array of at least {@code byteCount} bytes for
+     * reading primitive field values.
+     */
+    private byte[] primitiveFieldValues(int byteCount) {
+        if (primitiveFieldValues == null || primitiveFieldValues.length < byteCount) {
+            primitiveFieldValues = new byte[Math.max(byteCount, 64)];
+        }
+        return primitiveFieldValues;
+    }
+
     // END android-added
 
     /**
@@ -20,7 +20,6 @@ package java.io;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.IdentityHashMap;
 
 
 // BEGIN android-note
@@ -72,20 +71,45 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
     private ByteArrayOutputStream primitiveTypesBuffer;
 
     /*
-     * Table mapping Object -> Integer (handle)
+     * Table mapping Object -> int (handle)
      */
-    private IdentityHashMap<Object, Integer> objectsWritten;
+    private SerializationHandleMap objectsWritten;
 
     /*
      * All objects are assigned an ID (integer handle)
      */
     private int currentHandle;
 
+    // BEGIN android-added
+    /*
+     * If reset() keeps the class descriptors written so far
+     */
+    private boolean retainClassDescriptors;
+
+    /*
+     * The number of class descriptors kept by the last reset
+     */
+    private int retainedDescriptorCount;
+
+    /*
+     * Reset before a top-level object once more objects than this were
+     * remembered since the last reset, or never if 0
+     */
+    private int maxRetainedObjects;
+    // END android-added
+
     /*
      * Used by defaultWriteObject
      */
     private Object currentObject;
 
+    // BEGIN android-added
+    /*
+     * Scratch space for writing primitive field values in bulk
+     */
+    private byte[] primitiveFieldValues;
+    // END android-added
+
     /*
      * Used by defaultWriteObject
      */
@@ -457,8 +481,8 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @param obj
      *            Object to check if an instance previously dumped by this
      *            stream.
-     * @return null if it is an instance which has not been dumped yet (and this
-     *         method does nothing). Integer, if {@code obj} is an
+     * @return -1 if it is an instance which has not been dumped yet (and this
+     *         method does nothing). The handle, if {@code obj} is an
      *         instance which has been dumped already. In this case this method
      *         saves the cyclic reference.
      *
@@ -466,14 +490,14 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      *             If an error occurs attempting to save {@code null} or
      *             a cyclic reference.
      */
-    private Integer dumpCycle(Object obj) throws IOException {
+    private int dumpCycle(Object obj) throws IOException {
         // If the object has been saved already, save its handle only
-        Integer handle = objectsWritten.get(obj);
-        if (handle != null) {
+        int handle = objectsWritten.get(obj);
+        if (handle != -1) {
             writeCyclicReference(handle);
             return handle;
         }
-        return null;
+        return -1;
     }
 
     /**
@@ -560,16 +584,35 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
 
     private static native short getFieldShort(Object instance,
             Class<?> declaringClass, String fieldName);
+
+    /*
+     * Stores the primitive fields of instance identified by fieldIDs, which
+     * are JNI field IDs as returned by ObjectStreamClass.PrimitiveFields, into
+     * values in stream format.
+     */
+    private static native void getPrimitiveFieldValues(Object instance, long[] fieldIDs,
+            byte[] typeCodes, byte[] values);
+
+    /**
+     * Returns a scratch array of at least {@code byteCount} bytes for
+     * writing primitive field values.
+     */
+    private byte[] primitiveFieldValues(int byteCount) {
+        if (primitiveFieldValues == null || primitiveFieldValues.length < byteCount) {
+            primitiveFieldValues = new byte[Math.max(byteCount, 64)];
+        }
+        return primitiveFieldValues;
+    }
     // END android-added
 
     /**
-     * Return the next <code>Integer</code> handle to be used to indicate cyclic
+     * Return the next handle to be used to indicate cyclic
      * references being saved to the stream.
      *
      * @return the next handle to represent the next cyclic reference
      */
-    private Integer nextHandle() {
-        return Integer.valueOf(this.currentHandle++);
+    private int nextHandle() {
+        return this.currentHandle++;
     }
 
     /**
@@ -607,8 +650,8 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      *
      * @see #nextHandle
      */
-    private Integer registerObjectWritten(Object obj) {
-        Integer handle = nextHandle();
+    private int registerObjectWritten(Object obj) {
+        int handle = nextHandle();
         objectsWritten.put(obj, handle);
         return handle;
     }
@@ -622,8 +665,8 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @param previousHandle
      *            The handle of the previous identical object dumped
      */
-    private void removeUnsharedReference(Object obj, Integer previousHandle) {
-        if (previousHandle != null) {
+    private void removeUnsharedReference(Object obj, int previousHandle) {
+        if (previousHandle != -1) {
             objectsWritten.put(obj, previousHandle);
         } else {
             objectsWritten.remove(obj);
@@ -674,6 +717,46 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
         resetState();
     }
 
+    // BEGIN android-added
+    /**
+     * Sets whether {@link #reset} keeps the class descriptors written so
+     * far, so that objects of the same classes written after the reset refer
+     * back to them instead of writing them again. All other objects are
+     * forgotten as usual. This suits sending many messages over one
+     * long-lived stream, resetting after each message to keep the memory
+     * used by both ends flat.
+     *
+     * <p>The stream written this way can only be read by an {@code
+     * ObjectInputStream} on which {@link
+     * ObjectInputStream#setRetainClassDescriptors} was enabled too, before
+     * it reads the first reset.
+     *
+     * @hide
+     */
+    public void setRetainClassDescriptors(boolean retain) {
+        retainClassDescriptors = retain;
+    }
+
+    /**
+     * Makes {@link #writeObject} and {@link #writeUnshared} call {@link
+     * #reset} before writing a top-level object if more than {@code
+     * maxObjects} objects, class descriptors included, were remembered since
+     * the last reset. Class descriptors kept by {@link
+     * #setRetainClassDescriptors} don't count. 0, the default, disables
+     * automatic resets.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code maxObjects < 0}.
+     * @hide
+     */
+    public void setMaxRetainedObjects(int maxObjects) {
+        if (maxObjects < 0) {
+            throw new IllegalArgumentException("maxObjects < 0: " + maxObjects);
+        }
+        maxRetainedObjects = maxObjects;
+    }
+    // END android-added
+
     /**
      * Reset the collection of objects already dumped by the receiver. If the
      * objects are found again in the object graph, the receiver will dump them
@@ -681,8 +764,15 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      *
      */
     private void resetSeenObjects() {
-        objectsWritten = new IdentityHashMap<Object, Integer>();
-        currentHandle = baseWireHandle;
+        // BEGIN android-changed
+        if (retainClassDescriptors && objectsWritten != null) {
+            retainedDescriptorCount = objectsWritten.retainClassDescriptors(baseWireHandle);
+        } else {
+            objectsWritten = new SerializationHandleMap();
+            retainedDescriptorCount = 0;
+        }
+        currentHandle = baseWireHandle + retainedDescriptorCount;
+        // END android-changed
     }
 
     /**
@@ -856,19 +946,19 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      *             If an IO exception happened when writing the class
      *             descriptor.
      */
-    private Integer writeClassDesc(ObjectStreamClass classDesc, boolean unshared)
+    private int writeClassDesc(ObjectStreamClass classDesc, boolean unshared)
             throws IOException {
         if (classDesc == null) {
             writeNull();
-            return null;
+            return -1;
         }
-        Integer handle = null;
+        int handle = -1;
         if (!unshared) {
             handle = dumpCycle(classDesc);
         }
-        if (handle == null) {
+        if (handle == -1) {
             Class<?> classToWrite = classDesc.forClass();
-            Integer previousHandle = null;
+            int previousHandle = -1;
             if (unshared) {
                 previousHandle = objectsWritten.get(classDesc);
             }
@@ -922,15 +1012,15 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * dumped).
      *
      * @param handle
-     *            The Integer handle that represents an object previously seen
+     *            The handle that represents an object previously seen
      *
      * @throws IOException
      *             If an IO exception happened when writing the cyclic
      *             reference.
      */
-    private void writeCyclicReference(Integer handle) throws IOException {
+    private void writeCyclicReference(int handle) throws IOException {
         output.writeByte(TC_REFERENCE);
-        output.writeInt(handle.intValue());
+        output.writeInt(handle);
     }
 
     /**
@@ -1087,7 +1177,21 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
             throws IOException {
         ObjectStreamField[] fields = classDesc.fields();
         Class<?> declaringClass = classDesc.forClass();
-        for(ObjectStreamField fieldDesc : fields) {
+        // BEGIN android-changed
+        // Write the leading primitive fields in bulk. If any of them is
+        // missing, the loop below reports it.
+        ObjectStreamClass.PrimitiveFields primitiveFields = classDesc.getPrimitiveFields();
+        int primitiveFieldCount = 0;
+        if (primitiveFields.complete && primitiveFields.fieldIDs.length > 0) {
+            byte[] values = primitiveFieldValues(primitiveFields.byteCount);
+            getPrimitiveFieldValues(obj, primitiveFields.fieldIDs, primitiveFields.typeCodes,
+                    values);
+            output.write(values, 0, primitiveFields.byteCount);
+            primitiveFieldCount = primitiveFields.fieldIDs.length;
+        }
+        for (int i = primitiveFieldCount; i < fields.length; i++) {
+            ObjectStreamField fieldDesc = fields[i];
+        // END android-changed
             try {
 
                 // BEGIN android-changed
@@ -1278,7 +1382,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
     /**
      * Write array {@code array} of class {@code arrayClass} with
      * component type {@code componentType} into the receiver. It is
-     * assumed the array has not been dumped yet. Return an {@code Integer}
+     * assumed the array has not been dumped yet. Return an {@code int}
      * that represents the handle for this object (array) which is dumped here.
      *
      * @param array
@@ -1294,12 +1398,12 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @throws IOException
      *             If an IO exception happened when writing the array.
      */
-    private Integer writeNewArray(Object array, Class<?> arrayClass, ObjectStreamClass arrayClDesc,
+    private int writeNewArray(Object array, Class<?> arrayClass, ObjectStreamClass arrayClDesc,
             Class<?> componentType, boolean unshared) throws IOException {
         output.writeByte(TC_ARRAY);
         writeClassDesc(arrayClDesc, false);
 
-        Integer handle = nextHandle();
+        int handle = nextHandle();
 
         if (!unshared) {
             objectsWritten.put(array, handle);
@@ -1379,7 +1483,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * Write class {@code object} into the receiver. It is assumed the
      * class has not been dumped yet. Classes are not really dumped, but a class
      * descriptor ({@code ObjectStreamClass}) that corresponds to them.
-     * Return an {@code Integer} that represents the handle for this
+     * Return an {@code int} that represents the handle for this
      * object (class) which is dumped here.
      *
      * @param object
@@ -1389,7 +1493,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @throws IOException
      *             If an IO exception happened when writing the class.
      */
-    private Integer writeNewClass(Class<?> object, boolean unshared)
+    private int writeNewClass(Class<?> object, boolean unshared)
             throws IOException {
         output.writeByte(TC_CLASS);
 
@@ -1408,7 +1512,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
             writeClassDesc(clDesc, unshared);
         }
 
-        Integer handle = nextHandle();
+        int handle = nextHandle();
 
         if (!unshared) {
             objectsWritten.put(object, handle);
@@ -1421,7 +1525,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * Write class descriptor {@code classDesc} into the receiver. It is
      * assumed the class descriptor has not been dumped yet. The class
      * descriptors for the superclass chain will be dumped as well. Return an
-     * {@code Integer} that represents the handle for this object (class
+     * {@code int} that represents the handle for this object (class
      * descriptor) which is dumped here.
      *
      * @param classDesc
@@ -1472,7 +1576,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
 
     /**
      * Write exception {@code ex} into the receiver. It is assumed the
-     * exception has not been dumped yet. Return an {@code Integer} that
+     * exception has not been dumped yet. Return an {@code int} that
      * represents the handle for this object (exception) which is dumped here.
      * This is used to dump the exception instance that happened (if any) when
      * dumping the original object graph. The set of seen objects will be reset
@@ -1499,7 +1603,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
     /**
      * Write object {@code object} of class {@code theClass} into
      * the receiver. It is assumed the object has not been dumped yet. Return an
-     * {@code Integer} that represents the handle for this object which
+     * {@code int} that represents the handle for this object which
      * is dumped here.
      *
      * If the object implements {@code Externalizable} its
@@ -1520,7 +1624,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @throws IOException
      *             If an IO exception happened when writing the object.
      */
-    private Integer writeNewObject(Object object, Class<?> theClass, ObjectStreamClass clDesc,
+    private int writeNewObject(Object object, Class<?> theClass, ObjectStreamClass clDesc,
             boolean unshared) throws IOException {
         // Not String, not null, not array, not cyclic reference
 
@@ -1538,11 +1642,11 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
         // Either serializable or externalizable, now we can save info
         output.writeByte(TC_OBJECT);
         writeClassDesc(clDesc, false);
-        Integer previousHandle = null;
+        int previousHandle = -1;
         if (unshared) {
             previousHandle = objectsWritten.get(object);
         }
-        Integer handle = nextHandle();
+        int handle = nextHandle();
         objectsWritten.put(object, handle);
 
         // This is how we know what to do in defaultWriteObject. And it is also
@@ -1591,7 +1695,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
 
     /**
      * Write String {@code object} into the receiver. It is assumed the
-     * String has not been dumped yet. Return an {@code Integer} that
+     * String has not been dumped yet. Return an {@code int} that
      * represents the handle for this object (String) which is dumped here.
      * Strings are saved encoded with {@link DataInput modified UTF-8}.
      *
@@ -1602,7 +1706,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      * @throws IOException
      *             If an IO exception happened when writing the String.
      */
-    private Integer writeNewString(String object, boolean unshared)
+    private int writeNewString(String object, boolean unshared)
             throws IOException {
         long count = output.countUTFBytes(object);
         byte[] buffer;
@@ -1619,7 +1723,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
         offset = output.writeUTFBytesToBuffer(object, buffer, offset);
         output.write(buffer, 0, offset);
 
-        Integer handle = nextHandle();
+        int handle = nextHandle();
 
         if (!unshared) {
             objectsWritten.put(object, handle);
@@ -1684,6 +1788,12 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
             try {
                 // First we need to flush primitive types if they were written
                 drain();
+                // BEGIN android-added
+                if (maxRetainedObjects > 0 && nestedLevels == 0
+                        && objectsWritten.size() - retainedDescriptorCount > maxRetainedObjects) {
+                    reset();
+                }
+                // END android-added
                 // Actual work, and class-based replacement should be computed
                 // if needed.
                 writeObjectInternal(object, unshared, true, true);
@@ -1726,18 +1836,18 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
      *
      * @see ObjectInputStream#readObject()
      */
-    private Integer writeObjectInternal(Object object, boolean unshared,
+    private int writeObjectInternal(Object object, boolean unshared,
             boolean computeClassBasedReplacement,
             boolean computeStreamReplacement) throws IOException {
 
         if (object == null) {
             writeNull();
-            return null;
+            return -1;
         }
-        Integer handle = null;
+        int handle = -1;
         if (!unshared) {
             handle = dumpCycle(object);
-            if (handle != null) {
+            if (handle != -1) {
                 return handle; // cyclic reference
             }
         }
@@ -1783,12 +1893,12 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
                     }
                     if (replObj != object) {
                         // All over, class-based replacement off this time.
-                        Integer replacementHandle = writeObjectInternal(
+                        int replacementHandle = writeObjectInternal(
                                 replObj, false, false,
                                 computeStreamReplacement);
                         // Make the original object also map to the same
                         // handle.
-                        if (replacementHandle != null) {
+                        if (replacementHandle != -1) {
                             objectsWritten.put(object, replacementHandle);
                         }
                         return replacementHandle;
@@ -1805,11 +1915,11 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
                 Object streamReplacement = replaceObject(object);
                 if (streamReplacement != object) {
                     // All over, class-based replacement off this time.
-                    Integer replacementHandle = writeObjectInternal(
+                    int replacementHandle = writeObjectInternal(
                             streamReplacement, false,
                             computeClassBasedReplacement, false);
                     // Make the original object also map to the same handle.
-                    if (replacementHandle != null) {
+                    if (replacementHandle != -1) {
                         objectsWritten.put(object, replacementHandle);
                     }
                     return replacementHandle;
@@ -1857,15 +1967,15 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
 
         // set flag for enum, the flag is (SC_SERIALIZABLE | SC_ENUM)
         classDesc.setFlags((byte) (SC_SERIALIZABLE | SC_ENUM));
-        Integer previousHandle = null;
+        int previousHandle = -1;
         if (unshared) {
             previousHandle = objectsWritten.get(classDesc);
         }
-        Integer handle = null;
+        int handle = -1;
         if (!unshared) {
             handle = dumpCycle(classDesc);
         }
-        if (handle == null) {
+        if (handle == -1) {
             Class<?> classToWrite = classDesc.forClass();
             // If we got here, it is a new (non-null) classDesc that will have
             // to be registered as well
@@ -1902,7 +2012,7 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
         return classDesc;
     }
 
-    private Integer writeNewEnum(Object object, Class<?> theClass,
+    private int writeNewEnum(Object object, Class<?> theClass,
             boolean unshared) throws IOException {
         // write new Enum
         EmulatedFieldsForDumping originalCurrentPutField = currentPutField; // save
@@ -1917,11 +2027,11 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
         ObjectStreamClass classDesc = ObjectStreamClass.lookup(theClass);
         writeEnumDesc(theClass, classDesc, unshared);
 
-        Integer previousHandle = null;
+        int previousHandle = -1;
         if (unshared) {
             previousHandle = objectsWritten.get(object);
         }
-        Integer handle = nextHandle();
+        int handle = nextHandle();
         objectsWritten.put(object, handle);
 
         ObjectStreamField[] fields = classDesc.getSuperclass().fields();
@@ -1934,11 +2044,11 @@ public class ObjectOutputStream extends OutputStream implements ObjectOutput,
                     .getName(), fields[1].getTypeString());
             // END android-changed
 
-            Integer strhandle = null;
+            int strhandle = -1;
             if (!unshared) {
                 strhandle = dumpCycle(str);
             }
-            if (null == strhandle) {
+            if (strhandle == -1) {
                 writeNewString(str, unshared);
             }
         }
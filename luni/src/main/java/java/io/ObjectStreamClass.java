@@ -17,6 +17,8 @@
 
 package java.io;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
@@ -30,9 +32,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.harmony.luni.util.PriviAction;
-import org.apache.harmony.luni.util.ThreadLocalCache;
 
 /**
  * Represents a descriptor for identifying a class during serialization and
@@ -129,6 +130,73 @@ public class ObjectStreamClass implements Serializable {
 
     static final Class<ObjectStreamClass> OBJECTSTREAMCLASSCLASS = ObjectStreamClass.class;
 
+    // BEGIN android-added
+    /*
+     * Descriptors computed by lookupStreamClass, shared by all threads. Keys
+     * are WeakClassKeys, so lookups don't lock; stores lock on the map. The
+     * values are soft because a descriptor strongly refers to its class
+     * through its fields and methods, which would otherwise keep the weak key
+     * alive for good; this also lets the cache go under memory pressure.
+     */
+    private static final ConcurrentHashMap<Object, SoftReference<ObjectStreamClass>> streamClassCache
+            = new ConcurrentHashMap<Object, SoftReference<ObjectStreamClass>>();
+
+    /** Keys of streamClassCache whose classes have been collected. */
+    private static final ReferenceQueue<Class<?>> collectedClasses
+            = new ReferenceQueue<Class<?>>();
+
+    /*
+     * A key of streamClassCache, which weakly refers to its class. It equals
+     * any other key, and any LookupKey, for the same class.
+     */
+    private static final class WeakClassKey extends WeakReference<Class<?>> {
+        private final int hash;
+
+        WeakClassKey(Class<?> cl) {
+            super(cl, collectedClasses);
+            hash = System.identityHashCode(cl);
+        }
+
+        @Override public int hashCode() {
+            return hash;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            Class<?> cl = get();
+            if (cl == null) {
+                return false;
+            }
+            if (o instanceof WeakClassKey) {
+                return ((WeakClassKey) o).get() == cl;
+            }
+            return o instanceof LookupKey && ((LookupKey) o).cl == cl;
+        }
+    }
+
+    /*
+     * A short-lived key to look up a class in streamClassCache without
+     * creating a reference object.
+     */
+    private static final class LookupKey {
+        private final Class<?> cl;
+
+        LookupKey(Class<?> cl) {
+            this.cl = cl;
+        }
+
+        @Override public int hashCode() {
+            return System.identityHashCode(cl);
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof WeakClassKey && ((WeakClassKey) o).get() == cl;
+        }
+    }
+    // END android-added
+
     private transient Method methodWriteReplace;
 
     private transient Method methodReadResolve;
@@ -188,6 +256,13 @@ public class ObjectStreamClass implements Serializable {
     // Array of ObjectStreamField describing the serialized fields of this class
     private transient ObjectStreamField[] loadFields;
 
+    // BEGIN android-added
+    // The leading primitive fields of fields() and loadFields, resolved
+    // against the local class on first use
+    private transient PrimitiveFields primitiveFields;
+    private transient PrimitiveFields primitiveLoadFields;
+    // END android-added
+
     // MethodID for deserialization constructor
     private transient long constructor = CONSTRUCTOR_IS_NOT_RESOLVED;
 
@@ -754,6 +829,101 @@ public class ObjectStreamClass implements Serializable {
         return loadFields;
     }
 
+    // BEGIN android-added
+    /**
+     * The leading run of primitive fields of a descriptor, resolved to JNI
+     * field IDs of the local class. ObjectInputStream and ObjectOutputStream
+     * use it to copy all of these fields with a single native call instead
+     * of looking each field up by name for every instance.
+     */
+    static final class PrimitiveFields {
+        /** The JNI field IDs, or 0 for fields the local class doesn't have. */
+        final long[] fieldIDs;
+        /** The type codes ('B', 'C', 'D', 'F', 'I', 'J', 'S' or 'Z'). */
+        final byte[] typeCodes;
+        /** The number of bytes the fields take up in the stream. */
+        final int byteCount;
+        /** True if every field was found in the local class. */
+        final boolean complete;
+
+        PrimitiveFields(ObjectStreamField[] fields, Class<?> declaringClass) {
+            int count = 0;
+            while (fields != null && count < fields.length
+                    && primitiveSize(fields[count].getTypeCode()) != 0) {
+                count++;
+            }
+            fieldIDs = new long[count];
+            typeCodes = new byte[count];
+            int byteCount = 0;
+            boolean complete = true;
+            for (int i = 0; i < count; i++) {
+                ObjectStreamField field = fields[i];
+                char typeCode = field.getTypeCode();
+                if (declaringClass != null) {
+                    fieldIDs[i] = getFieldID(declaringClass, field.getName(),
+                            String.valueOf(typeCode));
+                }
+                complete &= (fieldIDs[i] != 0);
+                typeCodes[i] = (byte) typeCode;
+                byteCount += primitiveSize(typeCode);
+            }
+            this.byteCount = byteCount;
+            this.complete = complete;
+        }
+
+        private static int primitiveSize(char typeCode) {
+            switch (typeCode) {
+                case 'B':
+                case 'Z':
+                    return 1;
+                case 'C':
+                case 'S':
+                    return 2;
+                case 'F':
+                case 'I':
+                    return 4;
+                case 'D':
+                case 'J':
+                    return 8;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the leading primitive fields of {@link #fields}, which
+     * ObjectOutputStream writes.
+     */
+    PrimitiveFields getPrimitiveFields() {
+        PrimitiveFields result = primitiveFields;
+        if (result == null) {
+            result = primitiveFields = new PrimitiveFields(fields(), forClass());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the leading primitive fields of {@link #getLoadFields}, which
+     * ObjectInputStream reads.
+     */
+    PrimitiveFields getPrimitiveLoadFields() {
+        PrimitiveFields result = primitiveLoadFields;
+        if (result == null) {
+            result = primitiveLoadFields = new PrimitiveFields(loadFields, forClass());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the JNI field ID of the field {@code fieldName} with type
+     * {@code signature} in {@code declaringClass} or its superclasses, or 0
+     * if there is no such field.
+     */
+    private static native long getFieldID(Class<?> declaringClass, String fieldName,
+            String signature);
+    // END android-added
+
     /**
      * Return a String representing the signature for a field {@code f}.
      *
@@ -974,17 +1144,38 @@ public class ObjectStreamClass implements Serializable {
      * @return the corresponding descriptor
      */
     static ObjectStreamClass lookupStreamClass(Class<?> cl) {
-
-        WeakHashMap<Class<?>,ObjectStreamClass> tlc = OSCThreadLocalCache.oscWeakHashMap.get();
-
-        ObjectStreamClass cachedValue = tlc.get(cl);
-        if (cachedValue == null) {
-            cachedValue = createClassDesc(cl);
-            tlc.put(cl, cachedValue);
+        // BEGIN android-changed
+        ObjectStreamClass cachedValue = getCachedStreamClass(cl);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        // Compute the descriptor without holding the lock: it looks up the
+        // superclass descriptors and may run arbitrary class initializers.
+        ObjectStreamClass result = createClassDesc(cl);
+        synchronized (streamClassCache) {
+            // If another thread got here first, use its descriptor so that
+            // all threads share the same one.
+            cachedValue = getCachedStreamClass(cl);
+            if (cachedValue != null) {
+                return cachedValue;
+            }
+            Object collected;
+            while ((collected = collectedClasses.poll()) != null) {
+                streamClassCache.remove(collected);
+            }
+            streamClassCache.put(new WeakClassKey(cl),
+                    new SoftReference<ObjectStreamClass>(result));
         }
-        return cachedValue;
+        return result;
+        // END android-changed
+    }
 
+    // BEGIN android-added
+    private static ObjectStreamClass getCachedStreamClass(Class<?> cl) {
+        SoftReference<ObjectStreamClass> ref = streamClassCache.get(new LookupKey(cl));
+        return (ref != null) ? ref.get() : null;
     }
+    // END android-added
 
     /**
      * Return the java.lang.reflect.Method if class <code>cl</code> implements
@@ -1095,6 +1286,10 @@ public class ObjectStreamClass implements Serializable {
      */
     void setClass(Class<?> c) {
         resolvedClass = new WeakReference<Class<?>>(c);
+        // BEGIN android-added
+        primitiveFields = null;
+        primitiveLoadFields = null;
+        // END android-added
     }
 
     /**
@@ -1107,6 +1302,9 @@ public class ObjectStreamClass implements Serializable {
      */
     void setFields(ObjectStreamField[] f) {
         fields = f;
+        // BEGIN android-added
+        primitiveFields = null;
+        // END android-added
     }
 
     /**
@@ -1119,6 +1317,9 @@ public class ObjectStreamClass implements Serializable {
      */
     void setLoadFields(ObjectStreamField[] f) {
         loadFields = f;
+        // BEGIN android-added
+        primitiveLoadFields = null;
+        // END android-added
     }
 
     /**
@@ -1196,15 +1397,4 @@ public class ObjectStreamClass implements Serializable {
                 + getSerialVersionUID() + "L;";
     }
 
-    static class OSCThreadLocalCache extends ThreadLocalCache {
-
-        // thread-local cache for ObjectStreamClass.lookup
-        public static ThreadLocalCache<WeakHashMap<Class<?>,ObjectStreamClass>> oscWeakHashMap = new ThreadLocalCache<WeakHashMap<Class<?>,ObjectStreamClass>>() {
-            protected WeakHashMap<Class<?>,ObjectStreamClass> initialValue() {
-                return new WeakHashMap<Class<?>,ObjectStreamClass>();
-            }
-        };
-
-    }
-
 }
@@ -348,6 +348,36 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
         return (int) fileSystem.read(fd.descriptor, buffer, offset, count);
     }
 
+    // BEGIN android-added
+    /**
+     * Reads up to {@code count} bytes from the given position in this file
+     * and stores them in {@code buffer} starting at {@code offset}. The file
+     * pointer is neither used nor moved, so concurrent callers need not
+     * synchronize with each other or with {@link #seek}.
+     *
+     * @return the number of bytes actually read or -1 if {@code position} is
+     *         at or beyond the end of the file.
+     * @hide for java.util.zip.ZipFile
+     */
+    public int readAt(byte[] buffer, int offset, int count, long position)
+            throws IOException {
+        if (buffer == null) {
+            throw new NullPointerException("buffer == null");
+        }
+        if ((offset | count) < 0 || count > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (position < 0) {
+            throw new IOException("position < 0: " + position);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        openCheck();
+        return (int) fileSystem.pread(fd.descriptor, buffer, offset, count, position);
+    }
+    // END android-added
+
     /**
      * Reads a boolean from the current position in this file. Blocks until one
      * byte has been read, the end of the file is reached or an exception is
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.io;
+
+import java.util.Arrays;
+
+/**
+ * An identity hash map from objects to int handles, used by
+ * ObjectOutputStream to remember the objects it has already written. Unlike
+ * {@code IdentityHashMap<Object, Integer>}, it doesn't box the handles or
+ * allocate an entry per object.
+ */
+final class SerializationHandleMap {
+    private static final int LOAD_FACTOR = 7500;
+
+    private Object[] keys;
+    private int[] values;
+
+    /* Actual number of key-value pairs. */
+    private int size;
+
+    /* Maximum number of elements that can be put in this map before having to rehash. */
+    private int threshold;
+
+    public SerializationHandleMap() {
+        clear();
+    }
+
+    private void clear() {
+        this.size = 0;
+        this.threshold = 21; // Copied from IdentityHashMap.
+        int arraySize = (int) (((long) threshold * 10000) / LOAD_FACTOR);
+        this.keys = null;
+        this.values = null;
+        resizeArrays(arraySize);
+    }
+
+    private void resizeArrays(int newSize) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+
+        this.keys = new Object[newSize];
+        this.values = new int[newSize];
+
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; ++i) {
+                Object key = oldKeys[i];
+                if (key != null) {
+                    int index = findIndex(key, keys);
+                    keys[index] = key;
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the handle of {@code key}, or -1 if it isn't in this map.
+     */
+    public int get(Object key) {
+        int index = findIndex(key, keys);
+        if (keys[index] == key) {
+            return values[index];
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index where the key is found at, or the index of the next
+     * empty spot if the key is not found in this table.
+     */
+    private int findIndex(Object key, Object[] array) {
+        int length = array.length;
+        int index = getModuloHash(key, length);
+        int last = (index + length - 1) % length;
+        while (index != last) {
+            if (array[index] == key || array[index] == null) {
+                /*
+                 * Found the key, or the next empty spot (which means key is not
+                 * in the table)
+                 */
+                break;
+            }
+            index = (index + 1) % length;
+        }
+        return index;
+    }
+
+    private int getModuloHash(Object key, int length) {
+        return (System.identityHashCode(key) & 0x7FFFFFFF) % length;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, returning the previous handle of
+     * {@code key} or -1 if there was none.
+     */
+    public int put(Object key, int value) {
+        int index = findIndex(key, keys);
+        if (keys[index] != key) {
+            if (++size > threshold) {
+                rehash();
+                index = findIndex(key, keys);
+            }
+            keys[index] = key;
+            values[index] = -1;
+        }
+        int result = values[index];
+        values[index] = value;
+        return result;
+    }
+
+    private void rehash() {
+        int newSize = keys.length * 2;
+        resizeArrays(newSize);
+        threshold = (int) ((long) (keys.length) * LOAD_FACTOR / 10000);
+    }
+
+    /**
+     * Removes {@code key}, returning its handle or -1 if it wasn't in this
+     * map.
+     */
+    public int remove(Object key) {
+        int index = findIndex(key, keys);
+        if (keys[index] != key) {
+            return -1;
+        }
+        int result = values[index];
+
+        // Shift the following entries of the probe sequence back into the
+        // hole, so that lookups never stop early at an empty slot.
+        int length = keys.length;
+        int next = index;
+        while (true) {
+            next = (next + 1) % length;
+            Object object = keys[next];
+            if (object == null) {
+                break;
+            }
+            int hash = getModuloHash(object, length);
+            boolean hashedOk;
+            if (next > index) {
+                hashedOk = hash > index && hash <= next;
+            } else {
+                hashedOk = hash > index || hash <= next;
+            }
+            if (!hashedOk) {
+                keys[index] = object;
+                values[index] = values[next];
+                index = next;
+            }
+        }
+        size--;
+        keys[index] = null;
+        values[index] = -1;
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key that isn't an ObjectStreamClass, and renumbers the
+     * remaining ones in the order of their current handles, starting from
+     * {@code firstHandle}. ObjectInputStream.resetSeenObjects keeps the
+     * same descriptors in the same order. Returns the number of keys kept.
+     */
+    public int retainClassDescriptors(int firstHandle) {
+        // Handles are positive, so sorting (handle, index) pairs sorts by handle.
+        long[] order = new long[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] instanceof ObjectStreamClass) {
+                order[count++] = ((long) values[i] << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, count);
+        Object[] descriptors = new Object[count];
+        for (int i = 0; i < count; ++i) {
+            descriptors[i] = keys[(int) order[i]];
+        }
+        clear();
+        for (int i = 0; i < count; ++i) {
+            put(descriptors[i], firstHandle + i);
+        }
+        return count;
+    }
+}
@@ -427,12 +427,12 @@ outer:
             this.offset = 0;
             this.value = new char[length];
             this.count = length;
-            Charsets.isoLatin1BytesToChars(data, start, length, value);
+            Charsets.isoLatin1BytesToChars(data, start, length, value, 0);
         } else if (canonicalCharsetName.equals("US-ASCII")) {
             this.offset = 0;
             this.value = new char[length];
             this.count = length;
-            Charsets.asciiBytesToChars(data, start, length, value);
+            Charsets.asciiBytesToChars(data, start, length, value, 0);
         } else {
             CharBuffer cb = charset.decode(ByteBuffer.wrap(data, start, length));
             this.offset = 0;
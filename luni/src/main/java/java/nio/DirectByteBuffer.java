@@ -20,6 +20,9 @@ package java.nio;
 import org.apache.harmony.luni.platform.PlatformAddress;
 import org.apache.harmony.luni.platform.PlatformAddressFactory;
 import org.apache.harmony.nio.internal.DirectBuffer;
+// BEGIN android-added
+import org.apache.harmony.nio.internal.OwnedBuffer;
+// END android-added
 
 /**
  * DirectByteBuffer, ReadWriteDirectByteBuffer and ReadOnlyDirectByteBuffer
@@ -33,7 +36,9 @@ import org.apache.harmony.nio.internal.DirectBuffer;
  * </p>
  *
  */
-abstract class DirectByteBuffer extends BaseByteBuffer implements DirectBuffer {
+// BEGIN android-changed
+abstract class DirectByteBuffer extends BaseByteBuffer implements DirectBuffer, OwnedBuffer {
+// END android-changed
 
     // This class will help us track whether the address is valid or not.
     static final class SafeAddress {
@@ -54,6 +59,11 @@ abstract class DirectByteBuffer extends BaseByteBuffer implements DirectBuffer {
     // starts.
     protected final int offset;
 
+    // BEGIN android-added
+    // Tag of the allocator that owns this buffer object; see OwnedBuffer.
+    private Object owner;
+    // END android-added
+
     /*
      * Constructs a new direct byte buffer of the given capacity on newly
      * allocated OS memory. The memory will have been zeroed. When the instance
@@ -234,6 +244,16 @@ abstract class DirectByteBuffer extends BaseByteBuffer implements DirectBuffer {
         safeAddress.isValid = false;
     }
 
+    // BEGIN android-added
+    public final Object getOwner() {
+        return owner;
+    }
+
+    public final void setOwner(Object owner) {
+        this.owner = owner;
+    }
+    // END android-added
+
     /*
      * Returns the base address of the buffer (i.e. before offset).
      */
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.nio.channels;
+
+import java.io.IOException;
+
+/**
+ * A channel whose operations are started by one call and complete later,
+ * either through a {@link java.util.concurrent.Future} or a {@link
+ * CompletionHandler}.
+ *
+ * @hide
+ */
+public interface AsynchronousChannel extends Channel {
+
+    /**
+     * Closes this channel. Operations still in progress either complete or
+     * fail with {@link AsynchronousCloseException}; operations not yet
+     * started fail with {@code AsynchronousCloseException}.
+     *
+     * @throws IOException
+     *             if an I/O error occurs while closing the channel.
+     */
+    void close() throws IOException;
+}
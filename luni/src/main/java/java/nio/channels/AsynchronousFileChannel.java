@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.nio.channels;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.harmony.nio.internal.AsynchronousFileChannelImpl;
+import org.apache.harmony.nio.internal.FileChannelImpl;
+
+/**
+ * An asynchronous channel for reading and writing a file. Unlike a {@link
+ * FileChannel}, it has no current position: every read and write names the
+ * file position it starts at. Operations are carried out by a pool of
+ * worker threads, and may complete in any order.
+ *
+ * <p>Each operation can be started in two ways. The variant returning a
+ * {@link Future} lets the caller wait for the number of bytes transferred.
+ * The variant taking a {@link CompletionHandler} calls the handler with that
+ * number, or with the failure, on a worker thread.
+ *
+ * <p>Reads return -1 if the position is at or beyond the end of the file.
+ *
+ * @hide
+ */
+public abstract class AsynchronousFileChannel implements AsynchronousChannel {
+
+    /**
+     * Initializes a new instance of this class.
+     */
+    protected AsynchronousFileChannel() {
+    }
+
+    /**
+     * Opens {@code file} for asynchronous I/O on the default worker pool,
+     * which is shared by all channels opened this way.
+     *
+     * @param file
+     *            the file to open.
+     * @param mode
+     *            the access mode, as for {@link RandomAccessFile}: "r", "rw",
+     *            "rws" or "rwd".
+     * @throws IOException
+     *             if the file cannot be opened.
+     */
+    public static AsynchronousFileChannel open(File file, String mode) throws IOException {
+        return open(file, mode, null);
+    }
+
+    /**
+     * Opens {@code file} for asynchronous I/O whose operations run on {@code
+     * executor}.
+     *
+     * @param file
+     *            the file to open.
+     * @param mode
+     *            the access mode, as for {@link RandomAccessFile}: "r", "rw",
+     *            "rws" or "rwd".
+     * @param executor
+     *            the executor that performs the I/O and calls the completion
+     *            handlers, or null to use the default worker pool.
+     * @throws IOException
+     *             if the file cannot be opened.
+     */
+    public static AsynchronousFileChannel open(File file, String mode, ExecutorService executor)
+            throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, mode);
+        return new AsynchronousFileChannelImpl((FileChannelImpl) randomAccessFile.getChannel(),
+                executor);
+    }
+
+    /**
+     * Returns the current size of the file.
+     *
+     * @throws ClosedChannelException
+     *             if this channel is closed.
+     * @throws IOException
+     *             if another I/O error occurs.
+     */
+    public abstract long size() throws IOException;
+
+    /**
+     * Truncates the file to {@code size} bytes if it is longer.
+     *
+     * @return this channel.
+     * @throws IllegalArgumentException
+     *             if {@code size < 0}.
+     * @throws NonWritableChannelException
+     *             if this channel was not opened for writing.
+     * @throws ClosedChannelException
+     *             if this channel is closed.
+     * @throws IOException
+     *             if another I/O error occurs.
+     */
+    public abstract AsynchronousFileChannel truncate(long size) throws IOException;
+
+    /**
+     * Forces the data written to this channel out to the storage device, as
+     * {@link FileChannel#force} does. Only writes that have completed are
+     * covered.
+     *
+     * @param metadata
+     *            whether the file's metadata should be written too.
+     * @throws ClosedChannelException
+     *             if this channel is closed.
+     * @throws IOException
+     *             if another I/O error occurs.
+     */
+    public abstract void force(boolean metadata) throws IOException;
+
+    /**
+     * Starts reading bytes from the file at {@code position} into {@code
+     * dst}, and calls {@code handler} with the number of bytes read, or -1
+     * if {@code position} is at or beyond the end of the file. The buffer
+     * must not be used until the operation completes.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code position < 0} or {@code dst} is read-only.
+     */
+    public abstract <A> void read(ByteBuffer dst, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler);
+
+    /**
+     * Starts reading bytes from the file at {@code position} into {@code
+     * dst}, and returns a future for the number of bytes read, or -1 if
+     * {@code position} is at or beyond the end of the file. The buffer must
+     * not be used until the operation completes.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code position < 0} or {@code dst} is read-only.
+     */
+    public abstract Future<Integer> read(ByteBuffer dst, long position);
+
+    /**
+     * Starts writing the remaining bytes of {@code src} to the file at
+     * {@code position}, and calls {@code handler} with the number of bytes
+     * written. The buffer must not be changed until the operation completes.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code position < 0}.
+     * @throws NonWritableChannelException
+     *             if this channel was not opened for writing.
+     */
+    public abstract <A> void write(ByteBuffer src, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler);
+
+    /**
+     * Starts writing the remaining bytes of {@code src} to the file at
+     * {@code position}, and returns a future for the number of bytes
+     * written. The buffer must not be changed until the operation completes.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code position < 0}.
+     * @throws NonWritableChannelException
+     *             if this channel was not opened for writing.
+     */
+    public abstract Future<Integer> write(ByteBuffer src, long position);
+}
@@ -342,6 +342,20 @@ public final class Channels {
             if (!isOpen()) {
                 throw new ClosedChannelException();
             }
+            // BEGIN android-added
+            // Streams that are also channels, such as those of an SSL socket,
+            // can read into the buffer without a copy through a temporary array.
+            if (inputStream instanceof ReadableByteChannel) {
+                int readCount = 0;
+                try {
+                    begin();
+                    readCount = ((ReadableByteChannel) inputStream).read(target);
+                } finally {
+                    end(readCount >= 0);
+                }
+                return readCount;
+            }
+            // END android-added
             int bytesRemain = target.remaining();
             byte[] bytes = new byte[bytesRemain];
             int readCount = 0;
@@ -383,6 +397,17 @@ public final class Channels {
             if (bytesRemain == 0) {
                 return 0;
             }
+            // BEGIN android-added
+            if (outputStream instanceof WritableByteChannel) {
+                try {
+                    begin();
+                    bytesRemain = ((WritableByteChannel) outputStream).write(source);
+                } finally {
+                    end(bytesRemain >= 0);
+                }
+                return bytesRemain;
+            }
+            // END android-added
             byte[] buf = new byte[bytesRemain];
             source.get(buf);
             try {
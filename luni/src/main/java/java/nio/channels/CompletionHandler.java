@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.nio.channels;
+
+/**
+ * A handler for the result of an asynchronous I/O operation. Handlers are
+ * called on a thread of the channel's executor, and should not block.
+ *
+ * @param <V> the type of the operation's result.
+ * @param <A> the type of the attachment passed when starting the operation.
+ * @hide
+ */
+public interface CompletionHandler<V, A> {
+
+    /**
+     * Called when the operation completes successfully.
+     *
+     * @param result
+     *            the result of the operation.
+     * @param attachment
+     *            the object passed when the operation was started.
+     */
+    void completed(V result, A attachment);
+
+    /**
+     * Called when the operation fails.
+     *
+     * @param exc
+     *            the reason for the failure.
+     * @param attachment
+     *            the object passed when the operation was started.
+     */
+    void failed(Throwable exc, A attachment);
+}
@@ -60,23 +60,39 @@ public class Charsets {
     public static native byte[] toUtf8Bytes(char[] chars, int offset, int length);
 
     /**
-     * Decodes the given US-ASCII bytes into the given char[]. Equivalent to but faster than:
+     * Decodes the given US-ASCII bytes into the given char[] starting at charOffset. Equivalent
+     * to but faster than:
      *
      * for (int i = 0; i < count; ++i) {
      *     char ch = (char) (data[start++] & 0xff);
-     *     value[i] = (ch <= 0x7f) ? ch : REPLACEMENT_CHAR;
+     *     value[charOffset + i] = (ch <= 0x7f) ? ch : REPLACEMENT_CHAR;
      * }
      */
-    public static native void asciiBytesToChars(byte[] bytes, int offset, int length, char[] chars);
+    public static native void asciiBytesToChars(byte[] bytes, int offset, int length, char[] chars,
+            int charOffset);
 
     /**
-     * Decodes the given ISO-8859-1 bytes into the given char[]. Equivalent to but faster than:
+     * Decodes the given ISO-8859-1 bytes into the given char[] starting at charOffset. Equivalent
+     * to but faster than:
      *
      * for (int i = 0; i < count; ++i) {
-     *     value[i] = (char) (data[start++] & 0xff);
+     *     value[charOffset + i] = (char) (data[start++] & 0xff);
      * }
      */
-    public static native void isoLatin1BytesToChars(byte[] bytes, int offset, int length, char[] chars);
+    public static native void isoLatin1BytesToChars(byte[] bytes, int offset, int length,
+            char[] chars, int charOffset);
+
+    /**
+     * Decodes as much of the given UTF-8 bytes as fits into chars[charOffset...charOffset +
+     * charCount). Malformed input is replaced by U+FFFD, one per maximal ill-formed subsequence.
+     * Unless endOfInput is true, a sequence cut short by the end of the bytes is left undecoded,
+     * as is a supplementary character when only one char of room is left.
+     *
+     * Returns the number of bytes consumed in the high 32 bits and the number of chars written in
+     * the low 32 bits.
+     */
+    public static native long utf8BytesToChars(byte[] bytes, int offset, int length, char[] chars,
+            int charOffset, int charCount, boolean endOfInput);
 
     private Charsets() {
     }
@@ -90,12 +90,10 @@ public class AlgorithmParameterGenerator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new AlgorithmParameterGenerator(
-                    (AlgorithmParameterGeneratorSpi) engine.spi, engine.provider,
-                    algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new AlgorithmParameterGenerator(
+                (AlgorithmParameterGeneratorSpi) sap.spi, sap.provider,
+                algorithm);
     }
 
     /**
@@ -154,12 +152,10 @@ public class AlgorithmParameterGenerator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new AlgorithmParameterGenerator(
-                    (AlgorithmParameterGeneratorSpi) engine.spi, provider,
-                    algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new AlgorithmParameterGenerator(
+                (AlgorithmParameterGeneratorSpi) spi, provider,
+                algorithm);
     }
 
     /**
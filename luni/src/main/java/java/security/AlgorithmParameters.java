@@ -94,11 +94,9 @@ public class AlgorithmParameters {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new AlgorithmParameters((AlgorithmParametersSpi) engine.spi,
-                    engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new AlgorithmParameters((AlgorithmParametersSpi) sap.spi,
+                sap.provider, algorithm);
     }
 
     /**
@@ -156,11 +154,9 @@ public class AlgorithmParameters {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new AlgorithmParameters((AlgorithmParametersSpi) engine.spi,
-                    provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new AlgorithmParameters((AlgorithmParametersSpi) spi,
+                provider, algorithm);
     }
 
     /**
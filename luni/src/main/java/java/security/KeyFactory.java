@@ -79,10 +79,8 @@ public class KeyFactory {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new KeyFactory((KeyFactorySpi)engine.spi, engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new KeyFactory((KeyFactorySpi)sap.spi, sap.provider, algorithm);
     }
 
     /**
@@ -136,10 +134,8 @@ public class KeyFactory {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new KeyFactory((KeyFactorySpi)engine.spi, provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new KeyFactory((KeyFactorySpi)spi, provider, algorithm);
     }
 
     /**
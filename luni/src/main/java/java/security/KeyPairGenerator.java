@@ -83,18 +83,16 @@ public abstract class KeyPairGenerator extends KeyPairGeneratorSpi {
             throw new NullPointerException();
         }
         KeyPairGenerator result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            if (engine.spi instanceof KeyPairGenerator) {
-                result = (KeyPairGenerator) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = engine.provider;
-                return result;
-            }
-            result = new KeyPairGeneratorImpl((KeyPairGeneratorSpi) engine.spi,
-                    engine.provider, algorithm);
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        if (sap.spi instanceof KeyPairGenerator) {
+            result = (KeyPairGenerator) sap.spi;
+            result.algorithm = algorithm;
+            result.provider = sap.provider;
             return result;
         }
+        result = new KeyPairGeneratorImpl((KeyPairGeneratorSpi) sap.spi,
+                sap.provider, algorithm);
+        return result;
     }
 
     /**
@@ -149,18 +147,16 @@ public abstract class KeyPairGenerator extends KeyPairGeneratorSpi {
             throw new NullPointerException();
         }
         KeyPairGenerator result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            if (engine.spi instanceof KeyPairGenerator) {
-                result = (KeyPairGenerator) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = provider;
-                return result;
-            }
-            result = new KeyPairGeneratorImpl((KeyPairGeneratorSpi) engine.spi,
-                    provider, algorithm);
+        Object spi = engine.getInstance(algorithm, provider, null);
+        if (spi instanceof KeyPairGenerator) {
+            result = (KeyPairGenerator) spi;
+            result.algorithm = algorithm;
+            result.provider = provider;
             return result;
         }
+        result = new KeyPairGeneratorImpl((KeyPairGeneratorSpi) spi,
+                provider, algorithm);
+        return result;
     }
 
     /**
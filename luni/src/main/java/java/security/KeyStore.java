@@ -111,13 +111,11 @@ public class KeyStore {
         if (type == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            try {
-                engine.getInstance(type, null);
-                return new KeyStore((KeyStoreSpi) engine.spi, engine.provider, type);
-            } catch (NoSuchAlgorithmException e) {
-                throw new KeyStoreException(e.getMessage());
-            }
+        try {
+            Engine.SpiAndProvider sap = engine.getInstance(type, null);
+            return new KeyStore((KeyStoreSpi) sap.spi, sap.provider, type);
+        } catch (NoSuchAlgorithmException e) {
+            throw new KeyStoreException(e.getMessage());
         }
     }
 
@@ -187,14 +185,12 @@ public class KeyStore {
             throw new NullPointerException();
         }
         // return KeyStore instance
-        synchronized (engine) {
-            try {
-                engine.getInstance(type, provider, null);
-                return new KeyStore((KeyStoreSpi) engine.spi, provider, type);
-            } catch (Exception e) {
-            // override exception
-                throw new KeyStoreException(e.getMessage());
-            }
+        try {
+            Object spi = engine.getInstance(type, provider, null);
+            return new KeyStore((KeyStoreSpi) spi, provider, type);
+        } catch (Exception e) {
+        // override exception
+            throw new KeyStoreException(e.getMessage());
         }
     }
 
@@ -89,17 +89,15 @@ public abstract class MessageDigest extends MessageDigestSpi {
             throw new NullPointerException();
         }
         MessageDigest result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            if (engine.spi instanceof MessageDigest) {
-                result = (MessageDigest) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = engine.provider;
-                return result;
-            }
-            return new MessageDigestImpl((MessageDigestSpi) engine.spi,
-                    engine.provider, algorithm);
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        if (sap.spi instanceof MessageDigest) {
+            result = (MessageDigest) sap.spi;
+            result.algorithm = algorithm;
+            result.provider = sap.provider;
+            return result;
         }
+        return new MessageDigestImpl((MessageDigestSpi) sap.spi,
+                sap.provider, algorithm);
     }
 
     /**
@@ -157,18 +155,16 @@ public abstract class MessageDigest extends MessageDigestSpi {
             throw new NullPointerException();
         }
         MessageDigest result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            if (engine.spi instanceof MessageDigest) {
-                result = (MessageDigest) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = provider;
-                return result;
-            }
-            result = new MessageDigestImpl((MessageDigestSpi) engine.spi,
-                    provider, algorithm);
+        Object spi = engine.getInstance(algorithm, provider, null);
+        if (spi instanceof MessageDigest) {
+            result = (MessageDigest) spi;
+            result.algorithm = algorithm;
+            result.provider = provider;
             return result;
         }
+        result = new MessageDigestImpl((MessageDigestSpi) spi,
+                provider, algorithm);
+        return result;
     }
 
     /**
@@ -125,11 +125,9 @@ public abstract class Policy {
         }
 
         try {
-            synchronized (engine) {
-                engine.getInstance(type, params);
-                return new PolicyDelegate((PolicySpi) engine.spi,
-                        engine.provider, type, params);
-            }
+            Engine.SpiAndProvider sap = engine.getInstance(type, params);
+            return new PolicyDelegate((PolicySpi) sap.spi,
+                    sap.provider, type, params);
 
         } catch (NoSuchAlgorithmException e) {
             if (e.getCause() == null) {
@@ -240,11 +238,9 @@ public abstract class Policy {
         }
 
         try {
-            synchronized (engine) {
-                engine.getInstance(type, provider, params);
-                return new PolicyDelegate((PolicySpi) engine.spi, provider,
-                        type, params);
-            }
+            Object spi = engine.getInstance(type, provider, params);
+            return new PolicyDelegate((PolicySpi) spi, provider,
+                    type, params);
         } catch (NoSuchAlgorithmException e) {
             if (e.getCause() == null) {
                 throw e;
@@ -918,7 +918,7 @@ public abstract class Provider extends Properties {
         private Map<String,String> attributes;
 
         // Service implementation
-        private Class<?> implementation;
+        private volatile Class<?> implementation;
 
         // For newInstance() optimization
         private String lastClassName;
@@ -31,6 +31,11 @@ import org.apache.harmony.security.provider.crypto.SHA1PRNG_SecureRandomImpl;
  *     href="http://en.wikipedia.org/wiki/SHA-1">SHA-1</a>. Not guaranteed to be
  *     compatible with the SHA1PRNG algorithm on the reference
  *     implementation.</li>
+ *   <li><strong>DRBG</strong>: HMAC_DRBG with SHA-1, as described in <a
+ *     href="http://csrc.nist.gov/publications/nistpubs/800-90A/SP800-90A.pdf">NIST
+ *     SP 800-90A</a>. Each thread uses its own generator, so an instance
+ *     may be shared by many threads without contention. Seeds supplement
+ *     the system's entropy rather than replace it.</li>
  * </ul>
  *
  * <p>The default algorithm is defined by the first {@code SecureRandomSpi}
@@ -86,6 +91,9 @@ public class SecureRandom extends Random {
 
     private long counter;
 
+    // True if secureRandomSpi may be called by several threads at once.
+    private transient boolean threadSafe;
+
     // Internal SecureRandom used for getSeed(int)
     private static transient SecureRandom internalSecureRandom;
 
@@ -105,6 +113,7 @@ public class SecureRandom extends Random {
                 this.provider = service.getProvider();
                 this.secureRandomSpi = (SecureRandomSpi)service.newInstance(null);
                 this.algorithm = service.getAlgorithm();
+                this.threadSafe = "true".equalsIgnoreCase(service.getAttribute("ThreadSafe"));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -143,6 +152,19 @@ public class SecureRandom extends Random {
         this.provider = provider;
         this.algorithm = algorithm;
         this.secureRandomSpi = secureRandomSpi;
+        this.threadSafe = isThreadSafe(provider, algorithm);
+    }
+
+    /**
+     * Returns true if the provider declares, with a "ThreadSafe" attribute,
+     * that its implementation of the algorithm needs no locking.
+     */
+    private static boolean isThreadSafe(Provider provider, String algorithm) {
+        if (provider == null) {
+            return false;
+        }
+        Provider.Service service = provider.getService(SERVICE, algorithm);
+        return service != null && "true".equalsIgnoreCase(service.getAttribute("ThreadSafe"));
     }
 
     /**
@@ -163,10 +185,8 @@ public class SecureRandom extends Random {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new SecureRandom((SecureRandomSpi)engine.spi, engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new SecureRandom((SecureRandomSpi)sap.spi, sap.provider, algorithm);
     }
 
     /**
@@ -223,10 +243,8 @@ public class SecureRandom extends Random {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new SecureRandom((SecureRandomSpi)engine.spi, provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new SecureRandom((SecureRandomSpi)spi, provider, algorithm);
     }
 
     /**
@@ -252,8 +270,14 @@ public class SecureRandom extends Random {
      * seed}. <a href="#insecure_seed">Seeding {@code SecureRandom} may be
      * insecure</a>.
      */
-    public synchronized void setSeed(byte[] seed) {
-        secureRandomSpi.engineSetSeed(seed);
+    public void setSeed(byte[] seed) {
+        if (threadSafe) {
+            secureRandomSpi.engineSetSeed(seed);
+            return;
+        }
+        synchronized (this) {
+            secureRandomSpi.engineSetSeed(seed);
+        }
     }
 
     /**
@@ -287,8 +311,14 @@ public class SecureRandom extends Random {
      *            the {@code byte[]} to be filled with random bytes.
      */
     @Override
-    public synchronized void nextBytes(byte[] bytes) {
-        secureRandomSpi.engineNextBytes(bytes);
+    public void nextBytes(byte[] bytes) {
+        if (threadSafe) {
+            secureRandomSpi.engineNextBytes(bytes);
+            return;
+        }
+        synchronized (this) {
+            secureRandomSpi.engineNextBytes(bytes);
+        }
     }
 
     /**
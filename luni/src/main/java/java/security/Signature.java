@@ -102,16 +102,14 @@ public abstract class Signature extends SignatureSpi {
             throw new NullPointerException();
         }
         Signature result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            if (engine.spi instanceof Signature) {
-                result = (Signature) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = engine.provider;
-            } else {
-                result = new SignatureImpl((SignatureSpi) engine.spi,
-                        engine.provider, algorithm);
-            }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        if (sap.spi instanceof Signature) {
+            result = (Signature) sap.spi;
+            result.algorithm = algorithm;
+            result.provider = sap.provider;
+        } else {
+            result = new SignatureImpl((SignatureSpi) sap.spi,
+                    sap.provider, algorithm);
         }
         return result;
     }
@@ -179,16 +177,14 @@ public abstract class Signature extends SignatureSpi {
     private static Signature getSignatureInstance(String algorithm,
             Provider provider) throws NoSuchAlgorithmException {
         Signature result;
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            if (engine.spi instanceof Signature) {
-                result = (Signature) engine.spi;
-                result.algorithm = algorithm;
-                result.provider = provider;
-            } else {
-                result = new SignatureImpl((SignatureSpi) engine.spi, provider,
-                        algorithm);
-            }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        if (spi instanceof Signature) {
+            result = (Signature) spi;
+            result.algorithm = algorithm;
+            result.provider = provider;
+        } else {
+            result = new SignatureImpl((SignatureSpi) spi, provider,
+                    algorithm);
         }
         return result;
     }
@@ -105,11 +105,9 @@ public class CertPathBuilder {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new CertPathBuilder((CertPathBuilderSpi) engine.spi,
-                    engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new CertPathBuilder((CertPathBuilderSpi) sap.spi,
+                sap.provider, algorithm);
     }
 
     /**
@@ -165,11 +163,9 @@ public class CertPathBuilder {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new CertPathBuilder((CertPathBuilderSpi) engine.spi, provider,
-                    algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new CertPathBuilder((CertPathBuilderSpi) spi, provider,
+                algorithm);
     }
 
     /**
@@ -104,11 +104,9 @@ public class CertPathValidator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new CertPathValidator((CertPathValidatorSpi) engine.spi,
-                    engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new CertPathValidator((CertPathValidatorSpi) sap.spi,
+                sap.provider, algorithm);
     }
 
     /**
@@ -166,11 +164,9 @@ public class CertPathValidator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new CertPathValidator((CertPathValidatorSpi) engine.spi,
-                    provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new CertPathValidator((CertPathValidatorSpi) spi,
+                provider, algorithm);
     }
 
     /**
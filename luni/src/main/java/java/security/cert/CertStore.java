@@ -101,11 +101,9 @@ public class CertStore {
             throw new NullPointerException();
         }
         try {
-            synchronized (engine) {
-                engine.getInstance(type, params);
-                return new CertStore((CertStoreSpi) engine.spi, engine.provider,
-                        type, params);
-            }
+            Engine.SpiAndProvider sap = engine.getInstance(type, params);
+            return new CertStore((CertStoreSpi) sap.spi, sap.provider,
+                    type, params);
         } catch (NoSuchAlgorithmException e) {
             Throwable th = e.getCause();
             if (th == null) {
@@ -182,11 +180,9 @@ public class CertStore {
             throw new NullPointerException();
         }
         try {
-            synchronized (engine) {
-                engine.getInstance(type, provider, params);
-                return new CertStore((CertStoreSpi) engine.spi, provider, type,
-                        params);
-            }
+            Object spi = engine.getInstance(type, provider, params);
+            return new CertStore((CertStoreSpi) spi, provider, type,
+                    params);
         } catch (NoSuchAlgorithmException e) {
             Throwable th = e.getCause();
             if (th == null) {
@@ -87,11 +87,9 @@ public class CertificateFactory {
             throw new NullPointerException();
         }
         try {
-            synchronized (engine) {
-                engine.getInstance(type, null);
-                return new CertificateFactory((CertificateFactorySpi) engine.spi,
-                        engine.provider, type);
-            }
+            Engine.SpiAndProvider sap = engine.getInstance(type, null);
+            return new CertificateFactory((CertificateFactorySpi) sap.spi,
+                    sap.provider, type);
         } catch (NoSuchAlgorithmException e) {
             throw new CertificateException(e);
         }
@@ -156,11 +154,9 @@ public class CertificateFactory {
             throw new NullPointerException();
         }
         try {
-            synchronized (engine) {
-                engine.getInstance(type, provider, null);
-                return new CertificateFactory((CertificateFactorySpi) engine.spi,
-                        provider, type);
-            }
+            Object spi = engine.getInstance(type, provider, null);
+            return new CertificateFactory((CertificateFactorySpi) spi,
+                    provider, type);
         } catch (NoSuchAlgorithmException e) {
             throw new CertificateException(e.getMessage());
         }
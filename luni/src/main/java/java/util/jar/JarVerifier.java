@@ -20,17 +20,20 @@ package java.util.jar;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.ref.SoftReference;
 import java.nio.charset.Charsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.harmony.luni.util.Base64;
 import org.apache.harmony.luni.util.Util;
 import org.apache.harmony.security.utils.JarUtils;
@@ -55,18 +58,59 @@ class JarVerifier {
 
     private Manifest man;
 
-    private HashMap<String, byte[]> metaEntries = new HashMap<String, byte[]>(5);
+    private volatile HashMap<String, byte[]> metaEntries = new HashMap<String, byte[]>(5);
 
-    private final Hashtable<String, HashMap<String, Attributes>> signatures = new Hashtable<String, HashMap<String, Attributes>>(
-            5);
+    private final Map<String, HashMap<String, Attributes>> signatures
+            = new ConcurrentHashMap<String, HashMap<String, Attributes>>(5);
 
-    private final Hashtable<String, Certificate[]> certificates = new Hashtable<String, Certificate[]>(
-            5);
+    private final Map<String, Certificate[]> certificates
+            = new ConcurrentHashMap<String, Certificate[]>(5);
 
-    private final Hashtable<String, Certificate[]> verifiedEntries = new Hashtable<String, Certificate[]>();
+    private final Map<String, Certificate[]> verifiedEntries
+            = new ConcurrentHashMap<String, Certificate[]>();
 
     int mainAttributesEnd;
 
+    /** Maximum number of JARs whose verified signatures are remembered. */
+    private static final int MAX_VERIFIED_SIGNATURES = 8;
+
+    /**
+     * The verified signatures of recently opened JARs, by JAR name, in access
+     * order. They are softly referenced, so that they give way under memory
+     * pressure. Guarded by itself.
+     */
+    @SuppressWarnings("serial")
+    private static final Map<String, SoftReference<VerifiedSignatures>> verifiedSignatures
+            = new LinkedHashMap<String, SoftReference<VerifiedSignatures>>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(
+                Map.Entry<String, SoftReference<VerifiedSignatures>> eldest) {
+            return size() > MAX_VERIFIED_SIGNATURES;
+        }
+    };
+
+    /** Number of times verifiedSignatures was reused. Guarded by verifiedSignatures. */
+    private static int verifiedSignaturesHits;
+
+    /**
+     * The outcome of verifying a JAR's signature files and signature blocks,
+     * along with a digest of the {@code META-INF} entries it was computed
+     * from. It's only reused for a JAR whose entries have the same digest, so
+     * reopening a signed JAR doesn't verify the same signatures again.
+     */
+    private static final class VerifiedSignatures {
+        final byte[] metaEntriesDigest;
+        final HashMap<String, HashMap<String, Attributes>> signatures;
+        final HashMap<String, Certificate[]> certificates;
+
+        VerifiedSignatures(byte[] metaEntriesDigest,
+                Map<String, HashMap<String, Attributes>> signatures,
+                Map<String, Certificate[]> certificates) {
+            this.metaEntriesDigest = metaEntriesDigest;
+            this.signatures = new HashMap<String, HashMap<String, Attributes>>(signatures);
+            this.certificates = new HashMap<String, Certificate[]>(certificates);
+        }
+    }
+
     /**
      * Stores and a hash and a message digest and verifies that massage digest
      * matches the hash.
@@ -254,22 +298,134 @@ class JarVerifier {
      *             signature block file contains an invalid signature for the
      *             corresponding signature file.
      */
-    synchronized boolean readCertificates() {
+    boolean readCertificates() {
+        // Once the certificates have been read, readers don't need the lock.
         if (metaEntries == null) {
             return false;
         }
+        synchronized (this) {
+            HashMap<String, byte[]> metaEntries = this.metaEntries;
+            if (metaEntries == null) {
+                return false;
+            }
+            if (!hasSignatureBlock(metaEntries)) {
+                // Unsigned, or the signature blocks have been verified.
+                return true;
+            }
+            byte[] metaEntriesDigest = digestMetaEntries(metaEntries);
+            if (metaEntriesDigest != null
+                    && readVerifiedSignatures(metaEntries, metaEntriesDigest)) {
+                return true;
+            }
+            Iterator<String> it = metaEntries.keySet().iterator();
+            while (it.hasNext()) {
+                String key = it.next();
+                if (key.endsWith(".DSA") || key.endsWith(".RSA")) {
+                    verifyCertificate(key);
+                    // Check for recursive class load
+                    if (this.metaEntries == null) {
+                        return false;
+                    }
+                    it.remove();
+                }
+            }
+            if (metaEntriesDigest != null) {
+                VerifiedSignatures verified = new VerifiedSignatures(
+                        metaEntriesDigest, signatures, certificates);
+                synchronized (verifiedSignatures) {
+                    verifiedSignatures.put(jarName, new SoftReference<VerifiedSignatures>(verified));
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean hasSignatureBlock(HashMap<String, byte[]> metaEntries) {
+        for (String key : metaEntries.keySet()) {
+            if (key.endsWith(".DSA") || key.endsWith(".RSA")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a SHA-1 digest of the names and contents of {@code metaEntries},
+     * or null if SHA-1 isn't available.
+     */
+    private static byte[] digestMetaEntries(HashMap<String, byte[]> metaEntries) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        String[] names = metaEntries.keySet().toArray(new String[metaEntries.size()]);
+        Arrays.sort(names);
+        for (String name : names) {
+            byte[] value = metaEntries.get(name);
+            byte[] nameBytes = name.getBytes(Charsets.UTF_8);
+            // Length prefixes keep different entries from digesting alike.
+            updateInt(md, nameBytes.length);
+            md.update(nameBytes);
+            if (value == null) {
+                // A signature file that has already been verified.
+                updateInt(md, -1);
+            } else {
+                updateInt(md, value.length);
+                md.update(value);
+            }
+        }
+        return md.digest();
+    }
+
+    private static void updateInt(MessageDigest md, int i) {
+        md.update((byte) (i >>> 24));
+        md.update((byte) (i >>> 16));
+        md.update((byte) (i >>> 8));
+        md.update((byte) i);
+    }
+
+    /**
+     * Returns the number of times a JAR's signatures were taken from a
+     * previous verification rather than verified again.
+     */
+    static int getVerifiedSignaturesHitCount() {
+        synchronized (verifiedSignatures) {
+            return verifiedSignaturesHits;
+        }
+    }
+
+    /**
+     * Takes the signatures and certificates from a previous verification of
+     * this JAR, if its {@code META-INF} entries haven't changed since, and
+     * leaves {@code metaEntries} as verifying the signature blocks again
+     * would have.
+     */
+    private boolean readVerifiedSignatures(HashMap<String, byte[]> metaEntries,
+            byte[] metaEntriesDigest) {
+        VerifiedSignatures verified;
+        synchronized (verifiedSignatures) {
+            SoftReference<VerifiedSignatures> ref = verifiedSignatures.get(jarName);
+            verified = (ref != null) ? ref.get() : null;
+            if (verified == null
+                    || !MessageDigest.isEqual(verified.metaEntriesDigest, metaEntriesDigest)) {
+                return false;
+            }
+            verifiedSignaturesHits++;
+        }
+        signatures.putAll(verified.signatures);
+        certificates.putAll(verified.certificates);
         Iterator<String> it = metaEntries.keySet().iterator();
         while (it.hasNext()) {
             String key = it.next();
             if (key.endsWith(".DSA") || key.endsWith(".RSA")) {
-                verifyCertificate(key);
-                // Check for recursive class load
-                if (metaEntries == null) {
-                    return false;
-                }
                 it.remove();
             }
         }
+        for (String signatureFile : verified.signatures.keySet()) {
+            metaEntries.put(signatureFile, null);
+        }
         return true;
     }
 
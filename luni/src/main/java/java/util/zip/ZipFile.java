@@ -262,23 +262,21 @@ public class ZipFile implements ZipConstants {
          * Create a ZipInputStream at the right part of the file.
          */
         RandomAccessFile raf = mRaf;
-        synchronized (raf) {
-            // We don't know the entry data's start position. All we have is the
-            // position of the entry's local header. At position 28 we find the
-            // length of the extra data. In some cases this length differs from
-            // the one coming in the central header.
-            RAFStream rafstrm = new RAFStream(raf,
-                    entry.mLocalHeaderRelOffset + 28);
-            int localExtraLenOrWhatever = ler.readShortLE(rafstrm);
-            // Skip the name and this "extra" data or whatever it is:
-            rafstrm.skip(entry.nameLen + localExtraLenOrWhatever);
-            rafstrm.mLength = rafstrm.mOffset + entry.compressedSize;
-            if (entry.compressionMethod == ZipEntry.DEFLATED) {
-                int bufSize = Math.max(1024, (int)Math.min(entry.getSize(), 65535L));
-                return new ZipInflaterInputStream(rafstrm, new Inflater(true), bufSize, entry);
-            } else {
-                return rafstrm;
-            }
+        // We don't know the entry data's start position. All we have is the
+        // position of the entry's local header. At position 28 we find the
+        // length of the extra data. In some cases this length differs from
+        // the one coming in the central header.
+        RAFStream rafstrm = new RAFStream(raf,
+                entry.mLocalHeaderRelOffset + 28);
+        int localExtraLenOrWhatever = ler.readShortLE(rafstrm);
+        // Skip the name and this "extra" data or whatever it is:
+        rafstrm.skip(entry.nameLen + localExtraLenOrWhatever);
+        rafstrm.mLength = rafstrm.mOffset + entry.compressedSize;
+        if (entry.compressionMethod == ZipEntry.DEFLATED) {
+            int bufSize = Math.max(1024, (int)Math.min(entry.getSize(), 65535L));
+            return new ZipInflaterInputStream(rafstrm, new Inflater(true), bufSize, entry);
+        } else {
+            return rafstrm;
         }
     }
 
@@ -384,9 +382,9 @@ public class ZipFile implements ZipConstants {
 
     /**
      * Wrap a stream around a RandomAccessFile.  The RandomAccessFile is shared
-     * among all streams returned by getInputStream(), so we have to synchronize
-     * access to it.  (We can optimize this by adding buffering here to reduce
-     * collisions.)
+     * among all streams returned by getInputStream(), so each stream reads at
+     * its own offset with RandomAccessFile.readAt() rather than seeking; the
+     * streams never need to synchronize with each other.
      *
      * <p>We could support mark/reset, but we don't currently need them.
      */
@@ -419,18 +417,15 @@ public class ZipFile implements ZipConstants {
 
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
-            synchronized (mSharedRaf) {
-                mSharedRaf.seek(mOffset);
-                if (len > mLength - mOffset) {
-                    len = (int) (mLength - mOffset);
-                }
-                int count = mSharedRaf.read(b, off, len);
-                if (count > 0) {
-                    mOffset += count;
-                    return count;
-                } else {
-                    return -1;
-                }
+            if (len > mLength - mOffset) {
+                len = (int) (mLength - mOffset);
+            }
+            int count = mSharedRaf.readAt(b, off, len, mOffset);
+            if (count > 0) {
+                mOffset += count;
+                return count;
+            } else {
+                return -1;
             }
         }
 
@@ -253,7 +253,7 @@ public class Cipher {
      * @throws NoSuchAlgorithmException
      * @throws NoSuchPaddingException
      */
-    private static synchronized Cipher getCipher(String transformation, Provider provider)
+    private static Cipher getCipher(String transformation, Provider provider)
             throws NoSuchAlgorithmException, NoSuchPaddingException {
 
         if (transformation == null || transformation.isEmpty()) {
@@ -264,11 +264,15 @@ public class Cipher {
 
         boolean needSetPadding = false;
         boolean needSetMode = false;
+        Object spi = null;
+        Provider spiProvider = provider;
         if (transf[1] == null && transf[2] == null) { // "algorithm"
             if (provider == null) {
-                engine.getInstance(transf[0], null);
+                Engine.SpiAndProvider sap = engine.getInstance(transf[0], null);
+                spi = sap.spi;
+                spiProvider = sap.provider;
             } else {
-                engine.getInstance(transf[0], provider, null);
+                spi = engine.getInstance(transf[0], provider, null);
             }
         } else {
             String[] searhOrder = {
@@ -281,9 +285,11 @@ public class Cipher {
             for (i = 0; i < searhOrder.length; i++) {
                 try {
                     if (provider == null) {
-                        engine.getInstance(searhOrder[i], null);
+                        Engine.SpiAndProvider sap = engine.getInstance(searhOrder[i], null);
+                        spi = sap.spi;
+                        spiProvider = sap.provider;
                     } else {
-                        engine.getInstance(searhOrder[i], provider, null);
+                        spi = engine.getInstance(searhOrder[i], provider, null);
                     }
                     break;
                 } catch (NoSuchAlgorithmException e) {
@@ -306,11 +312,11 @@ public class Cipher {
         }
         CipherSpi cspi;
         try {
-            cspi = (CipherSpi) engine.spi;
+            cspi = (CipherSpi) spi;
         } catch (ClassCastException e) {
             throw new NoSuchAlgorithmException(e);
         }
-        Cipher c = new Cipher(cspi, engine.provider, transformation);
+        Cipher c = new Cipher(cspi, spiProvider, transformation);
         if (needSetMode) {
             c.spiImpl.engineSetMode(transf[1]);
         }
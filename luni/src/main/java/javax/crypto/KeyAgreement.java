@@ -101,11 +101,9 @@ public class KeyAgreement {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new KeyAgreement((KeyAgreementSpi) engine.spi, engine.provider,
-                    algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new KeyAgreement((KeyAgreementSpi) sap.spi, sap.provider,
+                algorithm);
     }
 
     /**
@@ -166,11 +164,9 @@ public class KeyAgreement {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new KeyAgreement((KeyAgreementSpi) engine.spi, provider,
-                    algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new KeyAgreement((KeyAgreementSpi) spi, provider,
+                algorithm);
     }
 
     /**
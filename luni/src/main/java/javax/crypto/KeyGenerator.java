@@ -100,11 +100,9 @@ public class KeyGenerator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new KeyGenerator((KeyGeneratorSpi) engine.spi, engine.provider,
-                    algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new KeyGenerator((KeyGeneratorSpi) sap.spi, sap.provider,
+                algorithm);
     }
 
     /**
@@ -163,11 +161,9 @@ public class KeyGenerator {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new KeyGenerator((KeyGeneratorSpi) engine.spi, provider,
-                    algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new KeyGenerator((KeyGeneratorSpi) spi, provider,
+                algorithm);
     }
 
     /**
@@ -105,11 +105,9 @@ public class SecretKeyFactory {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new SecretKeyFactory((SecretKeyFactorySpi) engine.spi,
-                    engine.provider, algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new SecretKeyFactory((SecretKeyFactorySpi) sap.spi,
+                sap.provider, algorithm);
     }
 
     /**
@@ -170,11 +168,9 @@ public class SecretKeyFactory {
         if (algorithm == null) {
             throw new NullPointerException();
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new SecretKeyFactory((SecretKeyFactorySpi) engine.spi, provider,
-                    algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new SecretKeyFactory((SecretKeyFactorySpi) spi, provider,
+                algorithm);
     }
 
     /**
@@ -76,11 +76,9 @@ public class KeyManagerFactory {
         if (algorithm == null) {
             throw new NullPointerException("algorithm is null");
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new KeyManagerFactory((KeyManagerFactorySpi) engine.spi, engine.provider,
-                    algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new KeyManagerFactory((KeyManagerFactorySpi) sap.spi, sap.provider,
+                algorithm);
     }
 
     /**
@@ -138,10 +136,8 @@ public class KeyManagerFactory {
         if (algorithm == null) {
             throw new NullPointerException("algorithm is null");
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new KeyManagerFactory((KeyManagerFactorySpi) engine.spi, provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new KeyManagerFactory((KeyManagerFactorySpi) spi, provider, algorithm);
     }
 
     // Store used provider
@@ -75,11 +75,9 @@ public class TrustManagerFactory {
         if (algorithm == null) {
             throw new NullPointerException("algorithm is null");
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, null);
-            return new TrustManagerFactory((TrustManagerFactorySpi) engine.spi, engine.provider,
-                    algorithm);
-        }
+        Engine.SpiAndProvider sap = engine.getInstance(algorithm, null);
+        return new TrustManagerFactory((TrustManagerFactorySpi) sap.spi, sap.provider,
+                algorithm);
     }
 
     /**
@@ -137,10 +135,8 @@ public class TrustManagerFactory {
         if (algorithm == null) {
             throw new NullPointerException("algorithm is null");
         }
-        synchronized (engine) {
-            engine.getInstance(algorithm, provider, null);
-            return new TrustManagerFactory((TrustManagerFactorySpi) engine.spi, provider, algorithm);
-        }
+        Object spi = engine.getInstance(algorithm, provider, null);
+        return new TrustManagerFactory((TrustManagerFactorySpi) spi, provider, algorithm);
     }
 
     // Store used provider
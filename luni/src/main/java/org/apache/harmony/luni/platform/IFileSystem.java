@@ -80,6 +80,29 @@ public interface IFileSystem {
     public long writeDirect(int fileDescriptor, int address, int offset,
             int length) throws IOException;
 
+    // BEGIN android-added
+    // Positional variants of the calls above: they transfer data at the given
+    // file position without consulting or moving the file pointer, so callers
+    // need not serialize with each other or with seek().
+    public long pread(int fileDescriptor, byte[] bytes, int offset, int length,
+            long position) throws IOException;
+
+    public long pwrite(int fileDescriptor, byte[] bytes, int offset, int length,
+            long position) throws IOException;
+
+    public long preadDirect(int fileDescriptor, int address, int offset,
+            int length, long position) throws IOException;
+
+    public long pwriteDirect(int fileDescriptor, int address, int offset,
+            int length, long position) throws IOException;
+
+    public long preadv(int fileDescriptor, int[] addresses, int[] offsets,
+            int[] lengths, int size, long position) throws IOException;
+
+    public long pwritev(int fileDescriptor, int[] addresses, int[] offsets,
+            int[] lengths, int size, long position) throws IOException;
+    // END android-added
+
     public long length(int fd);
 
     public boolean lock(int fileDescriptor, long start, long length, int type,
@@ -102,8 +125,31 @@ public interface IFileSystem {
 
     public int open(String path, int mode) throws FileNotFoundException;
 
+    // BEGIN android-changed
+    /**
+     * Copies up to {@code count} bytes starting at {@code offset} in the file
+     * {@code fileHandler} to the socket or pipe {@code socketDescriptor}
+     * with sendfile(2). Returns the number of bytes copied, which is 0 if a
+     * non-blocking target can't take any more right now, or -1 if the kernel
+     * can't transfer to this kind of descriptor and the caller should copy
+     * the data itself.
+     */
     public long transfer(int fileHandler, FileDescriptor socketDescriptor,
             long offset, long count) throws IOException;
+    // END android-changed
+
+    // BEGIN android-added
+    /**
+     * Copies up to {@code count} bytes between two files inside the kernel
+     * with sendfile(2). Data is read at {@code inPosition} without moving
+     * the input file pointer; it is written at, and advances, the output
+     * file pointer. Returns the number of bytes copied, which is 0 at the end
+     * of the input file, or -1 if the kernel can't copy between these files
+     * and the caller should copy the data itself.
+     */
+    public long copyRange(int inFileDescriptor, long inPosition,
+            int outFileDescriptor, long count) throws IOException;
+    // END android-added
 
     // BEGIN android-deleted
     // public long ttyAvailable() throws IOException;
@@ -45,6 +45,30 @@ public interface INetworkSystem {
 
     public int writeDirect(FileDescriptor fd, int address, int offset, int count) throws IOException;
 
+    // BEGIN android-added
+    /**
+     * Scatter read: reads into the {@code size} native buffers described by
+     * {@code addresses}, {@code offsets} and {@code lengths} with a single
+     * readv(2). Returns the number of bytes read, 0 if a non-blocking socket
+     * has no data or a datagram socket read an empty datagram, or -1 at end
+     * of stream. A connected datagram socket throws
+     * {@link java.net.PortUnreachableException} if its peer rejected an
+     * earlier datagram.
+     */
+    public long readv(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths, int size)
+            throws IOException;
+
+    /**
+     * Gather write: writes the {@code size} native buffers described by
+     * {@code addresses}, {@code offsets} and {@code lengths} with a single
+     * writev(2). Returns the number of bytes written, or 0 if a non-blocking
+     * socket would block or, like {@link #sendDirect}, a datagram socket's
+     * peer rejected an earlier datagram.
+     */
+    public long writev(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths, int size)
+            throws IOException;
+    // END android-added
+
     public boolean connectNonBlocking(FileDescriptor fd, InetAddress inetAddress, int port)
             throws IOException;
     public boolean isConnected(FileDescriptor fd, int timeout) throws IOException;
@@ -21,6 +21,15 @@
 package org.apache.harmony.luni.platform;
 
 public class MappedPlatformAddress extends PlatformAddress {
+    // BEGIN android-added
+    // Values for mmapAdvise.
+    public static final int MADV_NORMAL = OSMemory.MADV_NORMAL;
+    public static final int MADV_SEQUENTIAL = OSMemory.MADV_SEQUENTIAL;
+    public static final int MADV_RANDOM = OSMemory.MADV_RANDOM;
+    public static final int MADV_WILLNEED = OSMemory.MADV_WILLNEED;
+    public static final int MADV_DONTNEED = OSMemory.MADV_DONTNEED;
+    // END android-added
+
     MappedPlatformAddress(int address, long size) {
         super(address, size);
     }
@@ -40,6 +49,20 @@ public class MappedPlatformAddress extends PlatformAddress {
         OSMemory.flush(osaddr, size);
     }
 
+    // BEGIN android-added
+    /**
+     * Passes one of the {@code MADV_*} hints for this whole mapping on to
+     * the kernel.
+     */
+    public final void mmapAdvise(int advice) {
+        if (size == 0) {
+            return;
+        }
+        memorySpy.rangeCheck(this, 0, (int) size * SIZEOF_JBYTE);
+        OSMemory.madvise(osaddr, size, advice);
+    }
+    // END android-added
+
     public final void free() {
         if (memorySpy.free(this)){
             OSMemory.unmap(osaddr, size);
@@ -110,6 +110,27 @@ class OSFileSystem implements IFileSystem {
     public native long writev(int fd, int[] addresses, int[] offsets, int[] lengths, int size)
             throws IOException;
 
+    /*
+     * Positional variants of the above; the file pointer is left alone.
+     */
+    public native long pread(int fd, byte[] bytes, int offset, int length, long position)
+            throws IOException;
+
+    public native long pwrite(int fd, byte[] bytes, int offset, int length, long position)
+            throws IOException;
+
+    public native long preadDirect(int fd, int address, int offset, int length, long position)
+            throws IOException;
+
+    public native long pwriteDirect(int fd, int address, int offset, int length, long position)
+            throws IOException;
+
+    public native long preadv(int fd, int[] addresses, int[] offsets, int[] lengths, int size,
+            long position) throws IOException;
+
+    public native long pwritev(int fd, int[] addresses, int[] offsets, int[] lengths, int size,
+            long position) throws IOException;
+
     public native void truncate(int fd, long size) throws IOException;
 
     public native int open(String path, int mode) throws FileNotFoundException;
@@ -117,5 +138,10 @@ class OSFileSystem implements IFileSystem {
     public native long transfer(int fd, FileDescriptor sd, long offset, long count)
             throws IOException;
 
+    // BEGIN android-added
+    public native long copyRange(int inFd, long inPosition, int outFd, long count)
+            throws IOException;
+    // END android-added
+
     public native int ioctlAvailable(FileDescriptor fileDescriptor) throws IOException;
 }
@@ -501,7 +501,7 @@ final class OSMemory {
 
     public static int mmap(int fd, long offset, long size, MapMode mapMode) throws IOException {
         // Check just those errors mmap(2) won't detect.
-        if (offset < 0 || size < 0 || offset > Integer.MAX_VALUE || size > Integer.MAX_VALUE) {
+        if (offset < 0 || size < 0 || size > Integer.MAX_VALUE) {
             throw new IllegalArgumentException("offset=" + offset + " size=" + size);
         }
         int intMode = 0; // MapMode.PRIVATE
@@ -521,4 +521,30 @@ final class OSMemory {
     public static native boolean isLoaded(int addr, long size);
 
     public static native void flush(int addr, long size);
+
+    // BEGIN android-added
+    // Values for madvise, translated to the system's MADV_* constants by
+    // OSMemory_madvise. Keep these in sync with the native code.
+    public static final int MADV_NORMAL = 0;
+    public static final int MADV_SEQUENTIAL = 1;
+    public static final int MADV_RANDOM = 2;
+    public static final int MADV_WILLNEED = 3;
+    public static final int MADV_DONTNEED = 4;
+
+    private static native void madviseImpl(int addr, long size, int advice);
+
+    /**
+     * Tells the kernel how the mapping at {@code addr} is going to be
+     * accessed, so it can tune read-ahead and reclaim. This is only a hint.
+     *
+     * @param advice one of the {@code MADV_*} values.
+     * @throws IllegalArgumentException if {@code advice} is not one of them.
+     */
+    public static void madvise(int addr, long size, int advice) {
+        if (advice < MADV_NORMAL || advice > MADV_DONTNEED) {
+            throw new IllegalArgumentException("advice=" + advice);
+        }
+        madviseImpl(addr, size, advice);
+    }
+    // END android-added
 }
@@ -67,6 +67,9 @@ final class OSNetworkSystem implements INetworkSystem {
 
     public native int readDirect(FileDescriptor fd, int address, int count) throws IOException;
 
+    public native long readv(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths,
+            int size) throws IOException;
+
     public native int recv(FileDescriptor fd, DatagramPacket packet,
             byte[] data, int offset, int length,
             boolean peek, boolean connected) throws IOException;
@@ -117,4 +120,7 @@ final class OSNetworkSystem implements INetworkSystem {
 
     public native int writeDirect(FileDescriptor fd, int address, int offset, int count)
             throws IOException;
+
+    public native long writev(FileDescriptor fd, int[] addresses, int[] offsets, int[] lengths,
+            int size) throws IOException;
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio;
+
+import java.nio.MappedByteBuffer;
+import org.apache.harmony.luni.platform.MappedPlatformAddress;
+import org.apache.harmony.luni.platform.PlatformAddress;
+import org.apache.harmony.nio.internal.DirectBuffer;
+
+/**
+ * Explicit lifecycle control for {@link MappedByteBuffer}s, which otherwise
+ * keep their mapping until they are garbage collected.
+ */
+public final class MappedByteBufferUtil {
+
+    /** No particular access pattern. This is the default. */
+    public static final int ADVICE_NORMAL = MappedPlatformAddress.MADV_NORMAL;
+
+    /** The buffer will be read front to back; read ahead aggressively. */
+    public static final int ADVICE_SEQUENTIAL = MappedPlatformAddress.MADV_SEQUENTIAL;
+
+    /** The buffer will be accessed in random order; don't read ahead. */
+    public static final int ADVICE_RANDOM = MappedPlatformAddress.MADV_RANDOM;
+
+    /** The buffer will be needed soon; start paging it in. */
+    public static final int ADVICE_WILLNEED = MappedPlatformAddress.MADV_WILLNEED;
+
+    /** The buffer won't be needed for a while; its pages may be dropped. */
+    public static final int ADVICE_DONTNEED = MappedPlatformAddress.MADV_DONTNEED;
+
+    private MappedByteBufferUtil() {
+    }
+
+    /**
+     * Unmaps {@code buffer} now rather than when it is garbage collected.
+     * Afterwards the buffer, and every slice and duplicate sharing its
+     * mapping, throws {@code IllegalStateException} when accessed. Unmapping
+     * a buffer twice does nothing.
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        if (buffer instanceof DirectBuffer) {
+            ((DirectBuffer) buffer).free();
+        }
+    }
+
+    /**
+     * Tells the kernel how the file region behind {@code buffer} is going to
+     * be accessed. This is only a hint and may be ignored.
+     *
+     * @param advice one of the {@code ADVICE_*} constants.
+     * @throws IllegalArgumentException if {@code advice} is not valid.
+     * @throws IllegalStateException if the buffer has been unmapped.
+     */
+    public static void advise(MappedByteBuffer buffer, int advice) {
+        if (advice < ADVICE_NORMAL || advice > ADVICE_DONTNEED) {
+            throw new IllegalArgumentException("advice: " + advice);
+        }
+        if (!(buffer instanceof DirectBuffer)) {
+            return;
+        }
+        PlatformAddress address = ((DirectBuffer) buffer).getBaseAddress();
+        if (address instanceof MappedPlatformAddress) {
+            ((MappedPlatformAddress) address).mmapAdvise(advice);
+        }
+    }
+}
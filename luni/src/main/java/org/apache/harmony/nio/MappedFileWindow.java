@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Maps a file one fixed-size window at a time, so that files of any size,
+ * including those larger than 2 GiB, can be read through memory mapping
+ * while only one window's worth of address space is in use.
+ *
+ * <p>Moving to a position outside the current window unmaps it before
+ * mapping the window that holds the new position. Buffers returned by
+ * {@link #window} must not be used after the window has moved or this
+ * object has been closed; they throw {@code IllegalStateException} if they
+ * are. Windows never extend past the end of the file as it was when they
+ * were mapped.
+ *
+ * <p>Instances are not safe for use by multiple threads.
+ */
+public final class MappedFileWindow implements Closeable {
+
+    /** Windows start at multiples of this, which suits any page size. */
+    private static final int WINDOW_ALIGNMENT = 64 * 1024;
+
+    private final FileChannel channel;
+    private final MapMode mode;
+    private final int windowSize;
+    private final int advice;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * @param windowSize the number of bytes to map at once. It is rounded up
+     *     to a multiple of 64 KiB.
+     * @param advice one of the {@link MappedByteBufferUtil} {@code ADVICE_*}
+     *     constants, applied to each window as it is mapped.
+     */
+    public MappedFileWindow(FileChannel channel, MapMode mode, int windowSize, int advice) {
+        if (channel == null || mode == null) {
+            throw new NullPointerException();
+        }
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE - WINDOW_ALIGNMENT) {
+            throw new IllegalArgumentException("windowSize: " + windowSize);
+        }
+        if (advice < MappedByteBufferUtil.ADVICE_NORMAL
+                || advice > MappedByteBufferUtil.ADVICE_DONTNEED) {
+            throw new IllegalArgumentException("advice: " + advice);
+        }
+        this.channel = channel;
+        this.mode = mode;
+        this.windowSize = (windowSize + WINDOW_ALIGNMENT - 1) & ~(WINDOW_ALIGNMENT - 1);
+        this.advice = advice;
+    }
+
+    /**
+     * Returns a buffer mapping the window that contains {@code position},
+     * whose index 0 is at {@link #windowStart} in the file and whose
+     * position corresponds to {@code position}.
+     *
+     * @throws IllegalArgumentException if {@code position} is negative or
+     *     not less than the size of the file.
+     */
+    public MappedByteBuffer window(long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("position < 0: " + position);
+        }
+        if (window == null || position < windowStart
+                || position >= windowStart + window.capacity()) {
+            long fileSize = channel.size();
+            if (position >= fileSize) {
+                throw new IllegalArgumentException("position " + position
+                        + " >= size " + fileSize);
+            }
+            unmapWindow();
+            long start = position - position % windowSize;
+            MappedByteBuffer mapped = channel.map(mode, start,
+                    Math.min(windowSize, fileSize - start));
+            if (advice != MappedByteBufferUtil.ADVICE_NORMAL) {
+                MappedByteBufferUtil.advise(mapped, advice);
+            }
+            window = mapped;
+            windowStart = start;
+        }
+        window.clear();
+        window.position((int) (position - windowStart));
+        return window;
+    }
+
+    /**
+     * Returns the file position of index 0 of the current window, or -1 if
+     * no window is mapped.
+     */
+    public long windowStart() {
+        return (window != null) ? windowStart : -1;
+    }
+
+    /**
+     * Returns the byte at {@code position} in the file.
+     */
+    public byte get(long position) throws IOException {
+        MappedByteBuffer buffer = window(position);
+        return buffer.get(buffer.position());
+    }
+
+    /**
+     * Copies up to {@code count} bytes starting at {@code position} in the
+     * file into {@code dst}, crossing window boundaries as necessary.
+     * Returns the number of bytes copied, which is less than {@code count}
+     * only at the end of the file, or -1 if {@code position} is at or past
+     * the end of the file.
+     */
+    public int read(long position, byte[] dst, int offset, int count) throws IOException {
+        if ((offset | count) < 0 || offset > dst.length || dst.length - offset < count) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position < 0: " + position);
+        }
+        long fileSize = channel.size();
+        if (position >= fileSize) {
+            return -1;
+        }
+        int total = 0;
+        while (total < count && position + total < fileSize) {
+            MappedByteBuffer buffer = window(position + total);
+            int chunk = Math.min(count - total, buffer.remaining());
+            buffer.get(dst, offset + total, chunk);
+            total += chunk;
+        }
+        return total;
+    }
+
+    /**
+     * Unmaps the current window. The channel is left open.
+     */
+    public void close() {
+        unmapWindow();
+    }
+
+    private void unmapWindow() {
+        if (window != null) {
+            MappedByteBufferUtil.unmap(window);
+            window = null;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.harmony.luni.platform.IFileSystem;
+import org.apache.harmony.luni.platform.Platform;
+
+/**
+ * An {@link AsynchronousFileChannel} that performs positional reads and
+ * writes on the descriptor of a {@link FileChannelImpl} using worker threads.
+ *
+ * <p>Requests wait in a queue, and a drain task is submitted to the executor
+ * for each one. When a worker takes a read, it also takes the queued reads
+ * that start where the read ends, up to {@link #MAX_BATCH} in all, and
+ * serves them with a single preadv(2). This turns the common pattern of
+ * issuing many small sequential reads at once into few system calls.
+ *
+ * <p>The channel stays usable by workers that are mid-transfer when it is
+ * closed; the underlying file is closed when the last of them finishes.
+ */
+public final class AsynchronousFileChannelImpl extends AsynchronousFileChannel {
+    private static final IFileSystem fileSystem = Platform.getFileSystem();
+
+    /** Maximum number of adjacent reads served by a single preadv. */
+    private static final int MAX_BATCH = 16;
+
+    private static final Runnable NO_OP = new Runnable() {
+        public void run() {
+        }
+    };
+
+    /**
+     * Lazily creates the pool shared by channels opened without an executor:
+     * one daemon thread per processor, at least two, which exit when idle.
+     */
+    private static class DefaultExecutorHolder {
+        static final ExecutorService INSTANCE;
+        static {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r,
+                                    "AsynchronousFileChannel-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            INSTANCE = executor;
+        }
+    }
+
+    private final FileChannelImpl channel;
+    private final int handle;
+    private final ExecutorService executor;
+
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    /** Guards pending, open and busyWorkers. */
+    private final Object lock = new Object();
+    private final LinkedList<Request<?>> pending = new LinkedList<Request<?>>();
+    private boolean open = true;
+    private int busyWorkers;
+
+    /**
+     * Creates a channel for the file of {@code channel}, which it takes
+     * ownership of. If {@code executor} is null, the default pool is used.
+     */
+    public AsynchronousFileChannelImpl(FileChannelImpl channel, ExecutorService executor) {
+        this.channel = channel;
+        this.handle = channel.getHandle();
+        this.executor = (executor != null) ? executor : DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * A queued read or write. It is also the future returned to the caller;
+     * the worker completes it directly rather than by running it. The handler,
+     * if any, is called once the future is done, unless it was cancelled.
+     */
+    private static final class Request<A> extends FutureTask<Integer> {
+        final boolean isRead;
+        final ByteBuffer buffer;
+        final long position;
+        final A attachment;
+        final CompletionHandler<Integer, ? super A> handler;
+
+        /** Set by whichever of complete and fail comes first. */
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        /** The outcome passed to the handler, written by the settling thread. */
+        private int result;
+        private Throwable exception;
+
+        Request(boolean isRead, ByteBuffer buffer, long position, A attachment,
+                CompletionHandler<Integer, ? super A> handler) {
+            super(NO_OP, null);
+            this.isRead = isRead;
+            this.buffer = buffer;
+            this.position = position;
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        @Override public void run() {
+            // Requests are performed by drain(), never run by an executor.
+        }
+
+        void complete(int result) {
+            if (settled.compareAndSet(false, true)) {
+                this.result = result;
+                set(result);
+            }
+        }
+
+        void fail(Throwable exception) {
+            if (settled.compareAndSet(false, true)) {
+                this.exception = exception;
+                setException(exception);
+            }
+        }
+
+        /**
+         * Calls the handler. FutureTask calls this exactly once, after the
+         * outcome is final: on the settling thread from set or setException,
+         * or from cancel, in which case the handler is not called.
+         */
+        @Override protected void done() {
+            if (handler == null || isCancelled()) {
+                return;
+            }
+            try {
+                if (exception != null) {
+                    handler.failed(exception, attachment);
+                } else {
+                    handler.completed(result, attachment);
+                }
+            } catch (Throwable t) {
+                reportHandlerException(t);
+            }
+        }
+
+        /**
+         * Hands a throwable thrown by a completion handler to the thread's
+         * uncaught exception handler, without abandoning the other requests
+         * the worker is completing.
+         */
+        private static void reportHandlerException(Throwable e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    @Override public boolean isOpen() {
+        synchronized (lock) {
+            return open;
+        }
+    }
+
+    @Override public void close() throws IOException {
+        List<Request<?>> abandoned;
+        boolean closeNow;
+        synchronized (lock) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            abandoned = new ArrayList<Request<?>>(pending);
+            pending.clear();
+            closeNow = (busyWorkers == 0);
+        }
+        for (Request<?> request : abandoned) {
+            request.fail(new AsynchronousCloseException());
+        }
+        if (closeNow) {
+            channel.close();
+        }
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override public long size() throws IOException {
+        checkOpen();
+        return channel.size();
+    }
+
+    @Override public AsynchronousFileChannel truncate(long size) throws IOException {
+        checkOpen();
+        channel.truncate(size);
+        return this;
+    }
+
+    @Override public void force(boolean metadata) throws IOException {
+        checkOpen();
+        channel.force(metadata);
+    }
+
+    @Override public <A> void read(ByteBuffer dst, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+        submit(newRead(dst, position, attachment, handler));
+    }
+
+    @Override public Future<Integer> read(ByteBuffer dst, long position) {
+        return submit(newRead(dst, position, null, null));
+    }
+
+    @Override public <A> void write(ByteBuffer src, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+        submit(newWrite(src, position, attachment, handler));
+    }
+
+    @Override public Future<Integer> write(ByteBuffer src, long position) {
+        return submit(newWrite(src, position, null, null));
+    }
+
+    private <A> Request<A> newRead(ByteBuffer dst, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler) {
+        FileChannelImpl.checkWritable(dst);
+        if (position < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (channel instanceof WriteOnlyFileChannel) {
+            throw new NonReadableChannelException();
+        }
+        return new Request<A>(true, dst, position, attachment, handler);
+    }
+
+    private <A> Request<A> newWrite(ByteBuffer src, long position, A attachment,
+            CompletionHandler<Integer, ? super A> handler) {
+        if (src == null) {
+            throw new NullPointerException();
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (channel instanceof ReadOnlyFileChannel) {
+            throw new NonWritableChannelException();
+        }
+        return new Request<A>(false, src, position, attachment, handler);
+    }
+
+    private <A> Request<A> submit(Request<A> request) {
+        if (!request.buffer.hasRemaining()) {
+            request.complete(0);
+            return request;
+        }
+        boolean queued;
+        synchronized (lock) {
+            queued = open;
+            if (queued) {
+                pending.add(request);
+            }
+        }
+        if (queued) {
+            scheduleDrain(request);
+        } else {
+            request.fail(new ClosedChannelException());
+        }
+        return request;
+    }
+
+    /**
+     * Submits a drain task for {@code request}, which must already be
+     * queued. If the executor refuses it, fails the request instead.
+     */
+    private void scheduleDrain(Request<?> request) {
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            boolean removed;
+            synchronized (lock) {
+                removed = pending.remove(request);
+            }
+            if (removed) {
+                request.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Performs the request at the head of the queue, if any. Each submitted
+     * request gets one call, but a call may serve several requests, so later
+     * calls can find the queue empty.
+     */
+    private void drain() {
+        Request<?> request;
+        synchronized (lock) {
+            do {
+                request = pending.poll();
+            } while (request != null && request.isCancelled());
+            if (request == null) {
+                return;
+            }
+            ++busyWorkers;
+        }
+        try {
+            if (request.isRead) {
+                readBatch(request);
+            } else {
+                write(request);
+            }
+        } finally {
+            boolean closeNow;
+            synchronized (lock) {
+                closeNow = (--busyWorkers == 0 && !open);
+            }
+            if (closeNow) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void readBatch(Request<?> first) {
+        List<Request<?>> batch = new ArrayList<Request<?>>();
+        batch.add(first);
+        try {
+            readBatch(first, batch);
+        } catch (Throwable t) {
+            // Don't leave callers waiting on requests that were taken off the
+            // queue. Those already settled ignore this.
+            for (Request<?> request : batch) {
+                request.fail(t);
+            }
+        }
+    }
+
+    /**
+     * Adds the queued reads adjacent to {@code first} to {@code batch}, which
+     * holds just {@code first}, and performs them.
+     */
+    private void readBatch(Request<?> first, List<Request<?>> batch) {
+        long end = first.position + first.buffer.remaining();
+        synchronized (lock) {
+            Iterator<Request<?>> it = pending.iterator();
+            while (it.hasNext() && batch.size() < MAX_BATCH) {
+                Request<?> request = it.next();
+                if (request.isRead && request.position == end) {
+                    it.remove();
+                    if (!request.isCancelled()) {
+                        batch.add(request);
+                        end += request.buffer.remaining();
+                    }
+                }
+            }
+        }
+
+        int count = batch.size();
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        int[] startPositions = new int[count];
+        for (int i = 0; i < count; ++i) {
+            buffers[i] = batch.get(i).buffer;
+            startPositions[i] = buffers[i].position();
+        }
+        long result;
+        try {
+            IoVec ioVec = new IoVec(buffers, 0, count, IoVec.Direction.READV);
+            ioVec.init();
+            result = ioVec.transfer(fileSystem, handle, first.position);
+        } catch (Throwable e) {
+            for (Request<?> request : batch) {
+                request.fail(e);
+            }
+            return;
+        }
+
+        if (result < 0) {
+            // The first read starts at or beyond the end of the file, and so
+            // do all the others.
+            for (Request<?> request : batch) {
+                request.complete(-1);
+            }
+            return;
+        }
+        // The first read always completes, so that a read that keeps coming
+        // back short can't be retried forever. The reads that got nothing
+        // because an earlier one came back short go back to the head of the
+        // queue, to find out whether they're at the end of the file.
+        first.complete(buffers[0].position() - startPositions[0]);
+        int i = 1;
+        for (; i < count; ++i) {
+            int transferred = buffers[i].position() - startPositions[i];
+            if (transferred == 0) {
+                break;
+            }
+            batch.get(i).complete(transferred);
+        }
+        if (i < count) {
+            requeue(batch.subList(i, count));
+        }
+    }
+
+    private void requeue(List<Request<?>> requests) {
+        boolean queued;
+        synchronized (lock) {
+            queued = open;
+            if (queued) {
+                pending.addAll(0, requests);
+            }
+        }
+        for (Request<?> request : requests) {
+            if (queued) {
+                scheduleDrain(request);
+            } else {
+                request.fail(new AsynchronousCloseException());
+            }
+        }
+    }
+
+    private void write(Request<?> request) {
+        ByteBuffer buffer = request.buffer;
+        int startPosition = buffer.position();
+        try {
+            IoVec ioVec = new IoVec(new ByteBuffer[] { buffer }, 0, 1, IoVec.Direction.WRITEV);
+            ioVec.init();
+            ioVec.transfer(fileSystem, handle, request.position);
+        } catch (Throwable e) {
+            request.fail(e);
+            return;
+        }
+        request.complete(buffer.position() - startPosition);
+    }
+}
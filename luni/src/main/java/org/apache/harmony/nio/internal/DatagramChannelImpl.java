@@ -384,11 +384,15 @@ class DatagramChannelImpl extends DatagramChannel implements FileDescriptorHandl
             }
 
         } else {
-            byte[] readArray = new byte[target.remaining()];
-            ByteBuffer readBuffer = ByteBuffer.wrap(readArray);
-            readCount = readImpl(readBuffer);
-            if (readCount > 0) {
-                target.put(readArray, 0, readCount);
+            ByteBuffer readBuffer = DirectBufferPool.acquire(target.remaining());
+            try {
+                readCount = readImpl(readBuffer);
+                if (readCount > 0) {
+                    readBuffer.limit(readCount);
+                    target.put(readBuffer);
+                }
+            } finally {
+                DirectBufferPool.release(readBuffer);
             }
         }
         return readCount;
@@ -407,22 +411,25 @@ class DatagramChannelImpl extends DatagramChannel implements FileDescriptorHandl
             return 0;
         }
 
-        // read data to readBuffer, and then transfer data from readBuffer to
-        // targets.
-        ByteBuffer readBuffer = ByteBuffer.allocate(totalCount);
-        int readCount;
-        readCount = readImpl(readBuffer);
-        int left = readCount;
-        int index = offset;
-        // transfer data from readBuffer to targets
-        byte[] readArray = readBuffer.array();
-        while (left > 0) {
-            int putLength = Math.min(targets[index].remaining(), left);
-            targets[index].put(readArray, readCount - left, putLength);
-            index++;
-            left -= putLength;
+        // A connected datagram socket reads one datagram per readv(2),
+        // scattered across the targets without an intermediate buffer. Only
+        // heap targets are staged, and only the first IoVec.MAX_BUFFERS
+        // targets are used.
+        IoVec ioVec = new IoVec(targets, offset, length, IoVec.Direction.READV);
+        synchronized (readLock) {
+            long readCount = 0;
+            try {
+                begin();
+                ioVec.init();
+                readCount = ioVec.transfer(networkSystem, fd);
+                return readCount;
+            } catch (InterruptedIOException e) {
+                // InterruptedIOException will be thrown when timeout.
+                return 0;
+            } finally {
+                end(readCount > 0);
+            }
         }
-        return readCount;
     }
 
     /*
@@ -470,21 +477,21 @@ class DatagramChannelImpl extends DatagramChannel implements FileDescriptorHandl
             return 0;
         }
 
-        ByteBuffer writeBuffer = null;
-        byte[] writeArray = null;
         int oldposition = source.position();
         int result;
         if (source.isDirect() || source.hasArray()) {
-            writeBuffer = source;
+            result = writeImpl(source);
         } else {
-            writeArray = new byte[source.remaining()];
-            source.get(writeArray);
-            writeBuffer = ByteBuffer.wrap(writeArray);
-        }
-        result = writeImpl(writeBuffer);
-        if (result > 0) {
-            source.position(oldposition + result);
+            ByteBuffer writeBuffer = DirectBufferPool.acquire(source.remaining());
+            try {
+                writeBuffer.put(source);
+                writeBuffer.flip();
+                result = writeImpl(writeBuffer);
+            } finally {
+                DirectBufferPool.release(writeBuffer);
+            }
         }
+        source.position(oldposition + Math.max(result, 0));
         return result;
     }
 
@@ -505,25 +512,19 @@ class DatagramChannelImpl extends DatagramChannel implements FileDescriptorHandl
         if (count == 0) {
             return 0;
         }
-        ByteBuffer writeBuf = ByteBuffer.allocate(count);
-        for (int val = offset; val < length + offset; val++) {
-            ByteBuffer source = sources[val];
-            int oldPosition = source.position();
-            writeBuf.put(source);
-            source.position(oldPosition);
-        }
-        writeBuf.flip();
-        int result = writeImpl(writeBuf);
-        int val = offset;
-        int written = result;
-        while (result > 0) {
-            ByteBuffer source = sources[val];
-            int gap = Math.min(result, source.remaining());
-            source.position(source.position() + gap);
-            val++;
-            result -= gap;
-        }
-        return written;
+        // The sources go out as a single datagram with one writev(2).
+        IoVec ioVec = new IoVec(sources, offset, length, IoVec.Direction.WRITEV);
+        synchronized (writeLock) {
+            long result = 0;
+            try {
+                begin();
+                ioVec.init();
+                result = ioVec.transfer(networkSystem, fd);
+                return result;
+            } finally {
+                end(result > 0);
+            }
+        }
     }
 
     /*
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio.internal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers for short-lived native transfers, such as
+ * staging the contents of heap buffers for a channel read or write.
+ *
+ * <p>Requests are rounded up to a power-of-two size class between 4 KiB and
+ * 256 KiB. Each thread keeps its most recently released buffer of up to
+ * 64 KiB for itself; other released buffers go to a bounded shared free list
+ * per size class. Requests larger than the biggest size class are allocated
+ * exactly and freed on release.
+ *
+ * <p>Buffers must be handed back with {@link #release} once the transfer is
+ * done and must not be touched afterwards. Only buffers currently lent out
+ * by the pool can be released; each pool buffer carries its bookkeeping as
+ * its {@link OwnedBuffer} tag, so lending and releasing don't allocate.
+ * Buffers that are never released are still reclaimed by the garbage
+ * collector, and stop counting towards {@link #getNativeBytes} once they
+ * are.
+ */
+public final class DirectBufferPool {
+
+    private static final int MIN_SHIFT = 12; // 4 KiB
+    private static final int MAX_SHIFT = 18; // 256 KiB
+    private static final int MAX_POOLED_CAPACITY = 1 << MAX_SHIFT;
+    private static final int MAX_THREAD_CACHED_CAPACITY = 64 * 1024;
+
+    /** Upper bound on the bytes held by each size class's shared free list. */
+    private static final int MAX_SHARED_BYTES_PER_CLASS = 1024 * 1024;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer>[] sharedFreeLists;
+    private static final AtomicInteger[] sharedFreeCounts;
+
+    static {
+        int classCount = MAX_SHIFT - MIN_SHIFT + 1;
+        @SuppressWarnings("unchecked")
+        ConcurrentLinkedQueue<ByteBuffer>[] freeLists = new ConcurrentLinkedQueue[classCount];
+        sharedFreeLists = freeLists;
+        sharedFreeCounts = new AtomicInteger[classCount];
+        for (int i = 0; i < classCount; i++) {
+            sharedFreeLists[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            sharedFreeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    private static final ThreadLocal<ByteBuffer> threadCache = new ThreadLocal<ByteBuffer>();
+
+    /**
+     * Bookkeeping for a buffer allocated by the pool, which carries it as
+     * its owner tag. Enqueued on {@link #collected} if the buffer is
+     * collected without having been freed.
+     */
+    private static final class Allocation extends WeakReference<ByteBuffer> {
+        final int capacity;
+
+        /** True while the buffer is lent out rather than waiting in the pool. */
+        boolean lent;
+
+        Allocation(ByteBuffer buffer) {
+            super(buffer, collected);
+            this.capacity = buffer.capacity();
+        }
+    }
+
+    private static final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<ByteBuffer>();
+
+    /**
+     * The allocations whose buffers haven't been freed. Holding them here
+     * keeps them reachable until they are enqueued.
+     */
+    private static final Set<Allocation> allocations =
+            Collections.newSetFromMap(new ConcurrentHashMap<Allocation, Boolean>());
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    private static final AtomicLong nativeBytes = new AtomicLong();
+
+    private DirectBufferPool() {
+    }
+
+    /**
+     * Returns a direct buffer with at least {@code capacity} bytes. The
+     * buffer's position is zero, its limit is {@code capacity} and its byte
+     * order is big-endian; its contents are undefined.
+     */
+    public static ByteBuffer acquire(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity < 0: " + capacity);
+        }
+        if (capacity > MAX_POOLED_CAPACITY) {
+            missCount.incrementAndGet();
+            return lend(allocate(capacity));
+        }
+
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer result = threadCache.get();
+        if (result != null && result.capacity() == (1 << sizeClass)) {
+            threadCache.set(null);
+        } else {
+            int index = sizeClass - MIN_SHIFT;
+            result = sharedFreeLists[index].poll();
+            if (result != null) {
+                sharedFreeCounts[index].decrementAndGet();
+            }
+        }
+
+        if (result != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            result = allocate(1 << sizeClass);
+        }
+        result.clear();
+        result.limit(capacity);
+        result.order(ByteOrder.BIG_ENDIAN);
+        return lend(result);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire} to the pool. Does
+     * nothing if {@code buffer} is null.
+     *
+     * @throws IllegalArgumentException if {@code buffer} isn't currently lent
+     *     out by the pool: it's a heap buffer, it was allocated elsewhere, or
+     *     it has already been released.
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("not a direct buffer: " + buffer);
+        }
+        // views of a lent buffer aren't tagged, so they are rejected here too
+        Object owner = (buffer instanceof OwnedBuffer) ? ((OwnedBuffer) buffer).getOwner() : null;
+        if (!(owner instanceof Allocation) || !((Allocation) owner).lent) {
+            throw new IllegalArgumentException("not lent out by the pool: " + buffer);
+        }
+        ((Allocation) owner).lent = false;
+
+        int capacity = buffer.capacity();
+        if (capacity > MAX_POOLED_CAPACITY) {
+            free(buffer);
+            return;
+        }
+
+        if (capacity <= MAX_THREAD_CACHED_CAPACITY) {
+            ByteBuffer evicted = threadCache.get();
+            threadCache.set(buffer);
+            if (evicted == null) {
+                return;
+            }
+            buffer = evicted;
+            capacity = buffer.capacity();
+        }
+
+        int index = Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+        if (sharedFreeCounts[index].incrementAndGet() * capacity <= MAX_SHARED_BYTES_PER_CLASS) {
+            sharedFreeLists[index].offer(buffer);
+        } else {
+            sharedFreeCounts[index].decrementAndGet();
+            free(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of requests served with a previously released buffer.
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests that allocated new native memory.
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of native bytes allocated by this pool and not yet
+     * freed, whether currently lent out or waiting in the pool.
+     */
+    public static long getNativeBytes() {
+        purge();
+        return nativeBytes.get();
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= (1 << MIN_SHIFT)) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private static ByteBuffer lend(ByteBuffer buffer) {
+        ((Allocation) ((OwnedBuffer) buffer).getOwner()).lent = true;
+        return buffer;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        purge();
+        ByteBuffer result = ByteBuffer.allocateDirect(capacity);
+        Allocation allocation = new Allocation(result);
+        allocations.add(allocation);
+        ((OwnedBuffer) result).setOwner(allocation);
+        nativeBytes.addAndGet(capacity);
+        return result;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        Allocation allocation = (Allocation) ((OwnedBuffer) buffer).getOwner();
+        if (allocations.remove(allocation)) {
+            nativeBytes.addAndGet(-allocation.capacity);
+        }
+        allocation.clear();
+        ((DirectBuffer) buffer).free();
+    }
+
+    /**
+     * Stops counting the native bytes of buffers that were collected
+     * without being freed; their memory is freed by the collector.
+     */
+    private static void purge() {
+        Allocation allocation;
+        while ((allocation = (Allocation) collected.poll()) != null) {
+            if (allocations.remove(allocation)) {
+                nativeBytes.addAndGet(-allocation.capacity);
+            }
+        }
+    }
+}
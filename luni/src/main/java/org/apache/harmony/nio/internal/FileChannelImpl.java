@@ -35,8 +35,10 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.Pipe;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import org.apache.harmony.luni.platform.FileDescriptorHandler;
 import org.apache.harmony.luni.platform.IFileSystem;
 import org.apache.harmony.luni.platform.Platform;
 import org.apache.harmony.luni.platform.PlatformAddress;
@@ -75,6 +77,15 @@ public abstract class FileChannelImpl extends FileChannel {
 
     private final Object stream;
 
+    // BEGIN android-added
+    // The most bytes moved by a single kernel transfer or mapping in
+    // transferTo and transferFrom.
+    private static final int TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    // The size of the buffer used to copy from channels that aren't files.
+    static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // END android-added
+
     /*
      * Create a new file channel implementation class that wraps the given file
      * handle and operates in the specified mode.
@@ -222,17 +233,33 @@ public abstract class FileChannelImpl extends FileChannel {
         if (!buffer.hasRemaining()) {
             return 0;
         }
-        synchronized (repositioningLock) {
-            int bytesRead = 0;
-            long preReadPosition = position();
-            position(position);
-            try {
-                bytesRead = read(buffer);
-            } finally {
-                position(preReadPosition);
+        // BEGIN android-changed
+        // Use pread(2) rather than seek-read-seek under repositioningLock, so
+        // concurrent positional readers neither block each other nor disturb
+        // the channel position.
+        boolean completed = false;
+        int bytesRead = 0;
+        try {
+            begin();
+            if (buffer.isDirect()) {
+                DirectBuffer directBuffer = (DirectBuffer) buffer;
+                int address = directBuffer.getEffectiveAddress().toInt();
+                bytesRead = (int) fileSystem.preadDirect(handle, address,
+                        buffer.position(), buffer.remaining(), position);
+            } else {
+                bytesRead = (int) fileSystem.pread(handle, buffer.array(),
+                        buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining(), position);
             }
-            return bytesRead;
+            completed = true;
+        } finally {
+            end(completed && bytesRead >= 0);
         }
+        if (bytesRead > 0) {
+            buffer.position(buffer.position() + bytesRead);
+        }
+        return bytesRead;
+        // END android-changed
     }
 
     public int read(ByteBuffer buffer) throws IOException {
@@ -295,7 +322,7 @@ public abstract class FileChannelImpl extends FileChannel {
         for (int i = 0; i < length; i++) {
             ByteBuffer buffer = buffers[i + offset];
             if (!buffer.isDirect()) {
-                buffer = ByteBuffer.allocateDirect(buffer.remaining());
+                buffer = DirectBufferPool.acquire(buffer.remaining());
                 directBuffers[i] = buffer;
                 offsets[i] = 0;
             } else {
@@ -305,7 +332,7 @@ public abstract class FileChannelImpl extends FileChannel {
             lengths[i] = buffer.remaining();
         }
         long bytesRead = 0;
-        {
+        try {
             boolean completed = false;
             try {
                 begin();
@@ -321,33 +348,39 @@ public abstract class FileChannelImpl extends FileChannel {
             } finally {
                 end(completed);
             }
-        }
-        int end = offset + length;
-        long bytesRemaining = bytesRead;
-        for (int i = offset; i < end && bytesRemaining > 0; i++) {
-            if (buffers[i].isDirect()) {
-                if (lengths[i] < bytesRemaining) {
-                    int pos = buffers[i].limit();
-                    buffers[i].position(pos);
-                    bytesRemaining -= lengths[i];
-                } else {
-                    int pos = (int) bytesRemaining;
-                    buffers[i].position(pos);
-                    break;
-                }
-            } else {
-                ByteBuffer buf = directBuffers[i - offset];
-                if (bytesRemaining < buf.remaining()) {
-                    // this is the last step.
-                    int pos = buf.position();
-                    buffers[i].put(buf);
-                    buffers[i].position(pos + (int) bytesRemaining);
-                    bytesRemaining = 0;
+            int end = offset + length;
+            long bytesRemaining = bytesRead;
+            for (int i = offset; i < end && bytesRemaining > 0; i++) {
+                if (buffers[i].isDirect()) {
+                    if (lengths[i] < bytesRemaining) {
+                        int pos = buffers[i].limit();
+                        buffers[i].position(pos);
+                        bytesRemaining -= lengths[i];
+                    } else {
+                        int pos = buffers[i].position() + (int) bytesRemaining;
+                        buffers[i].position(pos);
+                        break;
+                    }
                 } else {
-                    bytesRemaining -= buf.remaining();
-                    buffers[i].put(buf);
+                    ByteBuffer buf = directBuffers[i - offset];
+                    if (bytesRemaining < buf.remaining()) {
+                        // this is the last step.
+                        buf.limit((int) bytesRemaining);
+                        buffers[i].put(buf);
+                        bytesRemaining = 0;
+                    } else {
+                        bytesRemaining -= buf.remaining();
+                        buffers[i].put(buf);
+                    }
                 }
             }
+        } finally {
+            // BEGIN android-added
+            // return temporary direct buffers to the pool
+            for (ByteBuffer directBuffer : directBuffers) {
+                DirectBufferPool.release(directBuffer);
+            }
+            // END android-added
         }
         return bytesRead;
     }
@@ -373,30 +406,63 @@ public abstract class FileChannelImpl extends FileChannel {
             return 0;
         }
 
-        ByteBuffer buffer = null;
+        // BEGIN android-changed
+        // Copy in bounded chunks.
+        if (src instanceof FileChannel) {
+            FileChannel fileSrc = (FileChannel) src;
+            long filePosition = fileSrc.position();
+            count = Math.min(count, fileSrc.size() - filePosition);
+            long total = 0;
+            while (total < count) {
+                int chunk = (int) Math.min(count - total, TRANSFER_CHUNK_SIZE);
+                ByteBuffer buffer = fileSrc.map(MapMode.READ_ONLY, filePosition + total, chunk);
+                try {
+                    int written = write(buffer, position + total);
+                    total += written;
+                    if (written < chunk) {
+                        break;
+                    }
+                } finally {
+                    // all children of FileChannelImpl currently returns
+                    // an instance of DirectBuffer from map() method
+                    ((DirectBuffer) buffer).free();
+                }
+            }
+            fileSrc.position(filePosition + total);
+            return total;
+        }
 
+        ByteBuffer buffer = DirectBufferPool.acquire((int) Math.min(count, COPY_BUFFER_SIZE));
         try {
-            if (src instanceof FileChannel) {
-                FileChannel fileSrc = (FileChannel) src;
-                long size = fileSrc.size();
-                long filePosition = fileSrc.position();
-                count = Math.min(count, size - filePosition);
-                buffer = fileSrc.map(MapMode.READ_ONLY, filePosition, count);
-                fileSrc.position(filePosition + count);
-            } else {
-                buffer = ByteBuffer.allocateDirect((int) count);
-                src.read(buffer);
+            long total = 0;
+            while (total < count) {
+                buffer.clear();
+                buffer.limit((int) Math.min(count - total, buffer.capacity()));
+                int requested = buffer.remaining();
+                int read = src.read(buffer);
+                if (read <= 0) {
+                    break;
+                }
                 buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int written = write(buffer, position + total);
+                    if (written <= 0) {
+                        // Like transferTo, stop when the write makes no
+                        // progress rather than retrying forever.
+                        return total;
+                    }
+                    total += written;
+                }
+                // A short read means nothing more is available right now.
+                if (read < requested) {
+                    break;
+                }
             }
-            return write(buffer, position);
+            return total;
         } finally {
-            // unmap the buffer
-            if (buffer != null) {
-                // all children of FileChannelImpl currently returns
-                // an instance of DirectBuffer from map() method
-                ((DirectBuffer) buffer).free();
-            }
+            DirectBufferPool.release(buffer);
         }
+        // END android-changed
     }
 
     public long transferTo(long position, long count, WritableByteChannel target)
@@ -415,40 +481,129 @@ public abstract class FileChannelImpl extends FileChannel {
         if (count == 0 || position >= size()) {
             return 0;
         }
-        ByteBuffer buffer = null;
         count = Math.min(count, size() - position);
-        if (target instanceof SocketChannelImpl) {
-            // only socket can be transfered by system call
-            return kernelTransfer(handle, ((SocketChannelImpl) target).getFD(),
+
+        // BEGIN android-changed
+        // Let the kernel move the data when it can, falling back to mapping
+        // the file in bounded chunks.
+        long result = -1;
+        if (target instanceof FileChannelImpl) {
+            FileChannelImpl fileTarget = (FileChannelImpl) target;
+            if (!fileTarget.isAppend()) {
+                result = kernelCopyTo(fileTarget, position, count);
+            }
+        } else if (target instanceof SocketChannelImpl
+                || (target instanceof Pipe.SinkChannel && target instanceof FileDescriptorHandler)) {
+            result = kernelTransfer(handle, ((FileDescriptorHandler) target).getFD(),
                     position, count);
         }
+        if (result != -1) {
+            return result;
+        }
 
-        try {
-            buffer = map(MapMode.READ_ONLY, position, count);
-            return target.write(buffer);
-        } finally {
-            // unmap the buffer
-            if (buffer != null) {
+        long total = 0;
+        while (total < count) {
+            int chunk = (int) Math.min(count - total, TRANSFER_CHUNK_SIZE);
+            ByteBuffer buffer = map(MapMode.READ_ONLY, position + total, chunk);
+            try {
+                int written = target.write(buffer);
+                total += written;
+                if (written < chunk) {
+                    break;
+                }
+            } finally {
+                // unmap the buffer
                 // all children of FileChannelImpl currently returns
                 // an instance of DirectBuffer from map() method
                 ((DirectBuffer) buffer).free();
             }
         }
+        return total;
+        // END android-changed
     }
 
+    // BEGIN android-added
+    /*
+     * The kernel transfer methods below return -1 if the kernel can't move
+     * data between the two descriptors, before anything has been moved.
+     * Otherwise they move at most TRANSFER_CHUNK_SIZE bytes per system call,
+     * so that a huge transfer can be interrupted or closed between chunks,
+     * and stop early at the end of the input or when a non-blocking peer
+     * can't make progress.
+     */
+
     private long kernelTransfer(int l, FileDescriptor fd, long position,
             long count) throws IOException {
+        long total = 0;
         boolean completed = false;
         try {
             begin();
-            long ret = fileSystem.transfer(l, fd, position, count);
+            while (total < count) {
+                int chunk = (int) Math.min(count - total, TRANSFER_CHUNK_SIZE);
+                long ret = fileSystem.transfer(l, fd, position + total, chunk);
+                if (ret == -1 && total == 0) {
+                    completed = true;
+                    return -1;
+                }
+                if (ret <= 0) {
+                    break;
+                }
+                total += ret;
+                if (ret < chunk) {
+                    break;
+                }
+            }
             completed = true;
-            return ret;
+            return total;
         } finally {
             end(completed);
         }
     }
 
+    /*
+     * Copies from this file at {@code position} to {@code target} at, and
+     * advancing, its file pointer.
+     */
+    private long kernelCopyTo(FileChannelImpl target, long position, long count)
+            throws IOException {
+        synchronized (target.repositioningLock) {
+            long total = 0;
+            boolean completed = false;
+            try {
+                begin();
+                while (total < count) {
+                    int chunk = (int) Math.min(count - total, TRANSFER_CHUNK_SIZE);
+                    long ret = fileSystem.copyRange(handle, position + total,
+                            target.handle, chunk);
+                    if (ret == -1 && total == 0) {
+                        completed = true;
+                        return -1;
+                    }
+                    if (ret <= 0) {
+                        break;
+                    }
+                    total += ret;
+                    if (ret < chunk) {
+                        break;
+                    }
+                }
+                completed = true;
+                return total;
+            } finally {
+                end(completed);
+            }
+        }
+    }
+
+    /*
+     * Returns true if every write to this channel goes to the end of the
+     * file, which the kernel transfer paths can't honor.
+     */
+    boolean isAppend() {
+        return false;
+    }
+    // END android-added
+
     public FileChannel truncate(long size) throws IOException {
         openCheck();
         if (size < 0) {
@@ -487,17 +642,31 @@ public abstract class FileChannelImpl extends FileChannel {
         if (!buffer.hasRemaining()) {
             return 0;
         }
+        // BEGIN android-changed
+        // Use pwrite(2) rather than seek-write-seek under repositioningLock.
         int bytesWritten = 0;
-        synchronized (repositioningLock) {
-            long preWritePosition = position();
-            position(position);
-            try {
-                bytesWritten = writeImpl(buffer);
-            } finally {
-                position(preWritePosition);
+        boolean completed = false;
+        try {
+            begin();
+            if (buffer.isDirect()) {
+                DirectBuffer directBuffer = (DirectBuffer) buffer;
+                int address = directBuffer.getEffectiveAddress().toInt();
+                bytesWritten = (int) fileSystem.pwriteDirect(handle, address,
+                        buffer.position(), buffer.remaining(), position);
+            } else {
+                bytesWritten = (int) fileSystem.pwrite(handle, buffer.array(),
+                        buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining(), position);
             }
+            completed = true;
+        } finally {
+            end(completed);
+        }
+        if (bytesWritten > 0) {
+            buffer.position(buffer.position() + bytesWritten);
         }
         return bytesWritten;
+        // END android-changed
     }
 
     public int write(ByteBuffer buffer) throws IOException {
@@ -552,16 +721,18 @@ public abstract class FileChannelImpl extends FileChannel {
         int[] lengths = new int[length];
         // BEGIN android-changed
         // list of allocated direct ByteBuffers to prevent them from being GC-ed
-        DirectBuffer[] allocatedBufs = new DirectBuffer[length];
+        ByteBuffer[] allocatedBufs = new ByteBuffer[length];
 
         for (int i = 0; i < length; i++) {
             ByteBuffer buffer = buffers[i + offset];
             if (!buffer.isDirect()) {
-                ByteBuffer directBuffer = ByteBuffer.allocateDirect(buffer.remaining());
+                ByteBuffer directBuffer = DirectBufferPool.acquire(buffer.remaining());
+                int oldPosition = buffer.position();
                 directBuffer.put(buffer);
+                buffer.position(oldPosition);
                 directBuffer.flip();
                 buffer = directBuffer;
-                allocatedBufs[i] = (DirectBuffer) directBuffer;
+                allocatedBufs[i] = directBuffer;
                 offsets[i] = 0;
             } else {
                 offsets[i] = buffer.position();
@@ -583,11 +754,9 @@ public abstract class FileChannelImpl extends FileChannel {
             } finally {
                 end(completed);
                 // BEGIN android-added
-                // free temporary direct buffers
+                // return temporary direct buffers to the pool
                 for (int i = 0; i < length; ++i) {
-                    if (allocatedBufs[i] != null) {
-                        allocatedBufs[i].free();
-                    }
+                    DirectBufferPool.release(allocatedBufs[i]);
                 }
                 // END android-added
             }
@@ -596,9 +765,9 @@ public abstract class FileChannelImpl extends FileChannel {
         long bytesRemaining = bytesWritten;
         for (int i = offset; i < length + offset; i++) {
             if (bytesRemaining > buffers[i].remaining()) {
+                bytesRemaining -= buffers[i].remaining();
                 int pos = buffers[i].limit();
                 buffers[i].position(pos);
-                bytesRemaining -= buffers[i].remaining();
             } else {
                 int pos = buffers[i].position() + (int) bytesRemaining;
                 buffers[i].position(pos);
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio.internal;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.harmony.luni.platform.IFileSystem;
+import org.apache.harmony.luni.platform.INetworkSystem;
+import org.apache.harmony.nio.AddressUtil;
+
+/**
+ * Used to implement socket scatter/gather I/O with a single readv(2) or
+ * writev(2), and positional file scatter/gather I/O with a single preadv(2)
+ * or pwritev(2). Direct buffers are handed to the kernel as they are; heap
+ * buffers are staged through {@link DirectBufferPool}.
+ */
+final class IoVec {
+    enum Direction { READV, WRITEV }
+
+    /**
+     * The most buffers one call transfers: IOV_MAX on Linux, which the
+     * native code also enforces. Buffers beyond it are left untouched,
+     * which callers see as a short read or write.
+     */
+    static final int MAX_BUFFERS = 1024;
+
+    private final ByteBuffer[] byteBuffers;
+    private final int offset;
+    private final int bufferCount;
+    private final Direction direction;
+
+    private final int[] addresses;
+    private final int[] offsets;
+    private final int[] byteCounts;
+    private final ByteBuffer[] stagingBuffers;
+
+    IoVec(ByteBuffer[] byteBuffers, int offset, int bufferCount, Direction direction) {
+        this.byteBuffers = byteBuffers;
+        this.offset = offset;
+        this.bufferCount = Math.min(bufferCount, MAX_BUFFERS);
+        this.direction = direction;
+        this.addresses = new int[this.bufferCount];
+        this.offsets = new int[this.bufferCount];
+        this.byteCounts = new int[this.bufferCount];
+        this.stagingBuffers = new ByteBuffer[this.bufferCount];
+    }
+
+    /**
+     * Prepares the native buffer descriptions, staging heap buffers that
+     * have room or data. Must be followed by {@link #transfer} unless it throws, in which case
+     * the staging buffers have already been released.
+     */
+    void init() {
+        boolean initialized = false;
+        try {
+            for (int i = 0; i < bufferCount; ++i) {
+                ByteBuffer b = byteBuffers[i + offset];
+                byteCounts[i] = b.remaining();
+                if (b.isDirect()) {
+                    addresses[i] = AddressUtil.getDirectBufferAddress(b);
+                    offsets[i] = b.position();
+                } else if (byteCounts[i] > 0) {
+                    ByteBuffer staging = DirectBufferPool.acquire(byteCounts[i]);
+                    stagingBuffers[i] = staging;
+                    if (direction == Direction.WRITEV) {
+                        int oldPosition = b.position();
+                        staging.put(b);
+                        b.position(oldPosition);
+                    }
+                    addresses[i] = AddressUtil.getDirectBufferAddress(staging);
+                    offsets[i] = 0;
+                }
+            }
+            initialized = true;
+        } finally {
+            if (!initialized) {
+                releaseStagingBuffers();
+            }
+        }
+    }
+
+    /**
+     * Performs the readv or writev, then advances the buffers' positions by
+     * the number of bytes transferred and releases the staging buffers.
+     */
+    long transfer(INetworkSystem networkSystem, FileDescriptor fd) throws IOException {
+        try {
+            long result;
+            if (direction == Direction.READV) {
+                result = networkSystem.readv(fd, addresses, offsets, byteCounts, bufferCount);
+            } else {
+                result = networkSystem.writev(fd, addresses, offsets, byteCounts, bufferCount);
+            }
+            if (result > 0) {
+                didTransfer(result);
+            }
+            return result;
+        } finally {
+            releaseStagingBuffers();
+        }
+    }
+
+    /**
+     * Performs the preadv or pwritev at {@code position} of the file, then
+     * advances the buffers' positions by the number of bytes transferred and
+     * releases the staging buffers. Returns -1 if a read starts at the end of
+     * the file.
+     */
+    long transfer(IFileSystem fileSystem, int fd, long position) throws IOException {
+        try {
+            long result;
+            if (direction == Direction.READV) {
+                result = fileSystem.preadv(fd, addresses, offsets, byteCounts, bufferCount,
+                        position);
+            } else {
+                result = fileSystem.pwritev(fd, addresses, offsets, byteCounts, bufferCount,
+                        position);
+            }
+            if (result > 0) {
+                didTransfer(result);
+            }
+            return result;
+        } finally {
+            releaseStagingBuffers();
+        }
+    }
+
+    private void releaseStagingBuffers() {
+        for (int i = 0; i < bufferCount; ++i) {
+            DirectBufferPool.release(stagingBuffers[i]);
+            stagingBuffers[i] = null;
+        }
+    }
+
+    private void didTransfer(long byteCount) {
+        for (int i = 0; i < bufferCount && byteCount > 0; ++i) {
+            ByteBuffer b = byteBuffers[i + offset];
+            int count = (int) Math.min(byteCounts[i], byteCount);
+            if (direction == Direction.READV && stagingBuffers[i] != null) {
+                ByteBuffer staging = stagingBuffers[i];
+                staging.limit(count);
+                b.put(staging);
+            } else {
+                b.position(b.position() + count);
+            }
+            byteCount -= count;
+        }
+    }
+}
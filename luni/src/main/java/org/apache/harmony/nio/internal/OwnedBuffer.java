@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio.internal;
+
+/**
+ * A direct buffer that can carry a tag naming the code that allocated it,
+ * such as {@link DirectBufferPool}. The tag belongs to the buffer object
+ * itself: views created with {@code duplicate()}, {@code slice()} and the
+ * like start out untagged.
+ */
+public interface OwnedBuffer {
+
+    /**
+     * Returns the tag set with {@link #setOwner}, or null.
+     */
+    Object getOwner();
+
+    /**
+     * Tags this buffer with {@code owner}, which may be null.
+     */
+    void setOwner(Object owner);
+}
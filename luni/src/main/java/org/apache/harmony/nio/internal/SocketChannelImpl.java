@@ -306,13 +306,16 @@ class SocketChannelImpl extends SocketChannel implements FileDescriptorHandler {
                 target.position(target.position() + readCount);
             }
         } else {
-            ByteBuffer readBuffer = null;
-            byte[] readArray = null;
-            readArray = new byte[target.remaining()];
-            readBuffer = ByteBuffer.wrap(readArray);
-            readCount = readImpl(readBuffer);
-            if (readCount > 0) {
-                target.put(readArray, 0, readCount);
+            ByteBuffer readBuffer = DirectBufferPool.acquire(
+                    Math.min(target.remaining(), FileChannelImpl.COPY_BUFFER_SIZE));
+            try {
+                readCount = readImpl(readBuffer);
+                if (readCount > 0) {
+                    readBuffer.limit(readCount);
+                    target.put(readBuffer);
+                }
+            } finally {
+                DirectBufferPool.release(readBuffer);
             }
         }
         return readCount;
@@ -329,24 +332,22 @@ class SocketChannelImpl extends SocketChannel implements FileDescriptorHandler {
         if (totalCount == 0) {
             return 0;
         }
-        byte[] readArray = new byte[totalCount];
-        ByteBuffer readBuffer = ByteBuffer.wrap(readArray);
-        int readCount;
-        // read data to readBuffer, and then transfer data from readBuffer to
-        // targets.
-        readCount = readImpl(readBuffer);
-        if (readCount > 0) {
-            int left = readCount;
-            int index = offset;
-            // transfer data from readArray to targets
-            while (left > 0) {
-                int putLength = Math.min(targets[index].remaining(), left);
-                targets[index].put(readArray, readCount - left, putLength);
-                index++;
-                left -= putLength;
+        IoVec ioVec = new IoVec(targets, offset, length, IoVec.Direction.READV);
+        synchronized (readLock) {
+            long readCount = 0;
+            try {
+                if (isBlocking()) {
+                    begin();
+                }
+                ioVec.init();
+                readCount = ioVec.transfer(networkSystem, fd);
+                return readCount;
+            } finally {
+                if (isBlocking()) {
+                    end(readCount > 0);
+                }
             }
         }
-        return readCount;
     }
 
     private boolean isIndexValid(ByteBuffer[] targets, int offset, int length) {
@@ -413,25 +414,22 @@ class SocketChannelImpl extends SocketChannel implements FileDescriptorHandler {
         if (count == 0) {
             return 0;
         }
-        ByteBuffer writeBuf = ByteBuffer.allocate(count);
-        for (int val = offset; val < length + offset; val++) {
-            ByteBuffer source = sources[val];
-            int oldPosition = source.position();
-            writeBuf.put(source);
-            source.position(oldPosition);
-        }
-        writeBuf.flip();
-        int result = writeImpl(writeBuf);
-        int val = offset;
-        int written = result;
-        while (result > 0) {
-            ByteBuffer source = sources[val];
-            int gap = Math.min(result, source.remaining());
-            source.position(source.position() + gap);
-            val++;
-            result -= gap;
-        }
-        return written;
+        IoVec ioVec = new IoVec(sources, offset, length, IoVec.Direction.WRITEV);
+        synchronized (writeLock) {
+            long writeCount = 0;
+            try {
+                if (isBlocking()) {
+                    begin();
+                }
+                ioVec.init();
+                writeCount = ioVec.transfer(networkSystem, fd);
+                return writeCount;
+            } finally {
+                if (isBlocking()) {
+                    end(writeCount >= 0);
+                }
+            }
+        }
     }
 
     /*
@@ -456,9 +454,31 @@ class SocketChannelImpl extends SocketChannel implements FileDescriptorHandler {
                     pos += source.arrayOffset();
                     writeCount = networkSystem.write(fd, source.array(), pos, length);
                 } else {
-                    byte[] array = new byte[length];
-                    source.get(array);
-                    writeCount = networkSystem.write(fd, array, 0, length);
+                    // stage the source through a bounded direct buffer, a
+                    // chunk at a time
+                    int chunkSize = Math.min(length, FileChannelImpl.COPY_BUFFER_SIZE);
+                    ByteBuffer directBuffer = DirectBufferPool.acquire(chunkSize);
+                    int limit = source.limit();
+                    try {
+                        int address = AddressUtil.getDirectBufferAddress(directBuffer);
+                        while (writeCount < length) {
+                            int count = Math.min(length - writeCount, chunkSize);
+                            directBuffer.clear();
+                            source.limit(pos + writeCount + count);
+                            directBuffer.put(source);
+                            int written = networkSystem.writeDirect(fd, address, 0, count);
+                            if (written <= 0) {
+                                break;
+                            }
+                            writeCount += written;
+                            if (written < count) {
+                                break;
+                            }
+                        }
+                    } finally {
+                        source.limit(limit);
+                        DirectBufferPool.release(directBuffer);
+                    }
                 }
                 source.position(pos + writeCount);
             } finally {
@@ -53,6 +53,13 @@ public final class WriteOnlyFileChannel extends FileChannelImpl {
         return append ? size() : super.position();
     }
 
+    // BEGIN android-added
+    @Override
+    boolean isAppend() {
+        return append;
+    }
+    // END android-added
+
     public long transferTo(long position, long count, WritableByteChannel target)
             throws IOException {
         openCheck();
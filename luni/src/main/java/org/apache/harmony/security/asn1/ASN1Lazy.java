@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.harmony.security.asn1;
+
+import java.io.IOException;
+
+/**
+ * Decorates an ASN.1 type so that its values are decoded on demand.
+ *
+ * Decoding only checks the encoding, with a checking type that accepts the
+ * same encodings as the decorated type but builds nothing, and then calls
+ * getDecodedObject: implementations return an object that keeps the full
+ * encoding of the value (available from BerInputStream.getEncoded()) and
+ * decodes it with the decorated type when first needed. Encoding is
+ * delegated to the decorated type.
+ */
+public abstract class ASN1Lazy extends ASN1Type {
+
+    private final ASN1Type type;
+
+    private final ASN1Type checker;
+
+    /**
+     * @param type - the decorated type
+     * @param checker - a type with the same encoding as the decorated type,
+     *        whose getDecodedObject methods reject the values that the
+     *        decorated type's reject, so that decoding an encoding the
+     *        checker accepted cannot fail later
+     */
+    public ASN1Lazy(ASN1Type type, ASN1Type checker) {
+        super(type.id);
+        this.type = type;
+        this.checker = checker;
+    }
+
+    public final boolean checkTag(int identifier) {
+        return type.checkTag(identifier);
+    }
+
+    public Object decode(BerInputStream in) throws IOException {
+        int tagOffset = in.tagOffset;
+        checker.decode(in);
+        // decoding a constructed type may leave the offset of its last
+        // component's tag behind
+        in.tagOffset = tagOffset;
+
+        if (in.isVerify) {
+            return null;
+        }
+        return getDecodedObject(in);
+    }
+
+    /**
+     * Returns the value for the encoding that was just checked.
+     */
+    protected abstract Object getDecodedObject(BerInputStream in) throws IOException;
+
+    public void encodeASN(BerOutputStream out) {
+        type.encodeASN(out);
+    }
+
+    public void encodeContent(BerOutputStream out) {
+        type.encodeContent(out);
+    }
+
+    public void setEncodingContent(BerOutputStream out) {
+        type.setEncodingContent(out);
+    }
+
+    public int getEncodedLength(BerOutputStream out) {
+        return type.getEncodedLength(out);
+    }
+}
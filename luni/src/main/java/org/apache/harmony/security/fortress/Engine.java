@@ -37,24 +37,39 @@ public class Engine {
     // Service name
     private final String serviceName;
 
-    // for getInstance(String algorithm, Object param) optimization:
-    // previous result
-    private Provider.Service returnedService;
-
-    // previous parameter
-    private String lastAlgorithm;
-
-    private int refreshNumber;
-
     /**
-     * Provider
+     * The result of the previous getInstance(String algorithm, Object param)
+     * lookup. Replaced as a whole, so that getInstance needs no lock.
      */
-    public Provider provider;
+    private volatile ServiceCacheEntry serviceCache;
+
+    private static final class ServiceCacheEntry {
+        // previous parameter
+        private final String algorithm;
+        private final int refreshNumber;
+        // previous result
+        private final Provider.Service service;
+
+        private ServiceCacheEntry(String algorithm, int refreshNumber,
+                Provider.Service service) {
+            this.algorithm = algorithm;
+            this.refreshNumber = refreshNumber;
+            this.service = service;
+        }
+    }
 
     /**
-     * SPI instance
+     * An SPI instance and the provider it came from.
      */
-    public Object spi;
+    public static final class SpiAndProvider {
+        public final Object spi;
+        public final Provider provider;
+
+        private SpiAndProvider(Object spi, Provider provider) {
+            this.spi = spi;
+            this.provider = provider;
+        }
+    }
 
     /**
      * Access to package visible api in java.security
@@ -79,18 +94,21 @@ public class Engine {
      * @param service
      * @throws NoSuchAlgorithmException
      */
-    public synchronized void getInstance(String algorithm, Object param)
+    public SpiAndProvider getInstance(String algorithm, Object param)
             throws NoSuchAlgorithmException {
-        Provider.Service serv;
-
         if (algorithm == null) {
             throw new NoSuchAlgorithmException("Null algorithm name");
         }
         Services.refresh();
-        if (returnedService != null
-                && Util.equalsIgnoreCase(algorithm, lastAlgorithm)
-                && refreshNumber == Services.refreshNumber) {
-            serv = returnedService;
+        // Read before the lookup, so a concurrent refresh can only make the
+        // cached entry look older than it is.
+        int refreshNumber = Services.refreshNumber;
+        Provider.Service serv;
+        ServiceCacheEntry cacheEntry = serviceCache;
+        if (cacheEntry != null
+                && cacheEntry.refreshNumber == refreshNumber
+                && Util.equalsIgnoreCase(algorithm, cacheEntry.algorithm)) {
+            serv = cacheEntry.service;
         } else {
             if (Services.isEmpty()) {
                 throw notFound(serviceName, algorithm);
@@ -101,12 +119,9 @@ public class Engine {
             if (serv == null) {
                 throw notFound(serviceName, algorithm);
             }
-            returnedService = serv;
-            lastAlgorithm = algorithm;
-            refreshNumber = Services.refreshNumber;
+            serviceCache = new ServiceCacheEntry(algorithm, refreshNumber, serv);
         }
-        spi = serv.newInstance(param);
-        this.provider = serv.getProvider();
+        return new SpiAndProvider(serv.newInstance(param), serv.getProvider());
     }
 
     private NoSuchAlgorithmException notFound(String serviceName, String algorithm) throws NoSuchAlgorithmException {
@@ -123,7 +138,7 @@ public class Engine {
      * @param provider
      * @throws NoSuchAlgorithmException
      */
-    public synchronized void getInstance(String algorithm, Provider provider,
+    public Object getInstance(String algorithm, Provider provider,
             Object param) throws NoSuchAlgorithmException {
 
         Provider.Service serv = null;
@@ -134,8 +149,7 @@ public class Engine {
         if (serv == null) {
             throw notFound(serviceName, algorithm);
         }
-        spi = serv.newInstance(param);
-        this.provider = provider;
+        return serv.newInstance(param);
     }
 
 }
@@ -37,6 +37,10 @@ import org.apache.harmony.security.Util;
  * This class contains information about all registered providers and preferred
  * implementations for all "serviceName.algName".
  *
+ * <p>Lookups are lock-free: the service table is rebuilt into a new map when
+ * the providers change, and then published along with a new refresh number.
+ * Published tables are never modified. Changes to the provider list are
+ * serialized on the class lock.
  */
 
 public class Services {
@@ -46,20 +50,22 @@ public class Services {
     // BEGIN android-changed
     // set the initial size to 600 so we don't grow to 1024 by default because
     // initialization adds a few entries more than the growth threshold.
-    private static final Map<String, Provider.Service> services
-            = new HashMap<String, Provider.Service>(600);
+    private static final int SERVICES_INITIAL_SIZE = 600;
+    private static volatile Map<String, Provider.Service> services
+            = new HashMap<String, Provider.Service>();
     // save default SecureRandom service as well.
     // avoids similar provider/services iteration in SecureRandom constructor
-    private static Provider.Service secureRandom;
+    private static volatile Provider.Service secureRandom;
     // END android-changed
 
     // Need refresh flag
-    private static boolean needRefresh; // = false;
+    private static volatile boolean needRefresh; // = false;
 
     /**
-     * Refresh number
+     * Refresh number. Incremented after each new service table is published,
+     * so a lookup made after reading a refresh number is at least that recent.
      */
-    static int refreshNumber = 1;
+    static volatile int refreshNumber = 1;
 
     // Registered providers
     private static final List<Provider> providers = new ArrayList<Provider>(20);
@@ -77,7 +83,7 @@ public class Services {
     }
 
     // Load statically registered providers and init Services Info
-    private static void loadProviders() {
+    private static synchronized void loadProviders() {
         String providerClassName = null;
         int i = 1;
         ClassLoader cl = ClassLoader.getSystemClassLoader();
@@ -91,12 +97,12 @@ public class Services {
                         .newInstance();
                 providers.add(p);
                 providersNames.put(p.getName(), p);
-                initServiceInfo(p);
             } catch (ClassNotFoundException e) { // ignore Exceptions
             } catch (IllegalAccessException e) {
             } catch (InstantiationException e) {
             }
         }
+        updateServiceInfo();
         Engine.door.renumProviders();
     }
 
@@ -105,7 +111,7 @@ public class Services {
      *
      * @return
      */
-    public static Provider[] getProviders() {
+    public static synchronized Provider[] getProviders() {
         return providers.toArray(new Provider[providers.size()]);
     }
 
@@ -114,7 +120,7 @@ public class Services {
      *
      * @return
      */
-    public static List<Provider> getProvidersList() {
+    public static synchronized List<Provider> getProvidersList() {
         return new ArrayList<Provider>(providers);
     }
 
@@ -124,7 +130,7 @@ public class Services {
      * @param name
      * @return
      */
-    public static Provider getProvider(String name) {
+    public static synchronized Provider getProvider(String name) {
         if (name == null) {
             return null;
         }
@@ -138,7 +144,7 @@ public class Services {
      * @param position
      * @return
      */
-    public static int insertProviderAt(Provider provider, int position) {
+    public static synchronized int insertProviderAt(Provider provider, int position) {
         int size = providers.size();
         if ((position < 1) || (position > size)) {
             position = size + 1;
@@ -154,7 +160,7 @@ public class Services {
      *
      * @param providerNumber
      */
-    public static void removeProvider(int providerNumber) {
+    public static synchronized void removeProvider(int providerNumber) {
         Provider p = providers.remove(providerNumber - 1);
         providersNames.remove(p.getName());
         setNeedRefresh();
@@ -162,47 +168,64 @@ public class Services {
 
     /**
      *
-     * Adds information about provider services into HashMap.
+     * Adds information about provider services into {@code table}, and
+     * returns the provider's first SecureRandom service, if any.
      *
      * @param p
      */
-    public static void initServiceInfo(Provider p) {
+    private static Provider.Service initServiceInfo(Provider p,
+            Map<String, Provider.Service> table) {
         StringBuilder sb = new StringBuilder(128);
+        Provider.Service random = null;
 
         for (Provider.Service serv : p.getServices()) {
             String type = serv.getType();
-            if (secureRandom == null && type.equals("SecureRandom")) {
-                secureRandom = serv;
+            // Services come in no particular order, so prefer SHA1PRNG
+            // when a provider has several SecureRandom algorithms.
+            if (type.equals("SecureRandom")
+                    && (random == null || serv.getAlgorithm().equals("SHA1PRNG"))) {
+                random = serv;
             }
             sb.delete(0, sb.length());
             String key = sb.append(type).append(".").append(
                     Util.toUpperCase(serv.getAlgorithm())).toString();
-            if (!services.containsKey(key)) {
-                services.put(key, serv);
+            if (!table.containsKey(key)) {
+                table.put(key, serv);
             }
             for (String alias : Engine.door.getAliases(serv)) {
                 sb.delete(0, sb.length());
                 key = sb.append(type).append(".").append(Util.toUpperCase(alias))
                         .toString();
-                if (!services.containsKey(key)) {
-                    services.put(key, serv);
+                if (!table.containsKey(key)) {
+                    table.put(key, serv);
                 }
             }
         }
+        return random;
     }
 
     /**
      *
-     * Updates services hashtable for all registered providers
+     * Rebuilds the services table for all registered providers and
+     * publishes it.
      *
      */
-    public static void updateServiceInfo() {
-        services.clear();
-        secureRandom = null;
+    public static synchronized void updateServiceInfo() {
+        // Cleared first, so that a provider changing while the table is
+        // being built triggers another refresh.
+        needRefresh = false;
+        Map<String, Provider.Service> table
+                = new HashMap<String, Provider.Service>(SERVICES_INITIAL_SIZE);
+        Provider.Service random = null;
         for (Provider p : providers) {
-            initServiceInfo(p);
+            Provider.Service providerRandom = initServiceInfo(p, table);
+            if (random == null) {
+                random = providerRandom;
+            }
         }
-        needRefresh = false;
+        secureRandom = random;
+        services = table;
+        refreshNumber++;
     }
 
     /**
@@ -246,8 +269,11 @@ public class Services {
      */
     public static void refresh() {
         if (needRefresh) {
-            refreshNumber++;
-            updateServiceInfo();
+            synchronized (Services.class) {
+                if (needRefresh) {
+                    updateServiceInfo();
+                }
+            }
         }
     }
 }
@@ -54,14 +54,15 @@ import org.apache.harmony.security.x509.CertificateList;
  */
 public class X509CertFactoryImpl extends CertificateFactorySpi {
 
-    // number of leading/trailing bytes used for cert hash computation
+    // number of leading bytes read to detect the encoding and its length
     private static final int CERT_CACHE_SEED_LENGTH = 28;
-    // certificate cache
-    private static final Cache CERT_CACHE = new Cache(CERT_CACHE_SEED_LENGTH);
-    // number of leading/trailing bytes used for crl hash computation
+    // certificate cache: certificates are small, and the same chains are
+    // parsed on every TLS handshake
+    private static final Cache CERT_CACHE = new Cache(64, 128 * 1024);
+    // number of leading bytes read to detect the encoding and its length
     private static final int CRL_CACHE_SEED_LENGTH = 24;
-    // crl cache
-    private static final Cache CRL_CACHE = new Cache(CRL_CACHE_SEED_LENGTH);
+    // crl cache: CRLs can be large, but are rarely parsed
+    private static final Cache CRL_CACHE = new Cache(9, 512 * 1024);
 
     /**
      * Default constructor.
@@ -580,12 +581,13 @@ public class X509CertFactoryImpl extends CertificateFactorySpi {
     private static byte[] readBytes(InputStream source, int length)
                                                             throws IOException {
         byte[] result = new byte[length];
-        for (int i=0; i<length; i++) {
-            int bytik = source.read();
-            if (bytik == -1) {
+        int count = 0;
+        while (count < length) {
+            int read = source.read(result, count, length - count);
+            if (read == -1) {
                 return null;
             }
-            result[i] = (byte) bytik;
+            count += read;
         }
         return result;
     }
@@ -604,19 +606,13 @@ public class X509CertFactoryImpl extends CertificateFactorySpi {
         if (encoding.length < CERT_CACHE_SEED_LENGTH) {
             throw new CertificateException("encoding.length < CERT_CACHE_SEED_LENGTH");
         }
-        synchronized (CERT_CACHE) {
-            long hash = CERT_CACHE.getHash(encoding);
-            if (CERT_CACHE.contains(hash)) {
-                Certificate res =
-                    (Certificate) CERT_CACHE.get(hash, encoding);
-                if (res != null) {
-                    return res;
-                }
-            }
-            Certificate res = new X509CertImpl(encoding);
-            CERT_CACHE.put(hash, encoding, res);
+        Certificate res = (Certificate) CERT_CACHE.get(encoding);
+        if (res != null) {
             return res;
         }
+        res = new X509CertImpl(encoding);
+        CERT_CACHE.put(encoding, res);
+        return res;
     }
 
     /**
@@ -631,35 +627,28 @@ public class X509CertFactoryImpl extends CertificateFactorySpi {
      */
     private static Certificate getCertificate(InputStream inStream)
                                     throws CertificateException, IOException {
-        synchronized (CERT_CACHE) {
-            inStream.mark(CERT_CACHE_SEED_LENGTH);
-            // read the prefix of the encoding
-            byte[] buff = readBytes(inStream, CERT_CACHE_SEED_LENGTH);
-            inStream.reset();
-            if (buff == null) {
-                throw new CertificateException("InputStream doesn't contain enough data");
-            }
-            long hash = CERT_CACHE.getHash(buff);
-            if (CERT_CACHE.contains(hash)) {
-                byte[] encoding = new byte[BerInputStream.getLength(buff)];
-                if (encoding.length < CERT_CACHE_SEED_LENGTH) {
-                    throw new CertificateException("Bad Certificate encoding");
-                }
-                inStream.read(encoding);
-                Certificate res = (Certificate) CERT_CACHE.get(hash, encoding);
-                if (res != null) {
-                    return res;
-                }
-                res = new X509CertImpl(encoding);
-                CERT_CACHE.put(hash, encoding, res);
-                return res;
-            } else {
-                inStream.reset();
-                Certificate res = new X509CertImpl(inStream);
-                CERT_CACHE.put(hash, res.getEncoded(), res);
-                return res;
-            }
+        inStream.mark(CERT_CACHE_SEED_LENGTH);
+        // read the prefix of the encoding
+        byte[] buff = readBytes(inStream, CERT_CACHE_SEED_LENGTH);
+        inStream.reset();
+        if (buff == null) {
+            throw new CertificateException("InputStream doesn't contain enough data");
         }
+        if (isIndefiniteLength(buff)) {
+            // the length of the encoding is only known once it is decoded
+            Certificate res = new X509CertImpl(inStream);
+            CERT_CACHE.put(res.getEncoded(), res);
+            return res;
+        }
+        int length = BerInputStream.getLength(buff);
+        if (length < CERT_CACHE_SEED_LENGTH) {
+            throw new CertificateException("Bad Certificate encoding");
+        }
+        byte[] encoding = readBytes(inStream, length);
+        if (encoding == null) {
+            throw new CertificateException("InputStream doesn't contain enough data");
+        }
+        return getCertificate(encoding);
     }
 
     /**
@@ -676,18 +665,13 @@ public class X509CertFactoryImpl extends CertificateFactorySpi {
         if (encoding.length < CRL_CACHE_SEED_LENGTH) {
             throw new CRLException("encoding.length < CRL_CACHE_SEED_LENGTH");
         }
-        synchronized (CRL_CACHE) {
-            long hash = CRL_CACHE.getHash(encoding);
-            if (CRL_CACHE.contains(hash)) {
-                X509CRL res = (X509CRL) CRL_CACHE.get(hash, encoding);
-                if (res != null) {
-                    return res;
-                }
-            }
-            X509CRL res = new X509CRLImpl(encoding);
-            CRL_CACHE.put(hash, encoding, res);
+        X509CRL res = (X509CRL) CRL_CACHE.get(encoding);
+        if (res != null) {
             return res;
         }
+        res = new X509CRLImpl(encoding);
+        CRL_CACHE.put(encoding, res);
+        return res;
     }
 
     /**
@@ -702,34 +686,50 @@ public class X509CertFactoryImpl extends CertificateFactorySpi {
      */
     private static CRL getCRL(InputStream inStream)
                                             throws CRLException, IOException {
-        synchronized (CRL_CACHE) {
-            inStream.mark(CRL_CACHE_SEED_LENGTH);
-            byte[] buff = readBytes(inStream, CRL_CACHE_SEED_LENGTH);
-            // read the prefix of the encoding
-            inStream.reset();
-            if (buff == null) {
-                throw new CRLException("InputStream doesn't contain enough data");
-            }
-            long hash = CRL_CACHE.getHash(buff);
-            if (CRL_CACHE.contains(hash)) {
-                byte[] encoding = new byte[BerInputStream.getLength(buff)];
-                if (encoding.length < CRL_CACHE_SEED_LENGTH) {
-                    throw new CRLException("Bad CRL encoding");
-                }
-                inStream.read(encoding);
-                CRL res = (CRL) CRL_CACHE.get(hash, encoding);
-                if (res != null) {
-                    return res;
-                }
-                res = new X509CRLImpl(encoding);
-                CRL_CACHE.put(hash, encoding, res);
-                return res;
-            } else {
-                X509CRL res = new X509CRLImpl(inStream);
-                CRL_CACHE.put(hash, res.getEncoded(), res);
-                return res;
-            }
+        inStream.mark(CRL_CACHE_SEED_LENGTH);
+        byte[] buff = readBytes(inStream, CRL_CACHE_SEED_LENGTH);
+        // read the prefix of the encoding
+        inStream.reset();
+        if (buff == null) {
+            throw new CRLException("InputStream doesn't contain enough data");
+        }
+        if (isIndefiniteLength(buff)) {
+            // the length of the encoding is only known once it is decoded
+            X509CRL res = new X509CRLImpl(inStream);
+            CRL_CACHE.put(res.getEncoded(), res);
+            return res;
         }
+        int length = BerInputStream.getLength(buff);
+        if (length < CRL_CACHE_SEED_LENGTH) {
+            throw new CRLException("Bad CRL encoding");
+        }
+        byte[] encoding = readBytes(inStream, length);
+        if (encoding == null) {
+            throw new CRLException("InputStream doesn't contain enough data");
+        }
+        return getCRL(encoding);
+    }
+
+    /**
+     * Returns true if the BER encoding starting with {@code prefix} uses
+     * the indefinite length form.
+     */
+    private static boolean isIndefiniteLength(byte[] prefix) {
+        return (prefix[1] & 0xFF) == 0x80;
+    }
+
+    /**
+     * Returns the cache of decoded certificates.
+     */
+    public static Cache getCertificateCache() {
+        return CERT_CACHE;
+    }
+
+    /**
+     * Returns the cache of decoded CRLs.
+     */
+    public static Cache getCRLCache() {
+        return CRL_CACHE;
     }
 
     /*
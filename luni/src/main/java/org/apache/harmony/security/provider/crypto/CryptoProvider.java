@@ -44,6 +44,7 @@ public final class CryptoProvider extends Provider {
         //  names of classes implementing services
         final String MD_NAME = "org.apache.harmony.security.provider.crypto.SHA1_MessageDigestImpl";
         final String SR_NAME = "org.apache.harmony.security.provider.crypto.SHA1PRNG_SecureRandomImpl";
+        final String DRBG_NAME = "org.apache.harmony.security.provider.crypto.HmacDRBG_SecureRandomImpl";
 
         final String SIGN_NAME = "org.apache.harmony.security.provider.crypto.SHA1withDSA_SignatureImpl";
 
@@ -65,6 +66,9 @@ public final class CryptoProvider extends Provider {
                 if (RandomBitsSupplier.isServiceAvailable()) {
                     put("SecureRandom.SHA1PRNG", SR_NAME);
                     put("SecureRandom.SHA1PRNG ImplementedIn", "Software");
+                    put("SecureRandom.DRBG", DRBG_NAME);
+                    put("SecureRandom.DRBG ImplementedIn", "Software");
+                    put("SecureRandom.DRBG ThreadSafe", "true");
                 }
 
                 put("Signature.SHA1withDSA", SIGN_NAME);
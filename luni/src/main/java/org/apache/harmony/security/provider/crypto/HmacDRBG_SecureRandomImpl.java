@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.security.provider.crypto;
+
+import java.io.Serializable;
+import java.security.DigestException;
+import java.security.ProviderException;
+import java.security.SecureRandomSpi;
+
+/**
+ * A SecureRandomSpi implementing HMAC_DRBG with HMAC-SHA1, as described in
+ * NIST SP 800-90A section 10.1.2.
+ *
+ * <p>Each thread generates from its own DRBG instance, seeded from the
+ * system's random device, so a {@code SecureRandom} shared between threads
+ * needs no lock. Each instance is reseeded from the random device every
+ * {@link #RESEED_INTERVAL} requests. Seeds supplied with {@link
+ * #engineSetSeed} supplement the state of every thread's instance; they
+ * never make the output predictable.
+ */
+public class HmacDRBG_SecureRandomImpl extends SecureRandomSpi implements Serializable, SHA1_Data {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of generate requests between reseeds of an instance. */
+    private static final int RESEED_INTERVAL = 1 << 16;
+
+    /** Maximum number of bytes produced by one generate request. */
+    private static final int MAX_BYTES_PER_REQUEST = 1 << 16;
+
+    /** Number of bytes of entropy input, and of the nonce, read from the device. */
+    private static final int SEED_LENGTH = 32;
+
+    /**
+     * A digest of all the seeds supplied with engineSetSeed. Replaced, never
+     * modified, so that each thread can tell whether it has mixed in the
+     * latest one.
+     */
+    private transient volatile byte[] suppliedSeed;
+
+    private transient ThreadLocal<Drbg> drbgs;
+
+    public HmacDRBG_SecureRandomImpl() {
+        drbgs = new ThreadLocal<Drbg>() {
+            @Override protected Drbg initialValue() {
+                return new Drbg();
+            }
+        };
+    }
+
+    /**
+     * Supplements the state of every thread's instance with {@code seed}.
+     */
+    @Override
+    protected synchronized void engineSetSeed(byte[] seed) {
+        if (seed == null) {
+            throw new NullPointerException("seed == null");
+        }
+        SHA1_MessageDigestImpl digest = new SHA1_MessageDigestImpl();
+        byte[] previous = suppliedSeed;
+        if (previous != null) {
+            digest.engineUpdate(previous, 0, previous.length);
+        }
+        digest.engineUpdate(seed, 0, seed.length);
+        suppliedSeed = digest.engineDigest();
+    }
+
+    /**
+     * Returns {@code numBytes} bytes read from the system's random device.
+     */
+    @Override
+    protected byte[] engineGenerateSeed(int numBytes) {
+        if (numBytes < 0) {
+            throw new NegativeArraySizeException(Integer.toString(numBytes));
+        }
+        if (numBytes == 0) {
+            return new byte[0];
+        }
+        return RandomBitsSupplier.getRandomBits(numBytes);
+    }
+
+    @Override
+    protected void engineNextBytes(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes == null");
+        }
+        Drbg drbg = drbgs.get();
+        byte[] seed = suppliedSeed;
+        if (seed != drbg.suppliedSeed) {
+            drbg.update(seed);
+            drbg.suppliedSeed = seed;
+        }
+        for (int offset = 0; offset < bytes.length; offset += MAX_BYTES_PER_REQUEST) {
+            drbg.generate(bytes, offset, Math.min(bytes.length - offset, MAX_BYTES_PER_REQUEST));
+        }
+    }
+
+    /**
+     * Deserialized instances start from fresh seeds.
+     */
+    private Object readResolve() {
+        return new HmacDRBG_SecureRandomImpl();
+    }
+
+    /**
+     * The working state of one HMAC_DRBG instance. Used by a single thread.
+     */
+    private static final class Drbg {
+        private static final int BLOCK_LENGTH = 64;
+
+        private final SHA1_MessageDigestImpl digest = new SHA1_MessageDigestImpl();
+        private final byte[] key = new byte[DIGEST_LENGTH];
+        private final byte[] value = new byte[DIGEST_LENGTH];
+        private final byte[] pad = new byte[BLOCK_LENGTH];
+        private final byte[] innerHash = new byte[DIGEST_LENGTH];
+        private int reseedCounter;
+
+        /** The last supplied seed mixed into this instance. */
+        byte[] suppliedSeed;
+
+        /**
+         * Instantiates with entropy input and a nonce from the random
+         * device, and the thread's ID and the time as the personalization
+         * string.
+         */
+        Drbg() {
+            // key is all zeros
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                value[i] = 0x01;
+            }
+            byte[] seedMaterial = new byte[2 * SEED_LENGTH + 16];
+            byte[] entropy = RandomBitsSupplier.getRandomBits(2 * SEED_LENGTH);
+            System.arraycopy(entropy, 0, seedMaterial, 0, entropy.length);
+            putLong(seedMaterial, 2 * SEED_LENGTH, Thread.currentThread().getId());
+            putLong(seedMaterial, 2 * SEED_LENGTH + 8, System.nanoTime());
+            update(seedMaterial);
+            reseedCounter = 1;
+        }
+
+        private static void putLong(byte[] dst, int offset, long l) {
+            for (int i = 0; i < 8; i++) {
+                dst[offset + i] = (byte) (l >>> (56 - 8 * i));
+            }
+        }
+
+        /**
+         * The HMAC_DRBG_Update function: mixes {@code providedData}, which
+         * may be null, into the key and value.
+         */
+        void update(byte[] providedData) {
+            updateKey((byte) 0x00, providedData);
+            hmac(value, value);
+            if (providedData != null) {
+                updateKey((byte) 0x01, providedData);
+                hmac(value, value);
+            }
+        }
+
+        /**
+         * Replaces the key with HMAC(key, value || separator || providedData).
+         */
+        private void updateKey(byte separator, byte[] providedData) {
+            startHmac(0x36);
+            digest.engineUpdate(value, 0, DIGEST_LENGTH);
+            digest.engineUpdate(separator);
+            if (providedData != null) {
+                digest.engineUpdate(providedData, 0, providedData.length);
+            }
+            finishHmac(key, 0);
+        }
+
+        /**
+         * Writes HMAC(key, data) to {@code out}, which may be {@code data}.
+         */
+        private void hmac(byte[] data, byte[] out) {
+            startHmac(0x36);
+            digest.engineUpdate(data, 0, data.length);
+            finishHmac(out, 0);
+        }
+
+        private void startHmac(int padByte) {
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                pad[i] = (byte) (key[i] ^ padByte);
+            }
+            for (int i = DIGEST_LENGTH; i < BLOCK_LENGTH; i++) {
+                pad[i] = (byte) padByte;
+            }
+            digest.engineReset();
+            digest.engineUpdate(pad, 0, BLOCK_LENGTH);
+        }
+
+        /**
+         * Completes the inner hash started by startHmac(0x36), and writes
+         * the HMAC to {@code out} at {@code offset}. {@code out} may be the
+         * key.
+         */
+        private void finishHmac(byte[] out, int offset) {
+            try {
+                digest.engineDigest(innerHash, 0, DIGEST_LENGTH);
+                startHmac(0x5c);
+                digest.engineUpdate(innerHash, 0, DIGEST_LENGTH);
+                digest.engineDigest(out, offset, DIGEST_LENGTH);
+            } catch (DigestException e) {
+                throw new ProviderException(e);
+            }
+        }
+
+        /**
+         * The HMAC_DRBG_Generate function, without additional input:
+         * writes {@code byteCount} bytes to {@code out} at {@code offset}.
+         */
+        void generate(byte[] out, int offset, int byteCount) {
+            if (reseedCounter > RESEED_INTERVAL) {
+                update(RandomBitsSupplier.getRandomBits(SEED_LENGTH));
+                reseedCounter = 1;
+            }
+            int end = offset + byteCount;
+            while (offset < end) {
+                hmac(value, value);
+                int count = Math.min(DIGEST_LENGTH, end - offset);
+                System.arraycopy(value, 0, out, offset, count);
+                offset += count;
+            }
+            update(null);
+            reseedCounter++;
+        }
+    }
+}
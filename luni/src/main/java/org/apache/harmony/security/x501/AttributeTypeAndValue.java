@@ -491,6 +491,19 @@ public class AttributeTypeAndValue {
         }
     };
 
+    /**
+     * Accepts the encodings that ASN1 accepts, without building attributes.
+     */
+    public static final ASN1Sequence ASN1_CHECKER = new ASN1Sequence(new ASN1Type[] {
+            ASN1Oid.getInstance(), attributeValue }) {
+
+        protected Object getDecodedObject(BerInputStream in) {
+            Object[] values = (Object[]) in.content;
+            ObjectIdentifier.validateOid((int[]) values[0]);
+            return null;
+        }
+    };
+
     // returns known OID or null
     private static ObjectIdentifier getOID(int[] oid) {
 
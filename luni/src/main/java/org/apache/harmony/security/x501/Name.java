@@ -30,8 +30,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import javax.security.auth.x500.X500Principal;
+import org.apache.harmony.security.asn1.ASN1Lazy;
 import org.apache.harmony.security.asn1.ASN1SequenceOf;
 import org.apache.harmony.security.asn1.ASN1SetOf;
+import org.apache.harmony.security.asn1.ASN1Type;
 import org.apache.harmony.security.asn1.BerInputStream;
 import org.apache.harmony.security.asn1.DerInputStream;
 import org.apache.harmony.security.x509.DNParser;
@@ -54,8 +56,9 @@ public class Name {
     //CANONICAL string
     private String canonicalString;
 
-    //Collection of RDNs
-    private List rdn;
+    //Collection of RDNs, or null if they haven't been decoded from the
+    //encoding yet
+    private volatile List rdn;
 
     /**
      * Creates new <code>Name</code> instance from its DER encoding
@@ -91,6 +94,23 @@ public class Name {
         this.rdn = rdn;
     }
 
+    // Creates Name instance whose RDNs will be decoded from its encoding
+    private Name() {
+    }
+
+    private List getRDN() {
+        List result = rdn;
+        if (result == null) {
+            try {
+                result = ((Name) ASN1.decode(encoded)).rdn;
+            } catch (IOException e) {
+                throw new AssertionError(e); // ASN1_LAZY checked the encoding
+            }
+            rdn = result;
+        }
+        return result;
+    }
+
     /**
      * Returns <code>X500Principal</code> instance corresponding to this
      * <code>Name</code> instance
@@ -178,6 +198,7 @@ public class Name {
     private String getName0(String format) {
 
         StringBuffer name = new StringBuffer();
+        List rdn = getRDN();
 
         // starting with the last element and moving to the first.
         for (int i = rdn.size() - 1; i >= 0; i--) {
@@ -256,7 +277,21 @@ public class Name {
         }
 
         public Collection getValues(Object object) {
-            return ((Name) object).rdn; //FIXME what about get method?
+            return ((Name) object).getRDN();
+        }
+    };
+
+    /**
+     * Like ASN1, but the decoded names keep their encoding and only decode
+     * their RDNs when first needed.
+     */
+    public static final ASN1Type ASN1_LAZY = new ASN1Lazy(ASN1,
+            new ASN1SequenceOf(new ASN1SetOf(AttributeTypeAndValue.ASN1_CHECKER))) {
+
+        public Object getDecodedObject(BerInputStream in) {
+            Name name = new Name();
+            name.encoded = in.getEncoded();
+            return name;
         }
     };
 }
@@ -432,13 +432,7 @@ public class Extension {
             byte[] extnValue = (byte[]) ((Object[]) values[2])[0];
             byte[] rawExtnValue = (byte[]) ((Object[]) values[2])[1];
 
-            ExtensionValue decodedExtValue = null;
-            // decode Key Usage and Basic Constraints extension values
-            if (oidEquals(oid, KEY_USAGE)) {
-                decodedExtValue = new KeyUsage(extnValue);
-            } else if (oidEquals(oid, BASIC_CONSTRAINTS)) {
-                decodedExtValue = new BasicConstraints(extnValue);
-            }
+            ExtensionValue decodedExtValue = decodeCheckedValue(oid, extnValue);
 
             return
                 new Extension((int[]) values[0],
@@ -455,5 +449,38 @@ public class Extension {
             values[2] = ext.extnValue;
         }
     };
+
+    /**
+     * Decodes Key Usage and Basic Constraints extension values, which are
+     * checked whenever an extension is decoded; returns null for others.
+     */
+    static ExtensionValue decodeCheckedValue(int[] oid, byte[] extnValue)
+            throws IOException {
+        if (oidEquals(oid, KEY_USAGE)) {
+            return new KeyUsage(extnValue);
+        } else if (oidEquals(oid, BASIC_CONSTRAINTS)) {
+            return new BasicConstraints(extnValue);
+        }
+        return null;
+    }
+
+    /**
+     * Accepts the encodings that ASN1 accepts, without building extensions.
+     */
+    static final ASN1Sequence ASN1_CHECKER = new ASN1Sequence(new ASN1Type[] {
+            ASN1Oid.getInstance(),
+            ASN1Boolean.getInstance(),
+            ASN1OctetString.getInstance()
+        }) {
+        {
+            setDefault(Boolean.FALSE, 1);
+        }
+
+        protected Object getDecodedObject(BerInputStream in) throws IOException {
+            Object[] values = (Object[]) in.content;
+            decodeCheckedValue((int[]) values[0], (byte[]) values[2]);
+            return null;
+        }
+    };
 }
 
@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import javax.security.auth.x500.X500Principal;
+import org.apache.harmony.security.asn1.ASN1Lazy;
 import org.apache.harmony.security.asn1.ASN1SequenceOf;
 import org.apache.harmony.security.asn1.ASN1Type;
 import org.apache.harmony.security.asn1.BerInputStream;
@@ -56,8 +57,9 @@ public class Extensions {
             new String[] {"2.5.29.15", "2.5.29.19", "2.5.29.32", "2.5.29.17",
                 "2.5.29.30", "2.5.29.36", "2.5.29.37", "2.5.29.54"});
 
-    // the values of extensions of the structure
-    private List<Extension> extensions;
+    // the values of extensions of the structure, or null if they haven't
+    // been decoded from the encoding yet (see ASN1_LAZY)
+    private volatile List<Extension> extensions;
     private Set critical;
     private Set noncritical;
     // the flag showing is there any unsupported critical extension
@@ -87,10 +89,20 @@ public class Extensions {
      * @return  extensions
      */
     public List getExtensions() {
-        return extensions;
+        List<Extension> result = extensions;
+        if (result == null && encoding != null) {
+            try {
+                result = ((Extensions) ASN1.decode(encoding)).extensions;
+            } catch (IOException e) {
+                throw new AssertionError(e); // ASN1_LAZY checked the encoding
+            }
+            extensions = result;
+        }
+        return result;
     }
 
     public int size() {
+        List extensions = getExtensions();
         return (extensions == null)
                         ? 0
                         : extensions.size();
@@ -130,6 +142,7 @@ public class Extensions {
     // and non-critical extensions
     //
     private void makeOidsLists() {
+        List extensions = getExtensions();
         if (extensions == null) {
             return;
         }
@@ -156,6 +169,7 @@ public class Extensions {
      * @return  extensions
      */
     public Extension getExtensionByOID(String oid) {
+        List extensions = getExtensions();
         if (extensions == null) {
             return null;
         }
@@ -336,9 +350,11 @@ public class Extensions {
      * @return
      */
     public void addExtension(Extension extn) {
+        List extensions = getExtensions();
         encoding = null;
         if (extensions == null) {
             extensions = new ArrayList();
+            this.extensions = extensions;
         }
         extensions.add(extn);
         if (oidMap != null) {
@@ -372,20 +388,22 @@ public class Extensions {
         if (!(exts instanceof Extensions)) {
             return false;
         }
-        Extensions extns = (Extensions) exts;
+        List extensions = getExtensions();
+        List others = ((Extensions) exts).getExtensions();
         return ((extensions == null) || (extensions.size() == 0)
-                    ? ((extns.extensions == null)
-                            || (extns.extensions.size() == 0))
-                    : ((extns.extensions == null)
-                            || (extns.extensions.size() == 0))
+                    ? ((others == null)
+                            || (others.size() == 0))
+                    : ((others == null)
+                            || (others.size() == 0))
                         ? false
-                        : (extensions.containsAll(extns.extensions)
-                            && (extensions.size() == extns.extensions.size()))
+                        : (extensions.containsAll(others)
+                            && (extensions.size() == others.size()))
                 );
     }
 
     public int hashCode() {
     	int hashcode = 0;
+    	List extensions = getExtensions();
     	if (extensions != null) {
     		hashcode = extensions.hashCode();
     	}
@@ -396,6 +414,7 @@ public class Extensions {
      * Places the string representation into the StringBuffer object.
      */
     public void dumpValue(StringBuffer buffer, String prefix) {
+        List<Extension> extensions = getExtensions();
         if (extensions == null) {
             return;
         }
@@ -418,7 +437,22 @@ public class Extensions {
 
         public Collection getValues(Object object) {
             Extensions exts = (Extensions) object;
-            return (exts.extensions == null) ? new ArrayList() : exts.extensions;
+            List extensions = exts.getExtensions();
+            return (extensions == null) ? new ArrayList() : extensions;
+        }
+    };
+
+    /**
+     * Like ASN1, but the decoded extensions keep their encoding and only
+     * decode the individual extensions when first needed.
+     */
+    public static final ASN1Type ASN1_LAZY = new ASN1Lazy(ASN1,
+            new ASN1SequenceOf(Extension.ASN1_CHECKER)) {
+
+        public Object getDecodedObject(BerInputStream in) {
+            Extensions extensions = new Extensions();
+            extensions.encoding = in.getEncoded();
+            return extensions;
         }
     };
 }
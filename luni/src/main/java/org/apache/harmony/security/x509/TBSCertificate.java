@@ -297,11 +297,11 @@ public class TBSCertificate {
      */
     public static final ASN1Sequence ASN1 = new ASN1Sequence(new ASN1Type[] {
             new ASN1Explicit(0, ASN1Integer.getInstance()), ASN1Integer.getInstance(),
-            AlgorithmIdentifier.ASN1, Name.ASN1,
-            Validity.ASN1, Name.ASN1, SubjectPublicKeyInfo.ASN1,
+            AlgorithmIdentifier.ASN1, Name.ASN1_LAZY,
+            Validity.ASN1, Name.ASN1_LAZY, SubjectPublicKeyInfo.ASN1,
             new ASN1Implicit(1, ASN1BitString.getInstance()),
             new ASN1Implicit(2, ASN1BitString.getInstance()),
-            new ASN1Explicit(3, Extensions.ASN1)}) {
+            new ASN1Explicit(3, Extensions.ASN1_LAZY)}) {
         {
             setDefault(new byte[] {0}, 0);
             setOptional(7);
@@ -0,0 +1,576 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPathExpressionException;
+import org.apache.xpath.compiler.Compiler;
+import org.apache.xpath.compiler.FunctionTable;
+import org.apache.xpath.compiler.OpCodes;
+import org.apache.xpath.compiler.XPathParser;
+import org.apache.xpath.jaxp.JAXPPrefixResolver;
+import org.apache.xpath.objects.XNumber;
+import org.apache.xpath.objects.XString;
+import org.apache.xpath.patterns.NodeTest;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Evaluates the forward-only subset of XPath directly on Expat's SAX events,
+ * without building a DOM or DTM of the document. Memory use is proportional
+ * to the document depth and the size of the matched values, not to the size
+ * of the document.
+ *
+ * <p>Supported expressions are location paths made of child, descendant,
+ * descendant-or-self and self steps with name tests (including wildcards and
+ * {@code //} abbreviations), optionally ending in an attribute step.
+ * Predicates may be positional ({@code [2]}, {@code [position()=2]}), or test
+ * an attribute for presence ({@code [@id]}) or equality with a literal
+ * ({@code [@id='x']}). Anything else is rejected at compile time.
+ *
+ * <p>Matched elements are reported with their string value when they end, so
+ * nested matches are reported innermost first. Matched attributes are
+ * reported when their element starts.
+ */
+public final class StreamingXPath {
+
+    /**
+     * Receives the string values of the nodes selected by the expression.
+     */
+    public interface Handler {
+        /**
+         * @return false to stop parsing the rest of the document.
+         */
+        boolean value(String value);
+    }
+
+    private static final int MAX_STEPS = 63;
+
+    private static final int PREDICATE_POSITION = 0;
+    private static final int PREDICATE_ATTRIBUTE_EXISTS = 1;
+    private static final int PREDICATE_ATTRIBUTE_EQUALS = 2;
+
+    private static class Predicate {
+        int kind;
+        int position;
+        String namespace;
+        String localName;
+        String value;
+    }
+
+    private static class Step {
+        int axis;
+        /** True for node(), which matches any node on its axis. */
+        boolean anyNode;
+        /** Namespace URI, NodeTest.WILD or null for no namespace. */
+        String namespace;
+        /** Local name or NodeTest.WILD. */
+        String localName;
+        Predicate[] predicates;
+        boolean hasPositionPredicate;
+    }
+
+    private final String expression;
+    private final Step[] steps;
+    /** Steps on the descendant and descendant-or-self axes. */
+    private final long descendantSteps;
+    private final boolean attributeResult;
+
+    private StreamingXPath(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+        long descendants = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].axis == OpCodes.FROM_DESCENDANTS
+                    || (steps[i].axis == OpCodes.FROM_DESCENDANTS_OR_SELF
+                            && !steps[i].anyNode)) {
+                descendants |= 1L << i;
+            }
+        }
+        this.descendantSteps = descendants;
+        this.attributeResult = steps.length > 0
+                && steps[steps.length - 1].axis == OpCodes.FROM_ATTRIBUTES;
+    }
+
+    /**
+     * Compiles {@code expression} for streaming evaluation.
+     *
+     * @param namespaceContext resolves the prefixes used in the expression,
+     *     may be null if it uses none.
+     * @throws XPathExpressionException if the expression is malformed or
+     *     falls outside the streamable subset.
+     */
+    public static StreamingXPath compile(String expression,
+            NamespaceContext namespaceContext) throws XPathExpressionException {
+        try {
+            XPathParser parser = new XPathParser(null, null);
+            Compiler compiler = new Compiler(null, null, new FunctionTable());
+            parser.initXPath(compiler, expression, namespaceContext == null
+                    ? null : new JAXPPrefixResolver(namespaceContext));
+            int opPos = Compiler.getFirstChildPos(0);
+            if (compiler.getOp(0) != OpCodes.OP_XPATH
+                    || compiler.getOp(opPos) != OpCodes.OP_LOCATIONPATH) {
+                throw unsupported(expression, "not a location path");
+            }
+            return new StreamingXPath(expression,
+                    compileSteps(expression, compiler, opPos));
+        } catch (TransformerException e) {
+            throw new XPathExpressionException(e);
+        }
+    }
+
+    private static Step[] compileSteps(String expression, Compiler compiler,
+            int locationPathPos) throws XPathExpressionException, TransformerException {
+        List<Step> result = new ArrayList<Step>();
+        int stepPos = Compiler.getFirstChildPos(locationPathPos);
+        while (compiler.getOp(stepPos) != OpCodes.ENDOP) {
+            int axis = compiler.getOp(stepPos);
+            if (axis == OpCodes.FROM_ROOT) {
+                if (!result.isEmpty()) {
+                    throw unsupported(expression, "root step in the middle of a path");
+                }
+                stepPos = compiler.getNextStepPos(stepPos);
+                continue;
+            }
+            if (axis != OpCodes.FROM_CHILDREN
+                    && axis != OpCodes.FROM_DESCENDANTS
+                    && axis != OpCodes.FROM_DESCENDANTS_OR_SELF
+                    && axis != OpCodes.FROM_SELF
+                    && axis != OpCodes.FROM_ATTRIBUTES) {
+                throw unsupported(expression, "reverse or sideways axis");
+            }
+            if (!result.isEmpty()
+                    && result.get(result.size() - 1).axis == OpCodes.FROM_ATTRIBUTES) {
+                throw unsupported(expression, "step after an attribute step");
+            }
+
+            Step step = new Step();
+            step.axis = axis;
+            int testType = compiler.getStepTestType(stepPos);
+            if (testType == OpCodes.NODETYPE_NODE) {
+                step.anyNode = true;
+            } else if (testType == OpCodes.NODENAME) {
+                step.namespace = compiler.getStepNS(stepPos);
+                step.localName = compiler.getStepLocalName(stepPos);
+            } else {
+                throw unsupported(expression, "node test other than a name or node()");
+            }
+
+            List<Predicate> predicates = new ArrayList<Predicate>();
+            int predicatePos = compiler.getFirstPredicateOpPos(stepPos);
+            while (compiler.getOp(predicatePos) == OpCodes.OP_PREDICATE) {
+                Predicate predicate = compilePredicate(expression, compiler,
+                        Compiler.getFirstChildPos(predicatePos));
+                step.hasPositionPredicate |= predicate.kind == PREDICATE_POSITION;
+                predicates.add(predicate);
+                predicatePos = compiler.getNextOpPos(predicatePos);
+            }
+            step.predicates = predicates.toArray(new Predicate[predicates.size()]);
+
+            if (step.predicates.length > 0 && (axis == OpCodes.FROM_ATTRIBUTES
+                    || axis == OpCodes.FROM_SELF
+                    || axis == OpCodes.FROM_DESCENDANTS_OR_SELF)) {
+                throw unsupported(expression, "predicate on a self or attribute step");
+            }
+            if (step.anyNode && axis != OpCodes.FROM_SELF
+                    && axis != OpCodes.FROM_DESCENDANTS_OR_SELF) {
+                throw unsupported(expression, "node() on a child or descendant step");
+            }
+            result.add(step);
+            if (result.size() > MAX_STEPS) {
+                throw unsupported(expression, "too many steps");
+            }
+            stepPos = compiler.getNextStepPos(stepPos);
+            if (stepPos == OpCodes.ENDOP) {
+                break;
+            }
+        }
+        if (result.isEmpty()) {
+            throw unsupported(expression, "path selects the document node");
+        }
+        return result.toArray(new Step[result.size()]);
+    }
+
+    private static Predicate compilePredicate(String expression,
+            Compiler compiler, int opPos) throws XPathExpressionException {
+        Predicate predicate = new Predicate();
+        int op = compiler.getOp(opPos);
+        if (op == OpCodes.OP_NUMBERLIT) {
+            predicate.kind = PREDICATE_POSITION;
+            predicate.position = position(expression, compiler, opPos);
+            return predicate;
+        }
+        if (op == OpCodes.OP_LOCATIONPATH) {
+            predicate.kind = PREDICATE_ATTRIBUTE_EXISTS;
+            attributeTest(expression, compiler, opPos, predicate);
+            return predicate;
+        }
+        if (op == OpCodes.OP_EQUALS) {
+            int left = Compiler.getFirstChildPos(opPos);
+            int right = compiler.getNextOpPos(left);
+            if (compiler.getOp(left) != OpCodes.OP_LOCATIONPATH
+                    && compiler.getOp(left) != OpCodes.OP_FUNCTION) {
+                int swap = left;
+                left = right;
+                right = swap;
+            }
+            if (compiler.getOp(left) == OpCodes.OP_FUNCTION
+                    && compiler.getOp(left + 2) == FunctionTable.FUNC_POSITION
+                    && compiler.getOp(left + 3) == OpCodes.ENDOP
+                    && compiler.getOp(right) == OpCodes.OP_NUMBERLIT) {
+                predicate.kind = PREDICATE_POSITION;
+                predicate.position = position(expression, compiler, right);
+                return predicate;
+            }
+            if (compiler.getOp(left) == OpCodes.OP_LOCATIONPATH
+                    && compiler.getOp(right) == OpCodes.OP_LITERAL) {
+                predicate.kind = PREDICATE_ATTRIBUTE_EQUALS;
+                attributeTest(expression, compiler, left, predicate);
+                predicate.value = ((XString) compiler.getTokenQueue().elementAt(
+                        compiler.getOp(Compiler.getFirstChildPos(right)))).str();
+                return predicate;
+            }
+        }
+        throw unsupported(expression, "predicate");
+    }
+
+    private static int position(String expression, Compiler compiler, int opPos)
+            throws XPathExpressionException {
+        double value = ((XNumber) compiler.getTokenQueue().elementAt(
+                compiler.getOp(Compiler.getFirstChildPos(opPos)))).num();
+        if (value < 1 || value != Math.floor(value) || value > Integer.MAX_VALUE) {
+            throw unsupported(expression, "position " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a relative location path consisting of exactly one attribute
+     * step without predicates into {@code predicate}.
+     */
+    private static void attributeTest(String expression, Compiler compiler,
+            int locationPathPos, Predicate predicate) throws XPathExpressionException {
+        int stepPos = Compiler.getFirstChildPos(locationPathPos);
+        if (compiler.getOp(stepPos) != OpCodes.FROM_ATTRIBUTES
+                || compiler.getStepTestType(stepPos) != OpCodes.NODENAME
+                || compiler.getOp(compiler.getNextOpPos(stepPos)) != OpCodes.ENDOP) {
+            throw unsupported(expression, "predicate path other than a single attribute");
+        }
+        predicate.namespace = compiler.getStepNS(stepPos);
+        predicate.localName = compiler.getStepLocalName(stepPos);
+    }
+
+    private static XPathExpressionException unsupported(String expression,
+            String what) {
+        return new XPathExpressionException("Cannot stream " + what
+                + " in \"" + expression + "\"");
+    }
+
+    /**
+     * Parses {@code source} and reports the string value of every node
+     * selected by this expression to {@code handler}.
+     */
+    public void evaluate(InputSource source, Handler handler)
+            throws IOException, SAXException {
+        ExpatReader reader = new ExpatReader();
+        reader.setContentHandler(new Matcher(handler));
+        try {
+            reader.parse(source);
+        } catch (StopException e) {
+            // handler asked us to stop
+        }
+    }
+
+    /**
+     * Parses {@code source} and returns the string values of all nodes
+     * selected by this expression.
+     */
+    public List<String> evaluate(InputSource source) throws IOException, SAXException {
+        final List<String> result = new ArrayList<String>();
+        evaluate(source, new Handler() {
+            public boolean value(String value) {
+                result.add(value);
+                return true;
+            }
+        });
+        return result;
+    }
+
+    @Override public String toString() {
+        return expression;
+    }
+
+    private static boolean matches(String testNamespace, String testLocalName,
+            String uri, String localName) {
+        if (testLocalName != NodeTest.WILD && !testLocalName.equals(localName)) {
+            return false;
+        }
+        // like Xalan's NodeTest, an unprefixed * matches names in any namespace
+        if (testNamespace == NodeTest.WILD
+                || (testNamespace == null && testLocalName == NodeTest.WILD)) {
+            return true;
+        }
+        if (testNamespace == null) {
+            return uri == null || uri.length() == 0;
+        }
+        return testNamespace.equals(uri);
+    }
+
+    private static final class StopException extends SAXException {
+        StopException() {
+            super("stopped");
+        }
+    }
+
+    /**
+     * Matching state of one open element (or the document).
+     */
+    private static final class Frame {
+        /** Bit k set: this node is a context node for step k. */
+        long states;
+        /** Descendant steps for which an ancestor-or-self is a context node. */
+        long descendantStates;
+        /** Steps for which every descendant is a context node. */
+        long inheritedStates;
+        /** Per step and predicate position counters, allocated lazily. */
+        int[][] counters;
+        /** String value of this element if it is selected, otherwise null. */
+        StringBuilder value;
+
+        int[] counters(int step, int predicateCount) {
+            if (counters == null || counters.length <= step) {
+                int[][] bigger = new int[step + 1][];
+                if (counters != null) {
+                    System.arraycopy(counters, 0, bigger, 0, counters.length);
+                }
+                counters = bigger;
+            }
+            int[] result = counters[step];
+            if (result == null) {
+                result = counters[step] = new int[predicateCount];
+            }
+            return result;
+        }
+
+        void reset() {
+            states = 0;
+            descendantStates = 0;
+            inheritedStates = 0;
+            if (counters != null) {
+                for (int[] c : counters) {
+                    if (c != null) {
+                        java.util.Arrays.fill(c, 0);
+                    }
+                }
+            }
+            value = null;
+        }
+    }
+
+    private final class Matcher extends DefaultHandler {
+        private final Handler handler;
+        private Frame[] stack = new Frame[16];
+        private int depth;
+        private int openValues;
+
+        Matcher(Handler handler) {
+            this.handler = handler;
+        }
+
+        private Frame push() {
+            if (depth == stack.length) {
+                Frame[] bigger = new Frame[depth * 2];
+                System.arraycopy(stack, 0, bigger, 0, depth);
+                stack = bigger;
+            }
+            Frame frame = stack[depth];
+            if (frame == null) {
+                frame = stack[depth] = new Frame();
+            } else {
+                frame.reset();
+            }
+            depth++;
+            return frame;
+        }
+
+        @Override public void startDocument() {
+            depth = 0;
+            openValues = 0;
+            Frame document = push();
+            close(document, 1L, null, null, null);
+            document.descendantStates = document.states & descendantSteps;
+        }
+
+        @Override public void startElement(String uri, String localName,
+                String qName, Attributes attributes) throws SAXException {
+            Frame parent = stack[depth - 1];
+            long next = parent.inheritedStates;
+
+            for (int k = 0; k < steps.length; k++) {
+                long bit = 1L << k;
+                Step step = steps[k];
+                if (step.axis == OpCodes.FROM_CHILDREN && (parent.states & bit) != 0) {
+                    if (accept(step, parent, k, uri, localName, attributes)) {
+                        next |= bit << 1;
+                    }
+                } else if ((parent.descendantStates & bit) != 0) {
+                    if (!step.hasPositionPredicate) {
+                        if (accept(step, null, k, uri, localName, attributes)) {
+                            next |= bit << 1;
+                        }
+                    } else {
+                        // positions count per context node, so every
+                        // ancestor acting as a context node sees this one
+                        for (int i = depth - 1; i >= 0; i--) {
+                            if ((stack[i].states & bit) != 0
+                                    && accept(step, stack[i], k, uri, localName, attributes)) {
+                                next |= bit << 1;
+                            }
+                        }
+                    }
+                }
+            }
+
+            Frame frame = push();
+            frame.inheritedStates = parent.inheritedStates;
+            close(frame, next, uri, localName, attributes);
+            frame.descendantStates = parent.descendantStates
+                    | (frame.states & descendantSteps);
+
+            int selected = steps.length;
+            if (attributeResult) {
+                if ((frame.states & (1L << (selected - 1))) != 0) {
+                    Step step = steps[selected - 1];
+                    for (int i = 0; i < attributes.getLength(); i++) {
+                        if (matches(step.namespace, step.localName,
+                                attributes.getURI(i), attributes.getLocalName(i))) {
+                            report(attributes.getValue(i));
+                        }
+                    }
+                }
+            } else if ((frame.states & (1L << selected)) != 0) {
+                frame.value = new StringBuilder();
+                openValues++;
+            }
+        }
+
+        /**
+         * Adds {@code states} to {@code frame} and follows the self and
+         * descendant-or-self steps they enable.
+         */
+        private void close(Frame frame, long states, String uri,
+                String localName, Attributes attributes) {
+            for (int k = 0; k < steps.length; k++) {
+                long bit = 1L << k;
+                if ((states & bit) == 0) {
+                    continue;
+                }
+                Step step = steps[k];
+                if (step.axis == OpCodes.FROM_SELF
+                        || step.axis == OpCodes.FROM_DESCENDANTS_OR_SELF) {
+                    boolean self = step.anyNode || (localName != null
+                            && matches(step.namespace, step.localName, uri, localName));
+                    if (self) {
+                        states |= bit << 1;
+                    }
+                    if (step.anyNode && step.axis == OpCodes.FROM_DESCENDANTS_OR_SELF) {
+                        frame.inheritedStates |= bit << 1;
+                    }
+                }
+            }
+            frame.states = states;
+        }
+
+        private boolean accept(Step step, Frame context, int k, String uri,
+                String localName, Attributes attributes) {
+            if (!matches(step.namespace, step.localName, uri, localName)) {
+                return false;
+            }
+            Predicate[] predicates = step.predicates;
+            int[] counters = null;
+            for (int p = 0; p < predicates.length; p++) {
+                Predicate predicate = predicates[p];
+                switch (predicate.kind) {
+                    case PREDICATE_POSITION:
+                        if (counters == null) {
+                            counters = context.counters(k, predicates.length);
+                        }
+                        if (++counters[p] != predicate.position) {
+                            return false;
+                        }
+                        break;
+                    case PREDICATE_ATTRIBUTE_EXISTS:
+                        if (attribute(predicate, attributes) == null) {
+                            return false;
+                        }
+                        break;
+                    case PREDICATE_ATTRIBUTE_EQUALS:
+                        if (!predicate.value.equals(attribute(predicate, attributes))) {
+                            return false;
+                        }
+                        break;
+                }
+            }
+            return true;
+        }
+
+        private String attribute(Predicate predicate, Attributes attributes) {
+            for (int i = 0; i < attributes.getLength(); i++) {
+                if (matches(predicate.namespace, predicate.localName,
+                        attributes.getURI(i), attributes.getLocalName(i))) {
+                    return attributes.getValue(i);
+                }
+            }
+            return null;
+        }
+
+        @Override public void characters(char[] ch, int start, int length) {
+            if (openValues == 0) {
+                return;
+            }
+            for (int i = depth - 1; i > 0; i--) {
+                StringBuilder value = stack[i].value;
+                if (value != null) {
+                    value.append(ch, start, length);
+                }
+            }
+        }
+
+        @Override public void endElement(String uri, String localName,
+                String qName) throws SAXException {
+            Frame frame = stack[--depth];
+            if (frame.value != null) {
+                openValues--;
+                String value = frame.value.toString();
+                frame.value = null;
+                report(value);
+            }
+        }
+
+        private void report(String value) throws SAXException {
+            if (!handler.value(value)) {
+                throw new StopException();
+            }
+        }
+    }
+}
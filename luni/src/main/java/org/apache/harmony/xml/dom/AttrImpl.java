@@ -124,10 +124,16 @@ public final class AttrImpl extends NodeImpl implements Attr {
     @Override
     public void setPrefix(String prefix) {
         this.prefix = validatePrefix(prefix, namespaceAware, namespaceURI);
+        if (ownerElement != null) {
+            documentModified();
+        }
     }
 
     public void setValue(String value) throws DOMException {
         this.value = value;
+        if (ownerElement != null) {
+            documentModified();
+        }
     }
 
     public TypeInfo getSchemaTypeInfo() {
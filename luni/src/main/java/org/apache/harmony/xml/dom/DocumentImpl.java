@@ -16,8 +16,10 @@
 
 package org.apache.harmony.xml.dom;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 import org.w3c.dom.Attr;
@@ -74,6 +76,24 @@ public final class DocumentImpl extends InnerNodeImpl implements Document {
      */
     private WeakHashMap<NodeImpl, Map<String, UserData>> nodeToUserData;
 
+    /**
+     * Incremented whenever the element structure, an element name or an
+     * attribute of this document changes. Live node lists compare against it
+     * to decide whether their contents are stale.
+     */
+    private int modCount;
+
+    /*
+     * Lazily built indexes of the elements in this document, in document
+     * order. All are discarded by modified() and rebuilt on the next lookup,
+     * so a sequence of queries without intervening changes walks the tree
+     * once rather than once per query.
+     */
+    private List<ElementImpl> allElements;
+    private Map<String, List<ElementImpl>> elementsByName;
+    private Map<String, List<ElementImpl>> elementsByLocalName;
+    private Map<String, ElementImpl> elementsById;
+
     public DocumentImpl(DOMImplementationImpl impl, String namespaceURI,
             String qualifiedName, DocumentType doctype, String inputEncoding) {
         super(null);
@@ -266,7 +286,12 @@ public final class DocumentImpl extends InnerNodeImpl implements Document {
             parent.removeChild(nodeImpl);
         }
 
+        DocumentImpl previousDocument = nodeImpl.document;
         changeDocumentToThis(nodeImpl);
+        if (previousDocument != null) {
+            previousDocument.modified();
+        }
+        modified();
         notifyUserDataHandlers(UserDataHandler.NODE_ADOPTED, node, null);
         return nodeImpl;
     }
@@ -369,23 +394,98 @@ public final class DocumentImpl extends InnerNodeImpl implements Document {
     }
 
     public Element getElementById(String elementId) {
-        ElementImpl root = (ElementImpl) getDocumentElement();
+        if (elementsById == null) {
+            elementsById = new HashMap<String, ElementImpl>();
+            ElementImpl root = (ElementImpl) getDocumentElement();
+            if (root != null) {
+                root.indexIds(elementsById);
+            }
+        }
 
-        return (root == null ? null : root.getElementById(elementId));
+        return elementsById.get(elementId);
     }
 
     public NodeList getElementsByTagName(String tagname) {
-        ElementImpl root = (ElementImpl) getDocumentElement();
-
-        return (root == null ? new NodeListImpl()
-                : root.getElementsByTagName(tagname));
+        return new ElementListImpl(this, false, null, tagname);
     }
 
     public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
-        ElementImpl root = (ElementImpl) getDocumentElement();
+        return new ElementListImpl(this, true, namespaceURI, localName);
+    }
+
+    /**
+     * Called by the nodes of this document whenever something changes that
+     * may affect getElementsByTagName() or getElementById().
+     */
+    void modified() {
+        modCount++;
+        allElements = null;
+        elementsByName = null;
+        elementsByLocalName = null;
+        elementsById = null;
+    }
+
+    int getModCount() {
+        return modCount;
+    }
+
+    private List<ElementImpl> getAllElements() {
+        if (allElements == null) {
+            allElements = new ArrayList<ElementImpl>();
+            ElementImpl root = (ElementImpl) getDocumentElement();
+            if (root != null) {
+                root.getElements(allElements);
+            }
+        }
+        return allElements;
+    }
+
+    /**
+     * Returns the elements whose node name is {@code name}, or all elements
+     * if it is "*". The returned list must not be modified.
+     */
+    List<ElementImpl> getElementsByName(String name) {
+        if ("*".equals(name)) {
+            return getAllElements();
+        }
+
+        if (elementsByName == null) {
+            elementsByName = indexBy(false);
+        }
+        return orEmpty(elementsByName.get(name));
+    }
+
+    /**
+     * Returns the elements whose local name is {@code localName}, or all
+     * elements if it is "*". The returned list must not be modified.
+     */
+    List<ElementImpl> getElementsByLocalName(String localName) {
+        if ("*".equals(localName)) {
+            return getAllElements();
+        }
+
+        if (elementsByLocalName == null) {
+            elementsByLocalName = indexBy(true);
+        }
+        return orEmpty(elementsByLocalName.get(localName));
+    }
+
+    private Map<String, List<ElementImpl>> indexBy(boolean localName) {
+        Map<String, List<ElementImpl>> index = new HashMap<String, List<ElementImpl>>();
+        for (ElementImpl element : getAllElements()) {
+            String key = localName ? element.getLocalName() : element.getNodeName();
+            List<ElementImpl> elements = index.get(key);
+            if (elements == null) {
+                elements = new ArrayList<ElementImpl>();
+                index.put(key, elements);
+            }
+            elements.add(element);
+        }
+        return index;
+    }
 
-        return (root == null ? new NodeListImpl() : root.getElementsByTagNameNS(
-                namespaceURI, localName));
+    private static List<ElementImpl> orEmpty(List<ElementImpl> elements) {
+        return elements != null ? elements : Collections.<ElementImpl>emptyList();
     }
 
     public DOMImplementation getImplementation() {
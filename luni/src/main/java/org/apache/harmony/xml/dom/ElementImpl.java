@@ -18,6 +18,7 @@ package org.apache.harmony.xml.dom;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Element;
@@ -140,14 +141,14 @@ public class ElementImpl extends InnerNodeImpl implements Element {
     }
 
     /**
-     * This implementation walks the entire document looking for an element
-     * with the given ID attribute. We should consider adding an index to speed
-     * navigation of large documents.
+     * Adds the IDs of this element and its descendants to the given index,
+     * which DocumentImpl uses to answer getElementById(). IDs already in the
+     * index, being from elements earlier in document order, win.
      */
-    Element getElementById(String name) {
+    void indexIds(Map<String, ElementImpl> index) {
         for (Attr attr : attributes) {
-            if (attr.isId() && name.equals(attr.getValue())) {
-                return this;
+            if (attr.isId() && !index.containsKey(attr.getValue())) {
+                index.put(attr.getValue(), this);
             }
         }
 
@@ -157,29 +158,37 @@ public class ElementImpl extends InnerNodeImpl implements Element {
          * Document.getElementById(): "Attributes with the name "ID"
          * or "id" are not of type ID unless so defined.
          */
-        if (name.equals(getAttribute("id"))) {
-            return this;
+        Attr id = getAttributeNode("id");
+        if (id != null && !index.containsKey(id.getValue())) {
+            index.put(id.getValue(), this);
         }
 
         for (NodeImpl node : children) {
             if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = ((ElementImpl) node).getElementById(name);
-                if (element != null) {
-                    return element;
-                }
+                ((ElementImpl) node).indexIds(index);
             }
         }
+    }
+
+    /**
+     * Adds this element and its descendant elements to the given list, in
+     * document order.
+     */
+    void getElements(List<ElementImpl> list) {
+        list.add(this);
 
-        return null;
+        for (NodeImpl node : children) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                ((ElementImpl) node).getElements(list);
+            }
+        }
     }
 
     public NodeList getElementsByTagName(String name) {
-        NodeListImpl list = new NodeListImpl();
-        getElementsByTagName(list, name);
-        return list;
+        return new ElementListImpl(this, false, null, name);
     }
 
-    void getElementsByTagName(NodeListImpl list, String name) {
+    void getElementsByTagName(List<ElementImpl> list, String name) {
         if (matchesName(name, true)) {
             list.add(this);
         }
@@ -192,12 +201,10 @@ public class ElementImpl extends InnerNodeImpl implements Element {
     }
 
     public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
-        NodeListImpl list = new NodeListImpl();
-        getElementsByTagNameNS(list, namespaceURI, localName);
-        return list;
+        return new ElementListImpl(this, true, namespaceURI, localName);
     }
 
-    void getElementsByTagNameNS(NodeListImpl list, String namespaceURI,
+    void getElementsByTagNameNS(List<ElementImpl> list, String namespaceURI,
             String localName) {
         if (matchesNameNS(namespaceURI, localName, true)) {
             list.add(this);
@@ -259,6 +266,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
 
         if (i != -1) {
             attributes.remove(i);
+            documentModified();
         }
     }
 
@@ -268,6 +276,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
 
         if (i != -1) {
             attributes.remove(i);
+            documentModified();
         }
     }
 
@@ -280,6 +289,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
 
         attributes.remove(oldAttrImpl);
         oldAttrImpl.ownerElement = null;
+        documentModified();
 
         return oldAttrImpl;
     }
@@ -328,6 +338,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
 
         attributes.add(newAttrImpl);
         newAttrImpl.ownerElement = this;
+        documentModified();
 
         return oldAttrImpl;
     }
@@ -353,6 +364,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
 
         attributes.add(newAttrImpl);
         newAttrImpl.ownerElement = this;
+        documentModified();
 
         return oldAttrImpl;
     }
@@ -360,6 +372,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
     @Override
     public void setPrefix(String prefix) {
         this.prefix = validatePrefix(prefix, namespaceAware, namespaceURI);
+        documentModified();
     }
 
     public class ElementAttrNamedNodeMapImpl implements NamedNodeMap {
@@ -395,6 +408,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
                 throw new DOMException(DOMException.NOT_FOUND_ERR, null);
             }
 
+            documentModified();
             return ElementImpl.this.attributes.remove(i);
         }
 
@@ -406,6 +420,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
                 throw new DOMException(DOMException.NOT_FOUND_ERR, null);
             }
 
+            documentModified();
             return ElementImpl.this.attributes.remove(i);
         }
 
@@ -438,6 +453,7 @@ public class ElementImpl extends InnerNodeImpl implements Element {
                     "No such attribute: " + name);
         }
         attr.isId = isId;
+        documentModified();
     }
 
     public void setIdAttributeNS(String namespaceURI, String localName,
@@ -448,9 +464,11 @@ public class ElementImpl extends InnerNodeImpl implements Element {
                     "No such attribute: " + namespaceURI +  " " + localName);
         }
         attr.isId = isId;
+        documentModified();
     }
 
     public void setIdAttributeNode(Attr idAttr, boolean isId) throws DOMException {
         ((AttrImpl) idAttr).isId = isId;
+        documentModified();
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xml.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The live node list returned by getElementsByTagName() and
+ * getElementsByTagNameNS(). The matching elements are computed on first
+ * access and kept until the root's owner document is next modified, or
+ * until the root is adopted by another document.
+ *
+ * <p>Lists rooted at the document are answered from the document's element
+ * indexes; lists rooted at an element walk that element's subtree.
+ */
+final class ElementListImpl implements NodeList {
+
+    private final InnerNodeImpl root;
+    private final boolean namespaced;
+    private final String namespaceURI;
+    private final String name;
+
+    private List<ElementImpl> elements;
+    private DocumentImpl document;
+    private int modCount;
+
+    /**
+     * @param root the document or element whose subtree is searched.
+     * @param namespaced true to match namespaceURI and the local name, false
+     *     to match the node name only.
+     */
+    ElementListImpl(InnerNodeImpl root, boolean namespaced, String namespaceURI,
+            String name) {
+        this.root = root;
+        this.namespaced = namespaced;
+        this.namespaceURI = namespaceURI;
+        this.name = name;
+    }
+
+    public int getLength() {
+        return elements().size();
+    }
+
+    public Node item(int index) {
+        List<ElementImpl> elements = elements();
+        if (index < 0 || index >= elements.size()) {
+            return null;
+        } else {
+            return elements.get(index);
+        }
+    }
+
+    private List<ElementImpl> elements() {
+        // the root may have been adopted since the elements were computed
+        DocumentImpl document = root.document;
+        if (elements == null || this.document != document
+                || modCount != document.getModCount()) {
+            this.document = document;
+            modCount = document.getModCount();
+            elements = (root == document) ? fromIndex(document) : fromSubtree();
+        }
+        return elements;
+    }
+
+    private List<ElementImpl> fromIndex(DocumentImpl document) {
+        if (!namespaced) {
+            return document.getElementsByName(name);
+        }
+
+        List<ElementImpl> candidates = document.getElementsByLocalName(name);
+        if ("*".equals(namespaceURI)) {
+            return candidates;
+        }
+
+        List<ElementImpl> result = new ArrayList<ElementImpl>();
+        for (ElementImpl element : candidates) {
+            if (element.matchesNameNS(namespaceURI, name, true)) {
+                result.add(element);
+            }
+        }
+        return result.isEmpty() ? Collections.<ElementImpl>emptyList() : result;
+    }
+
+    private List<ElementImpl> fromSubtree() {
+        List<ElementImpl> result = new ArrayList<ElementImpl>();
+        ElementImpl element = (ElementImpl) root;
+        if (namespaced) {
+            element.getElementsByTagNameNS(result, namespaceURI, name);
+        } else {
+            element.getElementsByTagName(result, name);
+        }
+        return result;
+    }
+}
@@ -128,6 +128,9 @@ public abstract class InnerNodeImpl extends LeafNodeImpl {
         children.add(index, newChildImpl);
         newChildImpl.parent = this;
         refreshIndices(index);
+        if (newChildImpl instanceof InnerNodeImpl) {
+            documentModified();
+        }
 
         return newChild;
     }
@@ -184,6 +187,9 @@ public abstract class InnerNodeImpl extends LeafNodeImpl {
         children.remove(index);
         oldChildImpl.parent = null;
         refreshIndices(index);
+        if (oldChildImpl instanceof InnerNodeImpl) {
+            documentModified();
+        }
 
         return oldChild;
     }
@@ -206,6 +212,10 @@ public abstract class InnerNodeImpl extends LeafNodeImpl {
         oldChildImpl.parent = null;
         newChildImpl.parent = this;
         refreshIndices(index);
+        if (oldChildImpl instanceof InnerNodeImpl
+                || newChildImpl instanceof InnerNodeImpl) {
+            documentModified();
+        }
 
         return oldChildImpl;
     }
@@ -250,6 +250,9 @@ public abstract class NodeImpl implements Node {
                 attr.namespaceURI = namespaceURI;
                 attr.prefix = prefix;
                 attr.localName = qualifiedName;
+                if (attr.ownerElement != null) {
+                    attr.documentModified();
+                }
                 break;
 
             case ELEMENT_NODE:
@@ -258,6 +261,7 @@ public abstract class NodeImpl implements Node {
                 element.namespaceURI = namespaceURI;
                 element.prefix = prefix;
                 element.localName = qualifiedName;
+                element.documentModified();
                 break;
 
             default:
@@ -312,6 +316,17 @@ public abstract class NodeImpl implements Node {
         return matchesName(namespaceURI, getNamespaceURI(), wildcard) && matchesName(localName, getLocalName(), wildcard);
     }
 
+    /**
+     * Invalidates the live node lists and element indexes of this node's
+     * owner document. Call this after any change that may affect the result
+     * of getElementsByTagName() or getElementById().
+     */
+    final void documentModified() {
+        if (document != null) {
+            document.modified();
+        }
+    }
+
     public final String getBaseURI() {
         switch (getNodeType()) {
             case DOCUMENT_NODE:
@@ -23,12 +23,16 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSessionContext;
@@ -36,6 +40,15 @@ import org.apache.harmony.security.provider.cert.X509CertImpl;
 
 /**
  * Supports SSL session caches.
+ *
+ * <p>Sessions are kept in {@link #SHARD_COUNT} shards, each with its own
+ * lock and chosen by the hash of the session ID, so that lookups on
+ * different connections rarely contend. Each shard keeps its sessions in
+ * insertion order and publishes the age of its oldest session, so that when
+ * the cache is over its maximum size the oldest session of all the shards
+ * can be found without taking every shard's lock. Expired sessions are
+ * removed when they are looked up, and from the old end of a shard when a
+ * session is added to it.
  */
 abstract class AbstractSessionContext implements SSLSessionContext {
 
@@ -47,14 +60,87 @@ abstract class AbstractSessionContext implements SSLSessionContext {
     /** Identifies OpenSSL sessions. */
     static final int OPEN_SSL = 1;
 
-    private final Map<ByteArray, SSLSession> sessions
-            = new LinkedHashMap<ByteArray, SSLSession>() {
-        @Override
-        protected boolean removeEldestEntry(
-                Map.Entry<ByteArray, SSLSession> eldest) {
-            return maximumSize > 0 && size() > maximumSize;
+    /** Number of independently locked parts of the cache; a power of two. */
+    private static final int SHARD_COUNT = 16;
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+
+    /**
+     * Number of sessions in all the shards, less those that a thread has
+     * claimed for eviction but not yet removed.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Orders sessions across shards by the time they were added. */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * A cached session and the order in which it was added.
+     */
+    private static final class CacheEntry {
+        final SSLSession session;
+        final long sequence;
+
+        CacheEntry(SSLSession session, long sequence) {
+            this.session = session;
+            this.sequence = sequence;
         }
-    };
+    }
+
+    /**
+     * Part of the cache, in insertion order. Guarded by its own lock, except
+     * for {@link #oldestSequence}.
+     */
+    @SuppressWarnings("serial")
+    private static final class Shard extends LinkedHashMap<ByteArray, CacheEntry> {
+        /**
+         * The sequence of the oldest entry, or Long.MAX_VALUE if the shard is
+         * empty. Written with the lock held, after every change to the shard,
+         * and read without it.
+         */
+        volatile long oldestSequence = Long.MAX_VALUE;
+
+        /**
+         * Returns the oldest entry in this shard, or null if it is empty.
+         */
+        CacheEntry oldest() {
+            return isEmpty() ? null : values().iterator().next();
+        }
+
+        /**
+         * Publishes the sequence of the oldest entry. Called with the lock
+         * held after the shard changes.
+         */
+        void updateOldest() {
+            CacheEntry oldest = oldest();
+            oldestSequence = (oldest != null) ? oldest.sequence : Long.MAX_VALUE;
+        }
+
+        /**
+         * Removes the invalid sessions at the old end of this shard, and
+         * returns them, or null if there were none.
+         */
+        List<SSLSession> removeExpiredOldest() {
+            List<SSLSession> removed = null;
+            Iterator<CacheEntry> i = values().iterator();
+            while (i.hasNext()) {
+                SSLSession session = i.next().session;
+                if (session.isValid()) {
+                    break;
+                }
+                i.remove();
+                if (removed == null) {
+                    removed = new ArrayList<SSLSession>();
+                }
+                removed.add(session);
+            }
+            return removed;
+        }
+    }
 
     /**
      * Constructs a new session context.
@@ -65,36 +151,43 @@ abstract class AbstractSessionContext implements SSLSessionContext {
     AbstractSessionContext(int maximumSize, int timeout) {
         this.maximumSize = maximumSize;
         this.timeout = timeout;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
     }
 
-    /**
-     * Returns the collection of sessions ordered from oldest to newest
-     */
-    private Iterator<SSLSession> sessionIterator() {
-        synchronized (sessions) {
-            SSLSession[] array = sessions.values().toArray(
-                    new SSLSession[sessions.size()]);
-            return Arrays.asList(array).iterator();
-        }
+    private Shard shardFor(ByteArray key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return shards[hash & (SHARD_COUNT - 1)];
     }
 
     public final Enumeration getIds() {
-        final Iterator<SSLSession> i = sessionIterator();
+        // Copies one shard at a time, rather than the whole cache up front.
         return new Enumeration<byte[]>() {
+            private int nextShard;
+            private Iterator<CacheEntry> i = Collections.<CacheEntry>emptyList().iterator();
             private SSLSession next;
             public boolean hasMoreElements() {
                 if (next != null) {
                     return true;
                 }
-                while (i.hasNext()) {
-                    SSLSession session = i.next();
-                    if (session.isValid()) {
-                        next = session;
-                        return true;
+                while (true) {
+                    while (i.hasNext()) {
+                        SSLSession session = i.next().session;
+                        if (session.isValid()) {
+                            next = session;
+                            return true;
+                        }
+                    }
+                    if (nextShard == SHARD_COUNT) {
+                        return false;
+                    }
+                    Shard shard = shards[nextShard++];
+                    synchronized (shard) {
+                        i = new ArrayList<CacheEntry>(shard.values()).iterator();
                     }
                 }
-                next = null;
-                return false;
             }
             public byte[] nextElement() {
                 if (hasMoreElements()) {
@@ -116,20 +209,96 @@ abstract class AbstractSessionContext implements SSLSessionContext {
     }
 
     /**
-     * Makes sure cache size is < maximumSize.
+     * Returns the number of lookups by session ID, or by host and port for
+     * client sessions, that found a valid session in memory.
+     */
+    public final long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no valid session in memory,
+     * whether or not one was then loaded from the persistent cache.
+     */
+    public final long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of sessions removed because they were no longer
+     * valid, as opposed to evicted to keep the cache within its size.
+     */
+    public final long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    void countHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void countMiss() {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     * Makes sure cache size is <= maximumSize, evicting the oldest sessions.
+     * A maximum size of 0 means there is no limit.
+     *
+     * <p>Each eviction is claimed by decrementing the size first, so threads
+     * trimming at the same time evict only as many sessions as the cache is
+     * over by between them.
      */
     protected void trimToSize() {
-        synchronized (sessions) {
-            int size = sessions.size();
-            if (size > maximumSize) {
-                int removals = size - maximumSize;
-                Iterator<SSLSession> i = sessions.values().iterator();
-                do {
-                    SSLSession session = i.next();
-                    i.remove();
-                    sessionRemoved(session);
-                } while (--removals > 0);
+        while (true) {
+            int maximum = maximumSize;
+            int current = size.get();
+            if (maximum <= 0 || current <= maximum) {
+                return;
+            }
+            if (!size.compareAndSet(current, current - 1)) {
+                continue;
+            }
+            if (!removeOldest()) {
+                // Nothing to evict after all; give the claim back.
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest session of all the shards, for which the caller has
+     * already decremented the size. Returns false if the cache is empty.
+     */
+    private boolean removeOldest() {
+        while (true) {
+            Shard oldestShard = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (Shard shard : shards) {
+                long sequence = shard.oldestSequence;
+                if (sequence < oldestSequence) {
+                    oldestShard = shard;
+                    oldestSequence = sequence;
+                }
             }
+            if (oldestShard == null) {
+                return false;
+            }
+            SSLSession session;
+            synchronized (oldestShard) {
+                CacheEntry entry = oldestShard.oldest();
+                if (entry == null || entry.sequence != oldestSequence) {
+                    // Another thread changed the shard since we looked.
+                    continue;
+                }
+                Iterator<CacheEntry> i = oldestShard.values().iterator();
+                i.next();
+                i.remove();
+                oldestShard.updateOldest();
+                session = entry.session;
+            }
+            sessionRemoved(session);
+            return true;
         }
     }
 
@@ -140,20 +309,62 @@ abstract class AbstractSessionContext implements SSLSessionContext {
         }
         timeout = seconds;
 
-        synchronized (sessions) {
-            Iterator<SSLSession> i = sessions.values().iterator();
-            while (i.hasNext()) {
-                SSLSession session = i.next();
-                // SSLSession's know their context and consult the
-                // timeout as part of their validity condition.
-                if (!session.isValid()) {
-                    i.remove();
-                    sessionRemoved(session);
+        for (Shard shard : shards) {
+            List<SSLSession> removed = new ArrayList<SSLSession>();
+            synchronized (shard) {
+                Iterator<CacheEntry> i = shard.values().iterator();
+                while (i.hasNext()) {
+                    SSLSession session = i.next().session;
+                    // SSLSession's know their context and consult the
+                    // timeout as part of their validity condition.
+                    if (!session.isValid()) {
+                        i.remove();
+                        removed.add(session);
+                    }
                 }
+                shard.updateOldest();
             }
+            expired(removed);
         }
     }
 
+    /**
+     * Accounts for sessions that were removed from a shard because they are
+     * no longer valid.
+     */
+    private void expired(List<SSLSession> removed) {
+        if (removed == null) {
+            return;
+        }
+        for (SSLSession session : removed) {
+            size.decrementAndGet();
+            expiredCount.incrementAndGet();
+            sessionRemoved(session);
+        }
+    }
+
+    /**
+     * Removes {@code session}, which is no longer valid, if it is still
+     * cached under its ID.
+     */
+    void expireSession(SSLSession session) {
+        byte[] id = session.getId();
+        if (id == null || id.length == 0) {
+            return;
+        }
+        ByteArray key = new ByteArray(id);
+        Shard shard = shardFor(key);
+        synchronized (shard) {
+            CacheEntry entry = shard.get(key);
+            if (entry == null || entry.session != session) {
+                return;
+            }
+            shard.remove(key);
+            shard.updateOldest();
+        }
+        expired(Collections.singletonList(session));
+    }
+
     /**
      * Called when a session is removed. Used by ClientSessionContext
      * to update its host-and-port based cache.
@@ -170,7 +381,7 @@ abstract class AbstractSessionContext implements SSLSessionContext {
         maximumSize = size;
 
         // Trim cache to size if necessary.
-        if (size < oldMaximum) {
+        if (size > 0 && (oldMaximum == 0 || size < oldMaximum)) {
             trimToSize();
         }
     }
@@ -259,13 +470,19 @@ abstract class AbstractSessionContext implements SSLSessionContext {
             throw new NullPointerException("sessionId == null");
         }
         ByteArray key = new ByteArray(sessionId);
-        SSLSession session;
-        synchronized (sessions) {
-            session = sessions.get(key);
+        CacheEntry entry;
+        Shard shard = shardFor(key);
+        synchronized (shard) {
+            entry = shard.get(key);
         }
-        if (session != null && session.isValid()) {
-            return session;
+        if (entry != null) {
+            if (entry.session.isValid()) {
+                countHit();
+                return entry.session;
+            }
+            expireSession(entry.session);
         }
+        countMiss();
         return null;
     }
 
@@ -275,9 +492,22 @@ abstract class AbstractSessionContext implements SSLSessionContext {
             return;
         }
         ByteArray key = new ByteArray(id);
-        synchronized (sessions) {
-            sessions.put(key, session);
+        Shard shard = shardFor(key);
+        CacheEntry entry = new CacheEntry(session, nextSequence.getAndIncrement());
+        CacheEntry old;
+        List<SSLSession> removed;
+        synchronized (shard) {
+            // Remove first, so that the session moves to the new end.
+            old = shard.remove(key);
+            shard.put(key, entry);
+            removed = shard.removeExpiredOldest();
+            shard.updateOldest();
+        }
+        if (old == null) {
+            size.incrementAndGet();
         }
+        expired(removed);
+        trimToSize();
     }
 
     static void log(Throwable t) {
@@ -299,14 +529,16 @@ abstract class AbstractSessionContext implements SSLSessionContext {
     static class ByteArray {
 
         private final byte[] bytes;
+        private final int hashCode;
 
         ByteArray(byte[] bytes) {
             this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
         }
 
         @Override
         public int hashCode() {
-            return Arrays.hashCode(bytes);
+            return hashCode;
         }
 
         @Override
@@ -16,8 +16,7 @@
 
 package org.apache.harmony.xnet.provider.jsse;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.net.ssl.SSLSession;
 
 /**
@@ -27,11 +26,10 @@ import javax.net.ssl.SSLSession;
 public class ClientSessionContext extends AbstractSessionContext {
 
     /**
-     * Sessions indexed by host and port. Protect from concurrent
-     * access by holding a lock on sessionsByHostAndPort.
+     * Sessions indexed by host and port.
      */
-    final Map<HostAndPort, SSLSession> sessionsByHostAndPort
-        = new HashMap<HostAndPort, SSLSession>();
+    final ConcurrentHashMap<HostAndPort, SSLSession> sessionsByHostAndPort
+        = new ConcurrentHashMap<HostAndPort, SSLSession>();
 
     private SSLClientSessionCache persistentCache;
 
@@ -49,10 +47,8 @@ public class ClientSessionContext extends AbstractSessionContext {
         if (host == null) {
             return;
         }
-        HostAndPort hostAndPortKey = new HostAndPort(host, port);
-        synchronized (sessionsByHostAndPort) {
-            sessionsByHostAndPort.remove(hostAndPortKey);
-        }
+        // Leave the entry alone if a newer session has replaced it.
+        sessionsByHostAndPort.remove(new HostAndPort(host, port), session);
     }
 
     /**
@@ -66,14 +62,17 @@ public class ClientSessionContext extends AbstractSessionContext {
         if (host == null) {
             return null;
         }
-        SSLSession session;
         HostAndPort hostAndPortKey = new HostAndPort(host, port);
-        synchronized (sessionsByHostAndPort) {
-            session = sessionsByHostAndPort.get(hostAndPortKey);
-        }
-        if (session != null && session.isValid()) {
-            return session;
+        SSLSession session = sessionsByHostAndPort.get(hostAndPortKey);
+        if (session != null) {
+            if (session.isValid()) {
+                countHit();
+                return session;
+            }
+            sessionsByHostAndPort.remove(hostAndPortKey, session);
+            expireSession(session);
         }
+        countMiss();
 
         // Look in persistent cache.
         if (persistentCache != null) {
@@ -82,9 +81,7 @@ public class ClientSessionContext extends AbstractSessionContext {
                 session = toSession(data, host, port);
                 if (session != null && session.isValid()) {
                     super.putSession(session);
-                    synchronized (sessionsByHostAndPort) {
-                        sessionsByHostAndPort.put(hostAndPortKey, session);
-                    }
+                    sessionsByHostAndPort.put(hostAndPortKey, session);
                     return session;
                 }
             }
@@ -103,10 +100,7 @@ public class ClientSessionContext extends AbstractSessionContext {
             return;
         }
 
-        HostAndPort hostAndPortKey = new HostAndPort(host, port);
-        synchronized (sessionsByHostAndPort) {
-            sessionsByHostAndPort.put(hostAndPortKey, session);
-        }
+        sessionsByHostAndPort.put(new HostAndPort(host, port), session);
 
         // TODO: This in a background thread.
         if (persistentCache != null) {
@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xnet.provider.jsse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import javax.net.ssl.SSLSession;
+import org.apache.harmony.nio.MappedByteBufferUtil;
+
+/**
+ * Cache implementation backed by a single memory-mapped, append-only log
+ * file. Only one process should access the underlying file at a time.
+ *
+ * <p>Unlike {@link FileClientSessionCache}, which keeps one file per host
+ * and port, this cache reads the log once when it is opened and keeps an
+ * index of where each host and port's latest session data lives. A cache
+ * hit copies the data out of the mapping; it doesn't open or read a file.
+ * Storing session data appends a record to the mapping.
+ *
+ * <p>Replaced and evicted records stay in the log until it is compacted:
+ * the live records are rewritten to a new file, which then replaces the
+ * log. This happens on a background thread once at least half of the log
+ * is dead, or on the calling thread when a record doesn't fit.
+ */
+public class MappedClientSessionCache {
+
+    /** Maximum number of hosts and ports with cached sessions. */
+    static final int MAX_SIZE = 64;
+
+    static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /** Compaction isn't worth scheduling for less dead data than this. */
+    static final int MIN_DEAD_BYTES = 16 * 1024;
+
+    /** "SSLC" followed by the format version. */
+    static final int MAGIC = 0x53534c43;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    static final java.util.logging.Logger logger
+            = java.util.logging.Logger.getLogger(
+                    MappedClientSessionCache.class.getName());
+
+    private MappedClientSessionCache() {}
+
+    /**
+     * The log is a header followed by records. Each record is:
+     *
+     * <pre>
+     *   int    length of the rest of the record
+     *   int    port
+     *   short  length of the host name
+     *   byte[] host name, UTF-8
+     *   byte[] session data, to the end of the record
+     * </pre>
+     *
+     * <p>The length is written after the rest of the record, and a zero
+     * length marks the end of the log, so a record torn by a crash is
+     * ignored when the log is next read.
+     */
+    static class Impl implements SSLClientSessionCache {
+
+        /** The log file. */
+        final File file;
+
+        private RandomAccessFile randomAccessFile;
+        private MappedByteBuffer buffer;
+
+        /** Offset at which the next record will be written. */
+        private int end;
+
+        /** Bytes of records that have been replaced or evicted. */
+        private int deadBytes;
+
+        private boolean compactionScheduled;
+
+        /**
+         * Map of "host.port" -> latest record. Keeps track of the order
+         * sessions were accessed in, and evicts the least recently used
+         * when there are more than MAX_SIZE.
+         */
+        private final LinkedHashMap<String, Record> index
+                = new LinkedHashMap<String, Record>(MAX_SIZE, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(
+                    Map.Entry<String, Record> eldest) {
+                if (size() > MAX_SIZE) {
+                    deadBytes += eldest.getValue().size();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        /** Where a record lives in the log. */
+        static class Record {
+            final String host;
+            final int port;
+            final int offset;
+            final int dataOffset;
+            final int dataLength;
+
+            Record(String host, int port, int offset, int dataOffset, int dataLength) {
+                this.host = host;
+                this.port = port;
+                this.offset = offset;
+                this.dataOffset = dataOffset;
+                this.dataLength = dataLength;
+            }
+
+            /** Returns the size of the whole record, including its length. */
+            int size() {
+                return dataOffset + dataLength - offset;
+            }
+        }
+
+        /**
+         * Opens the log in the given file, creating it if necessary.
+         */
+        Impl(File file) throws IOException {
+            this.file = file;
+            File parent = file.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Creation of " + parent
+                        + " directory failed.");
+            }
+            map(Math.max(INITIAL_CAPACITY, (int) Math.min(file.length(), Integer.MAX_VALUE)));
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION) {
+                readLog();
+            } else {
+                // A new log, or one we don't understand: start over.
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                end = HEADER_SIZE;
+                buffer.putInt(end, 0);
+            }
+        }
+
+        /**
+         * Maps the log, after growing the file to {@code capacity} bytes if
+         * it is smaller.
+         */
+        private void map(int capacity) throws IOException {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            boolean mapped = false;
+            try {
+                if (randomAccessFile.length() < capacity) {
+                    randomAccessFile.setLength(capacity);
+                }
+                buffer = randomAccessFile.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE, 0, capacity);
+                mapped = true;
+            } finally {
+                if (!mapped) {
+                    randomAccessFile.close();
+                }
+            }
+        }
+
+        private void unmap() {
+            if (buffer == null) {
+                return;
+            }
+            MappedByteBufferUtil.unmap(buffer);
+            buffer = null;
+            try {
+                randomAccessFile.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        /**
+         * Indexes the records in the log, stopping at the end marker or at
+         * the first record that is torn or malformed.
+         */
+        private void readLog() {
+            int offset = HEADER_SIZE;
+            int capacity = buffer.capacity();
+            while (offset <= capacity - 4) {
+                int length = buffer.getInt(offset);
+                if (length < 6 || length > capacity - offset - 4) {
+                    break;
+                }
+                int hostLength = buffer.getShort(offset + 8) & 0xffff;
+                int dataOffset = offset + 10 + hostLength;
+                int dataLength = offset + 4 + length - dataOffset;
+                if (dataLength < 0) {
+                    break;
+                }
+                int port = buffer.getInt(offset + 4);
+                byte[] hostBytes = new byte[hostLength];
+                ByteBuffer b = buffer.duplicate();
+                b.position(offset + 10);
+                b.get(hostBytes);
+                String host = new String(hostBytes, Charsets.UTF_8);
+                index(new Record(host, port, offset, dataOffset, dataLength));
+                offset += 4 + length;
+            }
+            end = offset;
+            if (end <= capacity - 4) {
+                // Drop anything after the last good record.
+                buffer.putInt(end, 0);
+            }
+        }
+
+        private void index(Record record) {
+            Record old = index.put(key(record.host, record.port), record);
+            if (old != null) {
+                deadBytes += old.size();
+            }
+        }
+
+        /**
+         * Gets the index key for the given host and port.
+         */
+        private static String key(String host, int port) {
+            if (host == null) {
+                throw new NullPointerException("host");
+            }
+            return host + "." + port;
+        }
+
+        public synchronized byte[] getSessionData(String host, int port) {
+            Record record = index.get(key(host, port));
+            if (record == null || buffer == null) {
+                return null;
+            }
+            byte[] data = new byte[record.dataLength];
+            ByteBuffer b = buffer.duplicate();
+            b.position(record.dataOffset);
+            b.get(data);
+            logger.log(Level.FINE, "Read session for " + host + ".");
+            return data;
+        }
+
+        public synchronized void putSessionData(SSLSession session,
+                byte[] sessionData) {
+            String host = session.getPeerHost();
+            if (sessionData == null) {
+                throw new NullPointerException("sessionData");
+            }
+            int port = session.getPeerPort();
+            String key = key(host, port);
+            byte[] hostBytes = host.getBytes(Charsets.UTF_8);
+            if (hostBytes.length > 0xffff) {
+                logWriteError(host, new IOException("Host name too long."));
+                return;
+            }
+            int size = 14 + hostBytes.length + sessionData.length;
+            try {
+                if (buffer == null || end + size > buffer.capacity()) {
+                    // Make room, dropping the record we're about to replace.
+                    Record old = index.remove(key);
+                    if (old != null) {
+                        deadBytes += old.size();
+                    }
+                    compact(size);
+                }
+            } catch (IOException e) {
+                logWriteError(host, e);
+                return;
+            }
+
+            int offset = end;
+            buffer.putInt(offset + 4, port);
+            buffer.putShort(offset + 8, (short) hostBytes.length);
+            ByteBuffer b = buffer.duplicate();
+            b.position(offset + 10);
+            b.put(hostBytes);
+            b.put(sessionData);
+            end = offset + 4 + 6 + hostBytes.length + sessionData.length;
+            // Mark the new end before committing the record by writing its
+            // length, so the log is never without an end marker.
+            if (end <= buffer.capacity() - 4) {
+                buffer.putInt(end, 0);
+            }
+            buffer.putInt(offset, end - offset - 4);
+            index(new Record(host, port, offset, offset + 10 + hostBytes.length,
+                    sessionData.length));
+            logger.log(Level.FINE, "Stored session for " + host + ".");
+
+            if (deadBytes >= MIN_DEAD_BYTES && deadBytes * 2 >= end
+                    && !compactionScheduled) {
+                compactionScheduled = true;
+                Thread thread = new Thread("MappedClientSessionCache") {
+                    @Override public void run() {
+                        synchronized (Impl.this) {
+                            compactionScheduled = false;
+                            if (deadBytes == 0 || buffer == null) {
+                                return;
+                            }
+                            try {
+                                compact(0);
+                            } catch (IOException e) {
+                                logger.log(Level.INFO, "Error compacting " + file + ".", e);
+                            }
+                        }
+                    }
+                };
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        /**
+         * Rewrites the live records, from least to most recently used, to a
+         * new log with room for at least {@code extra} more bytes, and
+         * replaces the current log with it.
+         */
+        private void compact(int extra) throws IOException {
+            if (buffer == null) {
+                // An earlier compaction failed to map its log: start afresh.
+                index.clear();
+            }
+            int liveBytes = 0;
+            for (Record record : index.values()) {
+                liveBytes += record.size();
+            }
+            // Leave room for the end marker.
+            long needed = (long) HEADER_SIZE + liveBytes + extra + 4;
+            long capacity = INITIAL_CAPACITY;
+            while (capacity < needed) {
+                capacity *= 2;
+            }
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Session cache too large.");
+            }
+
+            // Copy the live records out before the old mapping goes away.
+            Record[] records = index.values().toArray(new Record[index.size()]);
+            byte[][] copies = new byte[records.length][];
+            for (int i = 0; i < records.length; i++) {
+                copies[i] = new byte[records[i].size()];
+                ByteBuffer b = buffer.duplicate();
+                b.position(records[i].offset);
+                b.get(copies[i]);
+            }
+
+            File temp = new File(file.getPath() + ".tmp");
+            RandomAccessFile out = new RandomAccessFile(temp, "rw");
+            try {
+                out.setLength(0);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (byte[] copy : copies) {
+                    out.write(copy);
+                }
+                out.writeInt(0);
+                out.setLength(capacity);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            int oldCapacity = (buffer != null) ? buffer.capacity() : INITIAL_CAPACITY;
+            unmap();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                // Keep using the old log.
+                map(oldCapacity);
+                throw new IOException("Failed to replace " + file + ".");
+            }
+            map((int) capacity);
+
+            index.clear();
+            deadBytes = 0;
+            int offset = HEADER_SIZE;
+            for (int i = 0; i < records.length; i++) {
+                Record record = records[i];
+                index.put(key(record.host, record.port), new Record(record.host, record.port,
+                        offset, offset + record.dataOffset - record.offset, record.dataLength));
+                offset += record.size();
+            }
+            end = offset;
+        }
+
+        static void logWriteError(String host, Throwable t) {
+            logger.log(Level.INFO, "Error writing session data for "
+                    + host + ".", t);
+        }
+    }
+
+    /**
+     * Maps files to the cache instances that are backed by those files. We
+     * synchronize access using the cache instance, so it's important that
+     * everyone shares the same instance.
+     */
+    static final Map<File, MappedClientSessionCache.Impl> caches
+            = new HashMap<File, MappedClientSessionCache.Impl>();
+
+    /**
+     * Returns a cache backed by the given file. Creates the file (including
+     * parent directories) if necessary. This cache should have exclusive
+     * access to the given file, and to the same path with ".tmp" appended,
+     * which it uses while compacting.
+     *
+     * @param file to store the session log in
+     * @return a cache backed by the given file
+     * @throws IOException if the file can't be created, opened or mapped
+     */
+    public static synchronized SSLClientSessionCache usingFile(File file)
+            throws IOException {
+        MappedClientSessionCache.Impl cache = caches.get(file);
+        if (cache == null) {
+            cache = new MappedClientSessionCache.Impl(file);
+            caches.put(file, cache);
+        }
+        return cache;
+    }
+
+    /** For testing. */
+    static synchronized void reset() {
+        caches.clear();
+    }
+}
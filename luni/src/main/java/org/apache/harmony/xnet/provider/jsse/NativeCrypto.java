@@ -22,6 +22,8 @@ import java.lang.reflect.Field;
 import java.net.Socket;
 import java.net.SocketImpl;
 import java.net.SocketTimeoutException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
@@ -32,6 +34,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
 import javax.net.ssl.SSLException;
 
 /**
@@ -85,6 +89,50 @@ public final class NativeCrypto {
     public static native int EVP_VerifyFinal(int ctx, byte[] signature,
                                              int offset, int length, int key);
 
+    // --- Block cipher handling functions -------------------------------------
+
+    /**
+     * Returns the EVP_CIPHER for an OpenSSL cipher name such as
+     * "aes-128-cbc", or 0 if this build of OpenSSL doesn't provide it.
+     */
+    public static native int EVP_get_cipherbyname(String algorithm);
+
+    public static native int EVP_CIPHER_block_size(int cipher);
+
+    public static native int EVP_CIPHER_iv_length(int cipher);
+
+    public static native int EVP_CIPHER_CTX_new();
+
+    public static native void EVP_CIPHER_CTX_free(int ctx);
+
+    public static native void EVP_CipherInit_ex(int ctx, int cipher, byte[] key, byte[] iv,
+            boolean encrypting) throws InvalidKeyException, InvalidAlgorithmParameterException;
+
+    public static native void EVP_CIPHER_CTX_set_padding(int ctx, boolean enablePadding);
+
+    public static native int EVP_CipherUpdate(int ctx, byte[] out, int outOffset,
+            byte[] in, int inOffset, int inLength);
+
+    public static native int EVP_CipherUpdateDirect(int ctx, int outAddress, int inAddress,
+            int inLength);
+
+    public static native int EVP_CipherFinal_ex(int ctx, byte[] out, int outOffset)
+            throws IllegalBlockSizeException, BadPaddingException;
+
+    // --- HMAC functions ------------------------------------------------------
+
+    public static native int HMAC_CTX_new();
+
+    public static native void HMAC_CTX_free(int ctx);
+
+    public static native void HMAC_Init_ex(int ctx, byte[] key, String algorithm);
+
+    public static native void HMAC_Update(int ctx, byte[] in, int inOffset, int inLength);
+
+    public static native void HMAC_UpdateDirect(int ctx, int inAddress, int inLength);
+
+    public static native byte[] HMAC_Final(int ctx);
+
     // --- Legacy Signature handling -------------------------------------------
     // TODO rewrite/replace with EVP_Verify*
     /**
@@ -567,6 +615,22 @@ public final class NativeCrypto {
                                         byte[] b, int off, int len)
         throws IOException;
 
+    /**
+     * Like {@link #SSL_read} and {@link #SSL_write}, but operating directly on
+     * {@code len} bytes of native memory at {@code address}, such as the
+     * contents of a direct ByteBuffer.
+     */
+    public static native int SSL_read_direct(int sslNativePointer,
+                                             FileDescriptor fd,
+                                             SSLHandshakeCallbacks shc,
+                                             int address, int len, int timeout)
+        throws IOException;
+    public static native void SSL_write_direct(int sslNativePointer,
+                                               FileDescriptor fd,
+                                               SSLHandshakeCallbacks shc,
+                                               int address, int len)
+        throws IOException;
+
     public static native void SSL_interrupt(int sslNativePointer) throws IOException;
     public static native void SSL_shutdown(int sslNativePointer,
                                            FileDescriptor fd,
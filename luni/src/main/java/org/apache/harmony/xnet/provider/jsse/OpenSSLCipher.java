@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xnet.provider.jsse;
+
+import java.nio.ByteBuffer;
+import java.security.AlgorithmParameters;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.InvalidParameterSpecException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherSpi;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import org.apache.harmony.nio.AddressUtil;
+
+/**
+ * Implements the JDK CipherSpi interface for AES using OpenSSL's EVP cipher
+ * API. Each subclass is one mode and padding; the key length picks the
+ * OpenSSL cipher when the cipher is initialized.
+ *
+ * <p>When both buffers passed to the ByteBuffer variants of update and
+ * doFinal are direct, the data goes straight between their native memory.
+ */
+public abstract class OpenSSLCipher extends CipherSpi {
+
+    private static final int AES_BLOCK_SIZE = 16;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Holds a pointer to the native cipher context.
+     */
+    private int ctx;
+
+    /**
+     * The OpenSSL name of the mode, e.g. "cbc".
+     */
+    private final String mode;
+
+    private final boolean padding;
+
+    /** The EVP_CIPHER for the current key, or 0 before init. */
+    private int cipher;
+
+    private byte[] key;
+    private byte[] iv;
+    private boolean encrypting;
+
+    /** OpenSSL's block size for the cipher: 1 for stream modes like CTR. */
+    private int evpBlockSize;
+
+    /**
+     * Number of input bytes OpenSSL holds that haven't been output yet,
+     * including a block held back when decrypting with padding.
+     */
+    private int buffered;
+
+    /** Receives the output of EVP_CipherFinal_ex. */
+    private final byte[] finalBlock = new byte[AES_BLOCK_SIZE];
+
+    private OpenSSLCipher(String mode, boolean padding) {
+        this.mode = mode;
+        this.padding = padding;
+        ctx = NativeCrypto.EVP_CIPHER_CTX_new();
+    }
+
+    @Override
+    protected void engineSetMode(String mode) throws NoSuchAlgorithmException {
+        if (!this.mode.equalsIgnoreCase(mode)) {
+            throw new NoSuchAlgorithmException(mode);
+        }
+    }
+
+    @Override
+    protected void engineSetPadding(String padding) throws NoSuchPaddingException {
+        String expected = this.padding ? "PKCS5Padding" : "NoPadding";
+        if (!expected.equalsIgnoreCase(padding)) {
+            throw new NoSuchPaddingException(padding);
+        }
+    }
+
+    @Override
+    protected int engineGetBlockSize() {
+        return AES_BLOCK_SIZE;
+    }
+
+    @Override
+    protected int engineGetOutputSize(int inputLen) {
+        int total = buffered + inputLen;
+        if (encrypting && padding) {
+            return (total / AES_BLOCK_SIZE + 1) * AES_BLOCK_SIZE;
+        }
+        return total;
+    }
+
+    /**
+     * Returns how many bytes an update with {@code inputLen} bytes will
+     * output. This mirrors EVP_CipherUpdate, which holds back the last
+     * complete block when decrypting with padding, since it might be the
+     * padding.
+     */
+    private int updateOutputSize(int inputLen) {
+        if (inputLen == 0) {
+            return 0;
+        }
+        int total = buffered + inputLen;
+        int whole = total - total % evpBlockSize;
+        if (!encrypting && padding && total % evpBlockSize == 0) {
+            whole -= evpBlockSize;
+        }
+        return whole;
+    }
+
+    @Override
+    protected byte[] engineGetIV() {
+        return (iv != null && iv.length > 0) ? iv.clone() : null;
+    }
+
+    @Override
+    protected AlgorithmParameters engineGetParameters() {
+        if (iv == null || iv.length == 0) {
+            return null;
+        }
+        try {
+            AlgorithmParameters params = AlgorithmParameters.getInstance("AES");
+            params.init(new IvParameterSpec(iv));
+            return params;
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (InvalidParameterSpecException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected int engineGetKeySize(Key key) throws InvalidKeyException {
+        return keyBytes(key).length * 8;
+    }
+
+    private static byte[] keyBytes(Key key) throws InvalidKeyException {
+        if (key == null) {
+            throw new InvalidKeyException("key == null");
+        }
+        byte[] encoded = key.getEncoded();
+        if (encoded == null) {
+            throw new InvalidKeyException("Key has no encoding: " + key);
+        }
+        return encoded;
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, SecureRandom random)
+            throws InvalidKeyException {
+        try {
+            engineInit(opmode, key, (AlgorithmParameterSpec) null, random);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new InvalidKeyException(e.getMessage());
+        }
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameters params,
+            SecureRandom random) throws InvalidKeyException, InvalidAlgorithmParameterException {
+        AlgorithmParameterSpec spec = null;
+        if (params != null) {
+            try {
+                spec = params.getParameterSpec(IvParameterSpec.class);
+            } catch (InvalidParameterSpecException e) {
+                throw new InvalidAlgorithmParameterException(e.getMessage());
+            }
+        }
+        engineInit(opmode, key, spec, random);
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameterSpec params,
+            SecureRandom random) throws InvalidKeyException, InvalidAlgorithmParameterException {
+        boolean encrypting = (opmode == Cipher.ENCRYPT_MODE || opmode == Cipher.WRAP_MODE);
+        byte[] keyBytes = keyBytes(key);
+        String name = "aes-" + (keyBytes.length * 8) + "-" + mode;
+        int cipher = (keyBytes.length == 16 || keyBytes.length == 24 || keyBytes.length == 32)
+                ? NativeCrypto.EVP_get_cipherbyname(name) : 0;
+        if (cipher == 0) {
+            throw new InvalidKeyException("Unsupported key length: " + keyBytes.length);
+        }
+
+        int ivLength = NativeCrypto.EVP_CIPHER_iv_length(cipher);
+        byte[] iv;
+        if (params instanceof IvParameterSpec) {
+            iv = ((IvParameterSpec) params).getIV();
+            if (iv.length != ivLength) {
+                throw new InvalidAlgorithmParameterException("Expected IV length of "
+                        + ivLength + " but was " + iv.length);
+            }
+        } else if (params != null) {
+            throw new InvalidAlgorithmParameterException("Unsupported parameters: " + params);
+        } else if (ivLength == 0) {
+            iv = EMPTY;
+        } else if (encrypting) {
+            iv = new byte[ivLength];
+            (random != null ? random : new SecureRandom()).nextBytes(iv);
+        } else {
+            throw new InvalidAlgorithmParameterException("IV required for " + mode);
+        }
+
+        this.cipher = cipher;
+        this.key = keyBytes;
+        this.iv = iv;
+        this.encrypting = encrypting;
+        this.evpBlockSize = NativeCrypto.EVP_CIPHER_block_size(cipher);
+        reset();
+    }
+
+    /**
+     * Returns the native context to the state just after init.
+     */
+    private void reset() throws InvalidKeyException, InvalidAlgorithmParameterException {
+        NativeCrypto.EVP_CipherInit_ex(ctx, cipher, key, iv, encrypting);
+        NativeCrypto.EVP_CIPHER_CTX_set_padding(ctx, padding);
+        buffered = 0;
+    }
+
+    private void checkInitialized() {
+        if (cipher == 0) {
+            throw new IllegalStateException("Cipher not initialized");
+        }
+    }
+
+    @Override
+    protected byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) {
+        checkInitialized();
+        byte[] output = new byte[updateOutputSize(inputLen)];
+        try {
+            update(input, inputOffset, inputLen, output, 0);
+        } catch (ShortBufferException e) {
+            throw new AssertionError(e);
+        }
+        return output;
+    }
+
+    @Override
+    protected int engineUpdate(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset) throws ShortBufferException {
+        checkInitialized();
+        return update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    private int update(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset) throws ShortBufferException {
+        int expected = updateOutputSize(inputLen);
+        if (output.length - outputOffset < expected) {
+            throw new ShortBufferException("Need " + expected + " bytes of output");
+        }
+        if (inputLen == 0) {
+            return 0;
+        }
+        if (input == output && inputOffset != outputOffset
+                && inputOffset < outputOffset + expected + evpBlockSize
+                && outputOffset < inputOffset + inputLen) {
+            // OpenSSL only supports input and output that are the same or
+            // don't overlap at all.
+            input = copyOfRange(input, inputOffset, inputLen);
+            inputOffset = 0;
+        }
+        int written;
+        if (output.length - outputOffset >= inputLen + evpBlockSize) {
+            written = NativeCrypto.EVP_CipherUpdate(ctx, output, outputOffset,
+                    input, inputOffset, inputLen);
+        } else {
+            // EVP_CipherUpdate wants room for a whole extra block.
+            byte[] temp = new byte[inputLen + evpBlockSize];
+            written = NativeCrypto.EVP_CipherUpdate(ctx, temp, 0, input, inputOffset, inputLen);
+            System.arraycopy(temp, 0, output, outputOffset, written);
+        }
+        buffered += inputLen - written;
+        return written;
+    }
+
+    private static byte[] copyOfRange(byte[] bytes, int offset, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, offset, result, 0, length);
+        return result;
+    }
+
+    @Override
+    protected byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen)
+            throws IllegalBlockSizeException, BadPaddingException {
+        checkInitialized();
+        byte[] output = new byte[engineGetOutputSize(inputLen)];
+        int written;
+        try {
+            written = doFinal(input, inputOffset, inputLen, output, 0);
+        } catch (ShortBufferException e) {
+            throw new AssertionError(e);
+        }
+        if (written == output.length) {
+            return output;
+        }
+        return copyOfRange(output, 0, written);
+    }
+
+    @Override
+    protected int engineDoFinal(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset)
+            throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        checkInitialized();
+        return doFinal(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    private int doFinal(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset)
+            throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        int expected = engineGetOutputSize(inputLen);
+        if (output.length - outputOffset < expected) {
+            throw new ShortBufferException("Need " + expected + " bytes of output");
+        }
+        int written = 0;
+        if (inputLen > 0) {
+            written = update(input, inputOffset, inputLen, output, outputOffset);
+        }
+        return written + doFinalBlock(output, outputOffset + written);
+    }
+
+    /**
+     * Finishes the operation, writes the final output to {@code output} at
+     * {@code outputOffset}, and resets for the next operation.
+     */
+    private int doFinalBlock(byte[] output, int outputOffset)
+            throws IllegalBlockSizeException, BadPaddingException {
+        int written;
+        try {
+            written = NativeCrypto.EVP_CipherFinal_ex(ctx, finalBlock, 0);
+        } finally {
+            resetAfterFinal();
+        }
+        System.arraycopy(finalBlock, 0, output, outputOffset, written);
+        return written;
+    }
+
+    private void resetAfterFinal() {
+        try {
+            reset();
+        } catch (InvalidKeyException e) {
+            throw new AssertionError(e);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    protected int engineUpdate(ByteBuffer input, ByteBuffer output)
+            throws ShortBufferException {
+        if (!input.isDirect() || !output.isDirect()) {
+            return super.engineUpdate(input, output);
+        }
+        checkInitialized();
+        return updateDirect(input, output);
+    }
+
+    private int updateDirect(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int inputLen = input.remaining();
+        int expected = updateOutputSize(inputLen);
+        if (output.remaining() < expected) {
+            throw new ShortBufferException("Need " + expected + " bytes of output");
+        }
+        if (inputLen == 0) {
+            return 0;
+        }
+        if (output.remaining() < inputLen + evpBlockSize) {
+            // EVP_CipherUpdate wants room for a whole extra block.
+            byte[] in = new byte[inputLen];
+            input.get(in);
+            byte[] out = engineUpdate(in, 0, inputLen);
+            output.put(out);
+            return out.length;
+        }
+        int inAddress = AddressUtil.getDirectBufferAddress(input) + input.position();
+        int outAddress = AddressUtil.getDirectBufferAddress(output) + output.position();
+        int written = NativeCrypto.EVP_CipherUpdateDirect(ctx, outAddress, inAddress, inputLen);
+        input.position(input.limit());
+        output.position(output.position() + written);
+        buffered += inputLen - written;
+        return written;
+    }
+
+    @Override
+    protected int engineDoFinal(ByteBuffer input, ByteBuffer output)
+            throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        if (!input.isDirect() || !output.isDirect()) {
+            return super.engineDoFinal(input, output);
+        }
+        checkInitialized();
+        int expected = engineGetOutputSize(input.remaining());
+        if (output.remaining() < expected) {
+            throw new ShortBufferException("Need " + expected + " bytes of output");
+        }
+        int written = updateDirect(input, output);
+        int finalWritten;
+        try {
+            finalWritten = NativeCrypto.EVP_CipherFinal_ex(ctx, finalBlock, 0);
+        } finally {
+            resetAfterFinal();
+        }
+        output.put(finalBlock, 0, finalWritten);
+        return written + finalWritten;
+    }
+
+    @Override protected void finalize() throws Throwable {
+        try {
+            NativeCrypto.EVP_CIPHER_CTX_free(ctx);
+            ctx = 0;
+        } finally {
+            super.finalize();
+        }
+    }
+
+    public static class AES_ECB_NoPadding extends OpenSSLCipher {
+        public AES_ECB_NoPadding() {
+            super("ecb", false);
+        }
+    }
+
+    public static class AES_ECB_PKCS5Padding extends OpenSSLCipher {
+        public AES_ECB_PKCS5Padding() {
+            super("ecb", true);
+        }
+    }
+
+    public static class AES_CBC_NoPadding extends OpenSSLCipher {
+        public AES_CBC_NoPadding() {
+            super("cbc", false);
+        }
+    }
+
+    public static class AES_CBC_PKCS5Padding extends OpenSSLCipher {
+        public AES_CBC_PKCS5Padding() {
+            super("cbc", true);
+        }
+    }
+
+    public static class AES_CTR_NoPadding extends OpenSSLCipher {
+        public AES_CTR_NoPadding() {
+            super("ctr", false);
+        }
+    }
+}
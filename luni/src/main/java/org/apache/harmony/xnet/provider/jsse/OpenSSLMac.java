@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xnet.provider.jsse;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.MacSpi;
+import org.apache.harmony.nio.AddressUtil;
+
+/**
+ * Implements the JDK MacSpi interface for HMAC using OpenSSL's HMAC API.
+ * Updates from direct ByteBuffers are read straight from their native
+ * memory.
+ */
+public abstract class OpenSSLMac extends MacSpi {
+
+    /**
+     * Holds a pointer to the native HMAC context.
+     */
+    private int ctx;
+
+    /**
+     * The OpenSSL name of the digest algorithm, e.g. "sha1".
+     */
+    private final String algorithm;
+
+    private final int size;
+
+    private boolean initialized;
+
+    /**
+     * Holds a dummy buffer for writing single bytes to the MAC.
+     */
+    private final byte[] singleByte = new byte[1];
+
+    private OpenSSLMac(String algorithm, int size) {
+        this.algorithm = algorithm;
+        this.size = size;
+        ctx = NativeCrypto.HMAC_CTX_new();
+    }
+
+    @Override
+    protected int engineGetMacLength() {
+        return size;
+    }
+
+    @Override
+    protected void engineInit(Key key, AlgorithmParameterSpec params)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (key == null) {
+            throw new InvalidKeyException("key == null");
+        }
+        if (params != null) {
+            throw new InvalidAlgorithmParameterException("Unexpected parameters: " + params);
+        }
+        byte[] keyBytes = key.getEncoded();
+        if (keyBytes == null) {
+            throw new InvalidKeyException("Key has no encoding: " + key);
+        }
+        NativeCrypto.HMAC_Init_ex(ctx, keyBytes, algorithm);
+        initialized = true;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        singleByte[0] = input;
+        engineUpdate(singleByte, 0, 1);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        NativeCrypto.HMAC_Update(ctx, input, offset, len);
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        if (!input.isDirect()) {
+            super.engineUpdate(input);
+            return;
+        }
+        int address = AddressUtil.getDirectBufferAddress(input) + input.position();
+        NativeCrypto.HMAC_UpdateDirect(ctx, address, input.remaining());
+        input.position(input.limit());
+    }
+
+    @Override
+    protected byte[] engineDoFinal() {
+        byte[] result = NativeCrypto.HMAC_Final(ctx);
+        engineReset();
+        return result;
+    }
+
+    @Override
+    protected void engineReset() {
+        if (initialized) {
+            // Starts over with the same key.
+            NativeCrypto.HMAC_Init_ex(ctx, null, null);
+        }
+    }
+
+    @Override protected void finalize() throws Throwable {
+        try {
+            NativeCrypto.HMAC_CTX_free(ctx);
+            ctx = 0;
+        } finally {
+            super.finalize();
+        }
+    }
+
+    public static class HmacMD5 extends OpenSSLMac {
+        public HmacMD5() {
+            super("md5", 16);
+        }
+    }
+
+    public static class HmacSHA1 extends OpenSSLMac {
+        public HmacSHA1() {
+            super("sha1", 20);
+        }
+    }
+
+    public static class HmacSHA256 extends OpenSSLMac {
+        public HmacSHA256() {
+            super("sha256", 32);
+        }
+    }
+
+    public static class HmacSHA384 extends OpenSSLMac {
+        public HmacSHA384() {
+            super("sha384", 48);
+        }
+    }
+
+    public static class HmacSHA512 extends OpenSSLMac {
+        public HmacSHA512() {
+            super("sha512", 64);
+        }
+    }
+}
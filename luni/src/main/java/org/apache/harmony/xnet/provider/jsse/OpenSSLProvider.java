@@ -54,6 +54,40 @@ public final class OpenSSLProvider extends Provider {
             "org.apache.harmony.xnet.provider.jsse.OpenSSLMessageDigestJDK$MD5");
         put("Alg.Alias.MessageDigest.1.2.840.113549.2.5", "MD5");
 
+        put("Cipher.AES/ECB/NoPadding",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLCipher$AES_ECB_NoPadding");
+        put("Cipher.AES/ECB/PKCS5Padding",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLCipher$AES_ECB_PKCS5Padding");
+        put("Cipher.AES/CBC/NoPadding",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLCipher$AES_CBC_NoPadding");
+        put("Cipher.AES/CBC/PKCS5Padding",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLCipher$AES_CBC_PKCS5Padding");
+        // CTR mode arrived in OpenSSL 1.0.1; only offer it if we have it.
+        if (NativeCrypto.EVP_get_cipherbyname("aes-128-ctr") != 0) {
+            put("Cipher.AES/CTR/NoPadding",
+                "org.apache.harmony.xnet.provider.jsse.OpenSSLCipher$AES_CTR_NoPadding");
+        }
+
+        put("Mac.HmacMD5",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLMac$HmacMD5");
+        put("Alg.Alias.Mac.1.3.6.1.5.5.8.1.1", "HmacMD5");
+
+        put("Mac.HmacSHA1",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLMac$HmacSHA1");
+        put("Alg.Alias.Mac.1.2.840.113549.2.7", "HmacSHA1");
+
+        put("Mac.HmacSHA256",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLMac$HmacSHA256");
+        put("Alg.Alias.Mac.1.2.840.113549.2.9", "HmacSHA256");
+
+        put("Mac.HmacSHA384",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLMac$HmacSHA384");
+        put("Alg.Alias.Mac.1.2.840.113549.2.10", "HmacSHA384");
+
+        put("Mac.HmacSHA512",
+            "org.apache.harmony.xnet.provider.jsse.OpenSSLMac$HmacSHA512");
+        put("Alg.Alias.Mac.1.2.840.113549.2.11", "HmacSHA512");
+
         // TODO Flush out implementation of OpenSSLSignature so it can be registered here
     }
 }
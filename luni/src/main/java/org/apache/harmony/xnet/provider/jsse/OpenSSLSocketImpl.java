@@ -24,6 +24,9 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.PrivateKey;
 import java.security.SecureRandom;
 import java.security.cert.CertificateEncodingException;
@@ -38,6 +41,7 @@ import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLSession;
 import javax.security.auth.x500.X500Principal;
+import org.apache.harmony.nio.AddressUtil;
 import org.apache.harmony.security.provider.cert.X509CertImpl;
 
 /**
@@ -716,6 +720,90 @@ public class OpenSSLSocketImpl
         }
     }
 
+    /**
+     * Reads decrypted data into the remaining space of {@code dst}, advancing
+     * its position. OpenSSL decrypts directly into a direct buffer, without
+     * copying through a Java array.
+     *
+     * @return the number of bytes read, or -1 if the end of the stream has
+     *     been reached.
+     * @hide
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        if (dst.isReadOnly()) {
+            throw new IllegalArgumentException("read-only buffer");
+        }
+        // The input stream performs the handshake when it is created.
+        getInputStream();
+        return readImpl(dst);
+    }
+
+    private int readImpl(ByteBuffer dst) throws IOException {
+        BlockGuard.getThreadPolicy().onNetwork();
+        synchronized (readLock) {
+            checkOpen();
+            int len = dst.remaining();
+            if (len == 0) {
+                return 0;
+            }
+            int position = dst.position();
+            int result;
+            if (dst.isDirect()) {
+                int address = AddressUtil.getDirectBufferAddress(dst) + position;
+                result = NativeCrypto.SSL_read_direct(sslNativePointer, fd, this,
+                                                      address, len, getSoTimeout());
+            } else {
+                result = NativeCrypto.SSL_read(sslNativePointer, fd, this, dst.array(),
+                                               dst.arrayOffset() + position, len, getSoTimeout());
+            }
+            if (result > 0) {
+                dst.position(position + result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Encrypts and writes all of the remaining bytes of {@code src}, advancing
+     * its position to its limit. OpenSSL encrypts directly from a direct
+     * buffer, without copying through a Java array.
+     *
+     * @return the number of bytes written.
+     * @hide
+     */
+    public int write(ByteBuffer src) throws IOException {
+        // The output stream performs the handshake when it is created.
+        getOutputStream();
+        return writeImpl(src);
+    }
+
+    private int writeImpl(ByteBuffer src) throws IOException {
+        BlockGuard.getThreadPolicy().onNetwork();
+        synchronized (writeLock) {
+            checkOpen();
+            int len = src.remaining();
+            if (len == 0) {
+                return 0;
+            }
+            int position = src.position();
+            if (src.isDirect()) {
+                int address = AddressUtil.getDirectBufferAddress(src) + position;
+                NativeCrypto.SSL_write_direct(sslNativePointer, fd, this, address, len);
+            } else if (src.hasArray()) {
+                NativeCrypto.SSL_write(sslNativePointer, fd, this, src.array(),
+                                       src.arrayOffset() + position, len);
+            } else {
+                // A read-only heap buffer doesn't expose its array.
+                byte[] bytes = new byte[len];
+                src.get(bytes);
+                src.position(position);
+                NativeCrypto.SSL_write(sslNativePointer, fd, this, bytes, 0, len);
+            }
+            src.position(position + len);
+            return len;
+        }
+    }
+
     /**
      * This method is not supported for this SSLSocket implementation
      * because reading from an SSLSocket may involve writing to the
@@ -739,9 +827,11 @@ public class OpenSSLSocketImpl
     /**
      * This inner class provides input data stream functionality
      * for the OpenSSL native implementation. It is used to
-     * read data received via SSL protocol.
+     * read data received via SSL protocol. It is also a channel, so
+     * that {@link java.nio.channels.Channels#newChannel(InputStream)}
+     * can hand direct buffers to OpenSSL without copying them.
      */
-    private class SSLInputStream extends InputStream {
+    private class SSLInputStream extends InputStream implements ReadableByteChannel {
         SSLInputStream() throws IOException {
             /**
             /* Note: When startHandshake() throws an exception, no
@@ -773,21 +863,28 @@ public class OpenSSLSocketImpl
          */
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
-            BlockGuard.getThreadPolicy().onNetwork();
-            synchronized (readLock) {
-                checkOpen();
-                if (b == null) {
-                    throw new NullPointerException("b == null");
-                }
-                if ((len | off) < 0 || len > b.length - off) {
-                    throw new IndexOutOfBoundsException();
-                }
-                if (0 == len) {
-                    return 0;
-                }
-                return NativeCrypto.SSL_read(sslNativePointer, fd, OpenSSLSocketImpl.this,
-                                             b, off, len, getSoTimeout());
+            if (b == null) {
+                throw new NullPointerException("b == null");
+            }
+            if ((len | off) < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
             }
+            return readImpl(ByteBuffer.wrap(b, off, len));
+        }
+
+        /**
+         * Reads into the remaining space of {@code dst}.
+         * @see OpenSSLSocketImpl#read(ByteBuffer)
+         */
+        public int read(ByteBuffer dst) throws IOException {
+            if (dst.isReadOnly()) {
+                throw new IllegalArgumentException("read-only buffer");
+            }
+            return readImpl(dst);
+        }
+
+        public boolean isOpen() {
+            return !isClosed();
         }
     }
 
@@ -795,8 +892,11 @@ public class OpenSSLSocketImpl
      * This inner class provides output data stream functionality
      * for the OpenSSL native implementation. It is used to
      * write data according to the encryption parameters given in SSL context.
+     * It is also a channel, so that
+     * {@link java.nio.channels.Channels#newChannel(OutputStream)} can hand
+     * direct buffers to OpenSSL without copying them.
      */
-    private class SSLOutputStream extends OutputStream {
+    private class SSLOutputStream extends OutputStream implements WritableByteChannel {
         SSLOutputStream() throws IOException {
             /**
             /* Note: When startHandshake() throws an exception, no
@@ -824,20 +924,25 @@ public class OpenSSLSocketImpl
          */
         @Override
         public void write(byte[] b, int start, int len) throws IOException {
-            BlockGuard.getThreadPolicy().onNetwork();
-            synchronized (writeLock) {
-                checkOpen();
-                if (b == null) {
-                    throw new NullPointerException("b == null");
-                }
-                if ((len | start) < 0 || len > b.length - start) {
-                    throw new IndexOutOfBoundsException();
-                }
-                if (len == 0) {
-                    return;
-                }
-                NativeCrypto.SSL_write(sslNativePointer, fd, OpenSSLSocketImpl.this, b, start, len);
+            if (b == null) {
+                throw new NullPointerException("b == null");
+            }
+            if ((len | start) < 0 || len > b.length - start) {
+                throw new IndexOutOfBoundsException();
             }
+            writeImpl(ByteBuffer.wrap(b, start, len));
+        }
+
+        /**
+         * Writes all of the remaining bytes of {@code src}.
+         * @see OpenSSLSocketImpl#write(ByteBuffer)
+         */
+        public int write(ByteBuffer src) throws IOException {
+            return writeImpl(src);
+        }
+
+        public boolean isOpen() {
+            return !isClosed();
         }
     }
 
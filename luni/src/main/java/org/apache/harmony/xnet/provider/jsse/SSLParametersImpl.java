@@ -209,12 +209,24 @@ public class SSLParametersImpl implements Cloneable {
         SecureRandom result = defaultSecureRandom;
         if (result == null) {
             // single-check idiom
-            defaultSecureRandom = result = new SecureRandom();
+            defaultSecureRandom = result = createDefaultSecureRandom();
         }
         secureRandom = result;
         return secureRandom;
     }
 
+    /**
+     * Prefers the DRBG algorithm, which doesn't lock when the default
+     * SecureRandom is shared by many connections at once.
+     */
+    private static SecureRandom createDefaultSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
     // BEGIN android-added
     /**
      * @return the secure random member reference, even it is null
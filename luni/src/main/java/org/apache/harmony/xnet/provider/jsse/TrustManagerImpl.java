@@ -33,6 +33,8 @@ import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import javax.net.ssl.X509TrustManager;
 
@@ -54,6 +56,32 @@ public class TrustManagerImpl implements X509TrustManager {
 
     private CertificateFactory factory;
 
+    // BEGIN android-added
+    /** Maximum number of server chains remembered as validated. */
+    private static final int MAX_VALIDATED_CHAINS = 64;
+
+    /** Longest time a server chain is trusted without being validated again. */
+    private static final long VALIDATED_CHAIN_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Incremented whenever the trust anchors are replaced, so that chains
+     * validated against the old anchors are no longer found.
+     */
+    private volatile int trustAnchorsVersion;
+
+    /**
+     * Server chains that passed validation, in access order, mapped to the
+     * time at which they must be validated again. Guarded by itself.
+     */
+    @SuppressWarnings("serial")
+    private final Map<ValidatedChain, Long> validatedChains
+            = new LinkedHashMap<ValidatedChain, Long>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<ValidatedChain, Long> eldest) {
+            return size() > MAX_VALIDATED_CHAINS;
+        }
+    };
+    // END android-added
+
     /**
      * Creates trust manager implementation
      *
@@ -87,6 +115,7 @@ public class TrustManagerImpl implements X509TrustManager {
             InvalidAlgorithmParameterException, KeyStoreException {
         params = new IndexedPKIXParameters(params.getTrustAnchors());
         params.setRevocationEnabled(false);
+        trustAnchorsVersion++;
     }
 // END android-added
 
@@ -144,6 +173,10 @@ public class TrustManagerImpl implements X509TrustManager {
             throw new CertificateException(err);
         }
         // BEGIN android-changed
+        ValidatedChain validatedChain = new ValidatedChain(chain, authType, trustAnchorsVersion);
+        if (isValidated(validatedChain)) {
+            return;
+        }
         CertificateException ce = null;
         try {
             CertPath certPath = factory.generateCertPath(Arrays.asList(chain));
@@ -154,6 +187,7 @@ public class TrustManagerImpl implements X509TrustManager {
                 throw new CertificateException("Certificate chain error");
             }
             validator.validate(certPath, params);
+            setValidated(validatedChain, chain);
             // END android-changed
         } catch (InvalidAlgorithmParameterException e) {
             ce = new CertificateException(e);
@@ -172,6 +206,80 @@ public class TrustManagerImpl implements X509TrustManager {
         // END android-added
     }
 
+    // BEGIN android-added
+    /**
+     * Returns true if {@code chain} was validated recently enough, and
+     * none of its certificates has expired since.
+     */
+    private boolean isValidated(ValidatedChain chain) {
+        long now = System.currentTimeMillis();
+        synchronized (validatedChains) {
+            Long expiry = validatedChains.get(chain);
+            if (expiry == null) {
+                return false;
+            }
+            if (now < expiry) {
+                return true;
+            }
+            validatedChains.remove(chain);
+            return false;
+        }
+    }
+
+    /**
+     * Remembers that {@code chain} passed validation, until the timeout
+     * elapses or the first of its certificates expires.
+     */
+    private void setValidated(ValidatedChain chain, X509Certificate[] certificates) {
+        long expiry = System.currentTimeMillis() + VALIDATED_CHAIN_TIMEOUT_MILLIS;
+        for (X509Certificate certificate : certificates) {
+            expiry = Math.min(expiry, certificate.getNotAfter().getTime());
+        }
+        synchronized (validatedChains) {
+            validatedChains.put(chain, expiry);
+        }
+    }
+
+    /**
+     * The encoding of a server certificate chain, with the authentication
+     * type and the version of the trust anchors it was checked against.
+     */
+    private static final class ValidatedChain {
+        private final byte[][] encodings;
+        private final String authType;
+        private final int trustAnchorsVersion;
+        private final int hashCode;
+
+        ValidatedChain(X509Certificate[] chain, String authType, int trustAnchorsVersion)
+                throws CertificateEncodingException {
+            this.encodings = new byte[chain.length][];
+            int hash = authType.hashCode() * 31 + trustAnchorsVersion;
+            for (int i = 0; i < chain.length; i++) {
+                encodings[i] = chain[i].getEncoded();
+                hash = hash * 31 + Arrays.hashCode(encodings[i]);
+            }
+            this.authType = authType;
+            this.trustAnchorsVersion = trustAnchorsVersion;
+            this.hashCode = hash;
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof ValidatedChain)) {
+                return false;
+            }
+            ValidatedChain other = (ValidatedChain) o;
+            return hashCode == other.hashCode
+                    && trustAnchorsVersion == other.trustAnchorsVersion
+                    && authType.equals(other.authType)
+                    && Arrays.deepEquals(encodings, other.encodings);
+        }
+    }
+    // END android-added
+
     /**
      * Checks whether the given chain is just a certificate
      * that we have in our trust store.
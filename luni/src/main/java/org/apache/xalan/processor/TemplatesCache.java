@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xalan.processor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.xalan.templates.Stylesheet;
+import org.apache.xalan.templates.StylesheetComposed;
+import org.apache.xalan.templates.StylesheetRoot;
+import org.apache.xml.utils.SystemIDResolver;
+
+import org.xml.sax.InputSource;
+
+/**
+ * A bounded, thread-safe cache of compiled stylesheets for
+ * {@link TransformerFactoryImpl}, enabled through the
+ * {@link TransformerFactoryImpl#FEATURE_TEMPLATES_CACHE_SIZE} attribute.
+ *
+ * <p>Entries are keyed by the absolute system ID of the stylesheet. A cached
+ * entry is reused only while it is still current: stylesheets (and the
+ * stylesheets they import or include) that live in local files are checked
+ * against their last-modified time and length; stylesheets handed over as
+ * streams, or fetched from other kinds of URLs, are keyed by a digest of
+ * their content. Sources without a system ID, DOM sources and SAX sources
+ * carrying their own XMLReader are never cached.
+ *
+ * <p>The owning factory clears the cache whenever its URIResolver,
+ * ErrorListener, features or attributes change, since those affect how
+ * stylesheets are compiled.
+ */
+public final class TemplatesCache
+{
+
+  /** A compiled stylesheet with the file stamps it was compiled against. */
+  private static final class Entry
+  {
+    final Templates templates;
+    final File[] files;
+    final long[] stamps;
+
+    Entry(Templates templates, File[] files, long[] stamps)
+    {
+      this.templates = templates;
+      this.files = files;
+      this.stamps = stamps;
+    }
+
+    boolean isCurrent()
+    {
+      for (int i = 0; i < files.length; i++)
+      {
+        if (stamp(files[i]) != stamps[i])
+          return false;
+      }
+      return true;
+    }
+  }
+
+  /** A stamp that no file has, marking an entry that must be recompiled. */
+  private static final long STALE = Long.MIN_VALUE;
+
+  private final int m_maxSize;
+  private final LinkedHashMap m_entries;
+
+  /**
+   * Incremented by clear(), so that a stylesheet compiled under settings
+   * that have since changed isn't cached.
+   */
+  private long m_generation;
+
+  private long m_hits;
+  private long m_misses;
+  private long m_invalidations;
+  private long m_evictions;
+
+  /**
+   * Create a cache holding at most maxSize compiled stylesheets.
+   *
+   * @param maxSize the maximum number of entries, greater than zero.
+   */
+  TemplatesCache(int maxSize)
+  {
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("maxSize <= 0: " + maxSize);
+    m_maxSize = maxSize;
+    m_entries = new LinkedHashMap(16, 0.75f, true)
+    {
+      protected boolean removeEldestEntry(Map.Entry eldest)
+      {
+        if (size() > m_maxSize)
+        {
+          m_evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Return the compiled stylesheet for source, compiling it with the
+   * factory if it is not cached or the cached copy is stale.
+   */
+  Templates getTemplates(TransformerFactoryImpl factory, Source source)
+          throws TransformerConfigurationException
+  {
+    String systemId = source.getSystemId();
+    if (systemId == null
+        || (source instanceof SAXSource
+            && ((SAXSource) source).getXMLReader() != null))
+    {
+      return uncached(factory, source);
+    }
+    systemId = SystemIDResolver.getAbsoluteURI(systemId);
+
+    InputSource isource = SAXSource.sourceToInputSource(source);
+    if (isource == null)
+      return uncached(factory, source);
+
+    String key;
+    Source compileSource;
+    File file = null;
+    try
+    {
+      if (isource.getByteStream() != null)
+      {
+        byte[] content = readFully(isource.getByteStream());
+        key = systemId + '#' + digest(content);
+        compileSource = new StreamSource(new ByteArrayInputStream(content), systemId);
+      }
+      else if (isource.getCharacterStream() != null)
+      {
+        String content = readFully(isource.getCharacterStream());
+        key = systemId + '#' + digest(content.getBytes("UTF-8"));
+        compileSource = new StreamSource(new StringReader(content), systemId);
+      }
+      else if ((file = toFile(systemId)) != null)
+      {
+        key = systemId;
+        compileSource = new StreamSource(systemId);
+      }
+      else
+      {
+        InputStream in = new URL(systemId).openStream();
+        byte[] content;
+        try
+        {
+          content = readFully(in);
+        }
+        finally
+        {
+          in.close();
+        }
+        key = systemId + '#' + digest(content);
+        compileSource = new StreamSource(new ByteArrayInputStream(content), systemId);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new TransformerConfigurationException(e.getMessage(), e);
+    }
+
+    long generation;
+    synchronized (this)
+    {
+      generation = m_generation;
+      Entry entry = (Entry) m_entries.get(key);
+      if (entry != null)
+      {
+        if (entry.isCurrent())
+        {
+          m_hits++;
+          return entry.templates;
+        }
+        m_entries.remove(key);
+        m_invalidations++;
+      }
+      m_misses++;
+    }
+
+    // Stamp the main stylesheet before compiling, so that a change made
+    // while compiling is noticed on the next lookup. Imported and included
+    // stylesheets are only known afterwards; those modified since the
+    // compile started (to the second, as that may be all the file system
+    // keeps) can't be trusted.
+    long mainStamp = (file != null) ? stamp(file) : 0;
+    long compileStart = System.currentTimeMillis() / 1000 * 1000;
+    Templates templates = factory.newTemplatesUncached(compileSource);
+    if (templates == null)
+      return null;
+
+    List files = new ArrayList();
+    List stamps = new ArrayList();
+    if (file != null)
+    {
+      files.add(file);
+      stamps.add(new Long(mainStamp));
+    }
+    if (templates instanceof StylesheetRoot)
+      addDependencies((StylesheetRoot) templates, systemId, compileStart,
+                      files, stamps);
+
+    long[] stampArray = new long[stamps.size()];
+    for (int i = 0; i < stampArray.length; i++)
+      stampArray[i] = ((Long) stamps.get(i)).longValue();
+    Entry entry = new Entry(templates,
+                            (File[]) files.toArray(new File[files.size()]),
+                            stampArray);
+    synchronized (this)
+    {
+      if (m_generation == generation)
+        m_entries.put(key, entry);
+    }
+    return templates;
+  }
+
+  private Templates uncached(TransformerFactoryImpl factory, Source source)
+          throws TransformerConfigurationException
+  {
+    synchronized (this)
+    {
+      m_misses++;
+    }
+    return factory.newTemplatesUncached(source);
+  }
+
+  /**
+   * Record the local files of all imported and included stylesheets, so
+   * that changing any of them invalidates the entry.
+   */
+  private static void addDependencies(StylesheetRoot root, String systemId,
+                                      long compileStart, List files,
+                                      List stamps)
+  {
+    for (int i = 0; i < root.getGlobalImportCount(); i++)
+    {
+      StylesheetComposed composed = root.getGlobalImport(i);
+      addDependency(composed, systemId, compileStart, files, stamps);
+      for (int j = 0; j < composed.getIncludeCountComposed(); j++)
+        addDependency(composed.getIncludeComposed(j), systemId, compileStart,
+                      files, stamps);
+    }
+  }
+
+  private static void addDependency(Stylesheet sheet, String systemId,
+                                    long compileStart, List files,
+                                    List stamps)
+  {
+    String href = sheet.getHref();
+    if (href == null || href.equals(systemId))
+      return;
+    File file = toFile(href);
+    if (file != null && !files.contains(file))
+    {
+      files.add(file);
+      boolean changed = file.lastModified() >= compileStart;
+      stamps.add(new Long(changed ? STALE : stamp(file)));
+    }
+  }
+
+  private static File toFile(String systemId)
+  {
+    if (!systemId.startsWith("file:"))
+      return null;
+    try
+    {
+      return new File(new URI(systemId));
+    }
+    catch (Exception e)
+    {
+      return null;
+    }
+  }
+
+  /** Combine last-modified time and length into one stamp. */
+  private static long stamp(File file)
+  {
+    return file.lastModified() * 31 + file.length();
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int count;
+    while ((count = in.read(buffer)) != -1)
+      out.write(buffer, 0, count);
+    return out.toByteArray();
+  }
+
+  private static String readFully(Reader in) throws IOException
+  {
+    CharArrayWriter out = new CharArrayWriter();
+    char[] buffer = new char[4096];
+    int count;
+    while ((count = in.read(buffer)) != -1)
+      out.write(buffer, 0, count);
+    return out.toString();
+  }
+
+  private static String digest(byte[] content)
+  {
+    try
+    {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+      StringBuffer result = new StringBuffer(hash.length * 2);
+      for (int i = 0; i < hash.length; i++)
+      {
+        result.append(Character.forDigit((hash[i] >> 4) & 0xf, 16));
+        result.append(Character.forDigit(hash[i] & 0xf, 16));
+      }
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Remove all entries. Stylesheets being compiled at the time are not
+   * added once they are done. Statistics are kept.
+   */
+  public synchronized void clear()
+  {
+    m_entries.clear();
+    m_generation++;
+  }
+
+  /** @return the maximum number of entries. */
+  public int getMaxSize()
+  {
+    return m_maxSize;
+  }
+
+  /** @return the current number of entries. */
+  public synchronized int size()
+  {
+    return m_entries.size();
+  }
+
+  /** @return the number of lookups answered from the cache. */
+  public synchronized long getHitCount()
+  {
+    return m_hits;
+  }
+
+  /** @return the number of lookups that compiled the stylesheet. */
+  public synchronized long getMissCount()
+  {
+    return m_misses;
+  }
+
+  /** @return the number of entries dropped because they had gone stale. */
+  public synchronized long getInvalidationCount()
+  {
+    return m_invalidations;
+  }
+
+  /** @return the number of entries dropped to honor the size bound. */
+  public synchronized long getEvictionCount()
+  {
+    return m_evictions;
+  }
+
+  public synchronized String toString()
+  {
+    return "TemplatesCache[size=" + m_entries.size() + ", maxSize=" + m_maxSize
+        + ", hits=" + m_hits + ", misses=" + m_misses
+        + ", invalidations=" + m_invalidations
+        + ", evictions=" + m_evictions + "]";
+  }
+}
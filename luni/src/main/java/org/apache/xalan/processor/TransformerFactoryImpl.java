@@ -105,6 +105,15 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
   public static final String FEATURE_SOURCE_LOCATION =
                              XalanProperties.SOURCE_LOCATION;
 
+  /**
+   * Static string to be used for the templates cache attribute. The value
+   * is the maximum number of compiled stylesheets to keep, as an Integer or
+   * a String; zero, the default, disables the cache.
+   * @see TemplatesCache
+   */
+  public static final String FEATURE_TEMPLATES_CACHE_SIZE =
+                     "http://xml.apache.org/xalan/features/templates-cache-size";
+
   public javax.xml.transform.Templates processFromNode(Node node)
           throws TransformerConfigurationException
   {
@@ -410,6 +419,7 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
   	// secure processing?
   	if (name.equals(XMLConstants.FEATURE_SECURE_PROCESSING)) {
   	    m_isSecureProcessing = value;			
+  	    invalidateTemplatesCache();
   	}
   	// This implementation does not support the setting of a feature other than
   	// the secure processing feature.
@@ -496,6 +506,12 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
    * default this attribute is set to false. 
    */
   private boolean m_incremental = false;
+
+  /**
+   * Cache of compiled stylesheets, set up by FEATURE_TEMPLATES_CACHE_SIZE.
+   * Null, the default, means every call to newTemplates compiles.
+   */
+  private volatile TemplatesCache m_templatesCache = null;
   
   /**
    * Allows the user to set specific attributes on the underlying
@@ -571,10 +587,33 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
       }
     }
     
+    else if (name.equals(FEATURE_TEMPLATES_CACHE_SIZE))
+    {
+      int size;
+      try
+      {
+        if (value instanceof Integer)
+          size = ((Integer)value).intValue();
+        else if (value instanceof String)
+          size = Integer.parseInt((String)value);
+        else
+          throw new NumberFormatException();
+      }
+      catch (NumberFormatException nfe)
+      {
+        throw new IllegalArgumentException(XSLMessages.createMessage(XSLTErrorResources.ER_BAD_VALUE, new Object[]{name, value})); //name + " bad value " + value);
+      }
+      if (size < 0)
+        throw new IllegalArgumentException(XSLMessages.createMessage(XSLTErrorResources.ER_BAD_VALUE, new Object[]{name, value})); //name + " bad value " + value);
+      m_templatesCache = (size == 0) ? null : new TemplatesCache(size);
+      return;
+    }
+    
     else
     {
       throw new IllegalArgumentException(XSLMessages.createMessage(XSLTErrorResources.ER_NOT_SUPPORTED, new Object[]{name})); //name + "not supported");
     }
+    invalidateTemplatesCache();
   }
 
   /**
@@ -601,6 +640,11 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
     {
       return new Boolean(m_source_location);
     }
+    else if (name.equals(FEATURE_TEMPLATES_CACHE_SIZE))
+    {
+      TemplatesCache cache = m_templatesCache;
+      return new Integer(cache == null ? 0 : cache.getMaxSize());
+    }
     else
       throw new IllegalArgumentException(XSLMessages.createMessage(XSLTErrorResources.ER_ATTRIB_VALUE_NOT_RECOGNIZED, new Object[]{name})); //name + " attribute not recognized");
   }
@@ -840,6 +884,25 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
   public Templates newTemplates(Source source)
           throws TransformerConfigurationException
   {
+    TemplatesCache cache = m_templatesCache;
+    if (cache != null && !(source instanceof DOMSource))
+      return cache.getTemplates(this, source);
+    return newTemplatesUncached(source);
+  }
+
+  /**
+   * Process the source into a Templates object, bypassing the templates
+   * cache.
+   *
+   * @param source An object that holds a URL, input stream, etc.
+   * @return A Templates object capable of being used for transformation purposes.
+   *
+   * @throws TransformerConfigurationException May throw this during the parse when it
+   *            is constructing the Templates object and fails.
+   */
+  Templates newTemplatesUncached(Source source)
+          throws TransformerConfigurationException
+  {
 
     String baseID = source.getSystemId();
 
@@ -986,6 +1049,7 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
   public void setURIResolver(URIResolver resolver)
   {
     m_uriResolver = resolver;
+    invalidateTemplatesCache();
   }
 
   /**
@@ -1029,8 +1093,31 @@ public class TransformerFactoryImpl extends SAXTransformerFactory
       // "ErrorListener");
 
     m_errorListener = listener;
+    invalidateTemplatesCache();
   }
   
+  /**
+   * Get the cache of compiled stylesheets, for example to read its
+   * statistics.
+   *
+   * @return the cache, or null if FEATURE_TEMPLATES_CACHE_SIZE is not set.
+   */
+  public TemplatesCache getTemplatesCache()
+  {
+    return m_templatesCache;
+  }
+
+  /**
+   * Drop all cached stylesheets, as they were compiled under settings
+   * that are about to change.
+   */
+  private void invalidateTemplatesCache()
+  {
+    TemplatesCache cache = m_templatesCache;
+    if (cache != null)
+      cache.clear();
+  }
+
   /**
    * Return the state of the secure processing feature.
    * 
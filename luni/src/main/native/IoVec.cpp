@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#define LOG_TAG "IoVec"
+
+#include "IoVec.h"
+#include "JNIHelp.h"
+#include "ScopedPrimitiveArray.h"
+#include "UniquePtr.h"
+
+#include <limits.h>
+
+#ifndef IOV_MAX
+#define IOV_MAX 1024 // The Linux kernel's UIO_MAXIOV.
+#endif
+
+iovec* initIoVec(JNIEnv* env,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, int* count) {
+    if (*count > IOV_MAX) {
+        *count = IOV_MAX;
+    }
+    int size = *count;
+    UniquePtr<iovec[]> vectors(new iovec[size]);
+    if (vectors.get() == NULL) {
+        jniThrowException(env, "java/lang/OutOfMemoryError", "native heap");
+        return NULL;
+    }
+    ScopedIntArrayRO buffers(env, jBuffers);
+    if (buffers.get() == NULL) {
+        return NULL;
+    }
+    ScopedIntArrayRO offsets(env, jOffsets);
+    if (offsets.get() == NULL) {
+        return NULL;
+    }
+    ScopedIntArrayRO lengths(env, jLengths);
+    if (lengths.get() == NULL) {
+        return NULL;
+    }
+    for (int i = 0; i < size; ++i) {
+        vectors[i].iov_base = reinterpret_cast<void*>(buffers[i] + offsets[i]);
+        vectors[i].iov_len = lengths[i];
+    }
+    return vectors.release();
+}
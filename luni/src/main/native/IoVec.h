@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include "jni.h"
+
+#include <sys/uio.h>
+
+// Translates three Java int[]s (addresses, offsets and lengths) to a native
+// iovec[] for readv(2), writev(2), preadv(2) and pwritev(2). The kernel
+// rejects more than IOV_MAX buffers, so '*count' is lowered to IOV_MAX if
+// necessary: the call then transfers fewer bytes than requested, which
+// callers must handle anyway. IoVec.MAX_BUFFERS applies the same cap in
+// Java, so that no buffers are staged beyond it. Returns NULL with a pending exception on
+// failure.
+iovec* initIoVec(JNIEnv* env,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, int* count);
@@ -29,6 +29,7 @@
 #include <openssl/dsa.h>
 #include <openssl/err.h>
 #include <openssl/evp.h>
+#include <openssl/hmac.h>
 #include <openssl/rand.h>
 #include <openssl/rsa.h>
 #include <openssl/ssl.h>
@@ -842,6 +843,387 @@ static int NativeCrypto_EVP_VerifyFinal(JNIEnv* env, jclass, EVP_MD_CTX* ctx, jb
     return result;
 }
 
+/*
+ * public static native int EVP_get_cipherbyname(java.lang.String)
+ */
+static jint NativeCrypto_EVP_get_cipherbyname(JNIEnv* env, jclass, jstring algorithm) {
+    JNI_TRACE("NativeCrypto_EVP_get_cipherbyname(%p)", algorithm);
+
+    if (algorithm == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return 0;
+    }
+
+    ScopedUtfChars algorithmChars(env, algorithm);
+    if (algorithmChars.c_str() == NULL) {
+        return 0;
+    }
+
+    const EVP_CIPHER* cipher = EVP_get_cipherbyname(algorithmChars.c_str());
+    JNI_TRACE("NativeCrypto_EVP_get_cipherbyname(%s) => %p", algorithmChars.c_str(), cipher);
+    return (jint) cipher;
+}
+
+/*
+ * public static native int EVP_CIPHER_block_size(int)
+ */
+static jint NativeCrypto_EVP_CIPHER_block_size(JNIEnv* env, jclass, const EVP_CIPHER* cipher) {
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_block_size(%p)", cipher);
+
+    if (cipher == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return -1;
+    }
+    return EVP_CIPHER_block_size(cipher);
+}
+
+/*
+ * public static native int EVP_CIPHER_iv_length(int)
+ */
+static jint NativeCrypto_EVP_CIPHER_iv_length(JNIEnv* env, jclass, const EVP_CIPHER* cipher) {
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_iv_length(%p)", cipher);
+
+    if (cipher == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return -1;
+    }
+    return EVP_CIPHER_iv_length(cipher);
+}
+
+/*
+ * public static native int EVP_CIPHER_CTX_new()
+ */
+static jint NativeCrypto_EVP_CIPHER_CTX_new(JNIEnv* env, jclass) {
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_CTX_new");
+
+    EVP_CIPHER_CTX* ctx = EVP_CIPHER_CTX_new();
+    if (ctx == NULL) {
+        jniThrowOutOfMemoryError(env, "Unable to allocate EVP_CIPHER_CTX");
+    }
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_CTX_new => %p", ctx);
+    return (jint) ctx;
+}
+
+/*
+ * public static native void EVP_CIPHER_CTX_free(int)
+ */
+static void NativeCrypto_EVP_CIPHER_CTX_free(JNIEnv*, jclass, EVP_CIPHER_CTX* ctx) {
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_CTX_free(%p)", ctx);
+
+    if (ctx != NULL) {
+        EVP_CIPHER_CTX_free(ctx);
+    }
+}
+
+/*
+ * public static native void EVP_CipherInit_ex(int, int, byte[], byte[], boolean)
+ */
+static void NativeCrypto_EVP_CipherInit_ex(JNIEnv* env, jclass, EVP_CIPHER_CTX* ctx,
+                                           const EVP_CIPHER* cipher, jbyteArray key,
+                                           jbyteArray iv, jboolean encrypting) {
+    JNI_TRACE("NativeCrypto_EVP_CipherInit_ex(%p, %p, %p, %p, %d)",
+              ctx, cipher, key, iv, encrypting);
+
+    if (ctx == NULL || cipher == NULL || key == NULL || iv == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return;
+    }
+
+    ScopedByteArrayRO keyBytes(env, key);
+    if (keyBytes.get() == NULL) {
+        return;
+    }
+    if (static_cast<int>(keyBytes.size()) != EVP_CIPHER_key_length(cipher)) {
+        jniThrowException(env, "java/security/InvalidKeyException", "Invalid key length");
+        return;
+    }
+    ScopedByteArrayRO ivBytes(env, iv);
+    if (ivBytes.get() == NULL) {
+        return;
+    }
+    if (static_cast<int>(ivBytes.size()) != EVP_CIPHER_iv_length(cipher)) {
+        jniThrowException(env, "java/security/InvalidAlgorithmParameterException",
+                          "Invalid IV length");
+        return;
+    }
+
+    // Each init starts over, so forget any padding setting from before.
+    EVP_CIPHER_CTX_cleanup(ctx);
+    EVP_CIPHER_CTX_init(ctx);
+    if (!EVP_CipherInit_ex(ctx, cipher, NULL,
+                           reinterpret_cast<const unsigned char*>(keyBytes.get()),
+                           reinterpret_cast<const unsigned char*>(ivBytes.get()),
+                           encrypting ? 1 : 0)) {
+        throwExceptionIfNecessary(env, "NativeCrypto_EVP_CipherInit_ex");
+    }
+}
+
+/*
+ * public static native void EVP_CIPHER_CTX_set_padding(int, boolean)
+ */
+static void NativeCrypto_EVP_CIPHER_CTX_set_padding(JNIEnv* env, jclass, EVP_CIPHER_CTX* ctx,
+                                                    jboolean enablePadding) {
+    JNI_TRACE("NativeCrypto_EVP_CIPHER_CTX_set_padding(%p, %d)", ctx, enablePadding);
+
+    if (ctx == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return;
+    }
+    EVP_CIPHER_CTX_set_padding(ctx, enablePadding ? 1 : 0);
+}
+
+/*
+ * public static native int EVP_CipherUpdate(int, byte[], int, byte[], int, int)
+ */
+static jint NativeCrypto_EVP_CipherUpdate(JNIEnv* env, jclass, EVP_CIPHER_CTX* ctx,
+                                          jbyteArray out, jint outOffset,
+                                          jbyteArray in, jint inOffset, jint inLength) {
+    JNI_TRACE("NativeCrypto_EVP_CipherUpdate(%p, %p, %d, %p, %d, %d)",
+              ctx, out, outOffset, in, inOffset, inLength);
+
+    if (ctx == NULL || out == NULL || in == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return -1;
+    }
+
+    ScopedByteArrayRO inBytes(env, in);
+    if (inBytes.get() == NULL) {
+        return -1;
+    }
+    ScopedByteArrayRW outBytes(env, out);
+    if (outBytes.get() == NULL) {
+        return -1;
+    }
+    // The output may include a block held back by the previous call.
+    size_t outNeeded = static_cast<size_t>(inLength) + EVP_CIPHER_CTX_block_size(ctx);
+    if (inOffset < 0 || inLength < 0 || static_cast<size_t>(inOffset) > inBytes.size()
+            || inBytes.size() - inOffset < static_cast<size_t>(inLength)
+            || outOffset < 0 || static_cast<size_t>(outOffset) > outBytes.size()
+            || outBytes.size() - outOffset < outNeeded) {
+        jniThrowException(env, "java/lang/ArrayIndexOutOfBoundsException", NULL);
+        return -1;
+    }
+
+    int outLength = 0;
+    if (!EVP_CipherUpdate(ctx,
+                          reinterpret_cast<unsigned char*>(outBytes.get() + outOffset),
+                          &outLength,
+                          reinterpret_cast<const unsigned char*>(inBytes.get() + inOffset),
+                          inLength)) {
+        throwExceptionIfNecessary(env, "NativeCrypto_EVP_CipherUpdate");
+        return -1;
+    }
+    JNI_TRACE("NativeCrypto_EVP_CipherUpdate(%p) => %d", ctx, outLength);
+    return outLength;
+}
+
+/*
+ * public static native int EVP_CipherUpdateDirect(int, int, int, int)
+ *
+ * Like EVP_CipherUpdate, but between the native memory of direct buffers,
+ * so that nothing is copied through the Java heap. The caller checks that
+ * the output has room for inLength plus a block.
+ */
+static jint NativeCrypto_EVP_CipherUpdateDirect(JNIEnv* env, jclass, EVP_CIPHER_CTX* ctx,
+                                                jint outAddress, jint inAddress, jint inLength) {
+    JNI_TRACE("NativeCrypto_EVP_CipherUpdateDirect(%p, %x, %x, %d)",
+              ctx, outAddress, inAddress, inLength);
+
+    if (ctx == NULL || outAddress == 0 || inAddress == 0) {
+        jniThrowNullPointerException(env, NULL);
+        return -1;
+    }
+
+    int outLength = 0;
+    if (!EVP_CipherUpdate(ctx,
+                          reinterpret_cast<unsigned char*>(static_cast<uintptr_t>(outAddress)),
+                          &outLength,
+                          reinterpret_cast<const unsigned char*>(
+                                  static_cast<uintptr_t>(inAddress)),
+                          inLength)) {
+        throwExceptionIfNecessary(env, "NativeCrypto_EVP_CipherUpdateDirect");
+        return -1;
+    }
+    return outLength;
+}
+
+/*
+ * public static native int EVP_CipherFinal_ex(int, byte[], int)
+ */
+static jint NativeCrypto_EVP_CipherFinal_ex(JNIEnv* env, jclass, EVP_CIPHER_CTX* ctx,
+                                            jbyteArray out, jint outOffset) {
+    JNI_TRACE("NativeCrypto_EVP_CipherFinal_ex(%p, %p, %d)", ctx, out, outOffset);
+
+    if (ctx == NULL || out == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return -1;
+    }
+
+    ScopedByteArrayRW outBytes(env, out);
+    if (outBytes.get() == NULL) {
+        return -1;
+    }
+    if (outOffset < 0 || static_cast<size_t>(outOffset) > outBytes.size()
+            || outBytes.size() - outOffset
+                    < static_cast<size_t>(EVP_CIPHER_CTX_block_size(ctx))) {
+        jniThrowException(env, "java/lang/ArrayIndexOutOfBoundsException", NULL);
+        return -1;
+    }
+
+    int outLength = 0;
+    if (!EVP_CipherFinal_ex(ctx,
+                            reinterpret_cast<unsigned char*>(outBytes.get() + outOffset),
+                            &outLength)) {
+        // Report the two ways a final block can be wrong as the checked
+        // exceptions Cipher.doFinal declares for them.
+        int reason = ERR_GET_REASON(ERR_peek_error());
+        if (reason == EVP_R_DATA_NOT_MULTIPLE_OF_BLOCK_LENGTH
+                || reason == EVP_R_WRONG_FINAL_BLOCK_LENGTH) {
+            freeSslErrorState();
+            jniThrowException(env, "javax/crypto/IllegalBlockSizeException",
+                              "Input length not a multiple of the block size");
+        } else if (reason == EVP_R_BAD_DECRYPT) {
+            freeSslErrorState();
+            jniThrowException(env, "javax/crypto/BadPaddingException", "Bad padding");
+        } else {
+            throwExceptionIfNecessary(env, "NativeCrypto_EVP_CipherFinal_ex");
+        }
+        return -1;
+    }
+    JNI_TRACE("NativeCrypto_EVP_CipherFinal_ex(%p) => %d", ctx, outLength);
+    return outLength;
+}
+
+/*
+ * public static native int HMAC_CTX_new()
+ */
+static jint NativeCrypto_HMAC_CTX_new(JNIEnv* env, jclass) {
+    JNI_TRACE("NativeCrypto_HMAC_CTX_new");
+
+    HMAC_CTX* ctx = new HMAC_CTX;
+    HMAC_CTX_init(ctx);
+    JNI_TRACE("NativeCrypto_HMAC_CTX_new => %p", ctx);
+    return (jint) ctx;
+}
+
+/*
+ * public static native void HMAC_CTX_free(int)
+ */
+static void NativeCrypto_HMAC_CTX_free(JNIEnv*, jclass, HMAC_CTX* ctx) {
+    JNI_TRACE("NativeCrypto_HMAC_CTX_free(%p)", ctx);
+
+    if (ctx != NULL) {
+        HMAC_CTX_cleanup(ctx);
+        delete ctx;
+    }
+}
+
+/*
+ * public static native void HMAC_Init_ex(int, byte[], java.lang.String)
+ *
+ * A null key and algorithm start a new MAC with the previous ones.
+ */
+static void NativeCrypto_HMAC_Init_ex(JNIEnv* env, jclass, HMAC_CTX* ctx, jbyteArray key,
+                                      jstring algorithm) {
+    JNI_TRACE("NativeCrypto_HMAC_Init_ex(%p, %p, %p)", ctx, key, algorithm);
+
+    if (ctx == NULL || (key == NULL) != (algorithm == NULL)) {
+        jniThrowNullPointerException(env, NULL);
+        return;
+    }
+
+    if (key == NULL) {
+        HMAC_Init_ex(ctx, NULL, 0, NULL, NULL);
+        throwExceptionIfNecessary(env, "NativeCrypto_HMAC_Init_ex");
+        return;
+    }
+
+    ScopedUtfChars algorithmChars(env, algorithm);
+    if (algorithmChars.c_str() == NULL) {
+        return;
+    }
+    const EVP_MD* digest = EVP_get_digestbynid(OBJ_txt2nid(algorithmChars.c_str()));
+    if (digest == NULL) {
+        jniThrowRuntimeException(env, "Hash algorithm not found");
+        return;
+    }
+
+    ScopedByteArrayRO keyBytes(env, key);
+    if (keyBytes.get() == NULL) {
+        return;
+    }
+    HMAC_Init_ex(ctx, keyBytes.get(), keyBytes.size(), digest, NULL);
+    throwExceptionIfNecessary(env, "NativeCrypto_HMAC_Init_ex");
+}
+
+/*
+ * public static native void HMAC_Update(int, byte[], int, int)
+ */
+static void NativeCrypto_HMAC_Update(JNIEnv* env, jclass, HMAC_CTX* ctx,
+                                     jbyteArray in, jint inOffset, jint inLength) {
+    JNI_TRACE("NativeCrypto_HMAC_Update(%p, %p, %d, %d)", ctx, in, inOffset, inLength);
+
+    if (ctx == NULL || in == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return;
+    }
+
+    ScopedByteArrayRO inBytes(env, in);
+    if (inBytes.get() == NULL) {
+        return;
+    }
+    if (inOffset < 0 || inLength < 0 || static_cast<size_t>(inOffset) > inBytes.size()
+            || inBytes.size() - inOffset < static_cast<size_t>(inLength)) {
+        jniThrowException(env, "java/lang/ArrayIndexOutOfBoundsException", NULL);
+        return;
+    }
+    HMAC_Update(ctx, reinterpret_cast<const unsigned char*>(inBytes.get() + inOffset),
+                inLength);
+    throwExceptionIfNecessary(env, "NativeCrypto_HMAC_Update");
+}
+
+/*
+ * public static native void HMAC_UpdateDirect(int, int, int)
+ */
+static void NativeCrypto_HMAC_UpdateDirect(JNIEnv* env, jclass, HMAC_CTX* ctx,
+                                           jint inAddress, jint inLength) {
+    JNI_TRACE("NativeCrypto_HMAC_UpdateDirect(%p, %x, %d)", ctx, inAddress, inLength);
+
+    if (ctx == NULL || inAddress == 0) {
+        jniThrowNullPointerException(env, NULL);
+        return;
+    }
+    HMAC_Update(ctx, reinterpret_cast<const unsigned char*>(static_cast<uintptr_t>(inAddress)),
+                inLength);
+    throwExceptionIfNecessary(env, "NativeCrypto_HMAC_UpdateDirect");
+}
+
+/*
+ * public static native byte[] HMAC_Final(int)
+ */
+static jbyteArray NativeCrypto_HMAC_Final(JNIEnv* env, jclass, HMAC_CTX* ctx) {
+    JNI_TRACE("NativeCrypto_HMAC_Final(%p)", ctx);
+
+    if (ctx == NULL) {
+        jniThrowNullPointerException(env, NULL);
+        return NULL;
+    }
+
+    unsigned char result[EVP_MAX_MD_SIZE];
+    unsigned int resultLength = 0;
+    HMAC_Final(ctx, result, &resultLength);
+    if (throwExceptionIfNecessary(env, "NativeCrypto_HMAC_Final")) {
+        return NULL;
+    }
+
+    jbyteArray resultArray = env->NewByteArray(resultLength);
+    if (resultArray == NULL) {
+        return NULL;
+    }
+    env->SetByteArrayRegion(resultArray, 0, resultLength, reinterpret_cast<jbyte*>(result));
+    return resultArray;
+}
+
 /**
  * Helper function that creates an RSA public key from two buffers containing
  * the big-endian bit representation of the modulus and the public exponent.
@@ -2753,6 +3135,30 @@ static int sslRead(JNIEnv* env, SSL* ssl, jobject fdObject, jobject shc, char* b
     return -1;
 }
 
+/**
+ * Throws the exception that sslRead() asked for, if any, on behalf of the
+ * SSL_read functions.
+ *
+ * @return -1 if an exception is pending, otherwise sslRead()'s result: the
+ * number of bytes read, or -1 if the connection was cleanly shut down.
+ */
+static int sslReadResult(JNIEnv* env, SSL* ssl, int ret, int sslErrorCode) {
+    switch (ret) {
+        case THROW_EXCEPTION:
+            // See sslRead() regarding improper failure to handle normal cases.
+            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Read error");
+            return -1;
+        case THROW_SOCKETTIMEOUTEXCEPTION:
+            throwSocketTimeoutException(env, "Read timed out");
+            return -1;
+        case THROWN_SOCKETEXCEPTION:
+            // SocketException thrown by NetFd.isClosed
+            return -1;
+        default:
+            return ret;
+    }
+}
+
 /**
  * OpenSSL read function (1): only one chunk is read (returned as jint).
  */
@@ -2783,29 +3189,11 @@ static jint NativeCrypto_SSL_read_byte(JNIEnv* env, jclass, jint ssl_address,
     int ret = sslRead(env, ssl, fdObject, shc, reinterpret_cast<char*>(&byteRead), 1,
                       &returnCode, &sslErrorCode, timeout);
 
-    int result;
-    switch (ret) {
-        case THROW_EXCEPTION:
-            // See sslRead() regarding improper failure to handle normal cases.
-            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Read error");
-            result = -1;
-            break;
-        case THROW_SOCKETTIMEOUTEXCEPTION:
-            throwSocketTimeoutException(env, "Read timed out");
-            result = -1;
-            break;
-        case THROWN_SOCKETEXCEPTION:
-            // SocketException thrown by NetFd.isClosed
-            result = -1;
-            break;
-        case -1:
-            // Propagate EOF upwards.
-            result = -1;
-            break;
-        default:
-            // Return the actual char read, make sure it stays 8 bits wide.
-            result = ((jint) byteRead) & 0xFF;
-            break;
+    // -1 is EOF, or an exception has been thrown.
+    int result = sslReadResult(env, ssl, ret, sslErrorCode);
+    if (result != -1) {
+        // Return the actual char read, make sure it stays 8 bits wide.
+        result = ((jint) byteRead) & 0xFF;
     }
     JNI_TRACE("ssl=%p NativeCrypto_SSL_read_byte => %d", ssl, result);
     return result;
@@ -2846,25 +3234,7 @@ static jint NativeCrypto_SSL_read(JNIEnv* env, jclass, jint ssl_address, jobject
     int ret = sslRead(env, ssl, fdObject, shc, reinterpret_cast<char*>(bytes.get() + offset), len,
                       &returnCode, &sslErrorCode, timeout);
 
-    int result;
-    switch (ret) {
-        case THROW_EXCEPTION:
-            // See sslRead() regarding improper failure to handle normal cases.
-            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Read error");
-            result = -1;
-            break;
-        case THROW_SOCKETTIMEOUTEXCEPTION:
-            throwSocketTimeoutException(env, "Read timed out");
-            result = -1;
-            break;
-        case THROWN_SOCKETEXCEPTION:
-            // SocketException thrown by NetFd.isClosed
-            result = -1;
-            break;
-        default:
-            result = ret;
-            break;
-    }
+    int result = sslReadResult(env, ssl, ret, sslErrorCode);
 
     JNI_TRACE("ssl=%p NativeCrypto_SSL_read => %d", ssl, result);
     return result;
@@ -3005,6 +3375,27 @@ static int sslWrite(JNIEnv* env, SSL* ssl, jobject fdObject, jobject shc, const
     return count;
 }
 
+/**
+ * Throws the exception that sslWrite() asked for, if any, on behalf of the
+ * SSL_write functions.
+ */
+static void sslWriteResult(JNIEnv* env, SSL* ssl, int ret, int sslErrorCode) {
+    switch (ret) {
+        case THROW_EXCEPTION:
+            // See sslWrite() regarding improper failure to handle normal cases.
+            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Write error");
+            break;
+        case THROW_SOCKETTIMEOUTEXCEPTION:
+            throwSocketTimeoutException(env, "Write timed out");
+            break;
+        case THROWN_SOCKETEXCEPTION:
+            // SocketException thrown by NetFd.isClosed
+            break;
+        default:
+            break;
+    }
+}
+
 /**
  * OpenSSL write function (1): only one chunk is written.
  */
@@ -3031,21 +3422,7 @@ static void NativeCrypto_SSL_write_byte(JNIEnv* env, jclass, jint ssl_address,
     int sslErrorCode = SSL_ERROR_NONE;
     char buf[1] = { (char) b };
     int ret = sslWrite(env, ssl, fdObject, shc, buf, 1, &returnCode, &sslErrorCode);
-
-    switch (ret) {
-        case THROW_EXCEPTION:
-            // See sslWrite() regarding improper failure to handle normal cases.
-            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Write error");
-            break;
-        case THROW_SOCKETTIMEOUTEXCEPTION:
-            throwSocketTimeoutException(env, "Write timed out");
-            break;
-        case THROWN_SOCKETEXCEPTION:
-            // SocketException thrown by NetFd.isClosed
-            break;
-        default:
-            break;
-    }
+    sslWriteResult(env, ssl, ret, sslErrorCode);
 }
 
 /**
@@ -3080,21 +3457,74 @@ static void NativeCrypto_SSL_write(JNIEnv* env, jclass, jint ssl_address, jobjec
     int sslErrorCode = SSL_ERROR_NONE;
     int ret = sslWrite(env, ssl, fdObject, shc, reinterpret_cast<const char*>(bytes.get() + offset),
                        len, &returnCode, &sslErrorCode);
+    sslWriteResult(env, ssl, ret, sslErrorCode);
+}
 
-    switch (ret) {
-        case THROW_EXCEPTION:
-            // See sslWrite() regarding improper failure to handle normal cases.
-            throwSSLExceptionWithSslErrors(env, ssl, sslErrorCode, "Write error");
-            break;
-        case THROW_SOCKETTIMEOUTEXCEPTION:
-            throwSocketTimeoutException(env, "Write timed out");
-            break;
-        case THROWN_SOCKETEXCEPTION:
-            // SocketException thrown by NetFd.isClosed
-            break;
-        default:
-            break;
+/**
+ * Like NativeCrypto_SSL_read, but decrypts straight into the native memory
+ * of a direct ByteBuffer instead of pinning or copying a Java array.
+ */
+static jint NativeCrypto_SSL_read_direct(JNIEnv* env, jclass, jint ssl_address, jobject fdObject,
+                                         jobject shc, jint address, jint len, jint timeout)
+{
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_read_direct fd=%p shc=%p address=%x len=%d timeout=%d",
+              ssl, fdObject, shc, address, len, timeout);
+    if (ssl == NULL) {
+        return 0;
     }
+    if (fdObject == NULL) {
+        jniThrowNullPointerException(env, "fd == null");
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_read_direct => fd == null", ssl);
+        return 0;
+    }
+    if (shc == NULL) {
+        jniThrowNullPointerException(env, "sslHandshakeCallbacks == null");
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_read_direct => sslHandshakeCallbacks == null", ssl);
+        return 0;
+    }
+
+    int returnCode = 0;
+    int sslErrorCode = SSL_ERROR_NONE;
+
+    int ret = sslRead(env, ssl, fdObject, shc, reinterpret_cast<char*>(address), len,
+                      &returnCode, &sslErrorCode, timeout);
+
+    int result = sslReadResult(env, ssl, ret, sslErrorCode);
+
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_read_direct => %d", ssl, result);
+    return result;
+}
+
+/**
+ * Like NativeCrypto_SSL_write, but encrypts straight from the native memory
+ * of a direct ByteBuffer.
+ */
+static void NativeCrypto_SSL_write_direct(JNIEnv* env, jclass, jint ssl_address, jobject fdObject,
+                                          jobject shc, jint address, jint len)
+{
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_write_direct fd=%p shc=%p address=%x len=%d",
+              ssl, fdObject, shc, address, len);
+    if (ssl == NULL) {
+        return;
+    }
+    if (fdObject == NULL) {
+        jniThrowNullPointerException(env, "fd == null");
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_write_direct => fd == null", ssl);
+        return;
+    }
+    if (shc == NULL) {
+        jniThrowNullPointerException(env, "sslHandshakeCallbacks == null");
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_write_direct => sslHandshakeCallbacks == null", ssl);
+        return;
+    }
+
+    int returnCode = 0;
+    int sslErrorCode = SSL_ERROR_NONE;
+    int ret = sslWrite(env, ssl, fdObject, shc, reinterpret_cast<const char*>(address),
+                       len, &returnCode, &sslErrorCode);
+    sslWriteResult(env, ssl, ret, sslErrorCode);
 }
 
 /**
@@ -3411,6 +3841,22 @@ static JNINativeMethod sNativeCryptoMethods[] = {
     NATIVE_METHOD(NativeCrypto, EVP_VerifyInit, "(ILjava/lang/String;)V"),
     NATIVE_METHOD(NativeCrypto, EVP_VerifyUpdate, "(I[BII)V"),
     NATIVE_METHOD(NativeCrypto, EVP_VerifyFinal, "(I[BIII)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_get_cipherbyname, "(Ljava/lang/String;)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CIPHER_block_size, "(I)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CIPHER_iv_length, "(I)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CIPHER_CTX_new, "()I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CIPHER_CTX_free, "(I)V"),
+    NATIVE_METHOD(NativeCrypto, EVP_CipherInit_ex, "(II[B[BZ)V"),
+    NATIVE_METHOD(NativeCrypto, EVP_CIPHER_CTX_set_padding, "(IZ)V"),
+    NATIVE_METHOD(NativeCrypto, EVP_CipherUpdate, "(I[BI[BII)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CipherUpdateDirect, "(IIII)I"),
+    NATIVE_METHOD(NativeCrypto, EVP_CipherFinal_ex, "(I[BI)I"),
+    NATIVE_METHOD(NativeCrypto, HMAC_CTX_new, "()I"),
+    NATIVE_METHOD(NativeCrypto, HMAC_CTX_free, "(I)V"),
+    NATIVE_METHOD(NativeCrypto, HMAC_Init_ex, "(I[BLjava/lang/String;)V"),
+    NATIVE_METHOD(NativeCrypto, HMAC_Update, "(I[BII)V"),
+    NATIVE_METHOD(NativeCrypto, HMAC_UpdateDirect, "(III)V"),
+    NATIVE_METHOD(NativeCrypto, HMAC_Final, "(I)[B"),
     NATIVE_METHOD(NativeCrypto, verifySignature, "([B[BLjava/lang/String;[B[B)I"),
     NATIVE_METHOD(NativeCrypto, RAND_seed, "([B)V"),
     NATIVE_METHOD(NativeCrypto, RAND_load_file, "(Ljava/lang/String;J)I"),
@@ -3441,6 +3887,8 @@ static JNINativeMethod sNativeCryptoMethods[] = {
     NATIVE_METHOD(NativeCrypto, SSL_read, "(I" FILE_DESCRIPTOR SSL_CALLBACKS "[BIII)I"),
     NATIVE_METHOD(NativeCrypto, SSL_write_byte, "(I" FILE_DESCRIPTOR SSL_CALLBACKS "I)V"),
     NATIVE_METHOD(NativeCrypto, SSL_write, "(I" FILE_DESCRIPTOR SSL_CALLBACKS "[BII)V"),
+    NATIVE_METHOD(NativeCrypto, SSL_read_direct, "(I" FILE_DESCRIPTOR SSL_CALLBACKS "III)I"),
+    NATIVE_METHOD(NativeCrypto, SSL_write_direct, "(I" FILE_DESCRIPTOR SSL_CALLBACKS "II)V"),
     NATIVE_METHOD(NativeCrypto, SSL_interrupt, "(I)V"),
     NATIVE_METHOD(NativeCrypto, SSL_shutdown, "(I" FILE_DESCRIPTOR SSL_CALLBACKS ")V"),
     NATIVE_METHOD(NativeCrypto, SSL_free, "(I)V"),
@@ -19,8 +19,12 @@
 
 #include "JNIHelp.h"
 #include "JniConstants.h"
+#include "ScopedPrimitiveArray.h"
 #include "ScopedUtfChars.h"
 
+#include <stdint.h>
+#include <string.h>
+
 #define SETTER(FUNCTION_NAME, JNI_C_TYPE, JNI_TYPE_STRING, JNI_SETTER_FUNCTION) \
     static void FUNCTION_NAME(JNIEnv* env, jclass, jobject instance, \
             jclass declaringClass, jstring javaFieldName, JNI_C_TYPE newValue) { \
@@ -65,6 +69,95 @@ static void ObjectInputStream_setFieldObject(JNIEnv* env, jclass, jobject instan
     }
 }
 
+// Decodes big-endian values as written by DataOutputStream.
+static uint16_t get16(const uint8_t* p) {
+    return (p[0] << 8) | p[1];
+}
+
+static uint32_t get32(const uint8_t* p) {
+    return (p[0] << 24) | (p[1] << 16) | (p[2] << 8) | p[3];
+}
+
+static uint64_t get64(const uint8_t* p) {
+    return (static_cast<uint64_t>(get32(p)) << 32) | get32(p + 4);
+}
+
+static void ObjectInputStream_setPrimitiveFieldValues(JNIEnv* env, jclass, jobject instance,
+        jlongArray javaFieldIDs, jbyteArray javaTypeCodes, jbyteArray javaValues) {
+    if (instance == NULL) {
+        return;
+    }
+    ScopedLongArrayRO fieldIDs(env, javaFieldIDs);
+    ScopedByteArrayRO typeCodes(env, javaTypeCodes);
+    ScopedByteArrayRO values(env, javaValues);
+    if (fieldIDs.get() == NULL || typeCodes.get() == NULL || values.get() == NULL) {
+        return;
+    }
+    const uint8_t* p = reinterpret_cast<const uint8_t*>(values.get());
+    size_t count = fieldIDs.size();
+    for (size_t i = 0; i < count; ++i) {
+        jfieldID fid = reinterpret_cast<jfieldID>(static_cast<uintptr_t>(fieldIDs[i]));
+        switch (typeCodes[i]) {
+        case 'B':
+            if (fid != 0) {
+                env->SetByteField(instance, fid, static_cast<jbyte>(*p));
+            }
+            p += 1;
+            break;
+        case 'Z':
+            if (fid != 0) {
+                env->SetBooleanField(instance, fid, *p != 0);
+            }
+            p += 1;
+            break;
+        case 'C':
+            if (fid != 0) {
+                env->SetCharField(instance, fid, get16(p));
+            }
+            p += 2;
+            break;
+        case 'S':
+            if (fid != 0) {
+                env->SetShortField(instance, fid, static_cast<jshort>(get16(p)));
+            }
+            p += 2;
+            break;
+        case 'I':
+            if (fid != 0) {
+                env->SetIntField(instance, fid, static_cast<jint>(get32(p)));
+            }
+            p += 4;
+            break;
+        case 'F':
+            if (fid != 0) {
+                uint32_t bits = get32(p);
+                jfloat value;
+                memcpy(&value, &bits, sizeof(value));
+                env->SetFloatField(instance, fid, value);
+            }
+            p += 4;
+            break;
+        case 'J':
+            if (fid != 0) {
+                env->SetLongField(instance, fid, static_cast<jlong>(get64(p)));
+            }
+            p += 8;
+            break;
+        case 'D':
+            if (fid != 0) {
+                uint64_t bits = get64(p);
+                jdouble value;
+                memcpy(&value, &bits, sizeof(value));
+                env->SetDoubleField(instance, fid, value);
+            }
+            p += 8;
+            break;
+        default:
+            return;
+        }
+    }
+}
+
 static jobject ObjectInputStream_newInstance(JNIEnv* env, jclass,
         jclass instantiationClass, jclass constructorClass) {
     jmethodID mid = env->GetMethodID(constructorClass, "<init>", "()V");
@@ -85,6 +178,7 @@ static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(ObjectInputStream, setFieldLong, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;J)V"),
     NATIVE_METHOD(ObjectInputStream, setFieldShort, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;S)V"),
     NATIVE_METHOD(ObjectInputStream, setFieldBool, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;Z)V"),
+    NATIVE_METHOD(ObjectInputStream, setPrimitiveFieldValues, "(Ljava/lang/Object;[J[B[B)V"),
 };
 int register_java_io_ObjectInputStream(JNIEnv* env) {
     return jniRegisterNativeMethods(env, "java/io/ObjectInputStream", gMethods, NELEM(gMethods));
@@ -19,8 +19,12 @@
 
 #include "JNIHelp.h"
 #include "JniConstants.h"
+#include "ScopedPrimitiveArray.h"
 #include "ScopedUtfChars.h"
 
+#include <stdint.h>
+#include <string.h>
+
 #define GETTER(FUNCTION_NAME, JNI_C_TYPE, JNI_TYPE_STRING, JNI_GETTER_FUNCTION) \
     static JNI_C_TYPE FUNCTION_NAME(JNIEnv* env, jclass, jobject instance, jclass declaringClass, \
             jstring javaFieldName) { \
@@ -64,6 +68,82 @@ static jobject ObjectOutputStream_getFieldObj(JNIEnv* env, jclass, jobject insta
     return env->GetObjectField(instance, fid);
 }
 
+// Encodes big-endian values as DataOutputStream does.
+static uint8_t* put16(uint8_t* p, uint16_t value) {
+    *p++ = value >> 8;
+    *p++ = value;
+    return p;
+}
+
+static uint8_t* put32(uint8_t* p, uint32_t value) {
+    p = put16(p, value >> 16);
+    return put16(p, value);
+}
+
+static uint8_t* put64(uint8_t* p, uint64_t value) {
+    p = put32(p, value >> 32);
+    return put32(p, value);
+}
+
+static void ObjectOutputStream_getPrimitiveFieldValues(JNIEnv* env, jclass, jobject instance,
+        jlongArray javaFieldIDs, jbyteArray javaTypeCodes, jbyteArray javaValues) {
+    ScopedLongArrayRO fieldIDs(env, javaFieldIDs);
+    ScopedByteArrayRO typeCodes(env, javaTypeCodes);
+    ScopedByteArrayRW values(env, javaValues);
+    if (fieldIDs.get() == NULL || typeCodes.get() == NULL || values.get() == NULL) {
+        return;
+    }
+    uint8_t* p = reinterpret_cast<uint8_t*>(values.get());
+    size_t count = fieldIDs.size();
+    for (size_t i = 0; i < count; ++i) {
+        jfieldID fid = reinterpret_cast<jfieldID>(static_cast<uintptr_t>(fieldIDs[i]));
+        switch (typeCodes[i]) {
+        case 'B':
+            *p++ = env->GetByteField(instance, fid);
+            break;
+        case 'Z':
+            *p++ = env->GetBooleanField(instance, fid) ? 1 : 0;
+            break;
+        case 'C':
+            p = put16(p, env->GetCharField(instance, fid));
+            break;
+        case 'S':
+            p = put16(p, env->GetShortField(instance, fid));
+            break;
+        case 'I':
+            p = put32(p, env->GetIntField(instance, fid));
+            break;
+        case 'F':
+            {
+                // Like Float.floatToIntBits, write all NaNs as the canonical NaN.
+                jfloat value = env->GetFloatField(instance, fid);
+                uint32_t bits = 0x7fc00000;
+                if (value == value) {
+                    memcpy(&bits, &value, sizeof(bits));
+                }
+                p = put32(p, bits);
+            }
+            break;
+        case 'J':
+            p = put64(p, env->GetLongField(instance, fid));
+            break;
+        case 'D':
+            {
+                // Like Double.doubleToLongBits, write all NaNs as the canonical NaN.
+                jdouble value = env->GetDoubleField(instance, fid);
+                uint64_t bits = 0x7ff8000000000000ULL;
+                if (value == value) {
+                    memcpy(&bits, &value, sizeof(bits));
+                }
+                p = put64(p, bits);
+            }
+            break;
+        default:
+            return;
+        }
+    }
+}
+
 static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(ObjectOutputStream, getFieldBool, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;)Z"),
     NATIVE_METHOD(ObjectOutputStream, getFieldByte, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;)B"),
@@ -74,6 +154,7 @@ static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(ObjectOutputStream, getFieldLong, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;)J"),
     NATIVE_METHOD(ObjectOutputStream, getFieldObj, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/Object;"),
     NATIVE_METHOD(ObjectOutputStream, getFieldShort, "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;)S"),
+    NATIVE_METHOD(ObjectOutputStream, getPrimitiveFieldValues, "(Ljava/lang/Object;[J[B[B)V"),
 };
 int register_java_io_ObjectOutputStream(JNIEnv* env) {
     return jniRegisterNativeMethods(env, "java/io/ObjectOutputStream", gMethods, NELEM(gMethods));
@@ -19,6 +19,9 @@
 
 #include "JNIHelp.h"
 #include "JniConstants.h"
+#include "ScopedUtfChars.h"
+
+#include <stdint.h>
 
 static jobject getSignature(JNIEnv* env, jclass c, jobject object) {
     jmethodID mid = env->GetMethodID(c, "getSignature", "()Ljava/lang/String;");
@@ -41,6 +44,25 @@ static jobject ObjectStreamClass_getConstructorSignature(JNIEnv* env, jclass, jo
     return getSignature(env, JniConstants::constructorClass, constructor);
 }
 
+static jlong ObjectStreamClass_getFieldID(JNIEnv* env, jclass, jclass declaringClass,
+        jstring javaFieldName, jstring javaSignature) {
+    ScopedUtfChars fieldName(env, javaFieldName);
+    if (fieldName.c_str() == NULL) {
+        return 0;
+    }
+    ScopedUtfChars signature(env, javaSignature);
+    if (signature.c_str() == NULL) {
+        return 0;
+    }
+    jfieldID fid = env->GetFieldID(declaringClass, fieldName.c_str(), signature.c_str());
+    if (fid == 0) {
+        // A missing field is reported as 0 rather than NoSuchFieldError.
+        env->ExceptionClear();
+        return 0;
+    }
+    return static_cast<jlong>(reinterpret_cast<uintptr_t>(fid));
+}
+
 static jboolean ObjectStreamClass_hasClinit(JNIEnv * env, jclass, jclass targetClass) {
     jmethodID mid = env->GetStaticMethodID(targetClass, "<clinit>", "()V");
     env->ExceptionClear();
@@ -49,6 +71,7 @@ static jboolean ObjectStreamClass_hasClinit(JNIEnv * env, jclass, jclass targetC
 
 static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(ObjectStreamClass, getConstructorSignature, "(Ljava/lang/reflect/Constructor;)Ljava/lang/String;"),
+    NATIVE_METHOD(ObjectStreamClass, getFieldID, "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/String;)J"),
     NATIVE_METHOD(ObjectStreamClass, getFieldSignature, "(Ljava/lang/reflect/Field;)Ljava/lang/String;"),
     NATIVE_METHOD(ObjectStreamClass, getMethodSignature, "(Ljava/lang/reflect/Method;)Ljava/lang/String;"),
     NATIVE_METHOD(ObjectStreamClass, hasClinit, "(Ljava/lang/Class;)Z"),
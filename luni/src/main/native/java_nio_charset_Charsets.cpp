@@ -105,7 +105,7 @@ private:
     void operator=(const NativeUnsafeByteSequence&);
 };
 
-static void Charsets_asciiBytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes, jint offset, jint length, jcharArray javaChars) {
+static void Charsets_asciiBytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes, jint offset, jint length, jcharArray javaChars, jint charOffset) {
     ScopedByteArrayRO bytes(env, javaBytes);
     if (bytes.get() == NULL) {
         return;
@@ -116,7 +116,7 @@ static void Charsets_asciiBytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes
     }
 
     const jbyte* src = &bytes[offset];
-    jchar* dst = &chars[0];
+    jchar* dst = &chars[charOffset];
     static const jchar REPLACEMENT_CHAR = 0xfffd;
     for (int i = length - 1; i >= 0; --i) {
         jchar ch = static_cast<jchar>(*src++ & 0xff);
@@ -124,7 +124,7 @@ static void Charsets_asciiBytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes
     }
 }
 
-static void Charsets_isoLatin1BytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes, jint offset, jint length, jcharArray javaChars) {
+static void Charsets_isoLatin1BytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes, jint offset, jint length, jcharArray javaChars, jint charOffset) {
     ScopedByteArrayRO bytes(env, javaBytes);
     if (bytes.get() == NULL) {
         return;
@@ -135,12 +135,106 @@ static void Charsets_isoLatin1BytesToChars(JNIEnv* env, jclass, jbyteArray javaB
     }
 
     const jbyte* src = &bytes[offset];
-    jchar* dst = &chars[0];
+    jchar* dst = &chars[charOffset];
     for (int i = length - 1; i >= 0; --i) {
         *dst++ = static_cast<jchar>(*src++ & 0xff);
     }
 }
 
+static jlong Charsets_utf8BytesToChars(JNIEnv* env, jclass, jbyteArray javaBytes, jint offset, jint length,
+        jcharArray javaChars, jint charOffset, jint charCount, jboolean endOfInput) {
+    ScopedByteArrayRO bytes(env, javaBytes);
+    if (bytes.get() == NULL) {
+        return 0;
+    }
+    ScopedCharArrayRW chars(env, javaChars);
+    if (chars.get() == NULL) {
+        return 0;
+    }
+
+    static const jchar REPLACEMENT_CHAR = 0xfffd;
+    const uint8_t* const srcStart = reinterpret_cast<const uint8_t*>(&bytes[offset]);
+    const uint8_t* const srcEnd = srcStart + length;
+    jchar* const dstStart = &chars[charOffset];
+    jchar* const dstEnd = dstStart + charCount;
+    const uint8_t* src = srcStart;
+    jchar* dst = dstStart;
+    while (src < srcEnd && dst < dstEnd) {
+        uint8_t lead = *src;
+        if (lead < 0x80) {
+            *dst++ = lead;
+            ++src;
+            continue;
+        }
+
+        // The ranges allowed for the first continuation byte exclude overlong
+        // forms, surrogates and code points above U+10FFFF.
+        int trailCount;
+        uint32_t codePoint;
+        uint8_t lo = 0x80;
+        uint8_t hi = 0xbf;
+        if (lead >= 0xc2 && lead <= 0xdf) {
+            trailCount = 1;
+            codePoint = lead & 0x1f;
+        } else if (lead >= 0xe0 && lead <= 0xef) {
+            trailCount = 2;
+            codePoint = lead & 0x0f;
+            if (lead == 0xe0) {
+                lo = 0xa0;
+            } else if (lead == 0xed) {
+                hi = 0x9f;
+            }
+        } else if (lead >= 0xf0 && lead <= 0xf4) {
+            trailCount = 3;
+            codePoint = lead & 0x07;
+            if (lead == 0xf0) {
+                lo = 0x90;
+            } else if (lead == 0xf4) {
+                hi = 0x8f;
+            }
+        } else {
+            *dst++ = REPLACEMENT_CHAR;
+            ++src;
+            continue;
+        }
+
+        const uint8_t* p = src + 1;
+        int i = 0;
+        bool malformed = false;
+        for (; i < trailCount && p < srcEnd; ++i, ++p) {
+            if (*p < lo || *p > hi) {
+                malformed = true;
+                break;
+            }
+            codePoint = (codePoint << 6) | (*p & 0x3f);
+            lo = 0x80;
+            hi = 0xbf;
+        }
+        if (!malformed && i < trailCount) {
+            if (!endOfInput) {
+                break; // Wait for the rest of the sequence.
+            }
+            malformed = true;
+        }
+        if (malformed) {
+            *dst++ = REPLACEMENT_CHAR;
+            src = p;
+            continue;
+        }
+        if (codePoint >= 0x10000) {
+            if (dstEnd - dst < 2) {
+                break;
+            }
+            *dst++ = U16_LEAD(codePoint);
+            *dst++ = U16_TRAIL(codePoint);
+        } else {
+            *dst++ = codePoint;
+        }
+        src = p;
+    }
+    return (static_cast<jlong>(src - srcStart) << 32) | static_cast<jlong>(dst - dstStart);
+}
+
 /**
  * Translates the given characters to US-ASCII or ISO-8859-1 bytes, using the fact that
  * Unicode code points between U+0000 and U+007f inclusive are identical to US-ASCII, while
@@ -238,8 +332,9 @@ static jbyteArray Charsets_toUtf8Bytes(JNIEnv* env, jclass, jcharArray javaChars
 }
 
 static JNINativeMethod gMethods[] = {
-    NATIVE_METHOD(Charsets, asciiBytesToChars, "([BII[C)V"),
-    NATIVE_METHOD(Charsets, isoLatin1BytesToChars, "([BII[C)V"),
+    NATIVE_METHOD(Charsets, asciiBytesToChars, "([BII[CI)V"),
+    NATIVE_METHOD(Charsets, isoLatin1BytesToChars, "([BII[CI)V"),
+    NATIVE_METHOD(Charsets, utf8BytesToChars, "([BII[CIIZ)J"),
     NATIVE_METHOD(Charsets, toAsciiBytes, "([CII)[B"),
     NATIVE_METHOD(Charsets, toIsoLatin1Bytes, "([CII)[B"),
     NATIVE_METHOD(Charsets, toUtf8Bytes, "([CII)[B"),
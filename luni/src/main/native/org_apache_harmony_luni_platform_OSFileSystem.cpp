@@ -30,6 +30,7 @@
 #define HyOpenSync      128
 #define SHARED_LOCK_TYPE 1L
 
+#include "IoVec.h"
 #include "JNIHelp.h"
 #include "JniConstants.h"
 #include "LocalArray.h"
@@ -107,12 +108,12 @@ static int EsTranslateOpenFlags(int flags) {
 // Checks whether we can safely treat the given jlong as an off_t without
 // accidental loss of precision.
 // TODO: this is bogus; we should use _FILE_OFFSET_BITS=64.
-static bool offsetTooLarge(JNIEnv* env, jlong longOffset) {
+static bool offsetFits(jlong longOffset) {
     if (sizeof(off_t) >= sizeof(jlong)) {
         // We're only concerned about the possibility that off_t is
         // smaller than jlong. off_t is signed, so we don't need to
         // worry about signed/unsigned.
-        return false;
+        return true;
     }
 
     // TODO: use std::numeric_limits<off_t>::max() and min() when we have them.
@@ -120,7 +121,12 @@ static bool offsetTooLarge(JNIEnv* env, jlong longOffset) {
     static const off_t off_t_max = INT_MAX;
     static const off_t off_t_min = INT_MIN;
 
-    if (longOffset > off_t_max || longOffset < off_t_min) {
+    return longOffset <= off_t_max && longOffset >= off_t_min;
+}
+
+// Like offsetFits, but throws if the offset doesn't fit.
+static bool offsetTooLarge(JNIEnv* env, jlong longOffset) {
+    if (!offsetFits(longOffset)) {
         // "Value too large for defined data type".
         jniThrowIOException(env, EOVERFLOW);
         return true;
@@ -191,40 +197,81 @@ static jint OSFileSystem_getAllocGranularity(JNIEnv*, jobject) {
     return allocGranularity;
 }
 
-// Translate three Java int[]s to a native iovec[] for readv and writev.
-static iovec* initIoVec(JNIEnv* env,
+static jlong OSFileSystem_readv(JNIEnv* env, jobject, jint fd,
         jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
-    UniquePtr<iovec[]> vectors(new iovec[size]);
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
     if (vectors.get() == NULL) {
-        jniThrowException(env, "java/lang/OutOfMemoryError", "native heap");
-        return NULL;
+        return -1;
     }
-    ScopedIntArrayRO buffers(env, jBuffers);
-    if (buffers.get() == NULL) {
-        return NULL;
+    long result = readv(fd, vectors.get(), size);
+    if (result == 0) {
+        return -1;
     }
-    ScopedIntArrayRO offsets(env, jOffsets);
-    if (offsets.get() == NULL) {
-        return NULL;
+    if (result == -1) {
+        jniThrowIOException(env, errno);
     }
-    ScopedIntArrayRO lengths(env, jLengths);
-    if (lengths.get() == NULL) {
-        return NULL;
+    return result;
+}
+
+static jlong OSFileSystem_writev(JNIEnv* env, jobject, jint fd,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
+    if (vectors.get() == NULL) {
+        return -1;
     }
-    for (int i = 0; i < size; ++i) {
-        vectors[i].iov_base = reinterpret_cast<void*>(buffers[i] + offsets[i]);
-        vectors[i].iov_len = lengths[i];
+    long result = writev(fd, vectors.get(), size);
+    if (result == -1) {
+        jniThrowIOException(env, errno);
     }
-    return vectors.release();
+    return result;
 }
 
-static jlong OSFileSystem_readv(JNIEnv* env, jobject, jint fd,
-        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
-    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, size));
+/*
+ * Bionic has no preadv(2) or pwritev(2), so use one pread(2) or pwrite(2)
+ * per buffer, stopping at the first short transfer.
+ * Unlike the real thing this isn't atomic with respect to other writers,
+ * which FileChannel doesn't promise anyway.
+ */
+static ssize_t positionalReadv(int fd, const iovec* iov, int count, off_t offset) {
+    ssize_t total = 0;
+    for (int i = 0; i < count; ++i) {
+        ssize_t rc = TEMP_FAILURE_RETRY(pread(fd, iov[i].iov_base, iov[i].iov_len, offset + total));
+        if (rc == -1) {
+            return (total > 0) ? total : -1;
+        }
+        total += rc;
+        if (static_cast<size_t>(rc) < iov[i].iov_len) {
+            break;
+        }
+    }
+    return total;
+}
+
+static ssize_t positionalWritev(int fd, const iovec* iov, int count, off_t offset) {
+    ssize_t total = 0;
+    for (int i = 0; i < count; ++i) {
+        ssize_t rc = TEMP_FAILURE_RETRY(pwrite(fd, iov[i].iov_base, iov[i].iov_len, offset + total));
+        if (rc == -1) {
+            return (total > 0) ? total : -1;
+        }
+        total += rc;
+        if (static_cast<size_t>(rc) < iov[i].iov_len) {
+            break;
+        }
+    }
+    return total;
+}
+
+static jlong OSFileSystem_preadv(JNIEnv* env, jobject, jint fd,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size, jlong position) {
+    if (offsetTooLarge(env, position)) {
+        return -1;
+    }
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
     if (vectors.get() == NULL) {
         return -1;
     }
-    long result = readv(fd, vectors.get(), size);
+    long result = positionalReadv(fd, vectors.get(), size, position);
     if (result == 0) {
         return -1;
     }
@@ -234,19 +281,32 @@ static jlong OSFileSystem_readv(JNIEnv* env, jobject, jint fd,
     return result;
 }
 
-static jlong OSFileSystem_writev(JNIEnv* env, jobject, jint fd,
-        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
-    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, size));
+static jlong OSFileSystem_pwritev(JNIEnv* env, jobject, jint fd,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size, jlong position) {
+    if (offsetTooLarge(env, position)) {
+        return -1;
+    }
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
     if (vectors.get() == NULL) {
         return -1;
     }
-    long result = writev(fd, vectors.get(), size);
+    long result = positionalWritev(fd, vectors.get(), size, position);
     if (result == -1) {
         jniThrowIOException(env, errno);
     }
     return result;
 }
 
+/*
+ * Returns true if a failed sendfile(2) failed because the kernel can't do
+ * zero-copy transfers between these kinds of file descriptor, in which case
+ * the caller falls back to copying the data through user space.
+ */
+static bool transferUnsupported(int error) {
+    return error == EINVAL || error == ENOSYS || error == EXDEV
+            || error == EOPNOTSUPP || error == ENOTSOCK;
+}
+
 static jlong OSFileSystem_transfer(JNIEnv* env, jobject, jint fd, jobject sd,
         jlong offset, jlong count) {
 
@@ -255,13 +315,40 @@ static jlong OSFileSystem_transfer(JNIEnv* env, jobject, jint fd, jobject sd,
         return -1;
     }
 
-    /* Value of offset is checked in jint scope (checked in java layer)
-       The conversion here is to guarantee no value lost when converting offset to off_t
-     */
+    // sendfile(2) can't reach this offset, but the caller's copy may:
+    // report "unsupported" rather than an error.
+    if (!offsetFits(offset)) {
+        return -1;
+    }
     off_t off = offset;
 
-    ssize_t rc = sendfile(socket, fd, &off, count);
+    ssize_t rc = TEMP_FAILURE_RETRY(sendfile(socket, fd, &off, count));
     if (rc == -1) {
+        if (errno == EAGAIN) {
+            return 0;
+        }
+        if (transferUnsupported(errno)) {
+            return -1;
+        }
+        jniThrowIOException(env, errno);
+    }
+    return rc;
+}
+
+static jlong OSFileSystem_copyRange(JNIEnv* env, jobject, jint inFd, jlong inPosition,
+        jint outFd, jlong count) {
+    // As in transfer, an offset sendfile(2) can't reach means "unsupported".
+    if (!offsetFits(inPosition)) {
+        return -1;
+    }
+    // Since Linux 2.6.33 sendfile(2) can write to any file, but only at the
+    // output file pointer.
+    off_t inOff = inPosition;
+    ssize_t rc = TEMP_FAILURE_RETRY(sendfile(outFd, inFd, &inOff, count));
+    if (rc == -1) {
+        if (transferUnsupported(errno)) {
+            return -1;
+        }
         jniThrowIOException(env, errno);
     }
     return rc;
@@ -320,6 +407,64 @@ static jlong OSFileSystem_write(JNIEnv* env, jobject, jint fd,
     return OSFileSystem_writeDirect(env, NULL, fd, buf, offset, byteCount);
 }
 
+static jlong OSFileSystem_preadDirect(JNIEnv* env, jobject, jint fd,
+        jint buf, jint offset, jint byteCount, jlong position) {
+    if (byteCount == 0) {
+        return 0;
+    }
+    if (offsetTooLarge(env, position)) {
+        return -1;
+    }
+    jbyte* dst = reinterpret_cast<jbyte*>(buf + offset);
+    jlong rc = TEMP_FAILURE_RETRY(pread(fd, dst, byteCount, position));
+    if (rc == 0) {
+        return -1;
+    }
+    if (rc == -1) {
+        if (errno == EAGAIN) {
+            return 0;
+        }
+        jniThrowIOException(env, errno);
+    }
+    return rc;
+}
+
+static jlong OSFileSystem_pread(JNIEnv* env, jobject, jint fd,
+        jbyteArray byteArray, jint offset, jint byteCount, jlong position) {
+    ScopedByteArrayRW bytes(env, byteArray);
+    if (bytes.get() == NULL) {
+        return 0;
+    }
+    jint buf = static_cast<jint>(reinterpret_cast<uintptr_t>(bytes.get()));
+    return OSFileSystem_preadDirect(env, NULL, fd, buf, offset, byteCount, position);
+}
+
+static jlong OSFileSystem_pwriteDirect(JNIEnv* env, jobject, jint fd,
+        jint buf, jint offset, jint byteCount, jlong position) {
+    if (byteCount == 0) {
+        return 0;
+    }
+    if (offsetTooLarge(env, position)) {
+        return -1;
+    }
+    jbyte* src = reinterpret_cast<jbyte*>(buf + offset);
+    jlong rc = TEMP_FAILURE_RETRY(pwrite(fd, src, byteCount, position));
+    if (rc == -1) {
+        jniThrowIOException(env, errno);
+    }
+    return rc;
+}
+
+static jlong OSFileSystem_pwrite(JNIEnv* env, jobject, jint fd,
+        jbyteArray byteArray, jint offset, jint byteCount, jlong position) {
+    ScopedByteArrayRO bytes(env, byteArray);
+    if (bytes.get() == NULL) {
+        return 0;
+    }
+    jint buf = static_cast<jint>(reinterpret_cast<uintptr_t>(bytes.get()));
+    return OSFileSystem_pwriteDirect(env, NULL, fd, buf, offset, byteCount, position);
+}
+
 static jlong OSFileSystem_seek(JNIEnv* env, jobject, jint fd, jlong offset, jint javaWhence) {
     /* Convert whence argument */
     int nativeWhence = 0;
@@ -486,12 +631,19 @@ static jlong OSFileSystem_length(JNIEnv* env, jobject, jint fd) {
 }
 
 static JNINativeMethod gMethods[] = {
+    NATIVE_METHOD(OSFileSystem, copyRange, "(IJIJ)J"),
     NATIVE_METHOD(OSFileSystem, fsync, "(IZ)V"),
     NATIVE_METHOD(OSFileSystem, getAllocGranularity, "()I"),
     NATIVE_METHOD(OSFileSystem, ioctlAvailable, "(Ljava/io/FileDescriptor;)I"),
     NATIVE_METHOD(OSFileSystem, length, "(I)J"),
     NATIVE_METHOD(OSFileSystem, lockImpl, "(IJJIZ)I"),
     NATIVE_METHOD(OSFileSystem, open, "(Ljava/lang/String;I)I"),
+    NATIVE_METHOD(OSFileSystem, pread, "(I[BIIJ)J"),
+    NATIVE_METHOD(OSFileSystem, preadDirect, "(IIIIJ)J"),
+    NATIVE_METHOD(OSFileSystem, preadv, "(I[I[I[IIJ)J"),
+    NATIVE_METHOD(OSFileSystem, pwrite, "(I[BIIJ)J"),
+    NATIVE_METHOD(OSFileSystem, pwriteDirect, "(IIIIJ)J"),
+    NATIVE_METHOD(OSFileSystem, pwritev, "(I[I[I[IIJ)J"),
     NATIVE_METHOD(OSFileSystem, read, "(I[BII)J"),
     NATIVE_METHOD(OSFileSystem, readDirect, "(IIII)J"),
     NATIVE_METHOD(OSFileSystem, readv, "(I[I[I[II)J"),
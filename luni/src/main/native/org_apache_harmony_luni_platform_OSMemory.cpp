@@ -24,6 +24,8 @@
 #include <stdlib.h>
 #include <string.h>
 #include <sys/mman.h>
+#include <sys/syscall.h>
+#include <unistd.h>
 
 /*
  * Cached dalvik.system.VMRuntime pieces.
@@ -261,6 +263,28 @@ static void OSMemory_setAddress(JNIEnv*, jclass, jint dstAddress, jint value) {
     *cast<jint*>(dstAddress) = value;
 }
 
+// BEGIN android-added
+/**
+ * Like mmap(2), but takes a 64-bit offset even where off_t is 32 bits. Our
+ * C library has no mmap64, so on 32-bit targets this goes straight to
+ * mmap2(2), which takes the offset in 4 KiB units. FileChannelImpl only maps
+ * at page-aligned offsets.
+ */
+static void* mmapAt(void* address, size_t size, int prot, int flags, int fd, jlong offset) {
+#if defined(__NR_mmap2)
+    if ((offset & 4095) != 0) {
+        errno = EINVAL;
+        return MAP_FAILED;
+    }
+    return reinterpret_cast<void*>(syscall(__NR_mmap2, address, size, prot, flags, fd,
+            static_cast<unsigned long>(offset >> 12)));
+#else
+    // off_t is 64 bits wide here.
+    return mmap(address, size, prot, flags, fd, offset);
+#endif
+}
+// END android-added
+
 static jint OSMemory_mmapImpl(JNIEnv* env, jclass, jint fd, jlong offset, jlong size, jint mapMode) {
     int prot, flags;
     switch (mapMode) {
@@ -282,7 +306,9 @@ static jint OSMemory_mmapImpl(JNIEnv* env, jclass, jint fd, jlong offset, jlong
         return -1;
     }
 
-    void* mapAddress = mmap(0, size, prot, flags, fd, offset);
+    // BEGIN android-changed
+    void* mapAddress = mmapAt(0, size, prot, flags, fd, offset);
+    // END android-changed
     if (mapAddress == MAP_FAILED) {
         jniThrowIOException(env, errno);
     }
@@ -329,6 +355,39 @@ static void OSMemory_flush(JNIEnv*, jclass, jint address, jlong size) {
     msync(cast<void*>(address), size, MS_SYNC);
 }
 
+// Values of OSMemory.MADV_*. Keep these in sync with OSMemory.java.
+#define OSMemory_MADV_NORMAL     0
+#define OSMemory_MADV_SEQUENTIAL 1
+#define OSMemory_MADV_RANDOM     2
+#define OSMemory_MADV_WILLNEED   3
+#define OSMemory_MADV_DONTNEED   4
+
+static void OSMemory_madviseImpl(JNIEnv* env, jclass, jint address, jlong size, jint advice) {
+    int nativeAdvice;
+    switch (advice) {
+    case OSMemory_MADV_NORMAL:
+        nativeAdvice = MADV_NORMAL;
+        break;
+    case OSMemory_MADV_SEQUENTIAL:
+        nativeAdvice = MADV_SEQUENTIAL;
+        break;
+    case OSMemory_MADV_RANDOM:
+        nativeAdvice = MADV_RANDOM;
+        break;
+    case OSMemory_MADV_WILLNEED:
+        nativeAdvice = MADV_WILLNEED;
+        break;
+    case OSMemory_MADV_DONTNEED:
+        nativeAdvice = MADV_DONTNEED;
+        break;
+    default:
+        jniThrowException(env, "java/lang/IllegalArgumentException", "bad advice");
+        return;
+    }
+    // Advice is only a hint, so failure isn't worth reporting.
+    madvise(cast<void*>(address), size, nativeAdvice);
+}
+
 static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(OSMemory, flush, "(IJ)V"),
     NATIVE_METHOD(OSMemory, free, "(I)V"),
@@ -342,6 +401,7 @@ static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(OSMemory, getShort, "(I)S"),
     NATIVE_METHOD(OSMemory, isLoaded, "(IJ)Z"),
     NATIVE_METHOD(OSMemory, load, "(IJ)V"),
+    NATIVE_METHOD(OSMemory, madviseImpl, "(IJI)V"),
     NATIVE_METHOD(OSMemory, malloc, "(I)I"),
     NATIVE_METHOD(OSMemory, memmove, "(IIJ)V"),
     NATIVE_METHOD(OSMemory, memset, "(IBJ)V"),
@@ -17,6 +17,7 @@
 #define LOG_TAG "OSNetworkSystem"
 
 #include "AsynchronousSocketCloseMonitor.h"
+#include "IoVec.h"
 #include "JNIHelp.h"
 #include "JniConstants.h"
 #include "JniException.h"
@@ -24,6 +25,7 @@
 #include "NetFd.h"
 #include "NetworkUtilities.h"
 #include "ScopedPrimitiveArray.h"
+#include "UniquePtr.h"
 #include "jni.h"
 #include "valueOf.h"
 
@@ -39,6 +41,7 @@
 #include <sys/ioctl.h>
 #include <sys/socket.h>
 #include <sys/time.h>
+#include <sys/uio.h>
 #include <sys/un.h>
 #include <unistd.h>
 
@@ -752,6 +755,88 @@ static jint OSNetworkSystem_read(JNIEnv* env, jclass, jobject fileDescriptor,
     return OSNetworkSystem_readDirect(env, NULL, fileDescriptor, address, count);
 }
 
+// Used to tell TCP sockets from UDP sockets, where a zero-length read is a
+// zero-length datagram rather than the end of the stream, and an ICMP port
+// unreachable message is reported on the next call.
+static bool isStreamSocket(int fd) {
+    int type;
+    socklen_t length = sizeof(type);
+    return getsockopt(fd, SOL_SOCKET, SO_TYPE, &type, &length) == 0 && type == SOCK_STREAM;
+}
+
+static jlong OSNetworkSystem_readv(JNIEnv* env, jobject, jobject fileDescriptor,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
+    NetFd fd(env, fileDescriptor);
+    if (fd.isClosed()) {
+        return 0;
+    }
+
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
+    if (vectors.get() == NULL) {
+        return -1;
+    }
+
+    ssize_t bytesReceived;
+    {
+        int intFd = fd.get();
+        AsynchronousSocketCloseMonitor monitor(intFd);
+        bytesReceived = NET_FAILURE_RETRY(fd, readv(intFd, vectors.get(), size));
+    }
+    if (env->ExceptionOccurred()) {
+        return -1;
+    }
+    if (bytesReceived == 0) {
+        return isStreamSocket(fd.get()) ? -1 : 0;
+    } else if (bytesReceived == -1) {
+        if (errno == EAGAIN || errno == EWOULDBLOCK) {
+            return 0;
+        } else if (errno == ECONNREFUSED && !isStreamSocket(fd.get())) {
+            jniThrowException(env, "java/net/PortUnreachableException", "");
+            return 0;
+        } else {
+            jniThrowSocketException(env, errno);
+            return 0;
+        }
+    }
+    return bytesReceived;
+}
+
+static jlong OSNetworkSystem_writev(JNIEnv* env, jobject, jobject fileDescriptor,
+        jintArray jBuffers, jintArray jOffsets, jintArray jLengths, jint size) {
+    NetFd fd(env, fileDescriptor);
+    if (fd.isClosed()) {
+        return 0;
+    }
+
+    UniquePtr<iovec[]> vectors(initIoVec(env, jBuffers, jOffsets, jLengths, &size));
+    if (vectors.get() == NULL) {
+        return -1;
+    }
+
+    ssize_t bytesSent;
+    {
+        int intFd = fd.get();
+        AsynchronousSocketCloseMonitor monitor(intFd);
+        bytesSent = NET_FAILURE_RETRY(fd, writev(intFd, vectors.get(), size));
+    }
+    if (env->ExceptionOccurred()) {
+        return -1;
+    }
+    if (bytesSent == -1) {
+        if (errno == EAGAIN || errno == EWOULDBLOCK) {
+            return 0;
+        } else if ((errno == ECONNRESET || errno == ECONNREFUSED) &&
+                !isStreamSocket(fd.get())) {
+            // Like sendDirect, drop the datagram quietly.
+            return 0;
+        } else {
+            jniThrowSocketException(env, errno);
+            return 0;
+        }
+    }
+    return bytesSent;
+}
+
 // TODO: can we merge this with readDirect?
 static jint OSNetworkSystem_recvDirect(JNIEnv* env, jobject, jobject fileDescriptor, jobject packet,
         jint address, jint offset, jint length, jboolean peek, jboolean connected) {
@@ -1351,6 +1436,7 @@ static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(OSNetworkSystem, listen, "(Ljava/io/FileDescriptor;I)V"),
     NATIVE_METHOD(OSNetworkSystem, read, "(Ljava/io/FileDescriptor;[BII)I"),
     NATIVE_METHOD(OSNetworkSystem, readDirect, "(Ljava/io/FileDescriptor;II)I"),
+    NATIVE_METHOD(OSNetworkSystem, readv, "(Ljava/io/FileDescriptor;[I[I[II)J"),
     NATIVE_METHOD(OSNetworkSystem, recv, "(Ljava/io/FileDescriptor;Ljava/net/DatagramPacket;[BIIZZ)I"),
     NATIVE_METHOD(OSNetworkSystem, recvDirect, "(Ljava/io/FileDescriptor;Ljava/net/DatagramPacket;IIIZZ)I"),
     NATIVE_METHOD(OSNetworkSystem, selectImpl, "([Ljava/io/FileDescriptor;[Ljava/io/FileDescriptor;II[IJ)Z"),
@@ -1364,6 +1450,7 @@ static JNINativeMethod gMethods[] = {
     NATIVE_METHOD(OSNetworkSystem, socket, "(Ljava/io/FileDescriptor;Z)V"),
     NATIVE_METHOD(OSNetworkSystem, write, "(Ljava/io/FileDescriptor;[BII)I"),
     NATIVE_METHOD(OSNetworkSystem, writeDirect, "(Ljava/io/FileDescriptor;III)I"),
+    NATIVE_METHOD(OSNetworkSystem, writev, "(Ljava/io/FileDescriptor;[I[I[II)J"),
 };
 
 int register_org_apache_harmony_luni_platform_OSNetworkSystem(JNIEnv* env) {
@@ -6,6 +6,7 @@ LOCAL_SRC_FILES := \
 	AsynchronousSocketCloseMonitor.cpp \
 	ErrorCode.cpp \
 	ICU.cpp \
+	IoVec.cpp \
 	JniConstants.cpp \
 	JniException.cpp \
 	NativeBN.cpp \
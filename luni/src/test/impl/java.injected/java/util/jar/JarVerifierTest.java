@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.util.jar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Enumeration;
+import junit.framework.TestCase;
+import tests.support.resource.Support_Resources;
+
+public class JarVerifierTest extends TestCase {
+
+    private static final String SIGNED_JAR = "Integrate.jar";
+
+    private static final String OTHER_SIGNED_JAR = "EmptyEntries_signed.jar";
+
+    private File resources;
+
+    @Override protected void setUp() {
+        resources = Support_Resources.createTempFolder();
+    }
+
+    /**
+     * Reads every entry of {@code file}, and returns the certificates of the
+     * last entry that has any.
+     */
+    private static Certificate[] readAllEntries(File file) throws IOException {
+        JarFile jarFile = new JarFile(file);
+        Certificate[] certificates = null;
+        try {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                InputStream in = jarFile.getInputStream(entry);
+                while (in.read(new byte[1024]) != -1) {
+                }
+                in.close();
+                if (entry.getCertificates() != null) {
+                    certificates = entry.getCertificates();
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+        return certificates;
+    }
+
+    public void testReopenedJarReusesVerifiedSignatures() throws IOException {
+        File file = Support_Resources.copyFile(resources, null, SIGNED_JAR);
+        Certificate[] first = readAllEntries(file);
+        assertNotNull(first);
+
+        int hits = JarVerifier.getVerifiedSignaturesHitCount();
+        Certificate[] second = readAllEntries(file);
+        assertEquals(hits + 1, JarVerifier.getVerifiedSignaturesHitCount());
+        assertTrue(Arrays.equals(first, second));
+    }
+
+    public void testReplacedJarIsVerifiedAgain() throws IOException {
+        File file = Support_Resources.copyFile(resources, null, SIGNED_JAR);
+        readAllEntries(file);
+
+        // Same name, different META-INF entries.
+        File other = Support_Resources.copyFile(resources, null, OTHER_SIGNED_JAR);
+        assertTrue(file.delete());
+        assertTrue(other.renameTo(file));
+        int hits = JarVerifier.getVerifiedSignaturesHitCount();
+        readAllEntries(file);
+        assertEquals(hits, JarVerifier.getVerifiedSignaturesHitCount());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio.internal;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+
+public class DirectBufferPoolTest extends TestCase {
+
+    public void testAcquire() {
+        ByteBuffer buffer = DirectBufferPool.acquire(1000);
+        try {
+            assertTrue(buffer.isDirect());
+            assertEquals(0, buffer.position());
+            assertEquals(1000, buffer.limit());
+            assertTrue(buffer.capacity() >= 1000);
+        } finally {
+            DirectBufferPool.release(buffer);
+        }
+    }
+
+    public void testReleasedBufferIsReused() {
+        DirectBufferPool.release(DirectBufferPool.acquire(5000));
+        long hits = DirectBufferPool.getHitCount();
+        ByteBuffer buffer = DirectBufferPool.acquire(6000);
+        DirectBufferPool.release(buffer);
+        assertEquals(hits + 1, DirectBufferPool.getHitCount());
+    }
+
+    public void testLargeBuffersAreFreed() {
+        long nativeBytes = DirectBufferPool.getNativeBytes();
+        ByteBuffer buffer = DirectBufferPool.acquire(1024 * 1024);
+        assertEquals(nativeBytes + 1024 * 1024, DirectBufferPool.getNativeBytes());
+        DirectBufferPool.release(buffer);
+        assertEquals(nativeBytes, DirectBufferPool.getNativeBytes());
+    }
+
+    public void testUnreleasedBufferStopsCountingOnceCollected() throws Exception {
+        long nativeBytes = DirectBufferPool.getNativeBytes();
+        DirectBufferPool.acquire(1024 * 1024);
+        assertEquals(nativeBytes + 1024 * 1024, DirectBufferPool.getNativeBytes());
+        for (int i = 0; i < 10 && DirectBufferPool.getNativeBytes() != nativeBytes; i++) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(10);
+        }
+        assertEquals(nativeBytes, DirectBufferPool.getNativeBytes());
+    }
+
+    public void testReleaseNull() {
+        DirectBufferPool.release(null);
+    }
+
+    public void testReleaseHeapBuffer() {
+        try {
+            DirectBufferPool.release(ByteBuffer.allocate(4096));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testReleaseForeignDirectBuffer() {
+        try {
+            DirectBufferPool.release(ByteBuffer.allocateDirect(4096));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testReleaseTwice() {
+        ByteBuffer buffer = DirectBufferPool.acquire(4096);
+        DirectBufferPool.release(buffer);
+        try {
+            DirectBufferPool.release(buffer);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testReleaseView() {
+        ByteBuffer buffer = DirectBufferPool.acquire(4096);
+        try {
+            DirectBufferPool.release(buffer.duplicate());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        // the buffer itself is still lent out
+        DirectBufferPool.release(buffer);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xnet.provider.jsse;
+
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import javax.net.ssl.SSLSession;
+import junit.framework.TestCase;
+
+public class AbstractSessionContextTest extends TestCase {
+
+    private static Set<String> ids(AbstractSessionContext context) {
+        Set<String> ids = new HashSet<String>();
+        Enumeration e = context.getIds();
+        while (e.hasMoreElements()) {
+            ids.add(new String((byte[]) e.nextElement()));
+        }
+        return ids;
+    }
+
+    public void testSessionsInEveryShard() {
+        ServerSessionContext context = new ServerSessionContext();
+        context.setSessionCacheSize(0);
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 500; i++) {
+            FakeSession session = new FakeSession("session" + i);
+            context.putSession(session);
+            expected.add(session.host);
+        }
+        for (int i = 0; i < 500; i++) {
+            SSLSession session = context.getSession(("session" + i).getBytes());
+            assertEquals("session" + i, session.getPeerHost());
+        }
+        assertEquals(expected, ids(context));
+    }
+
+    public void testEvictsOldestAcrossShards() {
+        ServerSessionContext context = new ServerSessionContext();
+        context.setSessionCacheSize(10);
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 30; i++) {
+            context.putSession(new FakeSession("session" + i));
+            if (i >= 20) {
+                expected.add("session" + i);
+            }
+        }
+        assertEquals(expected, ids(context));
+    }
+
+    public void testReplacedSessionIsNewest() {
+        ServerSessionContext context = new ServerSessionContext();
+        context.setSessionCacheSize(2);
+        FakeSession a = new FakeSession("a");
+        context.putSession(a);
+        context.putSession(new FakeSession("b"));
+        context.putSession(a);
+        context.putSession(new FakeSession("c"));
+        Set<String> expected = new HashSet<String>();
+        expected.add("a");
+        expected.add("c");
+        assertEquals(expected, ids(context));
+    }
+
+    public void testConcurrentPutsDontOverEvict() throws Exception {
+        final ServerSessionContext context = new ServerSessionContext();
+        context.setSessionCacheSize(50);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        context.putSession(new FakeSession("session" + thread + "-" + i));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, ids(context).size());
+    }
+
+    public void testExpiredSessionRemovedOnLookup() {
+        ServerSessionContext context = new ServerSessionContext();
+        FakeSession a = new FakeSession("a");
+        context.putSession(a);
+        a.invalidate();
+        assertNull(context.getSession("a".getBytes()));
+        assertEquals(1, context.getExpiredCount());
+        assertEquals(1, context.getMissCount());
+        assertEquals(0, context.getHitCount());
+        assertTrue(ids(context).isEmpty());
+    }
+
+    public void testExpiredSessionsDontCountTowardsSize() {
+        ServerSessionContext context = new ServerSessionContext();
+        context.setSessionCacheSize(3);
+        FakeSession a = new FakeSession("a");
+        FakeSession b = new FakeSession("b");
+        context.putSession(a);
+        context.putSession(b);
+        context.putSession(new FakeSession("c"));
+        a.invalidate();
+        b.invalidate();
+        // Removes the invalid sessions, making room without evicting.
+        context.setSessionTimeout(0);
+        assertEquals(2, context.getExpiredCount());
+        context.putSession(new FakeSession("d"));
+        context.putSession(new FakeSession("e"));
+        Set<String> expected = new HashSet<String>();
+        expected.add("c");
+        expected.add("d");
+        expected.add("e");
+        assertEquals(expected, ids(context));
+    }
+
+    public void testCounters() {
+        ServerSessionContext context = new ServerSessionContext();
+        context.putSession(new FakeSession("a"));
+        assertNotNull(context.getSession("a".getBytes()));
+        assertNotNull(context.getSession("a".getBytes()));
+        assertNull(context.getSession("b".getBytes()));
+        assertEquals(2, context.getHitCount());
+        assertEquals(1, context.getMissCount());
+        assertEquals(0, context.getExpiredCount());
+    }
+
+    public void testClientLookupByHostAndPort() {
+        ClientSessionContext context = new ClientSessionContext();
+        FakeSession a = new FakeSession("a");
+        context.putSession(a);
+        assertSame(a, context.getSession("a", 443));
+        assertNull(context.getSession("a", 444));
+        assertEquals(1, context.getHitCount());
+        assertEquals(1, context.getMissCount());
+        a.invalidate();
+        assertNull(context.getSession("a", 443));
+        assertEquals(1, context.getExpiredCount());
+        assertNull(context.getSession("a".getBytes()));
+    }
+}
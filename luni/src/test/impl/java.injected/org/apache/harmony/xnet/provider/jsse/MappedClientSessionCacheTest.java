@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xnet.provider.jsse;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class MappedClientSessionCacheTest extends TestCase {
+
+    private File newLogFile() {
+        String tmpDir = System.getProperty("java.io.tmpdir");
+        if (tmpDir == null) {
+            fail("Please set 'java.io.tmpdir' system property.");
+        }
+        File file = new File(tmpDir + "/"
+                + MappedClientSessionCacheTest.class.getName() + "/" + getName());
+        file.delete();
+        MappedClientSessionCache.reset();
+        return file;
+    }
+
+    public void testSurvivesReopening() throws IOException {
+        File file = newLogFile();
+        SSLClientSessionCache cache = MappedClientSessionCache.usingFile(file);
+        cache.putSessionData(new FakeSession("a"), new byte[] { 1, 2, 3 });
+        cache.putSessionData(new FakeSession("b"), new byte[] { 4 });
+        cache.putSessionData(new FakeSession("a"), new byte[] { 5, 6 });
+
+        MappedClientSessionCache.reset();
+        cache = MappedClientSessionCache.usingFile(file);
+        assertTrue(Arrays.equals(new byte[] { 5, 6 }, cache.getSessionData("a", 443)));
+        assertTrue(Arrays.equals(new byte[] { 4 }, cache.getSessionData("b", 443)));
+        assertNull(cache.getSessionData("c", 443));
+    }
+
+    public void testMaxSizeAndCompaction() throws IOException {
+        File file = newLogFile();
+        SSLClientSessionCache cache = MappedClientSessionCache.usingFile(file);
+        // Writes several times the initial capacity, so the log must be
+        // compacted to keep its size bounded.
+        int iterations = MappedClientSessionCache.MAX_SIZE * 20;
+        for (int i = 0; i < iterations; i++) {
+            byte[] data = new byte[1000];
+            Arrays.fill(data, (byte) i);
+            cache.putSessionData(new FakeSession("host" + i), data);
+        }
+        assertTrue(file.length() <= 4 * MappedClientSessionCache.INITIAL_CAPACITY);
+        assertNull(cache.getSessionData("host0", 443));
+        byte[] last = cache.getSessionData("host" + (iterations - 1), 443);
+        assertEquals(1000, last.length);
+        assertEquals((byte) (iterations - 1), last[999]);
+
+        MappedClientSessionCache.reset();
+        cache = MappedClientSessionCache.usingFile(file);
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (cache.getSessionData("host" + i, 443) != null) {
+                found++;
+            }
+        }
+        assertEquals(MappedClientSessionCache.MAX_SIZE, found);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.java.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import junit.framework.TestCase;
+
+public final class BufferedReaderTest extends TestCase {
+
+    public void testReadLineLongerThanBuffer() throws IOException {
+        String longLine = "0123456789abcdefghijklmnopqrstuvwxyz";
+        BufferedReader reader = new BufferedReader(
+                new StringReader("ab\r" + longLine + "\r\n" + longLine + "\nc"), 4);
+        assertEquals("ab", reader.readLine());
+        assertEquals(longLine, reader.readLine());
+        assertEquals(longLine, reader.readLine());
+        assertEquals("c", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    public void testReadLineLongerThanBufferKeepsMark() throws IOException {
+        String longLine = "0123456789abcdefghijklmnopqrstuvwxyz";
+        BufferedReader reader = new BufferedReader(
+                new StringReader("ab\n" + longLine + "\nc"), 4);
+        assertEquals("ab", reader.readLine());
+        reader.mark(100);
+        assertEquals(longLine, reader.readLine());
+        reader.reset();
+        assertEquals(longLine, reader.readLine());
+        assertEquals("c", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    public void testCarriageReturnAtEndOfBuffer() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("abc\r\ndef\r"), 4);
+        assertEquals("abc", reader.readLine());
+        assertEquals("def", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    public void testShortLinesAfterLongLine() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+        BufferedReader reader = new BufferedReader(
+                new StringReader(longLine + "\nab\ncd\r\nef\n" + longLine), 4);
+        assertEquals(longLine.toString(), reader.readLine());
+        assertEquals("ab", reader.readLine());
+        reader.mark(3);
+        assertEquals("cd", reader.readLine());
+        reader.reset();
+        assertEquals("cd", reader.readLine());
+        assertEquals("ef", reader.readLine());
+        assertEquals(longLine.toString(), reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    public void testMarkLimitReachedByLine() throws IOException {
+        String longLine = "0123456789abcdefghijklmnopqrstuvwxyz";
+        BufferedReader reader = new BufferedReader(
+                new StringReader(longLine + "\n" + longLine), 4);
+        // the mark covers exactly the line and its terminator
+        reader.mark(longLine.length() + 1);
+        assertEquals(longLine, reader.readLine());
+        reader.reset();
+        assertEquals(longLine, reader.readLine());
+        assertEquals(longLine, reader.readLine());
+        assertNull(reader.readLine());
+    }
+}
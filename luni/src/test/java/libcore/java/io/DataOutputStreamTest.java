@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.java.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public final class DataOutputStreamTest extends TestCase {
+
+    public void testWriteUtfRoundTrip() throws IOException {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longString.append((char) (i % 3 == 0 ? 0x20ac : 'a' + i % 26));
+        }
+        String[] strings = { "", "hello", "\u0000\u00e9\u20ac", longString.toString() };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (String s : strings) {
+            out.writeUTF(s);
+        }
+        assertEquals(bytes.size(), out.size());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (String s : strings) {
+            assertEquals(s, in.readUTF());
+        }
+        assertEquals(-1, in.read());
+    }
+
+    public void testWriteUtfTooLong() throws IOException {
+        char[] chars = new char[30000];
+        Arrays.fill(chars, '\u20ac');
+        DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream());
+        try {
+            out.writeUTF(new String(chars));
+            fail();
+        } catch (UTFDataFormatException expected) {
+        }
+        assertEquals(0, out.size());
+    }
+
+    public void testBulkIntsAndLongs() throws IOException {
+        int[] ints = new int[3000];
+        long[] longs = new long[3000];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 0x01020304;
+            longs[i] = i * 0x0102030405060708L;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInts(ints, 1, ints.length - 1);
+        out.writeLongs(longs, 0, longs.length);
+        assertEquals((ints.length - 1) * 4 + longs.length * 8, out.size());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ints[1], in.readInt());
+        int[] readInts = new int[ints.length];
+        in.readInts(readInts, 2, ints.length - 2);
+        assertEquals(ints[ints.length - 1], readInts[ints.length - 1]);
+        long[] readLongs = new long[longs.length];
+        in.readLongs(readLongs, 0, longs.length);
+        assertTrue(Arrays.equals(longs, readLongs));
+        assertEquals(-1, in.read());
+    }
+}
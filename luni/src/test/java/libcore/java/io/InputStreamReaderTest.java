@@ -16,7 +16,9 @@
 
 package libcore.java.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
@@ -38,4 +40,66 @@ public final class InputStreamReaderTest extends TestCase {
         int count = reader.read(buffer);
         assertEquals(5, count);
     }
+
+    public void testUtf8SplitAcrossReads() throws IOException {
+        String expected = "a\u00e9\u20ac\ud83d\ude00z";
+        InputStreamReader reader = new InputStreamReader(
+                new OneByteAtATimeInputStream(expected.getBytes("UTF-8")), "UTF-8");
+        assertEquals(expected, readFully(reader, 64));
+    }
+
+    public void testUtf8SupplementaryCharacterOneCharAtATime() throws IOException {
+        String expected = "\ud83d\ude00\ud83d\ude01";
+        InputStreamReader reader = new InputStreamReader(
+                new ByteArrayInputStream(expected.getBytes("UTF-8")), "UTF-8");
+        assertEquals(expected, readFully(reader, 1));
+    }
+
+    public void testUtf8MalformedInputIsReplaced() throws IOException {
+        byte[] bytes = { 'a', (byte) 0xc0, (byte) 0x80, 'b', (byte) 0xe2, (byte) 0x82, 'c',
+                (byte) 0xe2, (byte) 0x82 };
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(bytes), "UTF-8");
+        assertEquals("a\ufffd\ufffdb\ufffdc\ufffd", readFully(reader, 64));
+    }
+
+    public void testSingleByteCharsets() throws IOException {
+        byte[] bytes = { 'a', (byte) 0xe9, 'b' };
+        assertEquals("a\u00e9b", readFully(
+                new InputStreamReader(new ByteArrayInputStream(bytes), "ISO-8859-1"), 2));
+        assertEquals("a\ufffdb", readFully(
+                new InputStreamReader(new ByteArrayInputStream(bytes), "US-ASCII"), 2));
+    }
+
+    private static String readFully(InputStreamReader reader, int bufferSize)
+            throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            result.append(buffer, 0, count);
+        }
+        return result.toString();
+    }
+
+    private static class OneByteAtATimeInputStream extends InputStream {
+        private final byte[] bytes;
+        private int pos;
+
+        OneByteAtATimeInputStream(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override public int read() {
+            return (pos < bytes.length) ? (bytes[pos++] & 0xff) : -1;
+        }
+
+        @Override public int read(byte[] buffer, int offset, int count) {
+            int b = read();
+            if (b == -1) {
+                return -1;
+            }
+            buffer[offset] = (byte) b;
+            return 1;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.java.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+public final class SerializationTest extends TestCase {
+
+    static class Primitives implements Serializable {
+        private static final long serialVersionUID = 1L;
+        boolean z = true;
+        byte b = -2;
+        char c = '\uffee';
+        short s = -3;
+        int i = 0x12345678;
+        long j = 0x123456789abcdefL;
+        float f = Float.NaN;
+        double d = -0.0;
+        String name = "primitives";
+        Primitives next;
+    }
+
+    static class Derived extends Primitives {
+        private static final long serialVersionUID = 1L;
+        int extra = 42;
+    }
+
+    public void testPrimitiveFieldsRoundTrip() throws Exception {
+        Derived original = new Derived();
+        original.i = -1;
+        original.f = 1.5f;
+        original.next = new Derived();
+        Derived copy = (Derived) roundTrip(original);
+        assertEquals(original.z, copy.z);
+        assertEquals(original.b, copy.b);
+        assertEquals(original.c, copy.c);
+        assertEquals(original.s, copy.s);
+        assertEquals(original.i, copy.i);
+        assertEquals(original.j, copy.j);
+        assertEquals(original.f, copy.f);
+        assertEquals(Double.doubleToRawLongBits(original.d),
+                Double.doubleToRawLongBits(copy.d));
+        assertEquals(original.name, copy.name);
+        assertEquals(42, copy.extra);
+        assertTrue(Float.isNaN(((Derived) copy.next).f));
+    }
+
+    public void testBackReferencesAcrossManyHandles() throws Exception {
+        List<Object> list = new ArrayList<Object>();
+        for (int i = 0; i < 5000; i++) {
+            Primitives p = new Primitives();
+            p.i = i;
+            list.add(p);
+        }
+        // Refer to every object a second time, and to the list itself.
+        for (int i = 0; i < 5000; i++) {
+            list.add(list.get(i));
+        }
+        list.add(list);
+
+        @SuppressWarnings("unchecked")
+        List<Object> copy = (List<Object>) roundTrip(list);
+        assertEquals(10001, copy.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, ((Primitives) copy.get(i)).i);
+            assertSame(copy.get(i), copy.get(i + 5000));
+        }
+        assertSame(copy, copy.get(10000));
+    }
+
+    public void testUnsharedObjectsAreNotReused() throws Exception {
+        Primitives p = new Primitives();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(p);
+        out.writeUnshared(p);
+        out.writeObject(p);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Object first = in.readObject();
+        Object second = in.readObject();
+        Object third = in.readObject();
+        assertNotSame(first, second);
+        assertSame(first, third);
+    }
+
+    public void testResetForgetsHandles() throws Exception {
+        Primitives p = new Primitives();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(p);
+        out.reset();
+        out.writeObject(p);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertNotSame(in.readObject(), in.readObject());
+    }
+
+    public void testRetainClassDescriptorsAcrossResets() throws Exception {
+        byte[] plain = writeMessages(false);
+        byte[] retained = writeMessages(true);
+        // Only the first message carries the class descriptors.
+        assertTrue(retained.length < plain.length);
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(retained));
+        in.setRetainClassDescriptors(true);
+        for (int i = 0; i < 10; i++) {
+            Derived message = (Derived) in.readObject();
+            assertEquals(i, message.i);
+            assertEquals(i, ((Derived) message.next).i);
+        }
+    }
+
+    private static byte[] writeMessages(boolean retainClassDescriptors) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.setRetainClassDescriptors(retainClassDescriptors);
+        for (int i = 0; i < 10; i++) {
+            Derived message = new Derived();
+            message.i = i;
+            message.next = new Derived();
+            message.next.i = i;
+            out.writeObject(message);
+            out.reset();
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    public void testMaxRetainedObjects() throws Exception {
+        Primitives p = new Primitives();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.setRetainClassDescriptors(true);
+        out.setMaxRetainedObjects(3);
+        out.writeObject(p);
+        out.writeObject(p);
+        out.writeObject(new Primitives());
+        // Resets first: the class descriptor, p, its name and the new
+        // instance are remembered.
+        out.writeObject(p);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.setRetainClassDescriptors(true);
+        Object first = in.readObject();
+        assertSame(first, in.readObject());
+        assertNotSame(first, in.readObject());
+        assertNotSame(first, in.readObject());
+    }
+
+    public void testLookupIsSharedAcrossThreads() throws Exception {
+        final ObjectStreamClass[] other = new ObjectStreamClass[1];
+        Thread thread = new Thread() {
+            @Override public void run() {
+                other[0] = ObjectStreamClass.lookup(Derived.class);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(other[0], ObjectStreamClass.lookup(Derived.class));
+    }
+
+    private static Object roundTrip(Object object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return in.readObject();
+    }
+}
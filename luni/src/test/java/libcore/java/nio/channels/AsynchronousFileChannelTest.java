@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.java.nio.channels;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.NonWritableChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+public class AsynchronousFileChannelTest extends TestCase {
+    private File file;
+
+    @Override protected void setUp() throws Exception {
+        file = File.createTempFile("AsynchronousFileChannelTest", "tmp");
+        file.deleteOnExit();
+    }
+
+    @Override protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testAdjacentReads() throws Exception {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "rw");
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+        assertEquals(1000, (int) channel.write(ByteBuffer.wrap(bytes), 0).get());
+
+        // Mix heap and direct buffers, and run past the end of the file.
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 12; ++i) {
+            ByteBuffer buffer = (i % 2 == 0) ? ByteBuffer.allocate(100)
+                    : ByteBuffer.allocateDirect(100);
+            buffers.add(buffer);
+            futures.add(channel.read(buffer, i * 100));
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(100, (int) futures.get(i).get());
+            ByteBuffer buffer = buffers.get(i);
+            for (int j = 0; j < 100; ++j) {
+                assertEquals((byte) (i * 100 + j), buffer.get(j));
+            }
+        }
+        assertEquals(-1, (int) futures.get(10).get());
+        assertEquals(-1, (int) futures.get(11).get());
+        channel.close();
+    }
+
+    public void testCompletionHandler() throws Exception {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "rw");
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger result = new AtomicInteger();
+        channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), 5, "attachment",
+                new CompletionHandler<Integer, String>() {
+                    public void completed(Integer bytesWritten, String attachment) {
+                        assertEquals("attachment", attachment);
+                        result.set(bytesWritten);
+                        latch.countDown();
+                    }
+                    public void failed(Throwable exception, String attachment) {
+                        latch.countDown();
+                    }
+                });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(3, result.get());
+        assertEquals(8, channel.size());
+        channel.close();
+    }
+
+    public void testReadOnly() throws Exception {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "r");
+        try {
+            channel.write(ByteBuffer.allocate(1), 0);
+            fail();
+        } catch (NonWritableChannelException expected) {
+        }
+        try {
+            channel.read(ByteBuffer.allocate(1).asReadOnlyBuffer(), 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        channel.close();
+    }
+
+    public void testClosed() throws Exception {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "rw");
+        channel.close();
+        assertFalse(channel.isOpen());
+        try {
+            channel.read(ByteBuffer.allocate(1), 0).get();
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof ClosedChannelException);
+        }
+        try {
+            channel.size();
+            fail();
+        } catch (ClosedChannelException expected) {
+        }
+    }
+
+    public void testHandlerThrowingError() throws Exception {
+        final List<Throwable> uncaught = new ArrayList<Throwable>();
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    public void uncaughtException(Thread t, Throwable e) {
+                        synchronized (uncaught) {
+                            uncaught.add(e);
+                        }
+                    }
+                });
+                return thread;
+            }
+        });
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "rw", executor);
+        assertEquals(200, (int) channel.write(ByteBuffer.allocate(200), 0).get());
+
+        // Adjacent reads are served together; the first handler's Error
+        // mustn't keep the second from being called.
+        final Error error = new Error("thrown by handler");
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger result = new AtomicInteger();
+        CompletionHandler<Integer, Void> throwing = new CompletionHandler<Integer, Void>() {
+            public void completed(Integer bytesRead, Void attachment) {
+                throw error;
+            }
+            public void failed(Throwable exception, Void attachment) {
+                throw error;
+            }
+        };
+        CompletionHandler<Integer, Void> counting = new CompletionHandler<Integer, Void>() {
+            public void completed(Integer bytesRead, Void attachment) {
+                result.set(bytesRead);
+                latch.countDown();
+            }
+            public void failed(Throwable exception, Void attachment) {
+                latch.countDown();
+            }
+        };
+        channel.read(ByteBuffer.allocate(100), 0, null, throwing);
+        channel.read(ByteBuffer.allocate(100), 100, null, counting);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(100, result.get());
+        // The worker survives to serve later requests.
+        assertEquals(100, (int) channel.read(ByteBuffer.allocate(100), 0).get(10, TimeUnit.SECONDS));
+        synchronized (uncaught) {
+            assertEquals(1, uncaught.size());
+            assertSame(error, uncaught.get(0));
+        }
+        channel.close();
+        executor.shutdown();
+    }
+
+    public void testCancelledReadIsSkipped() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, "rw", executor);
+        assertEquals(1, (int) channel.write(ByteBuffer.wrap(new byte[] { 42 }), 0).get());
+
+        // Hold the only worker so that the read stays queued until cancelled.
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        ByteBuffer cancelledBuffer = ByteBuffer.allocate(1);
+        Future<Integer> cancelled = channel.read(cancelledBuffer, 0);
+        assertTrue(cancelled.cancel(false));
+        release.countDown();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        assertEquals(1, (int) channel.read(buffer, 0).get(10, TimeUnit.SECONDS));
+        assertEquals(42, buffer.get(0));
+        assertEquals(0, cancelledBuffer.position());
+        try {
+            cancelled.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+        channel.close();
+        executor.shutdown();
+    }
+}
@@ -16,7 +16,9 @@
 
 package libcore.java.nio.channels;
 
+import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.PortUnreachableException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 
@@ -42,4 +44,35 @@ public class DatagramChannelTest extends junit.framework.TestCase {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    public void test_read_scatterEmptyDatagram() throws Exception {
+        DatagramSocket ds = new DatagramSocket(0);
+        DatagramChannel dc = DatagramChannel.open();
+        try {
+            dc.socket().bind(null);
+            dc.connect(ds.getLocalSocketAddress());
+            ds.send(new DatagramPacket(new byte[0], 0, dc.socket().getLocalSocketAddress()));
+            ByteBuffer[] targets = { ByteBuffer.allocate(4), ByteBuffer.allocateDirect(4) };
+            // an empty datagram isn't the end of the stream
+            assertEquals(0, dc.read(targets));
+        } finally {
+            dc.close();
+            ds.close();
+        }
+    }
+
+    public void test_read_scatterPortUnreachable() throws Exception {
+        DatagramSocket ds = new DatagramSocket(0);
+        DatagramChannel dc = DatagramChannel.open();
+        try {
+            dc.connect(ds.getLocalSocketAddress());
+            ds.close();
+            dc.write(ByteBuffer.wrap(new byte[] { 1 }));
+            dc.read(new ByteBuffer[] { ByteBuffer.allocate(4) });
+            fail();
+        } catch (PortUnreachableException expected) {
+        } finally {
+            dc.close();
+        }
+    }
 }
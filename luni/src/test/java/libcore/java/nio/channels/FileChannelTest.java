@@ -18,8 +18,11 @@ package libcore.java.nio.channels;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
 
 public class FileChannelTest extends junit.framework.TestCase {
     public void test_read_intoReadOnlyByteArrays() throws Exception {
@@ -48,4 +51,99 @@ public class FileChannelTest extends junit.framework.TestCase {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    private static File createFile(int length) throws Exception {
+        File file = File.createTempFile("FileChannelTest", "tmp");
+        file.deleteOnExit();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes);
+        out.close();
+        return file;
+    }
+
+    private static void assertBytes(ByteBuffer buffer, int first, int count) {
+        for (int i = 0; i < count; i++) {
+            assertEquals((byte) (first + i), buffer.get(i));
+        }
+    }
+
+    public void test_transferTo_file() throws Exception {
+        FileChannel src = new FileInputStream(createFile(100000)).getChannel();
+        FileChannel dst = new RandomAccessFile(createFile(0), "rw").getChannel();
+        src.position(3);
+        dst.position(10);
+        assertEquals(90000, src.transferTo(5, 90000, dst));
+        // the source's position is unchanged, the target's advanced
+        assertEquals(3, src.position());
+        assertEquals(90010, dst.position());
+        ByteBuffer copied = ByteBuffer.allocate(90000);
+        assertEquals(90000, dst.read(copied, 10));
+        assertBytes(copied, 5, 90000);
+        // at the end of the source
+        assertEquals(5, src.transferTo(99995, 1000, dst));
+        assertEquals(0, src.transferTo(200000, 1000, dst));
+        src.close();
+        dst.close();
+    }
+
+    public void test_transferFrom_file() throws Exception {
+        FileChannel src = new FileInputStream(createFile(100000)).getChannel();
+        FileChannel dst = new RandomAccessFile(createFile(20), "rw").getChannel();
+        src.position(5);
+        dst.position(3);
+        assertEquals(90000, dst.transferFrom(src, 7, 90000));
+        // the source's position advanced, the target's is unchanged
+        assertEquals(90005, src.position());
+        assertEquals(3, dst.position());
+        ByteBuffer copied = ByteBuffer.allocate(90000);
+        assertEquals(90000, dst.read(copied, 7));
+        assertBytes(copied, 5, 90000);
+        src.close();
+        dst.close();
+    }
+
+    public void test_transferTo_pipe() throws Exception {
+        FileChannel src = new FileInputStream(createFile(1000)).getChannel();
+        Pipe pipe = Pipe.open();
+        assertEquals(500, src.transferTo(100, 500, pipe.sink()));
+        assertEquals(0, src.position());
+        ByteBuffer copied = ByteBuffer.allocate(500);
+        while (copied.hasRemaining()) {
+            assertTrue(pipe.source().read(copied) > 0);
+        }
+        assertBytes(copied, 100, 500);
+        src.close();
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    public void test_transferFrom_pipe() throws Exception {
+        FileChannel dst = new RandomAccessFile(createFile(10), "rw").getChannel();
+        Pipe pipe = Pipe.open();
+        ByteBuffer bytes = ByteBuffer.allocate(500);
+        for (int i = 0; i < 500; i++) {
+            bytes.put((byte) i);
+        }
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            pipe.sink().write(bytes);
+        }
+        pipe.sink().close();
+        long total = 0;
+        while (total < 500) {
+            long count = dst.transferFrom(pipe.source(), 10 + total, 500 - total);
+            assertTrue(count > 0);
+            total += count;
+        }
+        assertEquals(0, dst.position());
+        ByteBuffer copied = ByteBuffer.allocate(500);
+        assertEquals(500, dst.read(copied, 10));
+        assertBytes(copied, 0, 500);
+        dst.close();
+        pipe.source().close();
+    }
 }
@@ -16,9 +16,13 @@
 
 package libcore.java.nio.channels;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
 
 public class SocketChannelTest extends junit.framework.TestCase {
     public void test_read_intoReadOnlyByteArrays() throws Exception {
@@ -42,4 +46,99 @@ public class SocketChannelTest extends junit.framework.TestCase {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    // A heap buffer without an array is staged through bounded direct buffers.
+    public void test_write_largeReadOnlyBuffer() throws Exception {
+        ServerSocket ss = new ServerSocket(0);
+        SocketChannel sc = SocketChannel.open(ss.getLocalSocketAddress());
+        final Socket accepted = ss.accept();
+        final byte[] bytes = new byte[300 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        final byte[] received = new byte[bytes.length];
+        Thread reader = new Thread() {
+            @Override public void run() {
+                try {
+                    InputStream in = accepted.getInputStream();
+                    int count = 0;
+                    while (count < received.length) {
+                        int n = in.read(received, count, received.length - count);
+                        if (n == -1) {
+                            break;
+                        }
+                        count += n;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        reader.start();
+        ByteBuffer readOnly = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        assertEquals(bytes.length, sc.write(readOnly));
+        assertFalse(readOnly.hasRemaining());
+        assertEquals(bytes.length, readOnly.limit());
+        reader.join();
+        assertTrue(Arrays.equals(bytes, received));
+        sc.close();
+        accepted.close();
+        ss.close();
+    }
+
+    // More buffers than a single writev(2) accepts (IOV_MAX is 1024 on Linux).
+    public void test_write_manyBuffers() throws Exception {
+        ServerSocket ss = new ServerSocket(0);
+        SocketChannel sc = SocketChannel.open(ss.getLocalSocketAddress());
+        Socket accepted = ss.accept();
+        ByteBuffer[] buffers = new ByteBuffer[3000];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = (i % 2 == 0) ? ByteBuffer.allocate(1) : ByteBuffer.allocateDirect(1);
+            buffers[i].put(0, (byte) i).limit(1);
+        }
+        long total = 0;
+        while (total < buffers.length) {
+            long written = sc.write(buffers);
+            assertTrue(written > 0);
+            total += written;
+        }
+        assertEquals(buffers.length, total);
+        InputStream in = accepted.getInputStream();
+        for (int i = 0; i < buffers.length; i++) {
+            assertFalse(buffers[i].hasRemaining());
+            assertEquals((byte) i, (byte) in.read());
+        }
+        sc.close();
+        accepted.close();
+        ss.close();
+    }
+
+    // More buffers than a single readv(2) accepts (IOV_MAX is 1024 on Linux).
+    public void test_read_manyBuffers() throws Exception {
+        ServerSocket ss = new ServerSocket(0);
+        SocketChannel sc = SocketChannel.open(ss.getLocalSocketAddress());
+        Socket accepted = ss.accept();
+        ByteBuffer[] buffers = new ByteBuffer[3000];
+        byte[] bytes = new byte[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = (i % 2 == 0) ? ByteBuffer.allocate(1) : ByteBuffer.allocateDirect(1);
+            bytes[i] = (byte) i;
+        }
+        OutputStream out = accepted.getOutputStream();
+        out.write(bytes);
+        out.flush();
+        long total = 0;
+        while (total < buffers.length) {
+            long read = sc.read(buffers);
+            assertTrue(read > 0);
+            total += read;
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            assertFalse(buffers[i].hasRemaining());
+            assertEquals((byte) i, buffers[i].get(0));
+        }
+        sc.close();
+        accepted.close();
+        ss.close();
+    }
 }
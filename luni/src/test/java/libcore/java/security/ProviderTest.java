@@ -16,6 +16,8 @@
 
 package libcore.java.security;
 
+import java.security.MessageDigest;
+import java.security.MessageDigestSpi;
 import java.security.Provider;
 import java.security.Security;
 import java.util.ArrayList;
@@ -189,4 +191,31 @@ public class ProviderTest extends TestCase {
             }
         }
     }
+
+    public static class MockMessageDigestSpi extends MessageDigestSpi {
+        @Override protected void engineUpdate(byte input) {}
+        @Override protected void engineUpdate(byte[] input, int offset, int len) {}
+        @Override protected byte[] engineDigest() {
+            return new byte[0];
+        }
+        @Override protected void engineReset() {}
+    }
+
+    /**
+     * Makes sure a cached lookup doesn't hide a provider inserted ahead of
+     * the one that served it, or keep serving a removed provider.
+     */
+    public void test_Provider_insertAndRemoveInvalidateLookups() throws Exception {
+        Provider original = MessageDigest.getInstance("SHA-1").getProvider();
+        Provider mock = new Provider("MockProvider", 1.0, "for ProviderTest") {};
+        mock.put("MessageDigest.SHA-1", MockMessageDigestSpi.class.getName());
+        Security.insertProviderAt(mock, 1);
+        try {
+            assertSame(mock, MessageDigest.getInstance("SHA-1").getProvider());
+            assertSame(mock, MessageDigest.getInstance("sha-1").getProvider());
+        } finally {
+            Security.removeProvider(mock.getName());
+        }
+        assertSame(original, MessageDigest.getInstance("SHA-1").getProvider());
+    }
 }
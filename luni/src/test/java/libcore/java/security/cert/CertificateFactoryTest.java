@@ -20,6 +20,9 @@ import java.io.ByteArrayInputStream;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
 import junit.framework.TestCase;
 
 public class CertificateFactoryTest extends TestCase {
@@ -101,4 +104,59 @@ public class CertificateFactoryTest extends TestCase {
         }
     }
 
+    public void test_generateCertificate_cached() throws Exception {
+        CertificateFactory cf = CertificateFactory.getInstance("X509", "DRLCertFactory");
+        byte[] valid = VALID_CERTIFICATE_PEM.getBytes();
+        Certificate c = cf.generateCertificate(new ByteArrayInputStream(valid));
+        assertSame(c, cf.generateCertificate(new ByteArrayInputStream(valid)));
+        assertSame(c, cf.generateCertificate(new ByteArrayInputStream(c.getEncoded())));
+    }
+
+    public void test_generateCertificate_namesAndExtensions() throws Exception {
+        CertificateFactory cf = CertificateFactory.getInstance("X509", "DRLCertFactory");
+        X509Certificate c = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(VALID_CERTIFICATE_PEM.getBytes()));
+        assertEquals("CN=www.google.com,O=Google Inc,L=Mountain View,ST=California,C=US",
+                c.getSubjectX500Principal().getName());
+        assertEquals("CN=Thawte SGC CA,O=Thawte Consulting (Pty) Ltd.,C=ZA",
+                c.getIssuerX500Principal().getName());
+        assertEquals(Collections.singleton("2.5.29.19"), c.getCriticalExtensionOIDs());
+        assertTrue(c.getNonCriticalExtensionOIDs().contains("2.5.29.37"));
+        assertEquals(Arrays.asList("1.3.6.1.5.5.7.3.1", "1.3.6.1.5.5.7.3.2",
+                "2.16.840.1.113730.4.1"), c.getExtendedKeyUsage());
+        assertNotNull(c.getExtensionValue("2.5.29.31"));
+        assertNull(c.getExtensionValue("2.5.29.15"));
+    }
+
+    public void test_generateCertificate_malformedExtensionValue() throws Exception {
+        CertificateFactory cf = CertificateFactory.getInstance("X509", "DRLCertFactory");
+        byte[] encoded = cf.generateCertificate(
+                new ByteArrayInputStream(VALID_CERTIFICATE_PEM.getBytes())).getEncoded();
+        // basic constraints, critical, a SET instead of a SEQUENCE
+        byte[] basicConstraints = {
+            0x55, 0x1d, 0x13, 0x01, 0x01, (byte) 0xff, 0x04, 0x02, 0x30, 0x00
+        };
+        int i = indexOf(encoded, basicConstraints);
+        assertTrue(i != -1);
+        encoded[i + basicConstraints.length - 2] = 0x31;
+        try {
+            cf.generateCertificate(new ByteArrayInputStream(encoded));
+            fail();
+        } catch (CertificateException expected) {
+        }
+    }
+
+    private static int indexOf(byte[] array, byte[] target) {
+        outer:
+        for (int i = 0; i <= array.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
 }
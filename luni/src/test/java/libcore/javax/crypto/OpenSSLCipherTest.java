@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.javax.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import junit.framework.TestCase;
+
+public class OpenSSLCipherTest extends TestCase {
+
+    private static final String PROVIDER = "AndroidOpenSSL";
+
+    // NIST SP 800-38A, F.2.1 CBC-AES128.Encrypt, first block.
+    private static final byte[] KEY = bytes("2b7e151628aed2a6abf7158809cf4f3c");
+    private static final byte[] IV = bytes("000102030405060708090a0b0c0d0e0f");
+    private static final byte[] PLAINTEXT = bytes("6bc1bee22e409f96e93d7e117393172a");
+    private static final byte[] CIPHERTEXT = bytes("7649abac8119b246cee98e9b12e9197d");
+
+    public void testCbcKnownAnswer() throws Exception {
+        Cipher c = Cipher.getInstance("AES/CBC/NoPadding", PROVIDER);
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        assertTrue(Arrays.equals(CIPHERTEXT, c.doFinal(PLAINTEXT)));
+        // doFinal resets to the state just after init.
+        assertTrue(Arrays.equals(CIPHERTEXT, c.doFinal(PLAINTEXT)));
+
+        c.init(Cipher.DECRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        assertTrue(Arrays.equals(PLAINTEXT, c.doFinal(CIPHERTEXT)));
+    }
+
+    public void testPaddingInPieces() throws Exception {
+        byte[] plaintext = new byte[100];
+        for (int i = 0; i < plaintext.length; i++) {
+            plaintext[i] = (byte) i;
+        }
+        Cipher c = Cipher.getInstance("AES/CBC/PKCS5Padding", PROVIDER);
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        byte[] ciphertext = c.doFinal(plaintext);
+        assertEquals(112, ciphertext.length);
+
+        c.init(Cipher.DECRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        byte[] decrypted = new byte[c.getOutputSize(ciphertext.length)];
+        int written = 0;
+        for (int offset = 0; offset < ciphertext.length; offset += 16) {
+            written += c.update(ciphertext, offset, 16, decrypted, written);
+        }
+        written += c.doFinal(decrypted, written);
+        assertEquals(100, written);
+        assertTrue(Arrays.equals(plaintext, Arrays.copyOf(decrypted, written)));
+
+        ciphertext[ciphertext.length - 1] ^= 1;
+        try {
+            c.doFinal(ciphertext);
+            fail();
+        } catch (BadPaddingException expected) {
+        }
+    }
+
+    public void testDirectBuffers() throws Exception {
+        Cipher c = Cipher.getInstance("AES/CBC/NoPadding", PROVIDER);
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        ByteBuffer input = ByteBuffer.allocateDirect(16);
+        input.put(PLAINTEXT).flip();
+        ByteBuffer output = ByteBuffer.allocateDirect(32);
+        assertEquals(16, c.doFinal(input, output));
+        assertEquals(0, input.remaining());
+        output.flip();
+        byte[] ciphertext = new byte[output.remaining()];
+        output.get(ciphertext);
+        assertTrue(Arrays.equals(CIPHERTEXT, ciphertext));
+    }
+
+    public void testHmacSha256() throws Exception {
+        // RFC 4231, test case 2.
+        Mac mac = Mac.getInstance("HmacSHA256", PROVIDER);
+        mac.init(new SecretKeySpec("Jefe".getBytes("US-ASCII"), "HmacSHA256"));
+        byte[] data = "what do ya want for nothing?".getBytes("US-ASCII");
+        byte[] expected = bytes("5bdcc146bf60754e6a042426089575c7"
+                + "5a003f089d2739839dec58b964ec3843");
+        assertTrue(Arrays.equals(expected, mac.doFinal(data)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        mac.update(direct);
+        assertTrue(Arrays.equals(expected, mac.doFinal()));
+    }
+
+    private static byte[] bytes(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+}
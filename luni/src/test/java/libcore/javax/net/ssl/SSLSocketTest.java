@@ -22,6 +22,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
@@ -40,6 +41,7 @@ import javax.net.ssl.SSLSocketFactory;
 import junit.framework.TestCase;
 import libcore.java.security.StandardNames;
 import libcore.java.security.TestKeyStore;
+import org.apache.harmony.xnet.provider.jsse.OpenSSLSocketImpl;
 
 public class SSLSocketTest extends TestCase {
 
@@ -945,6 +947,63 @@ public class SSLSocketTest extends TestCase {
         }
     }
 
+    public void test_OpenSSLSocketImpl_ByteBuffers() throws Exception {
+        TestSSLSocketPair pair = TestSSLSocketPair.create();
+        OpenSSLSocketImpl client = (OpenSSLSocketImpl) pair.client;
+        OpenSSLSocketImpl server = (OpenSSLSocketImpl) pair.server;
+        byte[] bytes = new byte[3 * 4096];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+
+        // Write a third each from a direct, a heap and a read-only heap buffer.
+        ByteBuffer direct = ByteBuffer.allocateDirect(4096 + 10);
+        direct.position(10);
+        direct.put(bytes, 0, 4096);
+        direct.position(10);
+        assertEquals(4096, client.write(direct));
+        assertFalse(direct.hasRemaining());
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 4096, 4096).slice();
+        assertEquals(4096, client.write(heap));
+        assertFalse(heap.hasRemaining());
+        ByteBuffer readOnly = ByteBuffer.wrap(bytes, 2 * 4096, 4096).asReadOnlyBuffer();
+        assertEquals(4096, client.write(readOnly));
+        assertFalse(readOnly.hasRemaining());
+        assertEquals(0, client.write(readOnly));
+
+        // Read the first half into a direct buffer, the rest into a heap
+        // buffer that doesn't start at the beginning of its array.
+        ByteBuffer directIn = ByteBuffer.allocateDirect(bytes.length / 2);
+        while (directIn.hasRemaining()) {
+            assertTrue(server.read(directIn) > 0);
+        }
+        ByteBuffer heapIn = ByteBuffer.wrap(new byte[bytes.length]);
+        heapIn.position(bytes.length / 2);
+        heapIn = heapIn.slice();
+        while (heapIn.hasRemaining()) {
+            assertTrue(server.read(heapIn) > 0);
+        }
+        assertEquals(0, server.read(heapIn));
+        byte[] actual = new byte[bytes.length];
+        directIn.flip();
+        directIn.get(actual, 0, bytes.length / 2);
+        heapIn.flip();
+        heapIn.get(actual, bytes.length / 2, bytes.length / 2);
+        assertTrue(Arrays.equals(bytes, actual));
+
+        try {
+            server.read(ByteBuffer.allocate(1).asReadOnlyBuffer());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // The end of the stream reads as -1 into either kind of buffer.
+        client.close();
+        assertEquals(-1, server.read(ByteBuffer.allocateDirect(1)));
+        assertEquals(-1, server.read(ByteBuffer.allocate(1)));
+        server.close();
+    }
+
     public void test_TestSSLSocketPair_create() {
         TestSSLSocketPair test = TestSSLSocketPair.create();
         assertNotNull(test.c);
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.javax.net.ssl;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import junit.framework.TestCase;
+import libcore.java.security.TestKeyStore;
+
+public class TrustManagerFactoryTest extends TestCase {
+
+    private static X509Certificate[] getServerChain() {
+        TestKeyStore server = TestKeyStore.getServer();
+        PrivateKeyEntry privateKey
+                = TestKeyStore.privateKey(server.keyStore, server.keyPassword, "RSA");
+        Certificate[] chain = privateKey.getCertificateChain();
+        return Arrays.asList(chain).toArray(new X509Certificate[chain.length]);
+    }
+
+    private static X509TrustManager getTrustManager(TestKeyStore testKeyStore) {
+        for (TrustManager trustManager : testKeyStore.trustManagers) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new AssertionError("no X509TrustManager");
+    }
+
+    public void test_checkServerTrusted_repeated() throws Exception {
+        X509Certificate[] chain = getServerChain();
+        X509TrustManager trustManager = getTrustManager(TestKeyStore.getClient());
+        // the second and third checks may be answered from the validated chains
+        for (int i = 0; i < 3; i++) {
+            trustManager.checkServerTrusted(chain, "RSA");
+        }
+        trustManager.checkServerTrusted(chain.clone(), "RSA");
+    }
+
+    public void test_checkServerTrusted_repeatedUntrusted() throws Exception {
+        X509Certificate[] chain = getServerChain();
+        X509TrustManager trusted = getTrustManager(TestKeyStore.getClient());
+        X509TrustManager untrusted = getTrustManager(TestKeyStore.getClientCA2());
+        trusted.checkServerTrusted(chain, "RSA");
+        for (int i = 0; i < 2; i++) {
+            try {
+                untrusted.checkServerTrusted(chain, "RSA");
+                fail();
+            } catch (CertificateException expected) {
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.security.Permission;
 import java.security.cert.Certificate;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Vector;
 import java.util.jar.Attributes;
@@ -637,6 +638,28 @@ public class JarFileTest extends TestCase {
         }
     }
 
+    /**
+     * Reopening a signed jar gives its entries the same certificates.
+     */
+    public void test_reopenSignedJar() throws IOException {
+        Support_Resources.copyFile(resources, null, integrateJar);
+        File f = new File(resources, integrateJar);
+        Certificate[] first = readCertificates(new JarFile(f), integrateJarEntry);
+        assertNotNull(first);
+        Certificate[] second = readCertificates(new JarFile(f), integrateJarEntry);
+        assertTrue(Arrays.equals(first, second));
+    }
+
+    private Certificate[] readCertificates(JarFile jarFile, String name) throws IOException {
+        JarEntry entry = jarFile.getJarEntry(name);
+        InputStream in = jarFile.getInputStream(entry);
+        while (in.read(new byte[1024]) != -1) {
+        }
+        in.close();
+        jarFile.close();
+        return entry.getCertificates();
+    }
+
     /*
      * If another entry is inserted into Manifest, no security exception will be
      * thrown out.
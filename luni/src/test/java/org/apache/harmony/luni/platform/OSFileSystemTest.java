@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.luni.platform;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import junit.framework.TestCase;
+
+/**
+ * Tests the positional read and write calls of OSFileSystem.
+ */
+public class OSFileSystemTest extends TestCase {
+
+    private final IFileSystem fileSystem = Platform.getFileSystem();
+    private File file;
+    private RandomAccessFile raf;
+    private int fd;
+
+    @Override protected void setUp() throws Exception {
+        file = File.createTempFile("OSFileSystemTest", null);
+        raf = new RandomAccessFile(file, "rw");
+        raf.write("0123456789".getBytes("US-ASCII"));
+        raf.seek(3);
+        Field descriptor = FileDescriptor.class.getDeclaredField("descriptor");
+        descriptor.setAccessible(true);
+        fd = descriptor.getInt(raf.getFD());
+    }
+
+    @Override protected void tearDown() throws Exception {
+        raf.close();
+        file.delete();
+    }
+
+    public void testPread() throws Exception {
+        byte[] bytes = new byte[6];
+        assertEquals(4, fileSystem.pread(fd, bytes, 1, 4, 5));
+        assertEquals("\u00005678\u0000", new String(bytes, "US-ASCII"));
+        assertEquals(3, raf.getFilePointer());
+    }
+
+    public void testPreadShortAtEndOfFile() throws Exception {
+        byte[] bytes = new byte[4];
+        assertEquals(2, fileSystem.pread(fd, bytes, 0, 4, 8));
+        assertEquals("89", new String(bytes, 0, 2, "US-ASCII"));
+    }
+
+    public void testPreadAtEndOfFile() throws Exception {
+        assertEquals(-1, fileSystem.pread(fd, new byte[4], 0, 4, 10));
+        assertEquals(-1, fileSystem.pread(fd, new byte[4], 0, 4, 100));
+    }
+
+    public void testPreadNothing() throws Exception {
+        assertEquals(0, fileSystem.pread(fd, new byte[4], 0, 0, 100));
+    }
+
+    public void testPreadNegativePosition() throws Exception {
+        try {
+            fileSystem.pread(fd, new byte[4], 0, 4, -1);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testPwrite() throws Exception {
+        byte[] bytes = "xabcx".getBytes("US-ASCII");
+        assertEquals(3, fileSystem.pwrite(fd, bytes, 1, 3, 2));
+        assertEquals(3, raf.getFilePointer());
+        assertEquals("01abc56789", contents());
+    }
+
+    public void testPwritePastEndOfFile() throws Exception {
+        byte[] bytes = "ab".getBytes("US-ASCII");
+        assertEquals(2, fileSystem.pwrite(fd, bytes, 0, 2, 12));
+        assertEquals(14, raf.length());
+        assertEquals("0123456789\u0000\u0000ab", contents());
+    }
+
+    public void testPreadDirectAndPwriteDirect() throws Exception {
+        int address = OSMemory.malloc(8);
+        try {
+            OSMemory.setByteArray(address, "wxyz".getBytes("US-ASCII"), 0, 4);
+            assertEquals(2, fileSystem.pwriteDirect(fd, address, 1, 2, 4));
+            assertEquals("0123xy6789", contents());
+
+            assertEquals(3, fileSystem.preadDirect(fd, address, 4, 3, 7));
+            byte[] bytes = new byte[8];
+            OSMemory.getByteArray(address, bytes, 0, 8);
+            assertEquals("wxyz789", new String(bytes, 0, 7, "US-ASCII"));
+            assertEquals(3, raf.getFilePointer());
+        } finally {
+            OSMemory.free(address);
+        }
+    }
+
+    public void testPwritevAndPreadv() throws Exception {
+        int first = OSMemory.malloc(4);
+        int second = OSMemory.malloc(4);
+        try {
+            OSMemory.setByteArray(first, "abcd".getBytes("US-ASCII"), 0, 4);
+            OSMemory.setByteArray(second, "efgh".getBytes("US-ASCII"), 0, 4);
+            int[] addresses = { first, second };
+            assertEquals(5, fileSystem.pwritev(fd, addresses, new int[] { 1, 0 },
+                    new int[] { 3, 2 }, 2, 6));
+            assertEquals("012345bcdef", contents());
+            assertEquals(3, raf.getFilePointer());
+
+            OSMemory.memset(first, (byte) 0, 4);
+            OSMemory.memset(second, (byte) 0, 4);
+            assertEquals(5, fileSystem.preadv(fd, addresses, new int[] { 0, 1 },
+                    new int[] { 2, 3 }, 2, 1));
+            assertEquals("12", readBytes(first, 2));
+            assertEquals("\u0000345", readBytes(second, 4));
+            assertEquals(3, raf.getFilePointer());
+        } finally {
+            OSMemory.free(first);
+            OSMemory.free(second);
+        }
+    }
+
+    public void testPreadvShortAtEndOfFile() throws Exception {
+        int first = OSMemory.malloc(4);
+        int second = OSMemory.malloc(4);
+        try {
+            int[] addresses = { first, second };
+            int[] offsets = { 0, 0 };
+            int[] lengths = { 4, 4 };
+            assertEquals(2, fileSystem.preadv(fd, addresses, offsets, lengths, 2, 8));
+            assertEquals("89", readBytes(first, 2));
+            assertEquals(-1, fileSystem.preadv(fd, addresses, offsets, lengths, 2, 10));
+        } finally {
+            OSMemory.free(first);
+            OSMemory.free(second);
+        }
+    }
+
+    private String contents() throws IOException {
+        byte[] bytes = new byte[(int) raf.length()];
+        long pointer = raf.getFilePointer();
+        raf.seek(0);
+        raf.readFully(bytes);
+        raf.seek(pointer);
+        return new String(bytes, "US-ASCII");
+    }
+
+    private static String readBytes(int address, int count) throws IOException {
+        byte[] bytes = new byte[count];
+        OSMemory.getByteArray(address, bytes, 0, count);
+        return new String(bytes, "US-ASCII");
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import junit.framework.TestCase;
+
+public class MappedByteBufferUtilTest extends TestCase {
+    private RandomAccessFile file;
+
+    @Override protected void setUp() throws Exception {
+        File tmp = File.createTempFile("MappedByteBufferUtilTest", "tmp");
+        tmp.deleteOnExit();
+        file = new RandomAccessFile(tmp, "rw");
+        file.setLength(8192);
+    }
+
+    @Override protected void tearDown() throws Exception {
+        file.close();
+    }
+
+    private MappedByteBuffer map() throws Exception {
+        return file.getChannel().map(MapMode.READ_WRITE, 0, 8192);
+    }
+
+    public void testUnmap() throws Exception {
+        MappedByteBuffer buffer = map();
+        ByteBuffer slice = buffer.slice();
+        buffer.put(0, (byte) 42);
+        MappedByteBufferUtil.unmap(buffer);
+        try {
+            buffer.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            slice.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // the write went through to the file before the unmap
+        assertEquals(42, file.read());
+    }
+
+    public void testUnmapTwice() throws Exception {
+        MappedByteBuffer buffer = map();
+        MappedByteBufferUtil.unmap(buffer);
+        MappedByteBufferUtil.unmap(buffer);
+    }
+
+    public void testAdvise() throws Exception {
+        MappedByteBuffer buffer = map();
+        try {
+            for (int advice = MappedByteBufferUtil.ADVICE_NORMAL;
+                    advice <= MappedByteBufferUtil.ADVICE_DONTNEED; advice++) {
+                MappedByteBufferUtil.advise(buffer, advice);
+            }
+            // advice is only a hint; the contents are unaffected
+            buffer.put(100, (byte) 7);
+            MappedByteBufferUtil.advise(buffer, MappedByteBufferUtil.ADVICE_DONTNEED);
+            assertEquals(7, buffer.get(100));
+        } finally {
+            MappedByteBufferUtil.unmap(buffer);
+        }
+    }
+
+    public void testAdviseInvalid() throws Exception {
+        MappedByteBuffer buffer = map();
+        try {
+            MappedByteBufferUtil.advise(buffer, MappedByteBufferUtil.ADVICE_NORMAL - 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            MappedByteBufferUtil.advise(buffer, MappedByteBufferUtil.ADVICE_DONTNEED + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        MappedByteBufferUtil.unmap(buffer);
+    }
+
+    public void testAdviseAfterUnmap() throws Exception {
+        MappedByteBuffer buffer = map();
+        MappedByteBufferUtil.unmap(buffer);
+        try {
+            MappedByteBufferUtil.advise(buffer, MappedByteBufferUtil.ADVICE_SEQUENTIAL);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.nio;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import junit.framework.TestCase;
+
+public class MappedFileWindowTest extends TestCase {
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private RandomAccessFile file;
+
+    @Override protected void setUp() throws Exception {
+        File tmp = File.createTempFile("MappedFileWindowTest", "tmp");
+        tmp.deleteOnExit();
+        file = new RandomAccessFile(tmp, "rw");
+    }
+
+    @Override protected void tearDown() throws Exception {
+        file.close();
+    }
+
+    private void fill(int length) throws Exception {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i % 251);
+        }
+        file.write(bytes);
+    }
+
+    private MappedFileWindow newWindow(int advice) {
+        return new MappedFileWindow(file.getChannel(), MapMode.READ_ONLY, WINDOW_SIZE, advice);
+    }
+
+    public void testWindowSizeIsRoundedUp() throws Exception {
+        fill(3 * WINDOW_SIZE);
+        MappedFileWindow window = new MappedFileWindow(file.getChannel(), MapMode.READ_ONLY,
+                1, MappedByteBufferUtil.ADVICE_NORMAL);
+        try {
+            MappedByteBuffer buffer = window.window(WINDOW_SIZE + 10);
+            assertEquals(WINDOW_SIZE, window.windowStart());
+            assertEquals(WINDOW_SIZE, buffer.capacity());
+            assertEquals(10, buffer.position());
+        } finally {
+            window.close();
+        }
+    }
+
+    public void testGet() throws Exception {
+        fill(3 * WINDOW_SIZE + 100);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_RANDOM);
+        try {
+            assertEquals(-1, window.windowStart());
+            for (long position : new long[] { 0, 2 * WINDOW_SIZE + 5, 17, 3 * WINDOW_SIZE + 99 }) {
+                assertEquals((byte) (position % 251), window.get(position));
+                assertEquals(position - position % WINDOW_SIZE, window.windowStart());
+            }
+        } finally {
+            window.close();
+        }
+    }
+
+    public void testLastWindowStopsAtEndOfFile() throws Exception {
+        fill(WINDOW_SIZE + 100);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_NORMAL);
+        try {
+            assertEquals(100, window.window(WINDOW_SIZE).capacity());
+        } finally {
+            window.close();
+        }
+    }
+
+    public void testReadAcrossWindows() throws Exception {
+        int length = 4 * WINDOW_SIZE + 1000;
+        fill(length);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_SEQUENTIAL);
+        try {
+            byte[] dst = new byte[length];
+            assertEquals(length - 10, window.read(10, dst, 5, length));
+            for (int i = 0; i < length - 10; i++) {
+                assertEquals((byte) ((i + 10) % 251), dst[i + 5]);
+            }
+            assertEquals(-1, window.read(length, dst, 0, 1));
+        } finally {
+            window.close();
+        }
+    }
+
+    public void testMovingUnmapsPreviousWindow() throws Exception {
+        fill(2 * WINDOW_SIZE);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_NORMAL);
+        MappedByteBuffer first = window.window(0);
+        window.window(WINDOW_SIZE);
+        try {
+            first.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        MappedByteBuffer second = window.window(WINDOW_SIZE);
+        window.close();
+        try {
+            second.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(-1, window.windowStart());
+    }
+
+    public void testPositionOutOfRange() throws Exception {
+        fill(100);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_NORMAL);
+        try {
+            window.window(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            window.window(100);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testInvalidArguments() throws Exception {
+        try {
+            new MappedFileWindow(file.getChannel(), MapMode.READ_ONLY, 0,
+                    MappedByteBufferUtil.ADVICE_NORMAL);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new MappedFileWindow(file.getChannel(), MapMode.READ_ONLY, WINDOW_SIZE,
+                    MappedByteBufferUtil.ADVICE_DONTNEED + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new MappedFileWindow(null, MapMode.READ_ONLY, WINDOW_SIZE,
+                    MappedByteBufferUtil.ADVICE_NORMAL);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    public void testOffsetBeyond2GiB() throws Exception {
+        // A sparse file, so this doesn't need 3 GiB of disk.
+        long position = 3L * 1024 * 1024 * 1024 + 12345;
+        file.setLength(position + 1);
+        file.seek(position);
+        file.write(99);
+        MappedFileWindow window = newWindow(MappedByteBufferUtil.ADVICE_NORMAL);
+        try {
+            assertEquals(99, window.get(position));
+            assertEquals(position - position % WINDOW_SIZE, window.windowStart());
+        } finally {
+            window.close();
+        }
+    }
+}
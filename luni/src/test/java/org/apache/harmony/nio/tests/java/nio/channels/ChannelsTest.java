@@ -1138,4 +1138,79 @@ public class ChannelsTest extends TestCase {
 
         sc.close();
     }
+
+    /**
+     * @tests java.nio.channels.Channels#newChannel(InputStream)
+     */
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "Verifies that a stream which is a channel reads into the caller's buffer.",
+        method = "newChannel",
+        args = {java.io.InputStream.class}
+    )
+    public void testNewChannelInputStream_ChannelStream() throws IOException {
+        ChannelStream stream = new ChannelStream();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        assertEquals(3, Channels.newChannel((InputStream) stream).read(buffer));
+        assertSame(buffer, stream.buffer);
+        assertEquals(3, buffer.position());
+    }
+
+    /**
+     * @tests java.nio.channels.Channels#newChannel(OutputStream)
+     */
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "Verifies that a stream which is a channel writes from the caller's buffer.",
+        method = "newChannel",
+        args = {java.io.OutputStream.class}
+    )
+    public void testNewChannelOutputStream_ChannelStream() throws IOException {
+        ChannelStream stream = new ChannelStream();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        assertEquals(8, Channels.newChannel(stream.output).write(buffer));
+        assertSame(buffer, stream.buffer);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * A stream pair that is also a channel, like those of an SSL socket.
+     * Reads fill at most three bytes; writes consume the whole buffer.
+     */
+    private static class ChannelStream extends InputStream implements ReadableByteChannel {
+        ByteBuffer buffer;
+
+        final OutputStream output = new ChannelOutputStream();
+
+        @Override public int read() {
+            throw new AssertionError("expected read(ByteBuffer)");
+        }
+
+        public int read(ByteBuffer dst) {
+            buffer = dst;
+            dst.position(dst.position() + Math.min(3, dst.remaining()));
+            return 3;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        private class ChannelOutputStream extends OutputStream implements WritableByteChannel {
+            @Override public void write(int b) {
+                throw new AssertionError("expected write(ByteBuffer)");
+            }
+
+            public int write(ByteBuffer src) {
+                buffer = src;
+                int count = src.remaining();
+                src.position(src.limit());
+                return count;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+        }
+    }
 }
@@ -23,6 +23,7 @@ public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite();
         suite.addTestSuite(ExpatParserTest.class);
+        suite.addTestSuite(StreamingXPathTest.class);
         return suite;
     }
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.harmony.xml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathExpressionException;
+import junit.framework.TestCase;
+import org.xml.sax.InputSource;
+
+public class StreamingXPathTest extends TestCase {
+
+    private static final String DOCUMENT = "<r>"
+            + "<a id='1'><b>x</b><b>y</b></a>"
+            + "<a id='2'><b>z</b><c><b>w</b></c></a>"
+            + "</r>";
+
+    private List<String> evaluate(String expression) throws Exception {
+        return StreamingXPath.compile(expression, null)
+                .evaluate(new InputSource(new StringReader(DOCUMENT)));
+    }
+
+    public void testChildSteps() throws Exception {
+        assertEquals(Arrays.asList("x", "y", "z"), evaluate("/r/a/b"));
+        assertEquals(Arrays.asList("x", "y", "z", "w"), evaluate("/r/*/*"));
+        assertEquals(Arrays.asList("x", "y", "z"), evaluate("r/a/b"));
+    }
+
+    public void testDescendantSteps() throws Exception {
+        assertEquals(Arrays.asList("x", "y", "z", "w"), evaluate("//b"));
+        assertEquals(Arrays.asList("z", "w"), evaluate("//a[@id='2']//b"));
+        assertEquals(Arrays.asList("z"), evaluate("/r/descendant::b[3]"));
+    }
+
+    public void testPositionPredicates() throws Exception {
+        assertEquals(Arrays.asList("z"), evaluate("/r/a[2]/b"));
+        assertEquals(Arrays.asList("y"), evaluate("//b[2]"));
+        assertEquals(Arrays.asList("x", "z", "w"), evaluate("/r//b[1]"));
+        assertEquals(Arrays.asList("y"), evaluate("//a[position()=1]/b[2]"));
+    }
+
+    public void testAttributes() throws Exception {
+        assertEquals(Arrays.asList("1", "2"), evaluate("/r/a/@id"));
+        assertEquals(Arrays.asList("x", "y", "z"), evaluate("/r/a[@id]/b"));
+        assertEquals(Arrays.asList(), evaluate("/r/a[@missing]/b"));
+    }
+
+    public void testNestedMatchesReportInnermostFirst() throws Exception {
+        assertEquals(Arrays.asList("xy", "zw"), evaluate("/r/a"));
+        assertEquals(Arrays.asList("in", "inout"), StreamingXPath.compile("//a", null)
+                .evaluate(new InputSource(new StringReader("<r><a><a>in</a>out</a></r>"))));
+    }
+
+    public void testNamespaces() throws Exception {
+        String xml = "<r xmlns:p='http://p'><p:a>1</p:a><a>2</a></r>";
+        NamespaceContext context = new NamespaceContext() {
+            public String getNamespaceURI(String prefix) {
+                return "q".equals(prefix) ? "http://p" : null;
+            }
+            public String getPrefix(String uri) {
+                return null;
+            }
+            public Iterator getPrefixes(String uri) {
+                return null;
+            }
+        };
+        assertEquals(Arrays.asList("1"), StreamingXPath.compile("/r/q:a", context)
+                .evaluate(new InputSource(new StringReader(xml))));
+        assertEquals(Arrays.asList("2"), StreamingXPath.compile("/r/a", context)
+                .evaluate(new InputSource(new StringReader(xml))));
+    }
+
+    public void testWildcardsMatchAnyNamespace() throws Exception {
+        String xml = "<r xmlns:p='http://p'><p:a p:id='1'>x</p:a><a id='2'>y</a></r>";
+        assertEquals(Arrays.asList("x", "y"), StreamingXPath.compile("/r/*", null)
+                .evaluate(new InputSource(new StringReader(xml))));
+        assertEquals(Arrays.asList("1", "2"), StreamingXPath.compile("/r/*/@*", null)
+                .evaluate(new InputSource(new StringReader(xml))));
+    }
+
+    public void testHandlerStopsParsing() throws Exception {
+        final List<String> values = new ArrayList<String>();
+        StreamingXPath.compile("//b", null).evaluate(
+                new InputSource(new StringReader(DOCUMENT)),
+                new StreamingXPath.Handler() {
+                    public boolean value(String value) {
+                        values.add(value);
+                        return values.size() < 2;
+                    }
+                });
+        assertEquals(Arrays.asList("x", "y"), values);
+    }
+
+    public void testUnsupportedExpressions() {
+        String[] unsupported = { "//b/..", "count(//b)", "//b[last()]",
+                "//text()", "/r/a/@id/b" };
+        for (String expression : unsupported) {
+            try {
+                StreamingXPath.compile(expression, null);
+                fail(expression);
+            } catch (XPathExpressionException expected) {
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ import tests.support.Support_SQL;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 @TestTargetClass(Blob.class)
 public class BlobTest extends SQLiteTest {
@@ -151,6 +152,51 @@ public class BlobTest extends SQLiteTest {
         }
     }
 
+    /**
+     * @tests Blob#read(ByteBuffer, int)
+     * @tests Blob#write(ByteBuffer, int)
+     */
+    @TestTargets ( {
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "functional test",
+        method = "read",
+        args = {ByteBuffer.class, int.class}
+    ),
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "functional test",
+        method = "write",
+        args = {ByteBuffer.class, int.class}
+    )
+    })
+    public void testReadWriteByteBuffer() throws Exception, IOException {
+        ByteBuffer src = ByteBuffer.allocateDirect(128);
+        for (int i = 0; i < 128; i++) {
+            src.put((byte) i);
+        }
+        src.flip();
+        Blob blob = db.open_blob("main", "B", "val", 2, true);
+        try {
+            assertEquals(128, blob.size());
+            assertEquals(128, blob.write(src, 0));
+            assertEquals(0, src.remaining());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(32);
+            assertEquals(32, blob.read(direct, 96));
+            assertEquals(32, direct.position());
+            assertEquals((byte) 96, direct.get(0));
+            assertEquals((byte) 127, direct.get(31));
+
+            ByteBuffer heap = ByteBuffer.allocate(64);
+            assertEquals(28, blob.read(heap, 100));
+            assertEquals((byte) 100, heap.get(0));
+            assertEquals(-1, blob.read(heap, 128));
+        } finally {
+            blob.close();
+        }
+    }
+
     /**
      * @tests Blob#finalize()
      */
@@ -22,6 +22,7 @@ import dalvik.annotation.TestLevel;
 import dalvik.annotation.TestTargetNew;
 import dalvik.annotation.TestTargetClass;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -3055,6 +3056,119 @@ public class PreparedStatementTest extends SQLTest {
         }
     }
 
+    /**
+     * @test {@link java.sql.PreparedStatement#setBinaryStream(int, InputStream, int)}
+     *       {@link java.sql.ResultSet#getBinaryStream(int)}
+     *       {@link java.sql.ResultSet#getBlob(int)}
+     */
+    @TestTargets({
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "round trip of a blob larger than the copy buffer",
+        method = "setBinaryStream",
+        args = {int.class, java.io.InputStream.class, int.class}
+    ),
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "round trip of a blob larger than the copy buffer",
+        clazz = ResultSet.class,
+        method = "getBinaryStream",
+        args = {int.class}
+    ),
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "round trip of a blob larger than the copy buffer",
+        clazz = ResultSet.class,
+        method = "getBlob",
+        args = {int.class}
+    )
+    })
+    public void testSetBinaryStreamRoundTrip() throws Exception {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        PreparedStatement ps = conn.prepareStatement(
+                "insert into type (IntVal, BlobVal) values (?, ?);");
+        try {
+            ps.setInt(1, 100);
+            ps.setBinaryStream(2, new ByteArrayInputStream(data), data.length);
+            assertEquals(1, ps.executeUpdate());
+        } finally {
+            ps.close();
+        }
+
+        Statement st = conn.createStatement();
+        try {
+            ResultSet res = st.executeQuery(
+                    "select ROWID, BlobVal from type where IntVal = 100");
+            assertTrue(res.next());
+
+            InputStream in = res.getBinaryStream(2);
+            byte[] read = new byte[data.length + 1];
+            int count = 0;
+            int n;
+            while ((n = in.read(read, count, read.length - count)) > 0) {
+                count += n;
+            }
+            assertEquals(data.length, count);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(data[i], read[i]);
+            }
+
+            Blob blob = res.getBlob(2);
+            assertEquals(data.length, blob.length());
+            byte[] tail = blob.getBytes(data.length - 9999, 10000);
+            for (int i = 0; i < tail.length; i++) {
+                assertEquals(data[data.length - 10000 + i], tail[i]);
+            }
+            assertFalse(res.next());
+            res.close();
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * @test {@link java.sql.PreparedStatement#setBinaryStream(int, InputStream, int)}
+     */
+    @TestTargetNew(
+        level = TestLevel.PARTIAL_COMPLETE,
+        notes = "streams that can't be written into the new row are inlined",
+        method = "setBinaryStream",
+        args = {int.class, java.io.InputStream.class, int.class}
+    )
+    public void testSetBinaryStreamUpdate() throws Exception {
+        byte[] data = new byte[20000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        PreparedStatement ps = conn.prepareStatement(
+                "update type set BlobVal = ? where IntVal = -1;");
+        try {
+            ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+            assertEquals(1, ps.executeUpdate());
+        } finally {
+            ps.close();
+        }
+
+        Statement st = conn.createStatement();
+        try {
+            ResultSet res = st.executeQuery(
+                    "select ROWID, BlobVal from type where IntVal = -1");
+            assertTrue(res.next());
+            Blob blob = res.getBlob(2);
+            byte[] read = blob.getBytes(1, (int) blob.length());
+            assertEquals(data.length, read.length);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(data[i], read[i]);
+            }
+            res.close();
+        } finally {
+            st.close();
+        }
+    }
+
     private class MockRef implements Ref {
 
         public String getBaseTypeName() throws SQLException {
@@ -43,6 +43,7 @@ public class AllTests {
         suite.addTestSuite(KeyStoreTestPKCS12.class);
 
         suite.addTestSuite(SecureRandomTestSHA1PRNG.class);
+        suite.addTestSuite(SecureRandomTestDRBG.class);
 
         // $JUnit-END$
         return suite;
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.targets.security;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import tests.security.SecureRandomTest;
+
+public class SecureRandomTestDRBG extends SecureRandomTest {
+
+    public SecureRandomTestDRBG() {
+        super("DRBG");
+    }
+
+    public void testSharedBetweenThreads() throws Exception {
+        final SecureRandom random = SecureRandom.getInstance("DRBG");
+        final Set<String> outputs = new HashSet<String>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        byte[] bytes = new byte[16];
+                        random.nextBytes(bytes);
+                        synchronized (outputs) {
+                            outputs.add(new BigInteger(1, bytes).toString(16));
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400, outputs.size());
+    }
+
+    public void testLargeRequest() throws Exception {
+        SecureRandom random = SecureRandom.getInstance("DRBG");
+        byte[] bytes = new byte[200000];
+        random.nextBytes(bytes);
+        // the last generate request is filled too
+        boolean allZero = true;
+        for (int i = bytes.length - 64; i < bytes.length; i++) {
+            allZero &= bytes[i] == 0;
+        }
+        assertFalse(allZero);
+    }
+}
@@ -31,6 +31,7 @@ public class AllTests {
         suite.addTestSuite(NodeTest.class);
         suite.addTestSuite(NormalizeTest.class);
         suite.addTestSuite(SaxTest.class);
+        suite.addTestSuite(TemplatesCacheTest.class);
 
         //suite.addTest(tests.org.w3c.dom.AllTests.suite());
         suite.addTest(tests.api.javax.xml.parsers.AllTests.suite());
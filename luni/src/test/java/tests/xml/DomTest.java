@@ -1385,6 +1385,82 @@ public class DomTest extends TestCase {
         assertEquals(root.getChildNodes().item(0), current);
     }
 
+    public void testGetElementsByTagNameIsLive() {
+        NodeList options = document.getElementsByTagName("a:option");
+        assertEquals(Arrays.asList(option1, option2), asList(options));
+
+        Element option3 = document.createElementNS("http://addons", "a:option");
+        item.insertBefore(option3, option2);
+        assertEquals(Arrays.asList(option1, option3, option2), asList(options));
+
+        item.removeChild(option1);
+        assertEquals(Arrays.asList(option3, option2), asList(options));
+
+        document.renameNode(option2, "http://addons", "a:choice");
+        assertEquals(Arrays.asList(option3), asList(options));
+        assertNull(options.item(1));
+    }
+
+    public void testGetElementsByTagNameNSIsLive() {
+        NodeList food = document.getElementsByTagNameNS("http://food", "*");
+        NodeList items = item.getElementsByTagNameNS("*", "name");
+        assertEquals(Arrays.asList(item, name, nutrition), asList(food));
+        assertEquals(Arrays.asList(name), asList(items));
+
+        item.removeChild(name);
+        assertEquals(Arrays.asList(item, nutrition), asList(food));
+        assertEquals(0, items.getLength());
+
+        nutrition.appendChild(name);
+        assertEquals(Arrays.asList(item, nutrition, name), asList(food));
+        assertEquals(Arrays.asList(name), asList(items));
+    }
+
+    public void testElementListFollowsAdoptedRoot() {
+        Document first = builder.newDocument();
+        Element root = first.createElement("root");
+        Element child = first.createElement("child");
+        root.appendChild(child);
+        root.setAttribute("color", "blue");
+        NodeList children = root.getElementsByTagName("child");
+        assertEquals(Arrays.asList(child), asList(children));
+
+        // both documents have seen the same number of modifications after
+        // the removal below, which mustn't be mistaken for no change
+        Document second = builder.newDocument();
+        second.createElement("other").setAttribute("color", "red");
+        assertSame(root, second.adoptNode(root));
+        root.removeChild(child);
+        assertEquals(0, children.getLength());
+    }
+
+    public void testGetElementByIdReflectsChanges() {
+        name.setAttribute("key", "waffles");
+        assertNull(document.getElementById("waffles"));
+
+        name.setIdAttribute("key", true);
+        assertSame(name, document.getElementById("waffles"));
+
+        vitaminc.setAttribute("key", "waffles");
+        vitaminc.setIdAttribute("key", true);
+        assertSame(name, document.getElementById("waffles"));
+
+        item.removeChild(name);
+        assertSame(vitaminc, document.getElementById("waffles"));
+
+        vitaminc.getAttributeNode("key").setValue("syrup");
+        assertNull(document.getElementById("waffles"));
+        assertSame(vitaminc, document.getElementById("syrup"));
+    }
+
+    private List<Node> asList(NodeList nodeList) {
+        List<Node> result = new ArrayList<Node>();
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            result.add(nodeList.item(i));
+        }
+        return result;
+    }
+
     private class RecordingHandler implements UserDataHandler {
         final Set<String> calls = new HashSet<String>();
         public void handle(short operation, String key, Object data, Node src, Node dst) {
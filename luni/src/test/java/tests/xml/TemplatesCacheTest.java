@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tests.xml;
+
+import junit.framework.TestCase;
+import org.apache.xalan.processor.TemplatesCache;
+import org.apache.xalan.processor.TransformerFactoryImpl;
+import org.apache.xml.utils.DefaultErrorHandler;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+
+/**
+ * Tests the compiled stylesheet cache of Xalan's TransformerFactoryImpl.
+ */
+public class TemplatesCacheTest extends TestCase {
+
+    private static final String STYLESHEET = "<xsl:stylesheet version='1.0'"
+            + " xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+            + "<xsl:template match='/'>%s</xsl:template>"
+            + "</xsl:stylesheet>";
+
+    private TransformerFactoryImpl factory;
+
+    @Override protected void setUp() throws Exception {
+        factory = new TransformerFactoryImpl();
+        factory.setAttribute(TransformerFactoryImpl.FEATURE_TEMPLATES_CACHE_SIZE, 2);
+    }
+
+    public void testDisabledByDefault() {
+        TransformerFactoryImpl uncached = new TransformerFactoryImpl();
+        assertNull(uncached.getTemplatesCache());
+        assertEquals(0, uncached.getAttribute(
+                TransformerFactoryImpl.FEATURE_TEMPLATES_CACHE_SIZE));
+    }
+
+    public void testFileIsReusedUntilModified() throws Exception {
+        File file = File.createTempFile("TemplatesCacheTest", ".xsl");
+        try {
+            write(file, "a");
+            Templates first = factory.newTemplates(new StreamSource(file));
+            assertSame(first, factory.newTemplates(new StreamSource(file)));
+
+            write(file, "a longer output");
+            assertNotSame(first, factory.newTemplates(new StreamSource(file)));
+
+            TemplatesCache cache = factory.getTemplatesCache();
+            assertEquals(1, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+            assertEquals(1, cache.getInvalidationCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testStreamsAreKeyedByContent() throws Exception {
+        Templates a = factory.newTemplates(stream("a"));
+        assertSame(a, factory.newTemplates(stream("a")));
+        assertNotSame(a, factory.newTemplates(stream("b")));
+    }
+
+    public void testEviction() throws Exception {
+        factory.newTemplates(stream("a"));
+        factory.newTemplates(stream("b"));
+        factory.newTemplates(stream("c"));
+        TemplatesCache cache = factory.getTemplatesCache();
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    public void testURIResolverClearsCache() throws Exception {
+        Templates a = factory.newTemplates(stream("a"));
+        factory.setURIResolver(null);
+        assertEquals(0, factory.getTemplatesCache().size());
+        assertNotSame(a, factory.newTemplates(stream("a")));
+    }
+
+    public void testErrorListenerClearsCache() throws Exception {
+        Templates a = factory.newTemplates(stream("a"));
+        factory.setErrorListener(new DefaultErrorHandler(false));
+        assertEquals(0, factory.getTemplatesCache().size());
+        assertNotSame(a, factory.newTemplates(stream("a")));
+    }
+
+    public void testImportModifiedDuringCompileIsNotTrusted() throws Exception {
+        final File imported = File.createTempFile("TemplatesCacheTest", ".xsl");
+        File importing = File.createTempFile("TemplatesCacheTest", ".xsl");
+        try {
+            write(imported, "a");
+            FileWriter writer = new FileWriter(importing);
+            writer.write("<xsl:stylesheet version='1.0'"
+                    + " xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+                    + "<xsl:import href='" + imported.toURI() + "'/>"
+                    + "</xsl:stylesheet>");
+            writer.close();
+            factory.setURIResolver(new URIResolver() {
+                public Source resolve(String href, String base) {
+                    try {
+                        // Runs while the importing stylesheet is being compiled.
+                        write(imported, "b");
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    return new StreamSource(imported);
+                }
+            });
+            Templates first = factory.newTemplates(new StreamSource(importing));
+            assertNotSame(first, factory.newTemplates(new StreamSource(importing)));
+            assertEquals(1, factory.getTemplatesCache().getInvalidationCount());
+        } finally {
+            imported.delete();
+            importing.delete();
+        }
+    }
+
+    public void testClearDuringCompileIsNotUndone() throws Exception {
+        final String imported = String.format(STYLESHEET, "imported");
+        factory.setURIResolver(new URIResolver() {
+            public Source resolve(String href, String base) {
+                // Runs while the importing stylesheet is being compiled.
+                factory.getTemplatesCache().clear();
+                return new StreamSource(new StringReader(imported),
+                        "http://localhost/imported.xsl");
+            }
+        });
+        String importing = "<xsl:stylesheet version='1.0'"
+                + " xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+                + "<xsl:import href='imported.xsl'/>"
+                + "</xsl:stylesheet>";
+        Templates templates = factory.newTemplates(new StreamSource(
+                new StringReader(importing), "http://localhost/stylesheet.xsl"));
+        assertNotNull(templates);
+        assertEquals(0, factory.getTemplatesCache().size());
+    }
+
+    private StreamSource stream(String output) {
+        return new StreamSource(new StringReader(String.format(STYLESHEET, output)),
+                "http://localhost/stylesheet.xsl");
+    }
+
+    private void write(File file, String output) throws Exception {
+        FileWriter writer = new FileWriter(file);
+        writer.write(String.format(STYLESHEET, output));
+        writer.close();
+    }
+}
@@ -97,7 +97,7 @@ class BlobR extends InputStream {
 	int n = blob.read(b, 0, pos, b.length);
 	if (n > 0) {
 	    pos += n;
-	    return b[0];
+	    return b[0] & 0xFF;
 	}
 	return -1;
     }
@@ -109,12 +109,7 @@ class BlobR extends InputStream {
      */
 
     public int read(byte b[]) throws IOException {
-	int n = blob.read(b, 0, pos, b.length);
-	if (n > 0) {
-	    pos += n;
-	    return n;
-	}
-	return -1;
+	return read(b, 0, b.length);
     }
 
     /**
@@ -135,6 +130,12 @@ class BlobR extends InputStream {
 	if (len == 0) {
 	    return 0;
 	}
+	if (pos >= blob.size) {
+	    return -1;
+	}
+	if (len > blob.size - pos) {
+	    len = blob.size - pos;
+	}
 	int n = blob.read(b, off, pos, len);
 	if (n > 0) {
 	    pos += n;
@@ -255,6 +256,15 @@ public class Blob {
 
     protected int size = 0;
 
+    /**
+     * Return size of this blob in bytes.
+     * @return blob size
+     */
+
+    public int size() {
+	return size;
+    }
+
     /**
      * Return InputStream for this blob
      * @return InputStream
@@ -301,6 +311,99 @@ public class Blob {
 
     native int read(byte[] b, int off, int pos, int len) throws IOException;
 
+    /**
+     * Read blob data into a ByteBuffer starting at the buffer's
+     * position. Direct buffers are filled by SQLite without any
+     * intermediate copy on the Java heap.
+     * @param dst ByteBuffer to be filled
+     * @param pos offset into blob
+     * @return number of bytes read or -1 when pos is at end of blob
+     */
+
+    public int read(java.nio.ByteBuffer dst, int pos) throws IOException {
+	if (pos < 0) {
+	    throw new IllegalArgumentException("negative blob offset");
+	}
+	if (pos >= size) {
+	    return -1;
+	}
+	int len = dst.remaining();
+	if (len > size - pos) {
+	    len = size - pos;
+	}
+	if (len == 0) {
+	    return 0;
+	}
+	int n;
+	if (dst.isDirect()) {
+	    n = readDirect(dst, dst.position(), pos, len);
+	} else if (dst.hasArray()) {
+	    n = read(dst.array(), dst.arrayOffset() + dst.position(), pos, len);
+	} else {
+	    byte b[] = new byte[len];
+	    n = read(b, 0, pos, len);
+	    dst.put(b, 0, n);
+	    return n;
+	}
+	dst.position(dst.position() + n);
+	return n;
+    }
+
+    /**
+     * Write the remaining bytes of a ByteBuffer into the blob.
+     * Direct buffers are handed to SQLite without any intermediate
+     * copy on the Java heap.
+     * @param src ByteBuffer holding the data to be written
+     * @param pos offset into blob
+     * @return number of bytes written to blob
+     */
+
+    public int write(java.nio.ByteBuffer src, int pos) throws IOException {
+	if (pos < 0) {
+	    throw new IllegalArgumentException("negative blob offset");
+	}
+	int len = src.remaining();
+	if (len == 0) {
+	    return 0;
+	}
+	int n;
+	if (src.isDirect()) {
+	    n = writeDirect(src, src.position(), pos, len);
+	} else if (src.hasArray()) {
+	    n = write(src.array(), src.arrayOffset() + src.position(), pos, len);
+	} else {
+	    byte b[] = new byte[len];
+	    src.get(b);
+	    return write(b, 0, pos, len);
+	}
+	src.position(src.position() + n);
+	return n;
+    }
+
+    /**
+     * Internal blob write method for direct ByteBuffers.
+     * @param b direct ByteBuffer holding the data
+     * @param off offset into ByteBuffer
+     * @param pos offset into blob
+     * @param len length to be written
+     * @return number of bytes written to blob
+     */
+
+    private native int writeDirect(java.nio.ByteBuffer b, int off, int pos,
+				   int len) throws IOException;
+
+    /**
+     * Internal blob read method for direct ByteBuffers.
+     * @param b direct ByteBuffer to be filled
+     * @param off offset into ByteBuffer
+     * @param pos offset into blob
+     * @param len length to be read
+     * @return number of bytes read from blob
+     */
+
+    private native int readDirect(java.nio.ByteBuffer b, int off, int pos,
+				  int len) throws IOException;
+
     /**
      * Destructor for object.
      */
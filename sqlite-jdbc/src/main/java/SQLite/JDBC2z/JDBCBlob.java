@@ -0,0 +1,268 @@
+package SQLite.JDBC2z;
+
+import java.sql.*;
+
+/**
+ * Implementation of java.sql.Blob on top of the SQLite3 3.4.0
+ * incremental blob I/O interface. Data is never materialized as
+ * a whole on the Java heap but read and written in chunks directly
+ * from and to the database.
+ */
+
+public class JDBCBlob implements java.sql.Blob {
+
+    /**
+     * Underlying SQLite blob, null after free().
+     */
+    private SQLite.Blob blob;
+
+    /**
+     * True when the blob has been opened for read-write.
+     */
+    private boolean rw;
+
+    public JDBCBlob(SQLite.Blob blob, boolean rw) {
+	this.blob = blob;
+	this.rw = rw;
+    }
+
+    /**
+     * Return the underlying SQLite blob for direct ByteBuffer I/O.
+     * @return the SQLite blob
+     */
+
+    public SQLite.Blob getSQLiteBlob() throws SQLException {
+	check();
+	return blob;
+    }
+
+    private void check() throws SQLException {
+	if (blob == null) {
+	    throw new SQLException("blob already freed");
+	}
+    }
+
+    private int checkPos(long pos) throws SQLException {
+	check();
+	if (pos < 1 || pos > (long) blob.size() + 1) {
+	    throw new SQLException("blob position " + pos + " out of range");
+	}
+	return (int) (pos - 1);
+    }
+
+    public long length() throws SQLException {
+	check();
+	return blob.size();
+    }
+
+    public byte[] getBytes(long pos, int length) throws SQLException {
+	int off = checkPos(pos);
+	if (length < 0) {
+	    throw new SQLException("negative length");
+	}
+	if (length > blob.size() - off) {
+	    length = blob.size() - off;
+	}
+	byte ret[] = new byte[length];
+	try {
+	    java.io.InputStream is = getBinaryStream(pos, length);
+	    int n = 0;
+	    while (n < length) {
+		int k = is.read(ret, n, length - n);
+		if (k <= 0) {
+		    break;
+		}
+		n += k;
+	    }
+	} catch (java.io.IOException e) {
+	    throw new SQLException("I/O failed");
+	}
+	return ret;
+    }
+
+    public java.io.InputStream getBinaryStream() throws SQLException {
+	check();
+	return new JDBCBlobInputStream(blob, 0, blob.size());
+    }
+
+    public java.io.InputStream getBinaryStream(long pos, long length)
+	throws SQLException {
+	int off = checkPos(pos);
+	if (length < 0 || off + length > blob.size()) {
+	    throw new SQLException("blob range out of bounds");
+	}
+	return new JDBCBlobInputStream(blob, off, off + (int) length);
+    }
+
+    public long position(byte pattern[], long start) throws SQLException {
+	throw new SQLFeatureNotSupportedException();
+    }
+
+    public long position(Blob pattern, long start) throws SQLException {
+	throw new SQLFeatureNotSupportedException();
+    }
+
+    public int setBytes(long pos, byte[] bytes) throws SQLException {
+	return setBytes(pos, bytes, 0, bytes.length);
+    }
+
+    public int setBytes(long pos, byte[] bytes, int offset, int len)
+	throws SQLException {
+	int off = checkPos(pos);
+	if (!rw) {
+	    throw new SQLException("blob is read-only");
+	}
+	if (off + len > blob.size()) {
+	    throw new SQLException("blob cannot grow");
+	}
+	try {
+	    return blob.write(java.nio.ByteBuffer.wrap(bytes, offset, len), off);
+	} catch (java.io.IOException e) {
+	    throw new SQLException("I/O failed");
+	}
+    }
+
+    public java.io.OutputStream setBinaryStream(long pos)
+	throws SQLException {
+	int off = checkPos(pos);
+	if (!rw) {
+	    throw new SQLException("blob is read-only");
+	}
+	return new JDBCBlobOutputStream(blob, off);
+    }
+
+    public void truncate(long len) throws SQLException {
+	throw new SQLFeatureNotSupportedException();
+    }
+
+    public void free() throws SQLException {
+	if (blob != null) {
+	    blob.close();
+	    blob = null;
+	}
+    }
+}
+
+/**
+ * Chunked InputStream on a range of an SQLite blob.
+ */
+
+class JDBCBlobInputStream extends java.io.InputStream {
+
+    private SQLite.Blob blob;
+    private int pos;
+    private int end;
+
+    JDBCBlobInputStream(SQLite.Blob blob, int pos, int end) {
+	this.blob = blob;
+	this.pos = pos;
+	this.end = end;
+    }
+
+    @Override
+    public int available() {
+	return end - pos;
+    }
+
+    @Override
+    public int read() throws java.io.IOException {
+	byte b[] = new byte[1];
+	int n = read(b, 0, 1);
+	return (n > 0) ? (b[0] & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte b[], int off, int len) throws java.io.IOException {
+	if (off < 0 || len < 0 || off + len > b.length) {
+	    throw new IndexOutOfBoundsException();
+	}
+	if (len == 0) {
+	    return 0;
+	}
+	if (pos >= end) {
+	    return -1;
+	}
+	java.nio.ByteBuffer bb = java.nio.ByteBuffer.wrap(b, off,
+		Math.min(len, end - pos));
+	int n = blob.read(bb, pos);
+	if (n > 0) {
+	    pos += n;
+	}
+	return n;
+    }
+
+    /**
+     * Read directly into a ByteBuffer; direct buffers are filled
+     * without passing through the Java heap.
+     */
+
+    public int read(java.nio.ByteBuffer dst) throws java.io.IOException {
+	if (pos >= end) {
+	    return -1;
+	}
+	int lim = dst.limit();
+	if (dst.remaining() > end - pos) {
+	    dst.limit(dst.position() + (end - pos));
+	}
+	try {
+	    int n = blob.read(dst, pos);
+	    if (n > 0) {
+		pos += n;
+	    }
+	    return n;
+	} finally {
+	    dst.limit(lim);
+	}
+    }
+
+    @Override
+    public long skip(long n) {
+	if (n <= 0) {
+	    return 0;
+	}
+	long k = Math.min(n, (long) (end - pos));
+	pos += (int) k;
+	return k;
+    }
+
+    /**
+     * Close this stream. The SQLite blob stays open: it belongs to
+     * the JDBCBlob, whose free() closes it.
+     */
+
+    @Override
+    public void close() {
+	pos = end;
+    }
+}
+
+/**
+ * OutputStream writing into an SQLite blob at a given offset.
+ */
+
+class JDBCBlobOutputStream extends java.io.OutputStream {
+
+    private SQLite.Blob blob;
+    private int pos;
+
+    JDBCBlobOutputStream(SQLite.Blob blob, int pos) {
+	this.blob = blob;
+	this.pos = pos;
+    }
+
+    @Override
+    public void write(int v) throws java.io.IOException {
+	write(new byte[] { (byte) v }, 0, 1);
+    }
+
+    @Override
+    public void write(byte b[], int off, int len) throws java.io.IOException {
+	if (off < 0 || len < 0 || off + len > b.length) {
+	    throw new IndexOutOfBoundsException();
+	}
+	if (pos + len > blob.size()) {
+	    throw new java.io.IOException("blob cannot grow");
+	}
+	pos += blob.write(java.nio.ByteBuffer.wrap(b, off, len), pos);
+    }
+}
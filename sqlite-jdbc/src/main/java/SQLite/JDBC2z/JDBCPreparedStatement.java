@@ -18,12 +18,271 @@ class BatchArg {
     }
 }
 
+/**
+ * A stream set with setBinaryStream(). Until the statement is
+ * executed the parameter holds a zeroblob() of the stream's length;
+ * the data is then written into the new row with incremental blob I/O.
+ */
+
+class StreamArg {
+    java.io.InputStream in;
+    int length;
+    String arg;
+
+    StreamArg(java.io.InputStream in, int length) {
+	this.in = in;
+	this.length = length;
+	this.arg = "zeroblob(" + length + ")";
+    }
+}
+
+/**
+ * The row written by a single row INSERT ... VALUES statement, as
+ * far as needed to find the columns its parameters are stored in.
+ */
+
+class InsertTarget {
+    /**
+     * Database name, or null until resolved if not given.
+     */
+    String db;
+
+    String table;
+
+    /**
+     * Column names, or null until resolved if not given.
+     */
+    String columns[];
+
+    /**
+     * For each parameter the index of the value it makes up on its
+     * own, or -1 if it is part of a larger expression.
+     */
+    int values[];
+
+    private boolean resolved;
+
+    /**
+     * Parse an INSERT statement.
+     * @param sql SQL statement
+     * @param nparm number of parameters of the statement
+     * @return InsertTarget or null if sql is not a single row INSERT
+     */
+
+    static InsertTarget parse(String sql, int nparm) {
+	ArrayList<String> toks = new ArrayList<String>();
+	ArrayList<Boolean> quoted = new ArrayList<Boolean>();
+	int i = 0;
+	int n = sql.length();
+	while (i < n) {
+	    char c = sql.charAt(i);
+	    if (Character.isWhitespace(c)) {
+		i++;
+	    } else if (c == '-' && sql.startsWith("--", i)) {
+		while (i < n && sql.charAt(i) != '\n') {
+		    i++;
+		}
+	    } else if (c == '/' && sql.startsWith("/*", i)) {
+		int k = sql.indexOf("*/", i + 2);
+		i = (k < 0) ? n : k + 2;
+	    } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+		char end = (c == '[') ? ']' : c;
+		StringBuffer sb = new StringBuffer();
+		for (i++; i < n; i++) {
+		    char d = sql.charAt(i);
+		    if (d == end) {
+			if (end != ']' && i + 1 < n && sql.charAt(i + 1) == end) {
+			    i++;
+			} else {
+			    break;
+			}
+		    }
+		    sb.append(d);
+		}
+		if (i >= n) {
+		    return null;
+		}
+		i++;
+		toks.add((c == '\'') ? "'" : sb.toString());
+		quoted.add(Boolean.TRUE);
+	    } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+		int k = i;
+		while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) ||
+				 sql.charAt(i) == '_' || sql.charAt(i) == '$')) {
+		    i++;
+		}
+		toks.add(sql.substring(k, i));
+		quoted.add(Boolean.FALSE);
+	    } else if (c == ';') {
+		break;
+	    } else {
+		toks.add(String.valueOf(c));
+		quoted.add(Boolean.FALSE);
+		i++;
+	    }
+	}
+
+	InsertTarget t = new InsertTarget();
+	int k = 0;
+	if (keyword(toks, quoted, k, "INSERT")) {
+	    k++;
+	    if (keyword(toks, quoted, k, "OR")) {
+		k += 2;
+	    }
+	} else if (keyword(toks, quoted, k, "REPLACE")) {
+	    k++;
+	} else {
+	    return null;
+	}
+	if (!keyword(toks, quoted, k++, "INTO") || k >= toks.size()) {
+	    return null;
+	}
+	t.table = toks.get(k++);
+	if (punct(toks, quoted, k, ".")) {
+	    if (k + 1 >= toks.size()) {
+		return null;
+	    }
+	    t.db = t.table;
+	    t.table = toks.get(k + 1);
+	    k += 2;
+	}
+	if (punct(toks, quoted, k, "(")) {
+	    ArrayList<String> cols = new ArrayList<String>();
+	    do {
+		k++;
+		if (k >= toks.size()) {
+		    return null;
+		}
+		cols.add(toks.get(k++));
+	    } while (punct(toks, quoted, k, ","));
+	    if (!punct(toks, quoted, k++, ")")) {
+		return null;
+	    }
+	    t.columns = cols.toArray(new String[cols.size()]);
+	}
+	if (!keyword(toks, quoted, k++, "VALUES") ||
+	    !punct(toks, quoted, k++, "(")) {
+	    return null;
+	}
+	t.values = new int[nparm];
+	int parm = 0;
+	int value = 0;
+	int depth = 0;
+	int start = k;
+	for (; k < toks.size(); k++) {
+	    boolean last = false;
+	    if (punct(toks, quoted, k, "(")) {
+		depth++;
+	    } else if (punct(toks, quoted, k, ")")) {
+		if (depth == 0) {
+		    last = true;
+		} else {
+		    depth--;
+		}
+	    } else if (punct(toks, quoted, k, "?")) {
+		if (parm >= nparm) {
+		    return null;
+		}
+		t.values[parm++] = -1;
+		continue;
+	    }
+	    if (last || (depth == 0 && punct(toks, quoted, k, ","))) {
+		if (k == start + 1 && punct(toks, quoted, start, "?")) {
+		    t.values[parm - 1] = value;
+		}
+		value++;
+		start = k + 1;
+		if (last) {
+		    break;
+		}
+	    }
+	}
+	if (k != toks.size() - 1 || parm != nparm ||
+	    (t.columns != null && t.columns.length != value)) {
+	    return null;
+	}
+	return t;
+    }
+
+    private static boolean keyword(ArrayList<String> toks,
+				   ArrayList<Boolean> quoted, int k,
+				   String word) {
+	return k < toks.size() && !quoted.get(k).booleanValue() &&
+	    toks.get(k).equalsIgnoreCase(word);
+    }
+
+    private static boolean punct(ArrayList<String> toks,
+				 ArrayList<Boolean> quoted, int k, String p) {
+	return k < toks.size() && !quoted.get(k).booleanValue() &&
+	    toks.get(k).equals(p);
+    }
+
+    /**
+     * Find the database of the table if not given, and its columns
+     * if no column list was given. An unqualified table name is only
+     * accepted if it refers to a table of the temp or main database,
+     * as the table is looked up in the others only after these.
+     * @param db database the statement runs on
+     * @return true if the target is known
+     */
+
+    boolean resolve(SQLite.Database db) throws SQLite.Exception {
+	if (resolved) {
+	    return true;
+	}
+	String args[] = { table };
+	if (this.db == null) {
+	    if (db.get_table("SELECT 1 FROM sqlite_temp_master " +
+			     "WHERE type = 'table' AND name = '%q'",
+			     args).nrows > 0) {
+		this.db = "temp";
+	    } else if (db.get_table("SELECT 1 FROM sqlite_master " +
+				    "WHERE type = 'table' AND name = '%q'",
+				    args).nrows > 0) {
+		this.db = "main";
+	    } else {
+		return false;
+	    }
+	}
+	if (columns == null) {
+	    SQLite.TableResult info =
+		db.get_table("PRAGMA " + quote(this.db) + ".table_info(" +
+			     quote(table) + ")");
+	    columns = new String[info.nrows];
+	    for (int i = 0; i < info.nrows; i++) {
+		columns[i] = ((String []) info.rows.elementAt(i))[1];
+	    }
+	}
+	resolved = true;
+	return true;
+    }
+
+    /**
+     * Return the column the given parameter is stored in.
+     * @param parm parameter index (0-based)
+     * @return column name or null
+     */
+
+    String column(int parm) {
+	int v = values[parm];
+	return (v >= 0 && v < columns.length) ? columns[v] : null;
+    }
+
+    private static String quote(String name) {
+	return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+}
+
 public class JDBCPreparedStatement extends JDBCStatement
     implements java.sql.PreparedStatement {
 
     private String sql;
+    private String rawsql;
     private String args[];
     private boolean blobs[];
+    private StreamArg streams[];
+    private InsertTarget target;
+    private boolean targetparsed;
     private ArrayList<BatchArg> batch;
     private static final boolean nullrepl =
 	SQLite.Database.version().compareTo("2.5.0") < 0;
@@ -33,6 +292,7 @@ public class JDBCPreparedStatement extends JDBCStatement
 	this.args = null;
 	this.blobs = null;
 	this.batch = null;
+	this.rawsql = sql;
 	this.sql = fixup(sql);
     }
 
@@ -112,14 +372,158 @@ public class JDBCPreparedStatement extends JDBCStatement
     }
 
     public ResultSet executeQuery() throws SQLException {
-	return executeQuery(fixup2(sql), args, false);
+	return executeWithStreams(false);
     }
 
     public int executeUpdate() throws SQLException {
-	executeQuery(fixup2(sql), args, true);
+	executeWithStreams(true);
 	return updcnt;
     }
 
+    /**
+     * Execute the statement. Streams set with setBinaryStream() are
+     * inserted as zeroblob()s of their length and then copied into
+     * the new row chunk by chunk, so that they never are in memory
+     * as a whole. This works for single row INSERT ... VALUES
+     * statements where the parameter is a value on its own; for
+     * other statements the streams are read into the SQL text.
+     * The insert and the copying are undone together on failure.
+     */
+
+    private ResultSet executeWithStreams(boolean updonly)
+	throws SQLException {
+	if (!hasStreams()) {
+	    return executeQuery(fixup2(sql), args, updonly);
+	}
+	if (!streamTarget()) {
+	    encodeStreams();
+	    return executeQuery(fixup2(sql), args, updonly);
+	}
+	try {
+	    if (!conn.autocommit && !conn.intrans) {
+		conn.db.exec("BEGIN TRANSACTION", null);
+		conn.intrans = true;
+	    }
+	    conn.db.exec("SAVEPOINT jdbc_streams", null);
+	} catch (SQLite.Exception e) {
+	    throw new SQLException(e.toString());
+	}
+	ResultSet ret = null;
+	boolean ok = false;
+	try {
+	    ret = executeQuery(fixup2(sql), args, updonly);
+	    if (conn.db.changes() > 0) {
+		writeStreams(conn.db.last_insert_rowid());
+	    }
+	    ok = true;
+	} catch (java.io.IOException e) {
+	    throw new SQLException("I/O failed");
+	} catch (SQLite.Exception e) {
+	    throw new SQLException(e.toString());
+	} finally {
+	    if (!ok) {
+		try {
+		    conn.db.exec("ROLLBACK TO jdbc_streams", null);
+		    conn.db.exec("RELEASE jdbc_streams", null);
+		} catch (SQLite.Exception e) {
+		}
+	    }
+	}
+	try {
+	    conn.db.exec("RELEASE jdbc_streams", null);
+	} catch (SQLite.Exception e) {
+	    throw new SQLException(e.toString());
+	}
+	return ret;
+    }
+
+    private boolean hasStreams() {
+	if (streams != null) {
+	    for (int i = 0; i < streams.length; i++) {
+		if (streams[i] != null && args[i] == streams[i].arg) {
+		    return true;
+		}
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Check that every pending stream can be written into the row
+     * inserted by this statement.
+     */
+
+    private boolean streamTarget() {
+	if (!targetparsed) {
+	    target = InsertTarget.parse(rawsql, args.length);
+	    targetparsed = true;
+	}
+	try {
+	    if (target == null || !target.resolve(conn.db)) {
+		return false;
+	    }
+	} catch (SQLite.Exception e) {
+	    return false;
+	}
+	for (int i = 0; i < streams.length; i++) {
+	    if (streams[i] != null && args[i] == streams[i].arg &&
+		target.column(i) == null) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Copy the pending streams into the given row.
+     */
+
+    private void writeStreams(long rowid)
+	throws SQLite.Exception, java.io.IOException {
+	for (int i = 0; i < streams.length; i++) {
+	    StreamArg a = streams[i];
+	    if (a == null || args[i] != a.arg) {
+		continue;
+	    }
+	    SQLite.Blob blob = conn.db.open_blob(target.db, target.table,
+						 target.column(i), rowid,
+						 true);
+	    try {
+		byte buf[] = new byte[Math.min(a.length, 8192)];
+		int pos = 0;
+		while (pos < a.length) {
+		    int n = a.in.read(buf, 0, Math.min(a.length - pos,
+						       buf.length));
+		    if (n < 0) {
+			break;
+		    }
+		    pos += blob.write(java.nio.ByteBuffer.wrap(buf, 0, n), pos);
+		}
+	    } finally {
+		blob.close();
+	    }
+	}
+    }
+
+    /**
+     * Read the pending streams into the SQL text, for statements
+     * that can't stream them.
+     */
+
+    private void encodeStreams() throws SQLException {
+	for (int i = 0; streams != null && i < streams.length; i++) {
+	    StreamArg a = streams[i];
+	    if (a != null && args[i] == a.arg) {
+		try {
+		    args[i] = SQLite.StringEncoder.encodeX(a.in, a.length);
+		} catch (java.io.IOException e) {
+		    throw new SQLException("I/O failed");
+		}
+	    }
+	    streams[i] = null;
+	}
+    }
+
     public void setNull(int parameterIndex, int sqlType) throws SQLException {
 	if (parameterIndex < 1 || parameterIndex > args.length) {
 	    throw new SQLException("bad parameter index");
@@ -291,13 +695,39 @@ public class JDBCPreparedStatement extends JDBCStatement
 
     public void setBinaryStream(int parameterIndex, java.io.InputStream x,
 				int length) throws SQLException {
-	try {
-	    byte[] data = new byte[length];
-	    x.read(data, 0, length);
-	    setBytes(parameterIndex, data);
-	} catch (java.io.IOException e) {
-	    throw new SQLException("I/O failed");
+	if (parameterIndex < 1 || parameterIndex > args.length) {
+	    throw new SQLException("bad parameter index");
+	}
+	if (x == null || !conn.db.is3()) {
+	    try {
+		byte[] data = null;
+		if (x != null) {
+		    data = new byte[length];
+		    int n = 0;
+		    while (n < length) {
+			int k = x.read(data, n, length - n);
+			if (k < 0) {
+			    break;
+			}
+			n += k;
+		    }
+		}
+		setBytes(parameterIndex, data);
+	    } catch (java.io.IOException e) {
+		throw new SQLException("I/O failed");
+	    }
+	    return;
+	}
+	if (length < 0) {
+	    throw new SQLException("negative length");
 	}
+	if (streams == null) {
+	    streams = new StreamArg[args.length];
+	}
+	StreamArg a = new StreamArg(x, length);
+	streams[parameterIndex - 1] = a;
+	args[parameterIndex - 1] = a.arg;
+	blobs[parameterIndex - 1] = true;
     }
 
     public void clearParameters() throws SQLException {
@@ -305,6 +735,7 @@ public class JDBCPreparedStatement extends JDBCStatement
 	    args[i] = nullrepl ? "" : null;
 	    blobs[i] = false;
 	}
+	streams = null;
     }
 
     public void setObject(int parameterIndex, Object x, int targetSqlType,
@@ -379,10 +810,11 @@ public class JDBCPreparedStatement extends JDBCStatement
     }
 
     public boolean execute() throws SQLException {
-	return executeQuery(fixup2(sql), args, false) != null;
+	return executeWithStreams(false) != null;
     }
 
     public void addBatch() throws SQLException {
+	encodeStreams();
 	if (batch == null) {
 	    batch = new ArrayList<BatchArg>(args.length);
 	}
@@ -449,7 +881,15 @@ public class JDBCPreparedStatement extends JDBCStatement
     }
 
     public void setBlob(int i, Blob x) throws SQLException {
-	throw new SQLFeatureNotSupportedException();
+	if (x == null) {
+	    setBytes(i, null);
+	    return;
+	}
+	long len = x.length();
+	if (len > Integer.MAX_VALUE) {
+	    throw new SQLException("blob too large");
+	}
+	setBinaryStream(i, x.getBinaryStream(), (int) len);
     }
 
     public void setClob(int i, Clob x) throws SQLException {
@@ -830,7 +1270,10 @@ public class JDBCPreparedStatement extends JDBCStatement
 
     public void setBlob(int parameterIndex, java.io.InputStream x, long len)
 	throws SQLException {
-	throw new SQLFeatureNotSupportedException();
+	if (len > Integer.MAX_VALUE) {
+	    throw new SQLException("blob too large");
+	}
+	setBinaryStream(parameterIndex, x, (int) len);
     }
 
     public void setBlob(String parameterName, java.io.InputStream x, long len)
@@ -68,6 +68,23 @@ public class JDBCResultSet implements java.sql.ResultSet {
      */
     private String rowbuf[];
 
+    /**
+     * Blob handles returned by getBlob(), freed on close().
+     */
+    private java.util.ArrayList<JDBCBlob> blobs;
+
+    /**
+     * Blob handle behind the last stream returned by
+     * getBinaryStream(), freed by the next call or on close().
+     */
+    private JDBCBlob streamblob;
+
+    /**
+     * Databases of the tables of blob columns, by table name;
+     * "" when the table can't be located unambiguously.
+     */
+    private java.util.HashMap<String, String> blobdbs;
+
     private static final boolean nullrepl =
         SQLite.Database.version().compareTo("2.5.0") < 0;
 
@@ -579,6 +596,15 @@ public class JDBCResultSet implements java.sql.ResultSet {
 
     public java.io.InputStream getBinaryStream(int columnIndex)
 	throws SQLException {
+	if (streamblob != null) {
+	    streamblob.free();
+	    streamblob = null;
+	}
+	JDBCBlob blob = openBlob(columnIndex);
+	if (blob != null) {
+	    streamblob = blob;
+	    return blob.getBinaryStream();
+	}
 	byte data[] = getBytes(columnIndex);
 	if (data != null) {
 	    return new java.io.ByteArrayInputStream(data);
@@ -588,11 +614,8 @@ public class JDBCResultSet implements java.sql.ResultSet {
 
     public java.io.InputStream getBinaryStream(String columnName)
 	throws SQLException {
-	byte data[] = getBytes(columnName);
-	if (data != null) {
-	    return new java.io.ByteArrayInputStream(data);
-	}
-	return null;
+	int col = findColumn(columnName);
+	return getBinaryStream(col);
     }
 
     public byte getByte(int columnIndex) throws SQLException {
@@ -690,7 +713,119 @@ public class JDBCResultSet implements java.sql.ResultSet {
     }
 
     public java.sql.Blob getBlob(int columnIndex) throws SQLException {
-	throw new SQLFeatureNotSupportedException();
+	JDBCBlob blob = openBlob(columnIndex);
+	if (blob == null) {
+	    throw new SQLFeatureNotSupportedException();
+	}
+	if (blobs == null) {
+	    blobs = new java.util.ArrayList<JDBCBlob>(1);
+	}
+	blobs.add(blob);
+	return blob;
+    }
+
+    /**
+     * Open the given column of the current row for SQLite3
+     * incremental blob I/O, so that its value is read in chunks
+     * from the database instead of being decoded from the row.
+     * This requires the column to originate from a table which
+     * exists in only one of the connection's databases, and the
+     * result set to carry the row's rowid (selected as ROWID, OID
+     * or _ROWID_). The blob shows the row as it is now, not as it
+     * was when the result set was produced.
+     * @param columnIndex column index (1-based)
+     * @return JDBCBlob or null if incremental blob I/O is not possible
+     */
+
+    private JDBCBlob openBlob(int columnIndex) throws SQLException {
+	if (tr == null || columnIndex < 1 || columnIndex > tr.ncolumns) {
+	    throw new SQLException("column " + columnIndex + " not found");
+	}
+	if (row < 0 || row >= tr.nrows || s == null || s.conn == null ||
+	    s.conn.db == null || !s.conn.db.is3()) {
+	    return null;
+	}
+	String rd[] = (String []) tr.rows.elementAt(row);
+	lastg = rd[columnIndex - 1];
+	if (lastg == null) {
+	    return null;
+	}
+	JDBCResultSetMetaData m = (JDBCResultSetMetaData) getMetaData();
+	String table = m.getTableName(columnIndex);
+	String column = m.getColumnName(columnIndex);
+	if (table == null || column == null) {
+	    return null;
+	}
+	String rowid = null;
+	String names[] = { "ROWID", "OID", "_ROWID_" };
+	for (int i = 0; rowid == null && i < names.length; i++) {
+	    try {
+		int col = m.findColByName(names[i]);
+		if (table.equals(m.getTableName(col))) {
+		    rowid = rd[col - 1];
+		}
+	    } catch (SQLException e) {
+	    }
+	}
+	if (rowid == null) {
+	    return null;
+	}
+	try {
+	    String db = blobDatabase(table);
+	    if (db == null) {
+		return null;
+	    }
+	    SQLite.Blob blob = s.conn.db.open_blob(db, table, column,
+						   Long.parseLong(rowid),
+						   false);
+	    return new JDBCBlob(blob, false);
+	} catch (NumberFormatException e) {
+	    return null;
+	} catch (SQLite.Exception e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Find the database holding a table. Only the table name is
+     * known from the result set, so the table must exist in
+     * exactly one of the connection's databases. The answer is
+     * remembered for the life of this result set.
+     * @param table table name
+     * @return database name or null if not unambiguous
+     */
+
+    private String blobDatabase(String table) throws SQLite.Exception {
+	if (blobdbs == null) {
+	    blobdbs = new java.util.HashMap<String, String>();
+	}
+	String db = blobdbs.get(table);
+	if (db == null) {
+	    String found = "";
+	    int count = 0;
+	    SQLite.TableResult dbs =
+		s.conn.db.get_table("PRAGMA database_list");
+	    for (int i = 0; i < dbs.nrows; i++) {
+		String name = ((String []) dbs.rows.elementAt(i))[1];
+		String master = "sqlite_temp_master";
+		if (!"temp".equals(name)) {
+		    master = "\"" + name.replace("\"", "\"\"")
+			.replace("%", "%%") + "\".sqlite_master";
+		}
+		String args[] = { table };
+		SQLite.TableResult t =
+		    s.conn.db.get_table("SELECT 1 FROM " + master +
+					" WHERE type = 'table' AND name = '%q'",
+					args);
+		if (t.nrows > 0) {
+		    found = name;
+		    count++;
+		}
+	    }
+	    db = (count == 1) ? found : "";
+	    blobdbs.put(table, db);
+	}
+	return (db.length() > 0) ? db : null;
     }
 
     public java.sql.Blob getBlob(String columnName) throws SQLException {
@@ -1254,6 +1389,16 @@ public class JDBCResultSet implements java.sql.ResultSet {
     }
 
     public void close() throws SQLException {
+	if (streamblob != null) {
+	    streamblob.free();
+	    streamblob = null;
+	}
+	if (blobs != null) {
+	    for (int i = 0; i < blobs.size(); i++) {
+		blobs.get(i).free();
+	    }
+	    blobs = null;
+	}
 	s = null;
 	tr = null;
 	lastg = null;
@@ -241,4 +241,37 @@ public class StringEncoder {
 	out.append('\'');
 	return out.toString();
     }
+
+    /**
+     * Encodes up to length bytes read from the given stream into SQLite3
+     * blob notation, ie X'..', without materializing the raw bytes.
+     * @param in the stream to be encoded.
+     * @param length the number of bytes to read from the stream.
+     * @return the encoded bytes as a string.
+     */
+
+    public static String encodeX(java.io.InputStream in, int length)
+	throws java.io.IOException {
+	if (length <= 0) {
+	    return "X''";
+	}
+	StringBuilder out = new StringBuilder(length * 2 + 3);
+	out.append('X');
+	out.append('\'');
+	byte buf[] = new byte[Math.min(length, 8192)];
+	int remaining = length;
+	while (remaining > 0) {
+	    int n = in.read(buf, 0, Math.min(remaining, buf.length));
+	    if (n < 0) {
+		break;
+	    }
+	    for (int i = 0; i < n; i++) {
+		out.append(xdigits[(buf[i] >> 4) & 0x0F]);
+		out.append(xdigits[buf[i] & 0x0F]);
+	    }
+	    remaining -= n;
+	}
+	out.append('\'');
+	return out.toString();
+    }
 }
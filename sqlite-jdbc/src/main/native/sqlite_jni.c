@@ -4446,6 +4446,89 @@ Java_SQLite_Blob_read(JNIEnv *env , jobject obj, jbyteArray b, jint off,
     return 0;
 }
 
+#if HAVE_SQLITE3 && HAVE_SQLITE3_INCRBLOBIO
+static jbyte *
+getdirectbuf(JNIEnv *env, jobject b, jint off, jint len)
+{
+    jbyte *buf = (jbyte *) (*env)->GetDirectBufferAddress(env, b);
+    jlong cap = (*env)->GetDirectBufferCapacity(env, b);
+
+    if (!buf || cap < 0) {
+	throwex(env, "not a direct buffer");
+	return 0;
+    }
+    if (off < 0 || len < 0 || (jlong) off + len > cap) {
+	throwex(env, "buffer range out of bounds");
+	return 0;
+    }
+    return buf + off;
+}
+#endif
+
+JNIEXPORT jint JNICALL
+Java_SQLite_Blob_writeDirect(JNIEnv *env , jobject obj, jobject b, jint off,
+			     jint pos, jint len)
+{
+#if HAVE_SQLITE3 && HAVE_SQLITE3_INCRBLOBIO
+    hbl *bl = gethbl(env, obj);
+
+    if (bl && bl->h && bl->blob) {
+	jbyte *buf;
+	int ret;
+
+	if (len <= 0) {
+	    return 0;
+	}
+	buf = getdirectbuf(env, b, off, len);
+	if (!buf) {
+	    return 0;
+	}
+	ret = sqlite3_blob_write(bl->blob, buf, len, pos);
+	if (ret != SQLITE_OK) {
+	    throwioex(env, "blob write error");
+	    return 0;
+	}
+	return len;
+    }
+    throwex(env, "blob already closed");
+#else
+    throwex(env, "unsupported");
+#endif
+    return 0;
+}
+
+JNIEXPORT jint JNICALL
+Java_SQLite_Blob_readDirect(JNIEnv *env , jobject obj, jobject b, jint off,
+			    jint pos, jint len)
+{
+#if HAVE_SQLITE3 && HAVE_SQLITE3_INCRBLOBIO
+    hbl *bl = gethbl(env, obj);
+
+    if (bl && bl->h && bl->blob) {
+	jbyte *buf;
+	int ret;
+
+	if (len <= 0) {
+	    return 0;
+	}
+	buf = getdirectbuf(env, b, off, len);
+	if (!buf) {
+	    return 0;
+	}
+	ret = sqlite3_blob_read(bl->blob, buf, len, pos);
+	if (ret != SQLITE_OK) {
+	    throwioex(env, "blob read error");
+	    return 0;
+	}
+	return len;
+    }
+    throwex(env, "blob already closed");
+#else
+    throwex(env, "unsupported");
+#endif
+    return 0;
+}
+
 JNIEXPORT void JNICALL
 Java_SQLite_Blob_close(JNIEnv *env, jobject obj)
 {
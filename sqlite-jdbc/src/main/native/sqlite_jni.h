@@ -635,6 +635,22 @@ JNIEXPORT jint JNICALL Java_SQLite_Blob_write
 JNIEXPORT jint JNICALL Java_SQLite_Blob_read
   (JNIEnv *, jobject, jbyteArray, jint, jint, jint);
 
+/*
+ * Class:     SQLite_Blob
+ * Method:    writeDirect
+ * Signature: (Ljava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_SQLite_Blob_writeDirect
+  (JNIEnv *, jobject, jobject, jint, jint, jint);
+
+/*
+ * Class:     SQLite_Blob
+ * Method:    readDirect
+ * Signature: (Ljava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_SQLite_Blob_readDirect
+  (JNIEnv *, jobject, jobject, jint, jint, jint);
+
 /*
  * Class:     SQLite_Blob
  * Method:    finalize
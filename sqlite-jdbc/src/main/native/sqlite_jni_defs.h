@@ -34,6 +34,6 @@
 #define HAVE_SQLITE3_BIND_PARAMETER_NAME 1
 #define HAVE_SQLITE3_BIND_PARAMETER_INDEX 1
 #define HAVE_SQLITE3_RESULT_ZEROBLOB 0
-#define HAVE_SQLITE3_INCRBLOBIO 0
+#define HAVE_SQLITE3_INCRBLOBIO 1
 
 #define CANT_PASS_VALIST_AS_CHARPTR
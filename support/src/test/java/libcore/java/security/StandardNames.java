@@ -341,6 +341,9 @@ public final class StandardNames extends Assert {
             provide("SecretKeyFactory", "PBEWITHSHAAND40BITRC4");
             provide("SecretKeyFactory", "PBEWITHSHAANDTWOFISH-CBC");
 
+            // lock-free HMAC_DRBG in addition to SHA1PRNG
+            provide("SecureRandom", "DRBG");
+
             // removed LDAP
             unprovide("CertStore", "LDAP");
 
@@ -104,6 +104,30 @@ public class KXmlParser implements XmlPullParser {
     private boolean unresolved;
     private boolean token;
 
+    // BEGIN android-added
+    /** Upper bound on the number of distinct names kept in the symbol table. */
+    private static final int MAX_SYMBOLS = 4096;
+
+    private boolean internNames;
+
+    /**
+     * Open-addressed table of the element and attribute names seen so far.
+     * Retained across setInput() calls.
+     */
+    private String[] symbols;
+    private int symbolCount;
+
+    /**
+     * When names are interned, attribute values of start tags are kept as
+     * ranges into attrBuf and only turned into Strings on demand. The ranges
+     * are arranged in pairs: start offset and length. A start offset of -1
+     * means the value is held in attributes[] instead.
+     */
+    private char[] attrBuf = new char[128];
+    private int attrBufPos;
+    private int[] attrValueRanges = new int[8];
+    // END android-added
+
     public KXmlParser() {
         srcBuf =
             new char[Runtime.getRuntime().freeMemory() >= 1048576 ? 8192 : 128];
@@ -120,6 +144,129 @@ public class KXmlParser implements XmlPullParser {
     public void keepNamespaceAttributes() {
         this.keepNamespaceAttributes = true;
     }
+
+    /**
+     * Returns element names, attribute names and namespace prefixes from a
+     * symbol table owned by this parser, so that repeated names are returned
+     * as the identical String instance and no longer allocated per event. The
+     * table, along with all other parser buffers, survives calls to
+     * setInput(), which makes it worthwhile to reuse one parser instance for
+     * many documents of the same vocabulary.
+     *
+     * <p>In this mode attribute values are materialized lazily; use
+     * {@link #getAttributeValueCharacters} to read them without allocating.
+     * Must be called before setInput().
+     */
+    public void internNames() {
+        this.internNames = true;
+        if (symbols == null) {
+            symbols = new String[256];
+        }
+    }
+
+    /**
+     * Returns the characters of the attribute value at {@code index}, in the
+     * manner of {@link #getTextCharacters}: poslen[0] receives the start
+     * offset and poslen[1] the length. The returned buffer is owned by the
+     * parser and only valid until the next call to next() or nextToken().
+     */
+    public char[] getAttributeValueCharacters(int index, int[] poslen) {
+        if (index >= attributeCount)
+            throw new IndexOutOfBoundsException();
+        if (internNames && attributes[(index << 2) + 3] == null) {
+            poslen[0] = attrValueRanges[index << 1];
+            poslen[1] = attrValueRanges[(index << 1) + 1];
+            return attrBuf;
+        }
+        String value = attributes[(index << 2) + 3];
+        poslen[0] = 0;
+        poslen[1] = value.length();
+        return value.toCharArray();
+    }
+
+    /**
+     * Returns the value of the attribute stored at {@code i} in the attributes
+     * array, creating the String from attrBuf on first access.
+     */
+    private String attributeValue(int i) {
+        String value = attributes[i + 3];
+        if (value == null && internNames) {
+            int r = i >> 1;
+            value = new String(attrBuf, attrValueRanges[r], attrValueRanges[r + 1]);
+            attributes[i + 3] = value;
+        }
+        return value;
+    }
+
+    private String intern(char[] buf, int start, int len) {
+        int hash = 0;
+        for (int i = start; i < start + len; i++)
+            hash = 31 * hash + buf[i];
+        int mask = symbols.length - 1;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            String s = symbols[index];
+            if (s == null)
+                break;
+            if (s.length() == len && s.hashCode() == hash) {
+                int j = 0;
+                while (j < len && s.charAt(j) == buf[start + j])
+                    j++;
+                if (j == len)
+                    return s;
+            }
+            index = (index + 1) & mask;
+        }
+        String result = new String(buf, start, len);
+        if (symbolCount < MAX_SYMBOLS) {
+            symbols[index] = result;
+            if (++symbolCount * 2 > symbols.length)
+                rehashSymbols();
+        }
+        return result;
+    }
+
+    private String intern(String s, int start, int end) {
+        if (!internNames)
+            return s.substring(start, end);
+        int len = end - start;
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + s.charAt(i);
+        int mask = symbols.length - 1;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            String symbol = symbols[index];
+            if (symbol == null)
+                break;
+            if (symbol.length() == len && symbol.hashCode() == hash
+                    && s.regionMatches(start, symbol, 0, len))
+                return symbol;
+            index = (index + 1) & mask;
+        }
+        String result = s.substring(start, end);
+        if (symbolCount < MAX_SYMBOLS) {
+            symbols[index] = result;
+            if (++symbolCount * 2 > symbols.length)
+                rehashSymbols();
+        }
+        return result;
+    }
+
+    private void rehashSymbols() {
+        String[] old = symbols;
+        symbols = new String[old.length * 2];
+        int mask = symbols.length - 1;
+        for (String s : old) {
+            if (s != null) {
+                int hash = s.hashCode();
+                int index = (hash ^ (hash >>> 16)) & mask;
+                while (symbols[index] != null)
+                    index = (index + 1) & mask;
+                symbols[index] = s;
+            }
+        }
+    }
     // END android-added
 
     private final boolean isProp(String n1, boolean prop, String n2) {
@@ -143,8 +290,10 @@ public class KXmlParser implements XmlPullParser {
             String prefix;
 
             if (cut != -1) {
-                prefix = attrName.substring(0, cut);
-                attrName = attrName.substring(cut + 1);
+                // BEGIN android-changed: share prefixes and local names
+                prefix = intern(attrName, 0, cut);
+                attrName = intern(attrName, cut + 1, attrName.length());
+                // END android-changed
             }
             else if (attrName.equals("xmlns")) {
                 prefix = attrName;
@@ -161,7 +310,7 @@ public class KXmlParser implements XmlPullParser {
 
                 nspStack = ensureCapacity(nspStack, j + 2);
                 nspStack[j] = attrName;
-                nspStack[j + 1] = attributes[i + 3];
+                nspStack[j + 1] = attributeValue(i); // android-changed
 
                 if (attrName != null && attributes[i + 3].isEmpty())
                     error("illegal empty namespace");
@@ -177,6 +326,14 @@ public class KXmlParser implements XmlPullParser {
                     attributes[i] = "http://www.w3.org/2000/xmlns/";
                     any = true;
                 } else {
+                    if (internNames) {
+                        System.arraycopy(
+                                attrValueRanges,
+                                (i >> 1) + 2,
+                                attrValueRanges,
+                                i >> 1,
+                                ((attributeCount - 1) << 1) - (i >> 1));
+                    }
                     System.arraycopy(
                             attributes,
                             i + 4,
@@ -201,9 +358,11 @@ public class KXmlParser implements XmlPullParser {
                         "illegal attribute name: " + attrName + " at " + this);
 
                 else if (cut != -1) {
-                    String attrPrefix = attrName.substring(0, cut);
+                    // BEGIN android-changed: share prefixes and local names
+                    String attrPrefix = intern(attrName, 0, cut);
 
-                    attrName = attrName.substring(cut + 1);
+                    attrName = intern(attrName, cut + 1, attrName.length());
+                    // END android-changed
 
                     String attrNs = getNamespace(attrPrefix);
 
@@ -237,8 +396,10 @@ public class KXmlParser implements XmlPullParser {
             error("illegal tag name: " + name);
 
         if (cut != -1) {
-            prefix = name.substring(0, cut);
-            name = name.substring(cut + 1);
+            // BEGIN android-changed: share prefixes and local names
+            prefix = intern(name, 0, cut);
+            name = intern(name, cut + 1, name.length());
+            // END android-changed
         }
 
         this.namespace = getNamespace(prefix);
@@ -623,7 +784,7 @@ public class KXmlParser implements XmlPullParser {
         isWhitespace &= c <= ' ';
 
         if (txtPos == txtBuf.length) {
-            char[] bigger = new char[txtPos * 4 / 3 + 4];
+            char[] bigger = new char[txtPos * 2 + 4]; // android-changed: was 4/3
             System.arraycopy(txtBuf, 0, bigger, 0, txtPos);
             txtBuf = bigger;
         }
@@ -640,6 +801,7 @@ public class KXmlParser implements XmlPullParser {
             read();
         name = readName();
         attributeCount = 0;
+        attrBufPos = 0; // android-added
 
         while (true) {
             skip();
@@ -685,6 +847,17 @@ public class KXmlParser implements XmlPullParser {
             int i = (attributeCount++) << 2;
 
             attributes = ensureCapacity(attributes, i + 4);
+            // BEGIN android-added
+            if (internNames) {
+                int r = i >> 1;
+                if (r + 2 > attrValueRanges.length) {
+                    int[] bigger = new int[attrValueRanges.length * 2];
+                    System.arraycopy(attrValueRanges, 0, bigger, 0, attrValueRanges.length);
+                    attrValueRanges = bigger;
+                }
+                attrValueRanges[r] = -1;
+            }
+            // END android-added
 
             attributes[i++] = "";
             attributes[i++] = null;
@@ -716,7 +889,24 @@ public class KXmlParser implements XmlPullParser {
                 pushText(delimiter, true, true);
                 // END android-changed
 
-                attributes[i] = get(p);
+                // BEGIN android-changed: keep values as char ranges when interning
+                if (internNames && !xmldecl) {
+                    int len = txtPos - p;
+                    if (attrBufPos + len > attrBuf.length) {
+                        char[] bigger = new char[(attrBufPos + len) * 2];
+                        System.arraycopy(attrBuf, 0, bigger, 0, attrBufPos);
+                        attrBuf = bigger;
+                    }
+                    System.arraycopy(txtBuf, p, attrBuf, attrBufPos, len);
+                    int r = (i - 3) >> 1;
+                    attrValueRanges[r] = attrBufPos;
+                    attrValueRanges[r + 1] = len;
+                    attrBufPos += len;
+                    attributes[i] = null;
+                } else {
+                    attributes[i] = get(p);
+                }
+                // END android-changed
                 txtPos = p;
 
                 if (delimiter != ' ')
@@ -976,7 +1166,9 @@ public class KXmlParser implements XmlPullParser {
             || c == '.'
             || c >= 0x0b7);
 
-        String result = get(pos);
+        // BEGIN android-changed: share names through the symbol table
+        String result = internNames ? intern(txtBuf, pos, txtPos - pos) : get(pos);
+        // END android-changed
         txtPos = pos;
         return result;
     }
@@ -1015,7 +1207,12 @@ public class KXmlParser implements XmlPullParser {
         peekCount = 0;
         depth = 0;
 
-        entityMap = new Hashtable();
+        // BEGIN android-changed: reuse the entity map across documents
+        if (entityMap == null)
+            entityMap = new Hashtable();
+        else
+            entityMap.clear();
+        // END android-changed
         entityMap.put("amp", "&");
         entityMap.put("apos", "'");
         entityMap.put("gt", ">");
@@ -1234,7 +1431,7 @@ public class KXmlParser implements XmlPullParser {
                 if (attributes[i + 1] != null)
                     buf.append(
                         "{" + attributes[i] + "}" + attributes[i + 1] + ":");
-                buf.append(attributes[i + 2] + "='" + attributes[i + 3] + "'");
+                buf.append(attributes[i + 2] + "='" + attributeValue(i) + "'"); // android-changed
             }
 
             buf.append('>');
@@ -1349,7 +1546,7 @@ public class KXmlParser implements XmlPullParser {
     public String getAttributeValue(int index) {
         if (index >= attributeCount)
             throw new IndexOutOfBoundsException();
-        return attributes[(index << 2) + 3];
+        return attributeValue(index << 2); // android-changed
     }
 
     public String getAttributeValue(String namespace, String name) {
@@ -1357,7 +1554,7 @@ public class KXmlParser implements XmlPullParser {
         for (int i = (attributeCount << 2) - 4; i >= 0; i -= 4) {
             if (attributes[i + 2].equals(name)
                 && (namespace == null || attributes[i].equals(namespace)))
-                return attributes[i + 3];
+                return attributeValue(i); // android-changed
         }
 
         return null;
@@ -22,6 +22,7 @@ import junit.framework.TestSuite;
 public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite();
+        suite.addTestSuite(KXmlParserTest.class);
         suite.addTestSuite(KXmlSerializerTest.class);
         return suite;
     }
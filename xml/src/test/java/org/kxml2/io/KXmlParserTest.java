@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kxml2.io;
+
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import org.xmlpull.v1.XmlPullParser;
+
+public class KXmlParserTest extends TestCase {
+
+    private static final String FEED = "<feed xmlns:a='http://a'>"
+            + "<entry id='1' a:kind='x'><title>one</title></entry>"
+            + "<entry id='2' a:kind='y'><title>two</title></entry>"
+            + "</feed>";
+
+    public void testInternedNamesAreIdentical() throws Exception {
+        KXmlParser parser = new KXmlParser();
+        parser.internNames();
+        parser.setInput(new StringReader(FEED));
+
+        String firstEntry = null;
+        int entries = 0;
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            if (parser.getEventType() == XmlPullParser.START_TAG
+                    && parser.getName().equals("entry")) {
+                if (firstEntry == null) {
+                    firstEntry = parser.getName();
+                }
+                assertSame(firstEntry, parser.getName());
+                entries++;
+            }
+        }
+        assertEquals(2, entries);
+
+        // the symbol table survives setInput()
+        parser.setInput(new StringReader(FEED));
+        assertEquals(XmlPullParser.START_TAG, parser.nextTag());
+        assertEquals(XmlPullParser.START_TAG, parser.nextTag());
+        assertSame(firstEntry, parser.getName());
+    }
+
+    public void testNamespacesWithInternedNames() throws Exception {
+        KXmlParser parser = new KXmlParser();
+        parser.internNames();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        parser.setInput(new StringReader(FEED));
+        parser.nextTag();
+        parser.nextTag();
+        assertEquals("entry", parser.getName());
+        assertEquals(2, parser.getAttributeCount());
+        assertEquals("1", parser.getAttributeValue(null, "id"));
+        assertEquals("x", parser.getAttributeValue("http://a", "kind"));
+        assertEquals("a", parser.getAttributePrefix(1));
+        assertEquals("kind", parser.getAttributeName(1));
+    }
+
+    public void testAttributeValueCharacters() throws Exception {
+        KXmlParser parser = new KXmlParser();
+        parser.internNames();
+        parser.setInput(new StringReader("<a b='hello' c='w&amp;rld'/>"));
+        parser.nextTag();
+        int[] poslen = new int[2];
+        char[] chars = parser.getAttributeValueCharacters(0, poslen);
+        assertEquals("hello", new String(chars, poslen[0], poslen[1]));
+        chars = parser.getAttributeValueCharacters(1, poslen);
+        assertEquals("w&rld", new String(chars, poslen[0], poslen[1]));
+        assertEquals("w&rld", parser.getAttributeValue(1));
+        chars = parser.getAttributeValueCharacters(1, poslen);
+        assertEquals("w&rld", new String(chars, poslen[0], poslen[1]));
+    }
+
+    public void testAttributeValueCharactersWithoutInterning() throws Exception {
+        KXmlParser parser = new KXmlParser();
+        parser.setInput(new StringReader("<a b='hello'/>"));
+        parser.nextTag();
+        int[] poslen = new int[2];
+        char[] chars = parser.getAttributeValueCharacters(0, poslen);
+        assertEquals("hello", new String(chars, poslen[0], poslen[1]));
+    }
+}